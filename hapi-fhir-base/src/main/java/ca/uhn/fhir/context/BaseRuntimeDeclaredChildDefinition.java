@@ -35,6 +35,7 @@ public abstract class BaseRuntimeDeclaredChildDefinition extends BaseRuntimeChil
 	private final IAccessor myAccessor;
 	private final String myElementName;
 	private final Field myField;
+	private IModelFieldAccessor myFieldAccessor;
 	private final String myFormalDefinition;
 	private final int myMax;
 	private final int myMin;
@@ -65,6 +66,7 @@ public abstract class BaseRuntimeDeclaredChildDefinition extends BaseRuntimeChil
 		}
 
 		myField.setAccessible(true);
+		myFieldAccessor = new FieldReflectionAccessor(myField);
 		if (List.class.equals(myField.getType())) {
 			// TODO: verify that generic type is IElement
 			myAccessor = new FieldListAccessor();
@@ -90,6 +92,10 @@ public abstract class BaseRuntimeDeclaredChildDefinition extends BaseRuntimeChil
 		return myField;
 	}
 
+	IModelFieldAccessor getFieldAccessor() {
+		return myFieldAccessor;
+	}
+
 	public String getFormalDefinition() {
 		return myFormalDefinition;
 	}
@@ -129,6 +135,16 @@ public abstract class BaseRuntimeDeclaredChildDefinition extends BaseRuntimeChil
 		return mySummary;
 	}
 
+	/**
+	 * Replaces the reflection based field access with a generated accessor. This
+	 * is called while the parent definition is being sealed, and either accessor
+	 * is valid so there is no harm if another thread briefly sees the old one.
+	 */
+	void setFieldAccessor(IModelFieldAccessor theFieldAccessor) {
+		Validate.notNull(theFieldAccessor, "theFieldAccessor must not be null");
+		myFieldAccessor = theFieldAccessor;
+	}
+
 	protected void setModifier(boolean theModifier) {
 		myModifier = theModifier;
 	}
@@ -137,13 +153,7 @@ public abstract class BaseRuntimeDeclaredChildDefinition extends BaseRuntimeChil
 		@SuppressWarnings("unchecked")
 		@Override
 		public List<IBase> getValues(Object theTarget) {
-			List<IBase> retVal;
-			try {
-				retVal = (List<IBase>) myField.get(theTarget);
-			} catch (Exception e) {
-				throw new ConfigurationException("Failed to get value", e);
-			}
-			
+			List<IBase> retVal = (List<IBase>) myFieldAccessor.getValue(theTarget);
 			if (retVal == null) {
 				retVal = Collections.emptyList();
 			}
@@ -158,20 +168,16 @@ public abstract class BaseRuntimeDeclaredChildDefinition extends BaseRuntimeChil
 		}
 
 		private void addValue(Object theTarget, IBase theValue, boolean theClear) {
-			try {
-				@SuppressWarnings("unchecked")
-				List<IBase> existingList = (List<IBase>) myField.get(theTarget);
-				if (existingList == null) {
-					existingList = new ArrayList<IBase>(2);
-					myField.set(theTarget, existingList);
-				}
-				if (theClear) {
-					existingList.clear();
-				}
-				existingList.add(theValue);
-			} catch (Exception e) {
-				throw new ConfigurationException("Failed to set value", e);
+			@SuppressWarnings("unchecked")
+			List<IBase> existingList = (List<IBase>) myFieldAccessor.getValue(theTarget);
+			if (existingList == null) {
+				existingList = new ArrayList<IBase>(2);
+				myFieldAccessor.setValue(theTarget, existingList);
+			}
+			if (theClear) {
+				existingList.clear();
 			}
+			existingList.add(theValue);
 		}
 
 		@Override
@@ -183,32 +189,50 @@ public abstract class BaseRuntimeDeclaredChildDefinition extends BaseRuntimeChil
 	private final class FieldPlainAccessor implements IAccessor {
 		@Override
 		public List<IBase> getValues(Object theTarget) {
-			try {
-				Object values = myField.get(theTarget);
-				if (values == null) {
-					return Collections.emptyList();
-				}
-				List<IBase> retVal = Collections.singletonList((IBase) values);
-				return retVal;
-			} catch (Exception e) {
-				throw new ConfigurationException("Failed to get value", e);
+			Object values = myFieldAccessor.getValue(theTarget);
+			if (values == null) {
+				return Collections.emptyList();
 			}
+			List<IBase> retVal = Collections.singletonList((IBase) values);
+			return retVal;
 		}
 	}
 
 	protected final class FieldPlainMutator implements IMutator {
 		@Override
 		public void addValue(Object theTarget, IBase theValue) {
+			myFieldAccessor.setValue(theTarget, theValue);
+		}
+
+		@Override
+		public void setValue(Object theTarget, IBase theValue) {
+			addValue(theTarget, theValue);
+		}
+	}
+
+	private static final class FieldReflectionAccessor implements IModelFieldAccessor {
+		private final Field myField;
+
+		public FieldReflectionAccessor(Field theField) {
+			myField = theField;
+		}
+
+		@Override
+		public Object getValue(Object theTarget) {
 			try {
-				myField.set(theTarget, theValue);
+				return myField.get(theTarget);
 			} catch (Exception e) {
-				throw new ConfigurationException("Failed to set value", e);
+				throw new ConfigurationException("Failed to get value", e);
 			}
 		}
 
 		@Override
-		public void setValue(Object theTarget, IBase theValue) {
-			addValue(theTarget, theValue);
+		public void setValue(Object theTarget, Object theValue) {
+			try {
+				myField.set(theTarget, theValue);
+			} catch (Exception e) {
+				throw new ConfigurationException("Failed to set value", e);
+			}
 		}
 	}
 
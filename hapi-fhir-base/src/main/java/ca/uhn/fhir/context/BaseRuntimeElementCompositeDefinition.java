@@ -444,6 +444,33 @@ public abstract class BaseRuntimeElementCompositeDefinition<T extends IBase> ext
 			elementNames.add(elementName);
 		}
 	}
+	/**
+	 * Swaps the reflection based field access of our declared children (and declared
+	 * extensions) for generated accessors, wherever one can be generated
+	 */
+	private void installGeneratedFieldAccessors() {
+		List<BaseRuntimeDeclaredChildDefinition> children = new ArrayList<BaseRuntimeDeclaredChildDefinition>();
+		for (BaseRuntimeChildDefinition next : myChildren) {
+			if (next instanceof BaseRuntimeDeclaredChildDefinition) {
+				children.add((BaseRuntimeDeclaredChildDefinition) next);
+			}
+		}
+		children.addAll(getExtensions());
+
+		List<Field> fields = new ArrayList<Field>(children.size());
+		for (BaseRuntimeDeclaredChildDefinition next : children) {
+			fields.add(next.getField());
+		}
+
+		Map<Field, IModelFieldAccessor> accessors = ModelAccessorGenerator.generateFieldAccessors(fields);
+		for (BaseRuntimeDeclaredChildDefinition next : children) {
+			IModelFieldAccessor accessor = accessors.get(next.getField());
+			if (accessor != null) {
+				next.setFieldAccessor(accessor);
+			}
+		}
+	}
+
 	@Override 
 	void sealAndInitialize(FhirContext theContext, Map<Class<? extends IBase>, BaseRuntimeElementDefinition<?>> theClassToElementDefinitions) {
 		if (mySealed) {
@@ -455,6 +482,10 @@ public abstract class BaseRuntimeElementCompositeDefinition<T extends IBase> ext
 		
 		super.sealAndInitialize(theContext, theClassToElementDefinitions);
 
+		if (theContext.getPerformanceOptions().contains(PerformanceOptionsEnum.GENERATED_MODEL_ACCESSORS)) {
+			installGeneratedFieldAccessors();
+		}
+
 		for (BaseRuntimeChildDefinition next : myChildren) {
 			next.sealAndInitialize(theContext, theClassToElementDefinitions);
 		}
@@ -39,6 +39,7 @@ public abstract class BaseRuntimeElementDefinition<T extends IBase> {
 	private List<RuntimeChildDeclaredExtensionDefinition> myExtensionsModifier = new ArrayList<RuntimeChildDeclaredExtensionDefinition>();
 	private List<RuntimeChildDeclaredExtensionDefinition> myExtensionsNonModifier = new ArrayList<RuntimeChildDeclaredExtensionDefinition>();
 	private final Class<? extends T> myImplementingClass;
+	private volatile IModelInstanceFactory myInstanceFactory;
 	private final String myName;
 	private final boolean myStandardType;
 	private Map<String, RuntimeChildDeclaredExtensionDefinition> myUrlToExtension = new HashMap<String, RuntimeChildDeclaredExtensionDefinition>();
@@ -144,7 +145,12 @@ public abstract class BaseRuntimeElementDefinition<T extends IBase> {
 		return newInstance(null);
 	}
 
+	@SuppressWarnings("unchecked")
 	public T newInstance(Object theArgument) {
+		IModelInstanceFactory instanceFactory = myInstanceFactory;
+		if (theArgument == null && instanceFactory != null) {
+			return (T) instanceFactory.newInstance();
+		}
 		try {
 			if (theArgument == null) {
 				return getConstructor(null).newInstance(null);
@@ -182,6 +188,10 @@ public abstract class BaseRuntimeElementDefinition<T extends IBase> {
 		}
 
 		myExtensions = Collections.unmodifiableList(myExtensions);
+
+		if (theContext.getPerformanceOptions().contains(PerformanceOptionsEnum.GENERATED_MODEL_ACCESSORS)) {
+			myInstanceFactory = ModelAccessorGenerator.generateInstanceFactory(getImplementingClass());
+		}
 	}
 
 	@Override
@@ -42,6 +42,7 @@ import ca.uhn.fhir.model.api.IFhirVersion;
 import ca.uhn.fhir.model.api.IResource;
 import ca.uhn.fhir.model.view.ViewGenerator;
 import ca.uhn.fhir.narrative.INarrativeGenerator;
+import ca.uhn.fhir.parser.BinaryCodec;
 import ca.uhn.fhir.parser.DataFormatException;
 import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.parser.IParserErrorHandler;
@@ -413,6 +414,23 @@ public class FhirContext {
 		return !myDefaultTypeForProfile.isEmpty();
 	}
 
+	/**
+	 * Create and return a new codec for the compact binary format, which is intended for storage and internal
+	 * caches rather than for exchange with other systems
+	 * 
+	 * <p>
+	 * Thread safety: <b>Codecs are not guaranteed to be thread safe</b>. Create a new codec instance for every thread
+	 * or every message being parsed/encoded.
+	 * </p>
+	 * <p>
+	 * Performance Note: <b>This method is cheap</b> to call, and may be called once for every message being processed
+	 * without incurring any performance penalty
+	 * </p>
+	 */
+	public BinaryCodec newBinaryCodec() {
+		return new BinaryCodec(this, myParserErrorHandler);
+	}
+
 	/**
 	 * This method should be considered experimental and will likely change in future releases
 	 * of HAPI. Use with caution!
@@ -0,0 +1,39 @@
+package ca.uhn.fhir.context;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+/**
+ * Reads and writes the field backing a single declared child of a model type.
+ * <p>
+ * This is an internal API. The default implementation uses reflection, and
+ * if {@link PerformanceOptionsEnum#GENERATED_MODEL_ACCESSORS} is enabled a class
+ * implementing this interface is generated for each child field so that
+ * the field can be accessed directly.
+ * </p>
+ */
+public interface IModelFieldAccessor {
+
+	Object getValue(Object theTarget);
+
+	void setValue(Object theTarget, Object theValue);
+
+}
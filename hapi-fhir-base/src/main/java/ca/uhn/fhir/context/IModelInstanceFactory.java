@@ -0,0 +1,37 @@
+package ca.uhn.fhir.context;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+/**
+ * Creates new instances of a model type using its no-argument constructor.
+ * <p>
+ * This is an internal API. Implementations are generated when
+ * {@link PerformanceOptionsEnum#GENERATED_MODEL_ACCESSORS} is enabled so that
+ * {@link BaseRuntimeElementDefinition#newInstance()} does not need to go
+ * through {@link java.lang.reflect.Constructor#newInstance(Object...)}.
+ * </p>
+ */
+public interface IModelInstanceFactory {
+
+	Object newInstance();
+
+}
@@ -0,0 +1,295 @@
+package ca.uhn.fhir.context;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+/**
+ * Does the actual bytecode generation for {@link ModelAccessorGenerator}. Each generated
+ * class is defined in the package and class loader of the model type it accesses, which
+ * allows it to read and write protected and package-private fields directly (this covers
+ * the HL7.org structures, whose child fields are protected). Private fields can not be
+ * reached this way and are skipped.
+ * <p>
+ * On Java 9 and later, classes are defined through <code>MethodHandles.Lookup#defineClass</code>
+ * because the <code>ClassLoader#defineClass</code> call which Javassist uses is no longer
+ * accessible there. The lookup API is used reflectively so that this class still loads
+ * on older JVMs.
+ * </p>
+ */
+final class JavassistModelAccessorGenerator {
+
+	private static final String FIELD_ACCESSOR_SUFFIX = "$$HapiFieldAccessor$$";
+	private static final String INSTANCE_FACTORY_SUFFIX = "$$HapiInstanceFactory";
+	private static final Method ourLookupDefineClass;
+	private static final Object ourLookup;
+	private static final Method ourPrivateLookupIn;
+
+	static {
+		Object lookup = null;
+		Method privateLookupIn = null;
+		Method lookupDefineClass = null;
+		try {
+			Class<?> methodHandles = Class.forName("java.lang.invoke.MethodHandles");
+			Class<?> lookupType = Class.forName("java.lang.invoke.MethodHandles$Lookup");
+			privateLookupIn = methodHandles.getMethod("privateLookupIn", Class.class, lookupType);
+			lookupDefineClass = lookupType.getMethod("defineClass", byte[].class);
+			lookup = methodHandles.getMethod("lookup").invoke(null);
+		} catch (Exception e) {
+			// Before Java 9 these don't exist, and Javassist's ClassLoader#defineClass call is used
+			lookup = null;
+		}
+		ourLookup = lookup;
+		ourPrivateLookupIn = lookup != null ? privateLookupIn : null;
+		ourLookupDefineClass = lookup != null ? lookupDefineClass : null;
+	}
+
+	private JavassistModelAccessorGenerator() {
+		// non instantiable
+	}
+
+	static Map<Field, IModelFieldAccessor> generateFieldAccessors(Collection<Field> theFields) {
+		Map<Field, IModelFieldAccessor> retVal = new HashMap<Field, IModelFieldAccessor>();
+		GeneratorClassPool pool = null;
+
+		for (Field next : theFields) {
+			if (!isDirectlyAccessible(next)) {
+				continue;
+			}
+
+			Class<?> declaringClass = next.getDeclaringClass();
+			String className = declaringClass.getName() + FIELD_ACCESSOR_SUFFIX + next.getName();
+			Class<?> accessorClass = findExistingClass(className, declaringClass.getClassLoader());
+			if (accessorClass == null) {
+				if (pool == null) {
+					pool = new GeneratorClassPool();
+				}
+				String declaringName = declaringClass.getName();
+				String fieldTypeName = next.getType().getName();
+				String fieldName = next.getName();
+
+				pool.addClassLoader(next.getType().getClassLoader());
+				try {
+					CtClass ctClass = pool.makeClass(className, declaringClass, IModelFieldAccessor.class);
+					ctClass.addMethod(CtNewMethod.make("public Object getValue(Object theTarget) { return ((" + declaringName + ") $1)." + fieldName + "; }", ctClass));
+					ctClass.addMethod(CtNewMethod.make("public void setValue(Object theTarget, Object theValue) { ((" + declaringName + ") $1)." + fieldName + " = (" + fieldTypeName + ") $2; }", ctClass));
+					accessorClass = toClass(ctClass, declaringClass);
+				} catch (CannotCompileException e) {
+					throw new ConfigurationException("Failed to generate accessor for field " + declaringName + "#" + fieldName, e);
+				} catch (NotFoundException e) {
+					throw new ConfigurationException("Failed to generate accessor for field " + declaringName + "#" + fieldName, e);
+				}
+			}
+
+			retVal.put(next, (IModelFieldAccessor) newInstance(accessorClass));
+		}
+
+		return retVal;
+	}
+
+	static IModelInstanceFactory generateInstanceFactory(Class<?> theType) {
+		if (!isInstantiableFromGeneratedCode(theType)) {
+			return null;
+		}
+
+		String className = theType.getName() + INSTANCE_FACTORY_SUFFIX;
+		Class<?> factoryClass = findExistingClass(className, theType.getClassLoader());
+		if (factoryClass == null) {
+			GeneratorClassPool pool = new GeneratorClassPool();
+			try {
+				CtClass ctClass = pool.makeClass(className, theType, IModelInstanceFactory.class);
+				ctClass.addMethod(CtNewMethod.make("public Object newInstance() { return new " + theType.getName() + "(); }", ctClass));
+				factoryClass = toClass(ctClass, theType);
+			} catch (CannotCompileException e) {
+				throw new ConfigurationException("Failed to generate instance factory for " + theType.getName(), e);
+			} catch (NotFoundException e) {
+				throw new ConfigurationException("Failed to generate instance factory for " + theType.getName(), e);
+			}
+		}
+
+		return (IModelInstanceFactory) newInstance(factoryClass);
+	}
+
+	private static Object newInstance(Class<?> theGeneratedClass) {
+		try {
+			return theGeneratedClass.newInstance();
+		} catch (InstantiationException e) {
+			throw new ConfigurationException("Failed to instantiate " + theGeneratedClass.getName(), e);
+		} catch (IllegalAccessException e) {
+			throw new ConfigurationException("Failed to instantiate " + theGeneratedClass.getName(), e);
+		}
+	}
+
+	/**
+	 * Multiple contexts may scan the same model, and the generated class will
+	 * already have been defined by the first one
+	 */
+	private static Class<?> findExistingClass(String theClassName, ClassLoader theClassLoader) {
+		try {
+			return Class.forName(theClassName, false, theClassLoader);
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Can a class in the same package (and class loader) as <code>theType</code> refer to it?
+	 */
+	private static boolean isAccessibleFromOwnPackage(Class<?> theType) {
+		for (Class<?> next = theType; next != null; next = next.getEnclosingClass()) {
+			if (Modifier.isPrivate(next.getModifiers()) || next.isAnonymousClass() || next.isLocalClass()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isDirectlyAccessible(Field theField) {
+		int modifiers = theField.getModifiers();
+		if (Modifier.isPrivate(modifiers) || Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+			return false;
+		}
+
+		Class<?> declaringClass = theField.getDeclaringClass();
+		if (declaringClass.getClassLoader() == null || !isAccessibleFromOwnPackage(declaringClass)) {
+			return false;
+		}
+
+		Class<?> fieldType = theField.getType();
+		if (fieldType.isPrimitive() || fieldType.isArray()) {
+			return false;
+		}
+		if (Modifier.isPublic(fieldType.getModifiers()) && isAccessibleFromOwnPackage(fieldType)) {
+			return true;
+		}
+		return fieldType.getPackage() != null && fieldType.getPackage().equals(declaringClass.getPackage()) && fieldType.getClassLoader() == declaringClass.getClassLoader()
+				&& isAccessibleFromOwnPackage(fieldType);
+	}
+
+	private static boolean isInstantiableFromGeneratedCode(Class<?> theType) {
+		if (theType.getClassLoader() == null || theType.isInterface() || Modifier.isAbstract(theType.getModifiers()) || !Modifier.isPublic(theType.getModifiers())) {
+			return false;
+		}
+		if (!isAccessibleFromOwnPackage(theType)) {
+			return false;
+		}
+		if (theType.getEnclosingClass() != null && !Modifier.isStatic(theType.getModifiers())) {
+			return false;
+		}
+		for (Constructor<?> next : theType.getConstructors()) {
+			if (next.getParameterTypes().length == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Defines the generated class next to <code>theNeighbour</code>. If another context has
+	 * defined the same class concurrently, the class it defined is returned.
+	 */
+	private static Class<?> toClass(CtClass theCtClass, Class<?> theNeighbour) throws CannotCompileException {
+		try {
+			if (ourPrivateLookupIn != null) {
+				return defineWithLookup(theCtClass, theNeighbour);
+			}
+			return theCtClass.toClass(theNeighbour.getClassLoader(), theNeighbour.getProtectionDomain());
+		} catch (LinkageError e) {
+			Class<?> existing = findExistingClass(theCtClass.getName(), theNeighbour.getClassLoader());
+			if (existing == null) {
+				throw e;
+			}
+			return existing;
+		} catch (CannotCompileException e) {
+			Class<?> existing = findExistingClass(theCtClass.getName(), theNeighbour.getClassLoader());
+			if (existing == null) {
+				throw e;
+			}
+			return existing;
+		} finally {
+			theCtClass.detach();
+		}
+	}
+
+	private static Class<?> defineWithLookup(CtClass theCtClass, Class<?> theNeighbour) throws CannotCompileException {
+		try {
+			byte[] bytes = theCtClass.toBytecode();
+			Object lookup = ourPrivateLookupIn.invoke(null, theNeighbour, ourLookup);
+			return (Class<?>) ourLookupDefineClass.invoke(lookup, bytes);
+		} catch (IOException e) {
+			throw new CannotCompileException(e);
+		} catch (IllegalAccessException e) {
+			throw new CannotCompileException(e);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof LinkageError) {
+				throw (LinkageError) e.getCause();
+			}
+			throw new CannotCompileException(e.getCause());
+		}
+	}
+
+	/**
+	 * Class pool which is able to see the HAPI classes as well as the model classes being
+	 * accessed, which may live in different class loaders
+	 */
+	private static class GeneratorClassPool {
+		private final ClassPool myClassPool;
+		private final Set<ClassLoader> myClassLoaders = new HashSet<ClassLoader>();
+
+		public GeneratorClassPool() {
+			myClassPool = new ClassPool(true);
+			addClassLoader(JavassistModelAccessorGenerator.class.getClassLoader());
+		}
+
+		public void addClassLoader(ClassLoader theClassLoader) {
+			if (theClassLoader != null && myClassLoaders.add(theClassLoader)) {
+				myClassPool.appendClassPath(new LoaderClassPath(theClassLoader));
+			}
+		}
+
+		public CtClass makeClass(String theClassName, Class<?> theNeighbour, Class<?> theInterface) throws NotFoundException {
+			addClassLoader(theNeighbour.getClassLoader());
+			CtClass retVal = myClassPool.makeClass(theClassName);
+			retVal.setModifiers(javassist.Modifier.PUBLIC | javassist.Modifier.FINAL);
+			retVal.addInterface(myClassPool.get(theInterface.getName()));
+			return retVal;
+		}
+	}
+
+}
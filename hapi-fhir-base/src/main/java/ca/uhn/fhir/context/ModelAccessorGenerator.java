@@ -0,0 +1,107 @@
+package ca.uhn.fhir.context;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Generates {@link IModelFieldAccessor} and {@link IModelInstanceFactory} implementations
+ * for model types, so that the parsers, encoders and {@link ca.uhn.fhir.util.FhirTerser}
+ * don't need to use reflection for every child they touch.
+ * <p>
+ * Generation requires Javassist, which is an optional dependency. If it is not on the
+ * classpath, or a given field or type can not be accessed from generated code (e.g.
+ * because it is private), nothing is returned and callers keep using reflection.
+ * </p>
+ * <p>
+ * Note that this class must not reference any Javassist types directly, so that it can
+ * be loaded when Javassist is not present. All generation is delegated to
+ * {@link JavassistModelAccessorGenerator}.
+ * </p>
+ */
+final class ModelAccessorGenerator {
+
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ModelAccessorGenerator.class);
+	private static final boolean ourJavassistAvailable;
+
+	static {
+		boolean available;
+		try {
+			Class.forName("javassist.ClassPool");
+			available = true;
+		} catch (ClassNotFoundException e) {
+			ourLog.info("Javassist is not available on the classpath, model accessors will use reflection");
+			available = false;
+		}
+		ourJavassistAvailable = available;
+	}
+
+	private ModelAccessorGenerator() {
+		// non instantiable
+	}
+
+	/**
+	 * Returns generated accessors for the given fields. Fields which can not be accessed
+	 * from generated code are not included in the returned map.
+	 */
+	static Map<Field, IModelFieldAccessor> generateFieldAccessors(Collection<Field> theFields) {
+		if (!ourJavassistAvailable || theFields.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		try {
+			return JavassistModelAccessorGenerator.generateFieldAccessors(theFields);
+		} catch (ConfigurationException e) {
+			ourLog.warn("Failed to generate model field accessors, falling back to reflection", e);
+			return Collections.emptyMap();
+		} catch (LinkageError e) {
+			ourLog.warn("Failed to generate model field accessors, falling back to reflection", e);
+			return Collections.emptyMap();
+		}
+	}
+
+	/**
+	 * Returns a generated factory for the given type, or <code>null</code> if
+	 * none could be generated
+	 */
+	static IModelInstanceFactory generateInstanceFactory(Class<?> theType) {
+		if (!ourJavassistAvailable) {
+			return null;
+		}
+		try {
+			return JavassistModelAccessorGenerator.generateInstanceFactory(theType);
+		} catch (ConfigurationException e) {
+			ourLog.warn("Failed to generate instance factory for " + theType.getName() + ", falling back to reflection", e);
+			return null;
+		} catch (LinkageError e) {
+			ourLog.warn("Failed to generate instance factory for " + theType.getName() + ", falling back to reflection", e);
+			return null;
+		}
+	}
+
+	static boolean isAvailable() {
+		return ourJavassistAvailable;
+	}
+
+}
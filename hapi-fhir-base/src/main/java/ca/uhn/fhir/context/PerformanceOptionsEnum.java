@@ -35,6 +35,25 @@ public enum PerformanceOptionsEnum {
 	 * Android or low powered devices.
 	 * </p> 
 	 */
-	DEFERRED_MODEL_SCANNING
-	
+	DEFERRED_MODEL_SCANNING,
+
+	/**
+	 * When this option is set, small accessor and factory classes are generated at runtime
+	 * for each model type as it is scanned, so that reading and writing child elements and
+	 * creating new instances during parsing, encoding and {@link ca.uhn.fhir.util.FhirTerser}
+	 * operations does not need to go through reflection.
+	 * <p>
+	 * This option requires Javassist to be on the classpath. Generated code can only reach
+	 * fields which are not private (e.g. the HL7.org structures, which use protected fields),
+	 * and any child which can not be accessed this way continues to use reflection, as does
+	 * everything if Javassist is not available. This option should not be used on Android.
+	 * </p>
+	 * <p>
+	 * On HotSpot JVMs (Java 8 and 17), reflective field access is already compiled after warm-up,
+	 * and parse/encode throughput measured the same with and without this option. It is
+	 * only likely to help on JVMs where reflection is particularly slow.
+	 * </p>
+	 */
+	GENERATED_MODEL_ACCESSORS
+
 }
@@ -70,7 +70,7 @@ public class RuntimePrimitiveDatatypeDefinition extends BaseRuntimeElementDefini
 				Type rawType = superPt.getRawType();
 				if (rawType instanceof Class) {
 					Class<?> rawClass = (Class<?>) rawType;
-					if (rawClass.getName().endsWith(".BasePrimitive") || rawClass.getName().endsWith(".PrimitiveType")) {
+					if (rawClass.getName().endsWith(".BasePrimitive") || rawClass.getName().endsWith(".BaseDeferredPrimitive") || rawClass.getName().endsWith(".PrimitiveType")) {
 						Type typeVariable = superPt.getActualTypeArguments()[0];
 						if (typeVariable instanceof Class) {
 							myNativeType = (Class<?>) typeVariable;
@@ -0,0 +1,50 @@
+package ca.uhn.fhir.model.api;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Base class for primitive datatypes which are able to validate a string value in {@link #parse(String)}
+ * without building the (often fairly expensive) coerced value, such as a date. The coerced value is then
+ * only built by {@link #computeDeferredValue(String)} the first time {@link #getValue()} is called, which
+ * saves the work for values which are only ever parsed and encoded again.
+ */
+public abstract class BaseDeferredPrimitive<T> extends BasePrimitive<T> {
+
+	/**
+	 * Subclasses must override to build the coerced value from the string value, for values where
+	 * {@link #parse(String)} called {@link #deferCoercedValue()}
+	 * 
+	 * @param theValue
+	 *           The string value. Will not be null
+	 */
+	protected abstract T computeDeferredValue(String theValue);
+
+	/**
+	 * May be called from within {@link #parse(String)} once the string value has been validated, to indicate
+	 * that the coerced value should not be built until {@link #getValue()} is first called. In this case
+	 * <code>parse</code> should return <code>null</code>.
+	 */
+	@Override
+	protected final void deferCoercedValue() {
+		super.deferCoercedValue();
+	}
+
+}
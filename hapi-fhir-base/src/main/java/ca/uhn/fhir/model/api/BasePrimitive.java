@@ -34,8 +34,25 @@ import ca.uhn.fhir.parser.DataFormatException;
 public abstract class BasePrimitive<T> extends BaseIdentifiableElement implements IPrimitiveDatatype<T>, Externalizable {
 
 	private T myCoercedValue;
+	private volatile boolean myCoercedValueDeferred;
 	private String myStringValue;
 
+	/**
+	 * Marks the coerced value as not built yet. Only {@link BaseDeferredPrimitive} calls this, so that every type
+	 * which defers has to implement {@link BaseDeferredPrimitive#computeDeferredValue(String)}.
+	 */
+	void deferCoercedValue() {
+		myCoercedValueDeferred = true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void computeDeferredValueIfNeeded() {
+		if (myCoercedValueDeferred) {
+			myCoercedValue = ((BaseDeferredPrimitive<T>) this).computeDeferredValue(myStringValue);
+			myCoercedValueDeferred = false;
+		}
+	}
+
 	/**
 	 * Subclasses must override to convert a "coerced" value into an encoded one.
 	 * 
@@ -63,6 +80,7 @@ public abstract class BasePrimitive<T> extends BaseIdentifiableElement implement
 
 	@Override
 	public T getValue() {
+		computeDeferredValueIfNeeded();
 		return myCoercedValue;
 	}
 
@@ -78,7 +96,7 @@ public abstract class BasePrimitive<T> extends BaseIdentifiableElement implement
 
 	@Override
 	public boolean isEmpty() {
-		return super.isBaseEmpty() && getValue() == null;
+		return super.isBaseEmpty() && !myCoercedValueDeferred && getValue() == null;
 	}
 
 	/**
@@ -98,6 +116,7 @@ public abstract class BasePrimitive<T> extends BaseIdentifiableElement implement
 
 	@Override
 	public BasePrimitive<T> setValue(T theValue) throws DataFormatException {
+		myCoercedValueDeferred = false;
 		myCoercedValue = theValue;
 		updateStringValue();
 		return this;
@@ -105,6 +124,7 @@ public abstract class BasePrimitive<T> extends BaseIdentifiableElement implement
 
 	@Override
 	public void setValueAsString(String theValue) throws DataFormatException {
+		myCoercedValueDeferred = false;
 		if (theValue == null) {
 			myCoercedValue = null;
 		} else {
@@ -120,6 +140,7 @@ public abstract class BasePrimitive<T> extends BaseIdentifiableElement implement
 	}
 
 	protected void updateStringValue() {
+		computeDeferredValueIfNeeded();
 		if (myCoercedValue == null) {
 			myStringValue = null;
 		} else {
@@ -12,20 +12,47 @@ import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.time.DateUtils;
 import org.apache.commons.lang3.time.FastDateFormat;
 
-import ca.uhn.fhir.model.api.BasePrimitive;
+import ca.uhn.fhir.model.api.BaseDeferredPrimitive;
 import ca.uhn.fhir.model.api.TemporalPrecisionEnum;
 import ca.uhn.fhir.parser.DataFormatException;
 
-public abstract class BaseDateTimeDt extends BasePrimitive<Date> {
+public abstract class BaseDateTimeDt extends BaseDeferredPrimitive<Date> {
 	static final long NANOS_PER_MILLIS = 1000000L;
 	static final long NANOS_PER_SECOND = 1000000000L;
 
+	/**
+	 * Years after this one use the Gregorian calendar in {@link GregorianCalendar}, earlier ones use the Julian calendar
+	 */
+	private static final int GREGORIAN_CUTOVER_YEAR = 1582;
+
 	private static final FastDateFormat ourHumanDateFormat = FastDateFormat.getDateInstance(FastDateFormat.MEDIUM);
 	private static final FastDateFormat ourHumanDateTimeFormat = FastDateFormat.getDateTimeInstance(FastDateFormat.MEDIUM, FastDateFormat.MEDIUM);
 
 	private String myFractionalSeconds;
+	/*
+	 * The components of the most recently parsed value, which are only turned into a Date
+	 * when one is actually needed (see computeDeferredValue)
+	 */
+	private int myParsedDay;
+	/*
+	 * The default zone when a value without an offset was parsed, so that the Date does not
+	 * depend on the default zone at the time it is first requested
+	 */
+	private TimeZone myParsedDefaultTimeZone;
+	private boolean myParsedHasOffset;
+	private int myParsedHour;
+	private int myParsedMillis;
+	private int myParsedMinute;
+	private int myParsedMonth;
+	private int myParsedSecond;
+	private int myParsedYear;
 	private TemporalPrecisionEnum myPrecision = null;
 	private TimeZone myTimeZone;
+	/*
+	 * If the parsed value had an explicit offset, the TimeZone for it is only created when it is needed
+	 */
+	private int myTimeZoneOffsetMinutes;
+	private boolean myTimeZoneOffsetPending;
 	private boolean myTimeZoneZulu = false;
 
 	/**
@@ -71,9 +98,37 @@ public abstract class BaseDateTimeDt extends BasePrimitive<Date> {
 
 	private void clearTimeZone() {
 		myTimeZone = null;
+		myTimeZoneOffsetPending = false;
 		myTimeZoneZulu = false;
 	}
 
+	@Override
+	protected Date computeDeferredValue(String theValue) {
+		if (myParsedHasOffset && (myTimeZoneZulu || myTimeZoneOffsetPending) && myParsedYear > GREGORIAN_CUTOVER_YEAR) {
+			/*
+			 * With an explicit offset the instant can be computed directly, which is much
+			 * cheaper than going through a Calendar
+			 */
+			long millis = daysSinceEpoch(myParsedYear, myParsedMonth, myParsedDay) * DateUtils.MILLIS_PER_DAY;
+			millis += myParsedHour * DateUtils.MILLIS_PER_HOUR + myParsedMinute * DateUtils.MILLIS_PER_MINUTE + myParsedSecond * DateUtils.MILLIS_PER_SECOND + myParsedMillis;
+			if (!myTimeZoneZulu) {
+				millis -= myTimeZoneOffsetMinutes * DateUtils.MILLIS_PER_MINUTE;
+			}
+			return new Date(millis);
+		}
+
+		Calendar cal = new GregorianCalendar(0, 0, 0);
+		cal.setTimeZone(myParsedHasOffset ? getTimeZone() : myParsedDefaultTimeZone);
+		cal.set(Calendar.YEAR, myParsedYear);
+		cal.set(Calendar.MONTH, myParsedMonth - 1);
+		cal.set(Calendar.DATE, myParsedDay);
+		cal.set(Calendar.HOUR_OF_DAY, myParsedHour);
+		cal.set(Calendar.MINUTE, myParsedMinute);
+		cal.set(Calendar.SECOND, myParsedSecond);
+		cal.set(Calendar.MILLISECOND, myParsedMillis);
+		return cal.getTime();
+	}
+
 	@Override
 	protected String encode(Date theValue) {
 		if (theValue == null) {
@@ -82,8 +137,8 @@ public abstract class BaseDateTimeDt extends BasePrimitive<Date> {
 			GregorianCalendar cal;
 			if (myTimeZoneZulu) {
 				cal = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
-			} else if (myTimeZone != null) {
-				cal = new GregorianCalendar(myTimeZone);
+			} else if (getTimeZone() != null) {
+				cal = new GregorianCalendar(getTimeZone());
 			} else {
 				cal = new GregorianCalendar();
 			}
@@ -116,8 +171,8 @@ public abstract class BaseDateTimeDt extends BasePrimitive<Date> {
 
 						if (myTimeZoneZulu) {
 							b.append('Z');
-						} else if (myTimeZone != null) {
-							int offset = myTimeZone.getOffset(theValue.getTime());
+						} else if (getTimeZone() != null) {
+							int offset = getTimeZone().getOffset(theValue.getTime());
 							if (offset >= 0) {
 								b.append('+');
 							} else {
@@ -139,6 +194,38 @@ public abstract class BaseDateTimeDt extends BasePrimitive<Date> {
 		}
 	}
 
+	/**
+	 * Returns the number of days between 1970-01-01 and the given date in the (proleptic) Gregorian calendar
+	 */
+	private static long daysSinceEpoch(int theYear, int theMonth, int theDay) {
+		int year = theMonth <= 2 ? theYear - 1 : theYear;
+		int era = year / 400;
+		int yearOfEra = year - era * 400;
+		int dayOfYear = (153 * (theMonth > 2 ? theMonth - 3 : theMonth + 9) + 2) / 5 + theDay - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468L;
+	}
+
+	private static int getDaysInMonth(int theYear, int theMonth) {
+		switch (theMonth) {
+		case 2:
+			boolean leapYear;
+			if (theYear > GREGORIAN_CUTOVER_YEAR) {
+				leapYear = (theYear % 4 == 0 && theYear % 100 != 0) || theYear % 400 == 0;
+			} else {
+				leapYear = theYear % 4 == 0;
+			}
+			return leapYear ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
 	/**
 	 * Returns the default precision for the given datatype
 	 */
@@ -178,6 +265,16 @@ public abstract class BaseDateTimeDt extends BasePrimitive<Date> {
 		if (myTimeZoneZulu) {
 			return TimeZone.getTimeZone("Z");
 		}
+		if (myTimeZoneOffsetPending) {
+			int offset = Math.abs(myTimeZoneOffsetMinutes);
+			StringBuilder b = new StringBuilder("GMT");
+			b.append(myTimeZoneOffsetMinutes < 0 ? '-' : '+');
+			leftPadWithZeros(offset / 60, 2, b);
+			b.append(':');
+			leftPadWithZeros(offset % 60, 2, b);
+			myTimeZone = TimeZone.getTimeZone(b.toString());
+			myTimeZoneOffsetPending = false;
+		}
 		return myTimeZone;
 	}
 
@@ -229,13 +326,13 @@ public abstract class BaseDateTimeDt extends BasePrimitive<Date> {
 		theTarget.append(string);
 	}
 
+	/**
+	 * Parses the value one character at a time. Nothing is allocated unless the value has fractional seconds,
+	 * and the Date itself isn't created until it is first needed.
+	 */
 	@Override
 	protected Date parse(String theValue) throws DataFormatException {
-		Calendar cal = new GregorianCalendar(0, 0, 0);
-		cal.setTimeZone(TimeZone.getDefault());
 		String value = theValue;
-		boolean fractionalSecondsSet = false;
-
 		if (value.length() > 0 && (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ')) {
 			value = value.trim();
 		}
@@ -249,101 +346,89 @@ public abstract class BaseDateTimeDt extends BasePrimitive<Date> {
 			throwBadDateFormat(value);
 		}
 
-		TemporalPrecisionEnum precision = null;
-		cal.set(Calendar.YEAR, parseInt(value, value.substring(0, 4), 0, 9999));
-		precision = TemporalPrecisionEnum.YEAR;
+		myParsedYear = parseInt(value, 0, 4, 0, 9999);
+		myParsedMonth = 1;
+		myParsedDay = 1;
+		myParsedHour = 0;
+		myParsedMinute = 0;
+		myParsedSecond = 0;
+		myParsedMillis = 0;
+		myFractionalSeconds = "";
+		myParsedHasOffset = false;
+		TemporalPrecisionEnum precision = TemporalPrecisionEnum.YEAR;
 		if (length > 4) {
 			validateCharAtIndexIs(value, 4, '-');
 			validateLengthIsAtLeast(value, 7);
-			int monthVal = parseInt(value, value.substring(5, 7), 1, 12) - 1;
-			cal.set(Calendar.MONTH, monthVal);
+			myParsedMonth = parseInt(value, 5, 7, 1, 12);
 			precision = TemporalPrecisionEnum.MONTH;
 			if (length > 7) {
 				validateCharAtIndexIs(value, 7, '-');
 				validateLengthIsAtLeast(value, 10);
-				cal.set(Calendar.DATE, 1); // for some reason getActualMaximum works incorrectly if date isn't set
-				int actualMaximum = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
-				cal.set(Calendar.DAY_OF_MONTH, parseInt(value, value.substring(8, 10), 1, actualMaximum));
+				myParsedDay = parseInt(value, 8, 10, 1, getDaysInMonth(myParsedYear, myParsedMonth));
 				precision = TemporalPrecisionEnum.DAY;
 				if (length > 10) {
 					validateLengthIsAtLeast(value, 17);
 					validateCharAtIndexIs(value, 10, 'T'); // yyyy-mm-ddThh:mm:ss
 					int offsetIdx = getOffsetIndex(value);
-					String time;
+					int timeEnd;
 					if (offsetIdx == -1) {
-						//throwBadDateFormat(theValue);
 						// No offset - should this be an error?
-						time = value.substring(11);
+						timeEnd = length;
 					} else {
-						time = value.substring(11, offsetIdx);
-						String offsetString = value.substring(offsetIdx);
-						setTimeZone(value, offsetString);
-						cal.setTimeZone(getTimeZone());
+						timeEnd = offsetIdx;
+						parseTimeZone(value, offsetIdx);
+						myParsedHasOffset = true;
 					}
-					int timeLength = time.length();
+					int timeLength = timeEnd - 11;
 
 					validateCharAtIndexIs(value, 13, ':');
-					cal.set(Calendar.HOUR_OF_DAY, parseInt(value, value.substring(11, 13), 0, 23));
-					cal.set(Calendar.MINUTE, parseInt(value, value.substring(14, 16), 0, 59));
+					myParsedHour = parseInt(value, 11, 13, 0, 23);
+					myParsedMinute = parseInt(value, 14, 16, 0, 59);
 					precision = TemporalPrecisionEnum.MINUTE;
 					if (timeLength > 5) {
 						validateLengthIsAtLeast(value, 19);
 						validateCharAtIndexIs(value, 16, ':'); // yyyy-mm-ddThh:mm:ss
-						cal.set(Calendar.SECOND, parseInt(value, value.substring(17, 19), 0, 59));
+						myParsedSecond = parseInt(value, 17, 19, 0, 59);
 						precision = TemporalPrecisionEnum.SECOND;
 						if (timeLength > 8) {
 							validateCharAtIndexIs(value, 19, '.'); // yyyy-mm-ddThh:mm:ss.SSSS
 							validateLengthIsAtLeast(value, 20);
-							int endIndex = getOffsetIndex(value);
-							if (endIndex == -1) {
-								endIndex = value.length();
+							int millisEnd = Math.min(timeEnd, 23);
+							if (millisEnd == 20) {
+								throwBadDateFormat(value);
 							}
-							int millis;
-							String millisString;
-							if (endIndex > 23) {
-								myFractionalSeconds = value.substring(20, endIndex);
-								fractionalSecondsSet = true;
-								endIndex = 23;
-								millisString = value.substring(20, endIndex);
-								millis = parseInt(value, millisString, 0, 999);
-							} else {
-								millisString = value.substring(20, endIndex);
-								millis = parseInt(value, millisString, 0, 999);
-								myFractionalSeconds = millisString;
-								fractionalSecondsSet = true;
-							}
-							if (millisString.length() == 1) {
+							int millis = parseInt(value, 20, millisEnd, 0, 999);
+							if (millisEnd == 21) {
 								millis = millis * 100;
-							} else if (millisString.length() == 2) {
+							} else if (millisEnd == 22) {
 								millis = millis * 10;
 							}
-							cal.set(Calendar.MILLISECOND, millis);
+							myParsedMillis = millis;
+							myFractionalSeconds = value.substring(20, timeEnd);
 							precision = TemporalPrecisionEnum.MILLI;
 						}
 					}
 				}
-			} else {
-				cal.set(Calendar.DATE, 1);
 			}
-		} else {
-			cal.set(Calendar.DATE, 1);
-		}
-
-		if (fractionalSecondsSet == false) {
-			myFractionalSeconds = "";
 		}
 
-		setPrecision(precision);
-		return cal.getTime();
-
+		myPrecision = precision;
+		myParsedDefaultTimeZone = myParsedHasOffset ? null : TimeZone.getDefault();
+		deferCoercedValue();
+		return null;
 	}
 
-	private int parseInt(String theValue, String theSubstring, int theLowerBound, int theUpperBound) {
+	/**
+	 * Parses the digits between the given indexes, which must all be ASCII digits
+	 */
+	private int parseInt(String theValue, int theStart, int theEnd, int theLowerBound, int theUpperBound) {
 		int retVal = 0;
-		try {
-			retVal = Integer.parseInt(theSubstring);
-		} catch (NumberFormatException e) {
-			throwBadDateFormat(theValue);
+		for (int i = theStart; i < theEnd; i++) {
+			char next = theValue.charAt(i);
+			if (next < '0' || next > '9') {
+				throwBadDateFormat(theValue);
+			}
+			retVal = (retVal * 10) + (next - '0');
 		}
 
 		if (retVal < theLowerBound || retVal > theUpperBound) {
@@ -353,6 +438,27 @@ public abstract class BaseDateTimeDt extends BasePrimitive<Date> {
 		return retVal;
 	}
 
+	/**
+	 * Parses the offset which starts at the given index (e.g. <code>Z</code> or <code>-05:00</code>)
+	 */
+	private void parseTimeZone(String theWholeValue, int theOffsetIndex) {
+		char first = theWholeValue.charAt(theOffsetIndex);
+		if (first == 'Z') {
+			clearTimeZone();
+			myTimeZoneZulu = true;
+		} else if (theWholeValue.length() - theOffsetIndex != 6) {
+			throwBadDateFormat(theWholeValue, "Timezone offset must be in the form \"Z\", \"-HH:mm\", or \"+HH:mm\"");
+		} else if (theWholeValue.charAt(theOffsetIndex + 3) != ':' || !(first == '+' || first == '-')) {
+			throwBadDateFormat(theWholeValue, "Timezone offset must be in the form \"Z\", \"-HH:mm\", or \"+HH:mm\"");
+		} else {
+			int hours = parseInt(theWholeValue, theOffsetIndex + 1, theOffsetIndex + 3, 0, 23);
+			int minutes = parseInt(theWholeValue, theOffsetIndex + 4, theOffsetIndex + 6, 0, 59);
+			clearTimeZone();
+			myTimeZoneOffsetMinutes = (first == '-' ? -1 : 1) * (hours * 60 + minutes);
+			myTimeZoneOffsetPending = true;
+		}
+	}
+
 	/**
 	 * Sets the precision for this datatype
 	 * 
@@ -366,34 +472,18 @@ public abstract class BaseDateTimeDt extends BasePrimitive<Date> {
 		updateStringValue();
 	}
 
-	private BaseDateTimeDt setTimeZone(String theWholeValue, String theValue) {
-
-		if (isBlank(theValue)) {
-			throwBadDateFormat(theWholeValue);
-		} else if (theValue.charAt(0) == 'Z') {
-			clearTimeZone();
-			setTimeZoneZulu(true);
-		} else if (theValue.length() != 6) {
-			throwBadDateFormat(theWholeValue, "Timezone offset must be in the form \"Z\", \"-HH:mm\", or \"+HH:mm\"");
-		} else if (theValue.charAt(3) != ':' || !(theValue.charAt(0) == '+' || theValue.charAt(0) == '-')) {
-			throwBadDateFormat(theWholeValue, "Timezone offset must be in the form \"Z\", \"-HH:mm\", or \"+HH:mm\"");
-		} else {
-			parseInt(theWholeValue, theValue.substring(1, 3), 0, 23);
-			parseInt(theWholeValue, theValue.substring(4, 6), 0, 59);
-			clearTimeZone();
-			setTimeZone(TimeZone.getTimeZone("GMT" + theValue));
-		}
-
-		return this;
-	}
-
 	public BaseDateTimeDt setTimeZone(TimeZone theTimeZone) {
+		// The instant must not change, so make sure it has been computed using the old zone
+		getValue();
 		myTimeZone = theTimeZone;
+		myTimeZoneOffsetPending = false;
 		updateStringValue();
 		return this;
 	}
 
 	public BaseDateTimeDt setTimeZoneZulu(boolean theTimeZoneZulu) {
+		// The instant must not change, so make sure it has been computed using the old zone
+		getValue();
 		myTimeZoneZulu = theTimeZoneZulu;
 		updateStringValue();
 		return this;
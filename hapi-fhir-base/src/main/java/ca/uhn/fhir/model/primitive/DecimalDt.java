@@ -26,12 +26,12 @@ import java.math.RoundingMode;
 
 import org.hl7.fhir.instance.model.api.IBaseDecimalDatatype;
 
-import ca.uhn.fhir.model.api.BasePrimitive;
+import ca.uhn.fhir.model.api.BaseDeferredPrimitive;
 import ca.uhn.fhir.model.api.annotation.DatatypeDef;
 import ca.uhn.fhir.model.api.annotation.SimpleSetter;
 
 @DatatypeDef(name = "decimal")
-public class DecimalDt extends BasePrimitive<BigDecimal> implements Comparable<DecimalDt>, IBaseDecimalDatatype {
+public class DecimalDt extends BaseDeferredPrimitive<BigDecimal> implements Comparable<DecimalDt>, IBaseDecimalDatatype {
 
 	/**
 	 * Constructor
@@ -87,6 +87,11 @@ public class DecimalDt extends BasePrimitive<BigDecimal> implements Comparable<D
 		return getValue().compareTo(theObj.getValue());
 	}
 
+	@Override
+	protected BigDecimal computeDeferredValue(String theValue) {
+		return new BigDecimal(theValue);
+	}
+
 	@Override
 	protected String encode(BigDecimal theValue) {
 		return getValue().toPlainString();
@@ -105,9 +110,39 @@ public class DecimalDt extends BasePrimitive<BigDecimal> implements Comparable<D
 
 	@Override
 	protected BigDecimal parse(String theValue) {
+		if (isPlainDecimal(theValue)) {
+			// Don't build the BigDecimal unless someone actually asks for it
+			deferCoercedValue();
+			return null;
+		}
 		return new BigDecimal(theValue);
 	}
 
+	/**
+	 * Returns <code>true</code> if the value is an optionally signed decimal number without an exponent (which is
+	 * what nearly all FHIR decimals look like). Anything else is left to {@link BigDecimal} to parse or reject.
+	 */
+	private static boolean isPlainDecimal(String theValue) {
+		int length = theValue.length();
+		int index = 0;
+		if (length > 0 && (theValue.charAt(0) == '-' || theValue.charAt(0) == '+')) {
+			index++;
+		}
+		boolean haveDigit = false;
+		boolean haveDot = false;
+		for (; index < length; index++) {
+			char next = theValue.charAt(index);
+			if (next >= '0' && next <= '9') {
+				haveDigit = true;
+			} else if (next == '.' && !haveDot) {
+				haveDot = true;
+			} else {
+				return false;
+			}
+		}
+		return haveDigit;
+	}
+
 	/**
 	 * Rounds the value to the given prevision
 	 * 
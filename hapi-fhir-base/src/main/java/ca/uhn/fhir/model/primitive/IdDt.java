@@ -56,6 +56,12 @@ import ca.uhn.fhir.util.UrlUtil;
 public class IdDt extends UriDt implements IPrimitiveDatatype<String>, IIdType {
 
 	private String myBaseUrl;
+	/**
+	 * Set when a value has been set but not yet split into its component parts, which is only done when one of
+	 * them is actually needed. Volatile because it is cleared only after the parts have been written, which
+	 * makes them visible to any thread that sees it cleared.
+	 */
+	private volatile boolean myComponentPartsPending;
 	private boolean myHaveComponentParts;
 	private String myResourceType;
 	private String myUnqualifiedId;
@@ -262,6 +268,7 @@ public class IdDt extends UriDt implements IPrimitiveDatatype<String>, IIdType {
 	 */
 	@Override
 	public String getBaseUrl() {
+		parseComponentPartsIfPending();
 		return myBaseUrl;
 	}
 
@@ -270,6 +277,7 @@ public class IdDt extends UriDt implements IPrimitiveDatatype<String>, IIdType {
 	 */
 	@Override
 	public String getIdPart() {
+		parseComponentPartsIfPending();
 		return myUnqualifiedId;
 	}
 
@@ -304,6 +312,7 @@ public class IdDt extends UriDt implements IPrimitiveDatatype<String>, IIdType {
 
 	@Override
 	public String getResourceType() {
+		parseComponentPartsIfPending();
 		return myResourceType;
 	}
 
@@ -356,6 +365,7 @@ public class IdDt extends UriDt implements IPrimitiveDatatype<String>, IIdType {
 
 	@Override
 	public String getVersionIdPart() {
+		parseComponentPartsIfPending();
 		return myUnqualifiedVersionId;
 	}
 
@@ -373,6 +383,7 @@ public class IdDt extends UriDt implements IPrimitiveDatatype<String>, IIdType {
 	 * @see #getBaseUrl()
 	 */
 	public boolean hasBaseUrl() {
+		parseComponentPartsIfPending();
 		return isNotBlank(myBaseUrl);
 	}
 
@@ -390,6 +401,7 @@ public class IdDt extends UriDt implements IPrimitiveDatatype<String>, IIdType {
 
 	@Override
 	public boolean hasResourceType() {
+		parseComponentPartsIfPending();
 		return isNotBlank(myResourceType);
 	}
 
@@ -452,6 +464,7 @@ public class IdDt extends UriDt implements IPrimitiveDatatype<String>, IIdType {
 	 */
 	@Override
 	public boolean isLocal() {
+		parseComponentPartsIfPending();
 		return "#".equals(myBaseUrl);
 	}
 
@@ -468,6 +481,78 @@ public class IdDt extends UriDt implements IPrimitiveDatatype<String>, IIdType {
 		setValue(theId.getValue());
 	}
 
+	private void parseComponentPartsIfPending() {
+		if (!myComponentPartsPending) {
+			return;
+		}
+
+		/*
+		 * The parts are computed into locals and only published once they are all known, and the
+		 * pending flag is cleared last so that a concurrent reader never sees it cleared while the
+		 * fields are still unset. Two threads racing here just compute the same values twice.
+		 */
+		String value = super.getValue();
+		String localPrefix = determineLocalPrefix(value);
+		String baseUrl;
+		String unqualifiedId;
+		String unqualifiedVersionId;
+		String resourceType;
+		boolean haveComponentParts = false;
+
+		if (value.charAt(0) == '#' && value.length() > 1) {
+			baseUrl = "#";
+			unqualifiedId = value.substring(1);
+			unqualifiedVersionId = null;
+			resourceType = null;
+			haveComponentParts = true;
+		} else if (localPrefix != null) {
+			baseUrl = localPrefix;
+			unqualifiedId = value.substring(localPrefix.length());
+			unqualifiedVersionId = null;
+			resourceType = null;
+			haveComponentParts = true;
+		} else {
+			int vidIndex = value.indexOf("/_history/");
+			int idIndex;
+			if (vidIndex != -1) {
+				unqualifiedVersionId = value.substring(vidIndex + "/_history/".length());
+				idIndex = value.lastIndexOf('/', vidIndex - 1);
+				unqualifiedId = value.substring(idIndex + 1, vidIndex);
+			} else {
+				idIndex = value.lastIndexOf('/');
+				unqualifiedId = idIndex != -1 ? value.substring(idIndex + 1) : value;
+				unqualifiedVersionId = null;
+			}
+
+			baseUrl = null;
+			if (idIndex <= 0) {
+				resourceType = null;
+			} else {
+				int typeIndex = value.lastIndexOf('/', idIndex - 1);
+				if (typeIndex == -1) {
+					resourceType = value.substring(0, idIndex);
+				} else {
+					resourceType = value.substring(typeIndex + 1, idIndex);
+
+					if (typeIndex > 4) {
+						baseUrl = value.substring(0, typeIndex);
+					}
+
+				}
+			}
+
+		}
+
+		myBaseUrl = baseUrl;
+		myUnqualifiedId = unqualifiedId;
+		myUnqualifiedVersionId = unqualifiedVersionId;
+		myResourceType = resourceType;
+		if (haveComponentParts) {
+			myHaveComponentParts = true;
+		}
+		myComponentPartsPending = false;
+	}
+
 	/**
 	 * Set the value
 	 * 
@@ -485,57 +570,15 @@ public class IdDt extends UriDt implements IPrimitiveDatatype<String>, IIdType {
 		super.setValue(theValue);
 		myHaveComponentParts = false;
 		
-		String localPrefix = determineLocalPrefix(theValue);
-		
 		if (StringUtils.isBlank(theValue)) {
 			myBaseUrl = null;
 			super.setValue(null);
 			myUnqualifiedId = null;
 			myUnqualifiedVersionId = null;
 			myResourceType = null;
-		} else if (theValue.charAt(0) == '#' && theValue.length() > 1) {
-			super.setValue(theValue);
-			myBaseUrl = "#";
-			myUnqualifiedId = theValue.substring(1);
-			myUnqualifiedVersionId = null;
-			myResourceType = null;
-			myHaveComponentParts = true;
-		} else if (localPrefix != null) {
-			myBaseUrl = localPrefix;
-			myUnqualifiedId = theValue.substring(localPrefix.length());
-			myUnqualifiedVersionId = null;
-			myResourceType = null;
-			myHaveComponentParts = true;
+			myComponentPartsPending = false;
 		} else {
-			int vidIndex = theValue.indexOf("/_history/");
-			int idIndex;
-			if (vidIndex != -1) {
-				myUnqualifiedVersionId = theValue.substring(vidIndex + "/_history/".length());
-				idIndex = theValue.lastIndexOf('/', vidIndex - 1);
-				myUnqualifiedId = theValue.substring(idIndex + 1, vidIndex);
-			} else {
-				idIndex = theValue.lastIndexOf('/');
-				myUnqualifiedId = theValue.substring(idIndex + 1);
-				myUnqualifiedVersionId = null;
-			}
-
-			myBaseUrl = null;
-			if (idIndex <= 0) {
-				myResourceType = null;
-			} else {
-				int typeIndex = theValue.lastIndexOf('/', idIndex - 1);
-				if (typeIndex == -1) {
-					myResourceType = theValue.substring(0, idIndex);
-				} else {
-					myResourceType = theValue.substring(typeIndex + 1, idIndex);
-
-					if (typeIndex > 4) {
-						myBaseUrl = theValue.substring(0, typeIndex);
-					}
-
-				}
-			}
-
+			myComponentPartsPending = true;
 		}
 		return this;
 	}
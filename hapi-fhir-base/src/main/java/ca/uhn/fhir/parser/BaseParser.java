@@ -23,6 +23,8 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -80,6 +82,7 @@ public abstract class BaseParser implements IParser {
 
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(BaseParser.class);
 
+	private IBundleEntryHandler myBundleEntryHandler;
 	private ContainedResources myContainedResources;
 	private FhirContext myContext;
 	private Set<String> myDontEncodeElements;
@@ -90,6 +93,8 @@ public abstract class BaseParser implements IParser {
 	private IIdType myEncodeForceResourceId;
 	private IParserErrorHandler myErrorHandler;
 	private boolean myOmitResourceId;
+	private Set<String> myParseElements;
+	private final StringBuilder myPathBuilder = new StringBuilder();
 	private List<Class<? extends IBaseResource>> myPreferTypes;
 	private String myServerBaseUrl;
 	private boolean myStripVersionsFromReferences = true;
@@ -140,14 +145,17 @@ public abstract class BaseParser implements IParser {
 								return false;
 							}
 
-							myNext = new CompositeChildElement(theParent, myChildrenIter.next());
+							BaseRuntimeChildDefinition nextChild = myChildrenIter.next();
+							if (nextChild.getElementName().equals("id")) {
+								continue;
+							}
+
+							myNext = new CompositeChildElement(theParent, nextChild);
 
 							/*
 							 * There are lots of reasons we might skip encoding a particular child
 							 */
-							if (myNext.getDef().getElementName().equals("id")) {
-								myNext = null;
-							} else if (!myNext.shouldBeEncoded()) {
+							if (!myNext.shouldBeEncoded()) {
 								myNext = null;
 							} else if (isSummaryMode() && !myNext.getDef().isSummary()) {
 								myNext = null;
@@ -265,6 +273,30 @@ public abstract class BaseParser implements IParser {
 		myContainedResources = contained;
 	}
 
+	/**
+	 * Creates a new parser of the same type as this one which has the same configuration, but none of the state
+	 * used while encoding or parsing. Configuration collections are shared with this parser rather than copied.
+	 */
+	BaseParser copyConfiguration() {
+		BaseParser retVal = (BaseParser) getEncoding().newParser(myContext);
+		retVal.myDontEncodeElements = myDontEncodeElements;
+		retVal.myDontEncodeElementsIncludesStars = myDontEncodeElementsIncludesStars;
+		retVal.myEncodeElements = myEncodeElements;
+		retVal.myEncodeElementsAppliesToResourceTypes = myEncodeElementsAppliesToResourceTypes;
+		retVal.myEncodeElementsIncludesStars = myEncodeElementsIncludesStars;
+		retVal.myEncodeForceResourceId = myEncodeForceResourceId;
+		retVal.myErrorHandler = myErrorHandler;
+		retVal.myOmitResourceId = myOmitResourceId;
+		retVal.myParseElements = myParseElements;
+		retVal.myPreferTypes = myPreferTypes;
+		retVal.myServerBaseUrl = myServerBaseUrl;
+		retVal.myStripVersionsFromReferences = myStripVersionsFromReferences;
+		retVal.mySummaryMode = mySummaryMode;
+		retVal.mySuppressNarratives = mySuppressNarratives;
+		retVal.setPrettyPrint(isPrettyPrint());
+		return retVal;
+	}
+
 	private String determineReferenceText(IBaseReference theRef) {
 		IIdType ref = theRef.getReferenceElement();
 		if (isBlank(ref.getIdPart())) {
@@ -316,6 +348,16 @@ public abstract class BaseParser implements IParser {
 
 	protected abstract void doEncodeBundleToWriter(Bundle theBundle, Writer theWriter) throws IOException, DataFormatException;
 
+	/**
+	 * Encodes to a UTF-8 stream. Subclasses whose underlying writer can produce bytes directly
+	 * should override this, the default implementation encodes through a character writer.
+	 */
+	protected void doEncodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream) throws IOException, DataFormatException {
+		Writer writer = new OutputStreamWriter(theOutputStream, Constants.CHARSET_UTF8);
+		doEncodeResourceToWriter(theResource, writer);
+		writer.flush();
+	}
+
 	protected abstract void doEncodeResourceToWriter(IBaseResource theResource, Writer theWriter) throws IOException, DataFormatException;
 
 	protected abstract <T extends IBaseResource> T doParseResource(Class<T> theResourceType, Reader theReader) throws DataFormatException;
@@ -353,14 +395,20 @@ public abstract class BaseParser implements IParser {
 		return stringWriter.toString();
 	}
 
+	@Override
+	public final void encodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream) throws IOException, DataFormatException {
+		Validate.notNull(theResource, "theResource can not be null");
+		Validate.notNull(theOutputStream, "theOutputStream can not be null");
+		validateResourceVersion(theResource);
+
+		doEncodeResourceToOutputStream(theResource, theOutputStream);
+	}
+
 	@Override
 	public final void encodeResourceToWriter(IBaseResource theResource, Writer theWriter) throws IOException, DataFormatException {
 		Validate.notNull(theResource, "theResource can not be null");
 		Validate.notNull(theWriter, "theWriter can not be null");
-
-		if (theResource.getStructureFhirVersionEnum() != myContext.getVersion().getVersion()) {
-			throw new IllegalArgumentException("This parser is for FHIR version " + myContext.getVersion().getVersion() + " - Can not encode a structure for version " + theResource.getStructureFhirVersionEnum());
-		}
+		validateResourceVersion(theResource);
 
 		doEncodeResourceToWriter(theResource, theWriter);
 	}
@@ -407,10 +455,25 @@ public abstract class BaseParser implements IParser {
 		return elementId;
 	}
 
+	/**
+	 * Returns the handler which should receive the entries of the Bundle currently being parsed, or <code>null</code>
+	 * if entries should be added to the Bundle as usual
+	 */
+	IBundleEntryHandler getBundleEntryHandler() {
+		return myBundleEntryHandler;
+	}
+
 	ContainedResources getContainedResources() {
 		return myContainedResources;
 	}
 
+	/**
+	 * See {@link #setDontEncodeElements(Set)}
+	 */
+	public Set<String> getDontEncodeElements() {
+		return myDontEncodeElements;
+	}
+
 	/**
 	 * See {@link #setEncodeElements(Set)}
 	 */
@@ -446,6 +509,11 @@ public abstract class BaseParser implements IParser {
 		return tags;
 	}
 
+	@Override
+	public Set<String> getParseElements() {
+		return myParseElements;
+	}
+
 	@Override
 	public List<Class<? extends IBaseResource>> getPreferTypes() {
 		return myPreferTypes;
@@ -512,6 +580,11 @@ public abstract class BaseParser implements IParser {
 		return myOmitResourceId;
 	}
 
+	/**
+	 * See {@link #setPrettyPrint(boolean)}
+	 */
+	public abstract boolean isPrettyPrint();
+
 	@Override
 	public boolean isStripVersionsFromReferences() {
 		return myStripVersionsFromReferences;
@@ -547,57 +620,77 @@ public abstract class BaseParser implements IParser {
 	}
 
 	@Override
-	public <T extends IBaseResource> T parseResource(Class<T> theResourceType, Reader theReader) throws DataFormatException {
+	public <T extends IBaseResource> T parseBundleEntries(Class<T> theBundleType, Reader theReader, IBundleEntryHandler theHandler) throws DataFormatException {
+		Validate.notNull(theBundleType, "theBundleType must not be null");
+		Validate.notNull(theHandler, "theHandler must not be null");
+		validateResourceTypeVersion(theBundleType);
+		if (!"Bundle".equals(myContext.getResourceDefinition(theBundleType).getName())) {
+			throw new IllegalArgumentException("Type " + theBundleType.getName() + " is not a Bundle resource");
+		}
 
-		if (theResourceType != null) {
-			RuntimeResourceDefinition def = myContext.getResourceDefinition(theResourceType);
-			if (def.getStructureVersion() != myContext.getVersion().getVersion()) {
-				throw new IllegalArgumentException("This parser is for FHIR version " + myContext.getVersion().getVersion() + " - Can not parse a structure for version " + def.getStructureVersion());
-			}
+		myBundleEntryHandler = theHandler;
+		try {
+			return doParseResource(theBundleType, theReader);
+		} finally {
+			myBundleEntryHandler = null;
 		}
+	}
+
+	@Override
+	public <T extends IBaseResource> T parseResource(Class<T> theResourceType, Reader theReader) throws DataFormatException {
+		validateResourceTypeVersion(theResourceType);
 
 		T retVal = doParseResource(theResourceType, theReader);
 
-		RuntimeResourceDefinition def = myContext.getResourceDefinition(retVal);
+		populateBundleEntryIds(retVal);
+
+		return retVal;
+	}
+
+	/**
+	 * If the given entry has a fullUrl and a resource, sets the ID of the resource to the fullUrl
+	 */
+	void populateBundleEntryId(BaseRuntimeElementCompositeDefinition<?> theEntryDef, IBase theEntry) {
+		// TODO: should emit a warning and maybe notify the error handler if the resource ID doesn't match the
+		// fullUrl idPart
+		BaseRuntimeChildDefinition fullUrlChild = theEntryDef.getChildByName("fullUrl");
+		if (fullUrlChild == null) {
+			return; // TODO: remove this once the data model in tinder plugin catches up to 1.2
+		}
+		List<IBase> fullUrl = fullUrlChild.getAccessor().getValues(theEntry);
+		if (fullUrl != null && !fullUrl.isEmpty()) {
+			IPrimitiveType<?> value = (IPrimitiveType<?>) fullUrl.get(0);
+			if (value.isEmpty() == false) {
+				List<IBase> entryResources = theEntryDef.getChildByName("resource").getAccessor().getValues(theEntry);
+				if (entryResources != null && entryResources.size() > 0) {
+					IBaseResource res = (IBaseResource) entryResources.get(0);
+					String versionId = res.getIdElement().getVersionIdPart();
+					res.setId(value.getValueAsString());
+					if (isNotBlank(versionId) && res.getIdElement().hasVersionIdPart() == false) {
+						res.setId(res.getIdElement().withVersion(versionId));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * If the given resource is a Bundle, sets the ID of each entry resource from the entry's fullUrl
+	 */
+	void populateBundleEntryIds(IBaseResource theResource) {
+		RuntimeResourceDefinition def = myContext.getResourceDefinition(theResource);
 		if ("Bundle".equals(def.getName())) {
 
 			BaseRuntimeChildDefinition entryChild = def.getChildByName("entry");
 			BaseRuntimeElementCompositeDefinition<?> entryDef = (BaseRuntimeElementCompositeDefinition<?>) entryChild.getChildByName("entry");
-			List<IBase> entries = entryChild.getAccessor().getValues(retVal);
+			List<IBase> entries = entryChild.getAccessor().getValues(theResource);
 			if (entries != null) {
 				for (IBase nextEntry : entries) {
-
-					/**
-					 * If Bundle.entry.fullUrl is populated, set the resource ID to that
-					 */
-					// TODO: should emit a warning and maybe notify the error handler if the resource ID doesn't match the
-					// fullUrl idPart
-					BaseRuntimeChildDefinition fullUrlChild = entryDef.getChildByName("fullUrl");
-					if (fullUrlChild == null) {
-						continue; // TODO: remove this once the data model in tinder plugin catches up to 1.2
-					}
-					List<IBase> fullUrl = fullUrlChild.getAccessor().getValues(nextEntry);
-					if (fullUrl != null && !fullUrl.isEmpty()) {
-						IPrimitiveType<?> value = (IPrimitiveType<?>) fullUrl.get(0);
-						if (value.isEmpty() == false) {
-							List<IBase> entryResources = entryDef.getChildByName("resource").getAccessor().getValues(nextEntry);
-							if (entryResources != null && entryResources.size() > 0) {
-								IBaseResource res = (IBaseResource) entryResources.get(0);
-								String versionId = res.getIdElement().getVersionIdPart();
-								res.setId(value.getValueAsString());
-								if (isNotBlank(versionId) && res.getIdElement().hasVersionIdPart() == false) {
-									res.setId(res.getIdElement().withVersion(versionId));
-								}
-							}
-						}
-					}
-
+					populateBundleEntryId(entryDef, nextEntry);
 				}
 			}
 
 		}
-
-		return retVal;
 	}
 
 	@SuppressWarnings("cast")
@@ -617,6 +710,12 @@ public abstract class BaseParser implements IParser {
 		return parseResource(null, theMessageString);
 	}
 
+	@Override
+	public <T extends IBaseResource> LazyParsedResource<T> parseResourceLazily(Class<T> theResourceType, String theMessageString) throws DataFormatException {
+		Validate.notNull(theMessageString, "theMessageString must not be null");
+		return LazyParsedResource.scan(myContext, getEncoding(), myErrorHandler, theResourceType, theMessageString);
+	}
+
 	@Override
 	public TagList parseTagList(String theString) {
 		return parseTagList(new StringReader(theString));
@@ -760,6 +859,16 @@ public abstract class BaseParser implements IParser {
 		return this;
 	}
 
+	@Override
+	public IParser setParseElements(Set<String> theParseElements) {
+		if (theParseElements == null || theParseElements.isEmpty()) {
+			myParseElements = null;
+		} else {
+			myParseElements = theParseElements;
+		}
+		return this;
+	}
+
 	@Override
 	public IParser setParserErrorHandler(IParserErrorHandler theErrorHandler) {
 		Validate.notNull(theErrorHandler, "theErrorHandler must not be null");
@@ -852,6 +961,21 @@ public abstract class BaseParser implements IParser {
 		throw new DataFormatException(nextChild + " has no child of type " + theType);
 	}
 
+	void validateResourceTypeVersion(Class<? extends IBaseResource> theResourceType) {
+		if (theResourceType != null) {
+			RuntimeResourceDefinition def = myContext.getResourceDefinition(theResourceType);
+			if (def.getStructureVersion() != myContext.getVersion().getVersion()) {
+				throw new IllegalArgumentException("This parser is for FHIR version " + myContext.getVersion().getVersion() + " - Can not parse a structure for version " + def.getStructureVersion());
+			}
+		}
+	}
+
+	void validateResourceVersion(IBaseResource theResource) {
+		if (theResource.getStructureFhirVersionEnum() != myContext.getVersion().getVersion()) {
+			throw new IllegalArgumentException("This parser is for FHIR version " + myContext.getVersion().getVersion() + " - Can not encode a structure for version " + theResource.getStructureFhirVersionEnum());
+		}
+	}
+
 	protected static <T> List<T> extractMetadataListNotNull(IResource resource, ResourceMetadataKeyEnum<List<T>> key) {
 		List<? extends T> securityLabels = key.get(resource);
 		if (securityLabels == null) {
@@ -990,18 +1114,27 @@ public abstract class BaseParser implements IParser {
 			return myResDef;
 		}
 
+		/**
+		 * The path is only needed for the duration of a single check, so the same builder is reused
+		 * for every check instead of allocating a new one per element
+		 */
+		private StringBuilder newPathBuilder() {
+			myPathBuilder.setLength(0);
+			return myPathBuilder;
+		}
+
 		public boolean shouldBeEncoded() {
 			boolean retVal = true;
 			if (myEncodeElements != null) {
-				retVal = checkIfParentShouldBeEncodedAndBuildPath(new StringBuilder(), false);
+				retVal = checkIfParentShouldBeEncodedAndBuildPath(newPathBuilder(), false);
 				if (retVal == false && myEncodeElementsIncludesStars) {
-					retVal = checkIfParentShouldBeEncodedAndBuildPath(new StringBuilder(), true);
+					retVal = checkIfParentShouldBeEncodedAndBuildPath(newPathBuilder(), true);
 				}
 			}
 			if (retVal && myDontEncodeElements != null) {
-				retVal = !checkIfParentShouldNotBeEncodedAndBuildPath(new StringBuilder(), false);
+				retVal = !checkIfParentShouldNotBeEncodedAndBuildPath(newPathBuilder(), false);
 				if (retVal && myDontEncodeElementsIncludesStars) {
-					retVal = !checkIfParentShouldNotBeEncodedAndBuildPath(new StringBuilder(), true);
+					retVal = !checkIfParentShouldNotBeEncodedAndBuildPath(newPathBuilder(), true);
 				}
 			}
 //			if (retVal == false && myEncodeElements.contains("*.(mandatory)")) {
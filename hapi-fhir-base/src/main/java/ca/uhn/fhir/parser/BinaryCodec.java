@@ -0,0 +1,164 @@
+package ca.uhn.fhir.parser;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.json.JsonException;
+
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import ca.uhn.fhir.context.FhirContext;
+
+/**
+ * Encodes and parses resources in a compact binary format which is intended for storage and internal caches
+ * (it is not a FHIR wire format and should never be sent to a client).
+ * <p>
+ * The encoding is driven by exactly the same model traversal as the JSON parser, so anything which survives a
+ * round trip through JSON also survives a round trip through this codec. Instead of text the content is written
+ * as a stream of single byte tags with varint lengths and numbers. Element names, and any value of up to
+ * {@value #MAX_INTERNED_LENGTH} characters (which covers nearly every system, code and reference), are written
+ * in full the first time they appear and as a small ordinal each time after that. The table of ordinals is built
+ * up as the content is written, so that content written by one version of the structures can still be read
+ * by another.
+ * </p>
+ * <p>
+ * Thread safety: <b>Codecs are not guaranteed to be thread safe</b>. Create a new codec instance for every thread
+ * or every message being parsed/encoded.
+ * </p>
+ */
+public class BinaryCodec {
+
+	/*
+	 * Format constants, shared with BinaryEventReader and BinaryEventWriter
+	 */
+	static final int FLAG_NAMED = 0x80;
+	static final byte[] HEADER = { 'H', 'F', 'B', 1 };
+	static final int MAX_INTERNED_LENGTH = 128;
+	static final int STRING_LITERAL = 1;
+	static final int STRING_NEW_INTERNED = 0;
+	static final int STRING_REF_OFFSET = 2;
+	static final int TAG_DECIMAL = 7;
+	static final int TAG_END_ARRAY = 4;
+	static final int TAG_END_OBJECT = 3;
+	static final int TAG_FALSE = 9;
+	static final int TAG_INTEGER = 6;
+	static final int TAG_NULL = 10;
+	static final int TAG_START_ARRAY = 2;
+	static final int TAG_START_OBJECT = 1;
+	static final int TAG_STRING = 5;
+	static final int TAG_TRUE = 8;
+
+	private final JsonParser myJsonParser;
+
+	/**
+	 * Do not use this constructor, the recommended way to obtain a new instance of the codec is to invoke
+	 * {@link FhirContext#newBinaryCodec()}.
+	 */
+	public BinaryCodec(FhirContext theContext, IParserErrorHandler theParserErrorHandler) {
+		myJsonParser = new JsonParser(theContext, theParserErrorHandler);
+	}
+
+	/**
+	 * Encodes a resource to a byte array
+	 */
+	public byte[] encodeResourceToBytes(IBaseResource theResource) throws DataFormatException {
+		ByteArrayOutputStream retVal = new ByteArrayOutputStream();
+		try {
+			encodeResourceToOutputStream(theResource, retVal);
+		} catch (IOException e) {
+			throw new Error("Encountered IOException during write to byte array - This should not happen!");
+		}
+		return retVal.toByteArray();
+	}
+
+	/**
+	 * Encodes a resource to an output stream. The stream is flushed but not closed.
+	 */
+	public void encodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream) throws IOException, DataFormatException {
+		Validate.notNull(theResource, "theResource can not be null");
+		Validate.notNull(theOutputStream, "theOutputStream can not be null");
+		myJsonParser.validateResourceVersion(theResource);
+
+		try {
+			myJsonParser.encodeResourceToJsonGenerator(theResource, new BinaryEventWriter(theOutputStream));
+		} catch (JsonException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Parses a resource from a byte array which was created by {@link #encodeResourceToBytes(IBaseResource)}
+	 * 
+	 * @param theResourceType
+	 *           The resource type to use. This can be used to explicitly specify a class which extends a built-in
+	 *           type (e.g. a custom type extending the default Patient class), or may be <code>null</code> to use
+	 *           the type which was encoded
+	 */
+	public <T extends IBaseResource> T parseResource(Class<T> theResourceType, byte[] theContent) throws DataFormatException {
+		Validate.notNull(theContent, "theContent can not be null");
+		return parseResource(theResourceType, new ByteArrayInputStream(theContent));
+	}
+
+	/**
+	 * Parses a resource from a stream which contains content created by this codec. The stream is not closed.
+	 * 
+	 * @param theResourceType
+	 *           The resource type to use. This can be used to explicitly specify a class which extends a built-in
+	 *           type (e.g. a custom type extending the default Patient class), or may be <code>null</code> to use
+	 *           the type which was encoded
+	 */
+	public <T extends IBaseResource> T parseResource(Class<T> theResourceType, InputStream theInputStream) throws DataFormatException {
+		Validate.notNull(theInputStream, "theInputStream can not be null");
+		myJsonParser.validateResourceTypeVersion(theResourceType);
+
+		T retVal = myJsonParser.doParseResource(theResourceType, new BinaryEventReader(theInputStream));
+		myJsonParser.populateBundleEntryIds(retVal);
+		return retVal;
+	}
+
+	/**
+	 * Parses a resource from a byte array which was created by {@link #encodeResourceToBytes(IBaseResource)}
+	 */
+	public IBaseResource parseResource(byte[] theContent) throws DataFormatException {
+		return parseResource(null, theContent);
+	}
+
+	/**
+	 * Registers an error handler which will be invoked when any parse errors are found
+	 * 
+	 * @param theErrorHandler
+	 *           The error handler to set. Must not be null.
+	 */
+	public BinaryCodec setParserErrorHandler(IParserErrorHandler theErrorHandler) {
+		myJsonParser.setParserErrorHandler(theErrorHandler);
+		return this;
+	}
+
+}
@@ -0,0 +1,273 @@
+package ca.uhn.fhir.parser;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static ca.uhn.fhir.parser.BinaryCodec.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.json.stream.JsonLocation;
+import javax.json.stream.JsonParser.Event;
+
+import ca.uhn.fhir.rest.server.Constants;
+
+/**
+ * JSON-P parser which reads the {@link BinaryCodec} format
+ */
+class BinaryEventReader implements javax.json.stream.JsonParser {
+
+	private final byte[] myBuffer = new byte[8192];
+	private long myBufferOffset;
+	private int myDepth;
+	private boolean myIntegral;
+	private final InputStream myInputStream;
+	private int myLimit;
+	private long myLong;
+	private int myPendingTag = -1;
+	private int myPos;
+	private boolean myStarted;
+	private String myString;
+	private final List<String> myStrings = new ArrayList<String>();
+
+	BinaryEventReader(InputStream theInputStream) {
+		myInputStream = theInputStream;
+		for (int i = 0; i < HEADER.length; i++) {
+			if (!fill(1) || myBuffer[myPos++] != HEADER[i]) {
+				throw new DataFormatException("Content is not in the binary resource format (or was written by an incompatible version)");
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			myInputStream.close();
+		} catch (IOException e) {
+			throw new DataFormatException("Failed to close stream", e);
+		}
+	}
+
+	/**
+	 * Makes sure at least the given number of bytes (which must fit in the buffer) are available, returning
+	 * <code>false</code> if the stream ends first
+	 */
+	private boolean fill(int theLength) {
+		if (myLimit - myPos >= theLength) {
+			return true;
+		}
+		System.arraycopy(myBuffer, myPos, myBuffer, 0, myLimit - myPos);
+		myBufferOffset += myPos;
+		myLimit -= myPos;
+		myPos = 0;
+		try {
+			while (myLimit < theLength) {
+				int count = myInputStream.read(myBuffer, myLimit, myBuffer.length - myLimit);
+				if (count == -1) {
+					return false;
+				}
+				myLimit += count;
+			}
+		} catch (IOException e) {
+			throw new DataFormatException("Failed to read binary resource content", e);
+		}
+		return true;
+	}
+
+	@Override
+	public BigDecimal getBigDecimal() {
+		return myIntegral ? BigDecimal.valueOf(myLong) : new BigDecimal(myString);
+	}
+
+	@Override
+	public int getInt() {
+		return myIntegral ? (int) myLong : getBigDecimal().intValue();
+	}
+
+	@Override
+	public JsonLocation getLocation() {
+		final long offset = myBufferOffset + myPos;
+		return new JsonLocation() {
+			@Override
+			public long getColumnNumber() {
+				return -1;
+			}
+
+			@Override
+			public long getLineNumber() {
+				return -1;
+			}
+
+			@Override
+			public long getStreamOffset() {
+				return offset;
+			}
+		};
+	}
+
+	@Override
+	public long getLong() {
+		return myIntegral ? myLong : getBigDecimal().longValue();
+	}
+
+	@Override
+	public String getString() {
+		if (myIntegral && myString == null) {
+			myString = Long.toString(myLong);
+		}
+		return myString;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return !myStarted || myDepth > 0 || myPendingTag != -1;
+	}
+
+	@Override
+	public boolean isIntegralNumber() {
+		return myIntegral;
+	}
+
+	@Override
+	public Event next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		int tag;
+		if (myPendingTag != -1) {
+			tag = myPendingTag;
+			myPendingTag = -1;
+		} else {
+			tag = readByte();
+			if ((tag & FLAG_NAMED) != 0) {
+				myIntegral = false;
+				myString = readString();
+				myPendingTag = tag & ~FLAG_NAMED;
+				return Event.KEY_NAME;
+			}
+		}
+
+		myStarted = true;
+		myIntegral = false;
+		switch (tag) {
+		case TAG_START_OBJECT:
+			myDepth++;
+			return Event.START_OBJECT;
+		case TAG_START_ARRAY:
+			myDepth++;
+			return Event.START_ARRAY;
+		case TAG_END_OBJECT:
+			myDepth--;
+			return Event.END_OBJECT;
+		case TAG_END_ARRAY:
+			myDepth--;
+			return Event.END_ARRAY;
+		case TAG_STRING:
+			myString = readString();
+			return Event.VALUE_STRING;
+		case TAG_INTEGER:
+			long value = readVarLong();
+			myLong = (value >>> 1) ^ -(value & 1);
+			myIntegral = true;
+			myString = null;
+			return Event.VALUE_NUMBER;
+		case TAG_DECIMAL:
+			myString = readString();
+			return Event.VALUE_NUMBER;
+		case TAG_TRUE:
+			return Event.VALUE_TRUE;
+		case TAG_FALSE:
+			return Event.VALUE_FALSE;
+		case TAG_NULL:
+			return Event.VALUE_NULL;
+		default:
+			throw new DataFormatException("Invalid binary resource content: unknown tag " + tag + " at offset " + (myBufferOffset + myPos - 1));
+		}
+	}
+
+	private int readByte() {
+		if (!fill(1)) {
+			throw new DataFormatException("Invalid binary resource content: unexpected end of content");
+		}
+		return myBuffer[myPos++] & 0xFF;
+	}
+
+	private String readString() {
+		long ref = readVarLong();
+		if (ref >= STRING_REF_OFFSET) {
+			long ordinal = ref - STRING_REF_OFFSET;
+			if (ordinal >= myStrings.size()) {
+				throw new DataFormatException("Invalid binary resource content: unknown string " + ordinal + " at offset " + (myBufferOffset + myPos));
+			}
+			return myStrings.get((int) ordinal);
+		}
+
+		long length = readVarLong();
+		if (length > Integer.MAX_VALUE) {
+			throw new DataFormatException("Invalid binary resource content: string length " + length + " at offset " + (myBufferOffset + myPos));
+		}
+
+		String retVal;
+		if (length <= myBuffer.length) {
+			if (!fill((int) length)) {
+				throw new DataFormatException("Invalid binary resource content: unexpected end of content");
+			}
+			retVal = new String(myBuffer, myPos, (int) length, Constants.CHARSET_UTF8);
+			myPos += length;
+		} else {
+			byte[] bytes = new byte[(int) length];
+			int copied = 0;
+			while (copied < bytes.length) {
+				if (!fill(1)) {
+					throw new DataFormatException("Invalid binary resource content: unexpected end of content");
+				}
+				int count = Math.min(bytes.length - copied, myLimit - myPos);
+				System.arraycopy(myBuffer, myPos, bytes, copied, count);
+				myPos += count;
+				copied += count;
+			}
+			retVal = new String(bytes, Constants.CHARSET_UTF8);
+		}
+
+		if (ref == STRING_NEW_INTERNED) {
+			myStrings.add(retVal);
+		}
+		return retVal;
+	}
+
+	private long readVarLong() {
+		long retVal = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int next = readByte();
+			retVal |= (long) (next & 0x7F) << shift;
+			if ((next & 0x80) == 0) {
+				return retVal;
+			}
+		}
+		throw new DataFormatException("Invalid binary resource content: malformed number at offset " + (myBufferOffset + myPos));
+	}
+
+}
@@ -0,0 +1,335 @@
+package ca.uhn.fhir.parser;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static ca.uhn.fhir.parser.BinaryCodec.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerationException;
+import javax.json.stream.JsonGenerator;
+
+import ca.uhn.fhir.rest.server.Constants;
+
+/**
+ * JSON-P generator which writes the {@link BinaryCodec} format
+ */
+class BinaryEventWriter implements JsonGenerator {
+
+	private byte[] myBuffer = new byte[8192];
+	private int myCount;
+	/*
+	 * Whether each open container is an array (as opposed to an object)
+	 */
+	private boolean[] myContainerIsArray = new boolean[16];
+	private int myDepth;
+	private final OutputStream myOutputStream;
+	private final Map<String, Integer> myStrings = new HashMap<String, Integer>();
+
+	BinaryEventWriter(OutputStream theOutputStream) {
+		myOutputStream = theOutputStream;
+		writeBytes(HEADER, 0, HEADER.length);
+	}
+
+	@Override
+	public void close() {
+		flush();
+		try {
+			myOutputStream.close();
+		} catch (IOException e) {
+			throw new JsonException("Failed to close stream", e);
+		}
+	}
+
+	private void ensureCapacity(int theLength) {
+		if (myCount + theLength > myBuffer.length) {
+			flushBuffer();
+			if (theLength > myBuffer.length) {
+				myBuffer = new byte[theLength];
+			}
+		}
+	}
+
+	@Override
+	public void flush() {
+		flushBuffer();
+		try {
+			myOutputStream.flush();
+		} catch (IOException e) {
+			throw new JsonException("Failed to flush stream", e);
+		}
+	}
+
+	private void flushBuffer() {
+		if (myCount > 0) {
+			try {
+				myOutputStream.write(myBuffer, 0, myCount);
+			} catch (IOException e) {
+				throw new JsonException("Failed to write to stream", e);
+			}
+			myCount = 0;
+		}
+	}
+
+	private void startContainer(int theTag, String theName, boolean theArray) {
+		writeTag(theTag, theName);
+		if (myDepth == myContainerIsArray.length) {
+			boolean[] newContainers = new boolean[myDepth * 2];
+			System.arraycopy(myContainerIsArray, 0, newContainers, 0, myDepth);
+			myContainerIsArray = newContainers;
+		}
+		myContainerIsArray[myDepth++] = theArray;
+	}
+
+	@Override
+	public JsonGenerator write(BigDecimal theValue) {
+		return write(null, theValue);
+	}
+
+	@Override
+	public JsonGenerator write(BigInteger theValue) {
+		return write(null, theValue);
+	}
+
+	@Override
+	public JsonGenerator write(boolean theValue) {
+		return write(null, theValue);
+	}
+
+	@Override
+	public JsonGenerator write(double theValue) {
+		return write(null, theValue);
+	}
+
+	@Override
+	public JsonGenerator write(int theValue) {
+		return write(null, theValue);
+	}
+
+	@Override
+	public JsonGenerator write(JsonValue theValue) {
+		return write(null, theValue);
+	}
+
+	@Override
+	public JsonGenerator write(long theValue) {
+		return write(null, theValue);
+	}
+
+	@Override
+	public JsonGenerator write(String theValue) {
+		return write(null, theValue);
+	}
+
+	@Override
+	public JsonGenerator write(String theName, BigDecimal theValue) {
+		// The string form is written so that the precision of the value (e.g. trailing zeros) is preserved
+		writeTag(TAG_DECIMAL, theName);
+		writeString(theValue.toString());
+		return this;
+	}
+
+	@Override
+	public JsonGenerator write(String theName, BigInteger theValue) {
+		return write(theName, new BigDecimal(theValue));
+	}
+
+	@Override
+	public JsonGenerator write(String theName, boolean theValue) {
+		writeTag(theValue ? TAG_TRUE : TAG_FALSE, theName);
+		return this;
+	}
+
+	@Override
+	public JsonGenerator write(String theName, double theValue) {
+		if (Double.isInfinite(theValue) || Double.isNaN(theValue)) {
+			throw new NumberFormatException("Value can not be represented: " + theValue);
+		}
+		return write(theName, BigDecimal.valueOf(theValue));
+	}
+
+	@Override
+	public JsonGenerator write(String theName, int theValue) {
+		return write(theName, (long) theValue);
+	}
+
+	@Override
+	public JsonGenerator write(String theName, JsonValue theValue) {
+		switch (theValue.getValueType()) {
+		case ARRAY:
+			writeStartArray(theName);
+			for (JsonValue next : (JsonArray) theValue) {
+				write(next);
+			}
+			writeEnd();
+			break;
+		case OBJECT:
+			writeStartObject(theName);
+			for (Entry<String, JsonValue> next : ((JsonObject) theValue).entrySet()) {
+				write(next.getKey(), next.getValue());
+			}
+			writeEnd();
+			break;
+		case STRING:
+			write(theName, ((JsonString) theValue).getString());
+			break;
+		case NUMBER:
+			JsonNumber number = (JsonNumber) theValue;
+			if (number.isIntegral() && number.bigIntegerValue().bitLength() < 64) {
+				write(theName, number.longValue());
+			} else {
+				write(theName, number.bigDecimalValue());
+			}
+			break;
+		case TRUE:
+			write(theName, true);
+			break;
+		case FALSE:
+			write(theName, false);
+			break;
+		case NULL:
+			writeNull(theName);
+			break;
+		}
+		return this;
+	}
+
+	@Override
+	public JsonGenerator write(String theName, long theValue) {
+		writeTag(TAG_INTEGER, theName);
+		writeVarLong((theValue << 1) ^ (theValue >> 63));
+		return this;
+	}
+
+	@Override
+	public JsonGenerator write(String theName, String theValue) {
+		writeTag(TAG_STRING, theName);
+		writeString(theValue);
+		return this;
+	}
+
+	private void writeBytes(byte[] theBytes, int theOffset, int theLength) {
+		ensureCapacity(theLength);
+		System.arraycopy(theBytes, theOffset, myBuffer, myCount, theLength);
+		myCount += theLength;
+	}
+
+	@Override
+	public JsonGenerator writeEnd() {
+		if (myDepth == 0) {
+			throw new JsonGenerationException("writeEnd() called with no open object or array");
+		}
+		myDepth--;
+		ensureCapacity(1);
+		myBuffer[myCount++] = (byte) (myContainerIsArray[myDepth] ? TAG_END_ARRAY : TAG_END_OBJECT);
+		return this;
+	}
+
+	@Override
+	public JsonGenerator writeNull() {
+		return writeNull(null);
+	}
+
+	@Override
+	public JsonGenerator writeNull(String theName) {
+		writeTag(TAG_NULL, theName);
+		return this;
+	}
+
+	@Override
+	public JsonGenerator writeStartArray() {
+		return writeStartArray(null);
+	}
+
+	@Override
+	public JsonGenerator writeStartArray(String theName) {
+		startContainer(TAG_START_ARRAY, theName, true);
+		return this;
+	}
+
+	@Override
+	public JsonGenerator writeStartObject() {
+		return writeStartObject(null);
+	}
+
+	@Override
+	public JsonGenerator writeStartObject(String theName) {
+		startContainer(TAG_START_OBJECT, theName, false);
+		return this;
+	}
+
+	/**
+	 * Writes a string as an ordinal if it has been written before, or in full otherwise
+	 */
+	private void writeString(String theValue) {
+		Integer ordinal = myStrings.get(theValue);
+		if (ordinal != null) {
+			writeVarLong(ordinal.intValue() + STRING_REF_OFFSET);
+			return;
+		}
+
+		if (theValue.length() <= MAX_INTERNED_LENGTH) {
+			myStrings.put(theValue, myStrings.size());
+			writeVarLong(STRING_NEW_INTERNED);
+		} else {
+			writeVarLong(STRING_LITERAL);
+		}
+		byte[] bytes = theValue.getBytes(Constants.CHARSET_UTF8);
+		writeVarLong(bytes.length);
+		writeBytes(bytes, 0, bytes.length);
+	}
+
+	private void writeTag(int theTag, String theName) {
+		ensureCapacity(1);
+		if (theName != null) {
+			myBuffer[myCount++] = (byte) (theTag | FLAG_NAMED);
+			writeString(theName);
+		} else {
+			myBuffer[myCount++] = (byte) theTag;
+		}
+	}
+
+	/**
+	 * Writes an unsigned value using 7 bits per byte, with the high bit set on every byte except the last
+	 */
+	private void writeVarLong(long theValue) {
+		ensureCapacity(10);
+		long value = theValue;
+		while ((value & ~0x7FL) != 0) {
+			myBuffer[myCount++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		myBuffer[myCount++] = (byte) value;
+	}
+
+}
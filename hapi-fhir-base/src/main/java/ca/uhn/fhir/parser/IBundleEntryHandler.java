@@ -0,0 +1,47 @@
+package ca.uhn.fhir.parser;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Reader;
+
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+/**
+ * Receives the entries of a Bundle one at a time as they are parsed by
+ * {@link IParser#parseBundleEntries(Class, Reader, IBundleEntryHandler)}
+ */
+public interface IBundleEntryHandler {
+
+	/**
+	 * Invoked once for each entry in the Bundle, in document order, as soon as the entry has been completely parsed.
+	 * The entry is not added to the Bundle, so it may be discarded once this method returns.
+	 * 
+	 * @param theEntry
+	 *           The entry (e.g. <code>Bundle.BundleEntryComponent</code>), including its request, response and search
+	 *           children
+	 * @param theResource
+	 *           The entry's resource, or <code>null</code> if the entry has none (e.g. a DELETE in a transaction).
+	 *           If the entry has a <code>fullUrl</code>, the resource ID has been set to it.
+	 */
+	void handleEntry(IBase theEntry, IBaseResource theResource);
+
+}
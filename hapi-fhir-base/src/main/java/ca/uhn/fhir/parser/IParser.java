@@ -21,6 +21,7 @@ package ca.uhn.fhir.parser;
  */
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.List;
@@ -42,7 +43,7 @@ import ca.uhn.fhir.rest.server.EncodingEnum;
  * formats, in either XML or JSON.
  * <p>
  * Thread safety: <b>Parsers are not guaranteed to be thread safe</b>. Create a new parser instance for every thread or
- * every message being parsed/encoded.
+ * every message being parsed/encoded, or use a {@link ParserConfiguration} to share one configuration between threads.
  * </p>
  */
 public interface IParser {
@@ -53,6 +54,13 @@ public interface IParser {
 
 	String encodeResourceToString(IBaseResource theResource) throws DataFormatException;
 
+	/**
+	 * Encodes a resource as UTF-8 directly to an output stream. This avoids the
+	 * intermediate character buffering of {@link #encodeResourceToWriter(IBaseResource, Writer)}
+	 * where the encoder supports writing bytes natively. The stream is flushed but not closed.
+	 */
+	void encodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream) throws IOException, DataFormatException;
+
 	void encodeResourceToWriter(IBaseResource theResource, Writer theWriter) throws IOException, DataFormatException;
 
 	/**
@@ -97,6 +105,11 @@ public interface IParser {
 	 */
 	EncodingEnum getEncoding();
 
+	/**
+	 * See {@link #setParseElements(Set)}
+	 */
+	Set<String> getParseElements();
+
 	/**
 	 * Gets the preferred types, as set using {@link #setPreferTypes(List)}
 	 * 
@@ -153,6 +166,30 @@ public interface IParser {
 	 */
 	Bundle parseBundle(String theMessageString) throws ConfigurationException, DataFormatException;
 
+	/**
+	 * Parses a Bundle resource, handing each entry to the given handler as soon as it has been parsed instead of
+	 * adding it to the Bundle. Only one entry is held in memory at a time, so this can be used to process Bundles
+	 * which are too large to be parsed completely.
+	 * <p>
+	 * Because entries are not kept, references between resources in different entries are not resolved (i.e.
+	 * {@link org.hl7.fhir.instance.model.api.IBaseReference#getResource()} is only populated for references to
+	 * contained resources).
+	 * </p>
+	 *
+	 * @param theBundleType
+	 *           The Bundle resource class for the version of FHIR being parsed (e.g.
+	 *           <code>org.hl7.fhir.dstu3.model.Bundle</code>)
+	 * @param theReader
+	 *           The reader to parse input from. Note that the Reader will not be closed by the parser upon completion.
+	 * @param theHandler
+	 *           The handler which receives each entry
+	 * @return The Bundle, containing everything except its entries (e.g. type, total and links)
+	 * @throws DataFormatException
+	 *            If the resource can not be parsed because the data is not recognized or invalid for any reason
+	 * @since 1.6
+	 */
+	<T extends IBaseResource> T parseBundleEntries(Class<T> theBundleType, Reader theReader, IBundleEntryHandler theHandler) throws DataFormatException;
+
 	/**
 	 * Parses a resource
 	 * 
@@ -205,6 +242,23 @@ public interface IParser {
 	 */
 	IBaseResource parseResource(String theMessageString) throws ConfigurationException, DataFormatException;
 
+	/**
+	 * Scans a resource without parsing it, recording where each of its top level children is. Children are only
+	 * parsed when they are requested from the returned object, which is much cheaper than
+	 * {@link #parseResource(Class, String)} for consumers which only need a few elements of a large resource.
+	 * See {@link LazyParsedResource} for details.
+	 * 
+	 * @param theResourceType
+	 *           The resource type to use, or <code>null</code> to determine it from the resource text. This can be
+	 *           used to explicitly specify a class which extends a built-in type (e.g. a custom type extending the
+	 *           default Patient class)
+	 * @param theMessageString
+	 *           The string to parse
+	 * @throws DataFormatException
+	 *            If the resource can not be scanned because the data is not well formed
+	 */
+	<T extends IBaseResource> LazyParsedResource<T> parseResourceLazily(Class<T> theResourceType, String theMessageString) throws DataFormatException;
+
 	/**
 	 * Parses a tag list, as defined in the <a href="http://hl7.org/implement/standards/fhir/http.html#tags">FHIR
 	 * Specification</a>.
@@ -292,6 +346,31 @@ public interface IParser {
 	 */
 	IParser setOmitResourceId(boolean theOmitResourceId);
 
+	/**
+	 * If provided, specifies the elements which should be parsed, to the exclusion of all others. Any other elements
+	 * found in the resource are skipped without creating any model objects for them, which makes parsing considerably
+	 * cheaper when only a few elements of a large resource (or of every resource in a large Bundle) are needed. Valid
+	 * values for this field would include:
+	 * <ul>
+	 * <li><b>Patient</b> - Parse patient and all its children</li>
+	 * <li><b>Patient.name</b> - Parse only the patient's name</li>
+	 * <li><b>Patient.name.family</b> - Parse only the patient's family name</li>
+	 * <li><b>Observation.value[x]</b> - Parse the observation's value, whichever datatype it has</li>
+	 * <li><b>*.text</b> - Parse the text element on any resource (only the very first position may contain a
+	 * wildcard)</li>
+	 * </ul>
+	 * <p>
+	 * Resource types which aren't mentioned (and aren't matched by a wildcard) are parsed completely, so for
+	 * example <code>Observation.code</code> parses every element of a Bundle but only the code of each
+	 * Observation in it. The ID and <code>meta</code> of a resource are always parsed.
+	 * </p>
+	 * 
+	 * @param theParseElements
+	 *           The elements to parse, or <code>null</code> to parse all elements (which is the default)
+	 * @see #setEncodeElements(Set)
+	 */
+	IParser setParseElements(Set<String> theParseElements);
+
 	/**
 	 * Registers an error handler which will be invoked when any parse errors are found
 	 * 
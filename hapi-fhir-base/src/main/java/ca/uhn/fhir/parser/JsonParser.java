@@ -38,16 +38,19 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import javax.json.Json;
 import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
 import javax.json.JsonReader;
 import javax.json.JsonString;
 import javax.json.JsonValue;
 import javax.json.JsonValue.ValueType;
+import javax.json.spi.JsonProvider;
 import javax.json.stream.JsonGenerator;
 import javax.json.stream.JsonGeneratorFactory;
+import javax.json.stream.JsonParser.Event;
 import javax.json.stream.JsonParsingException;
 
 import org.apache.commons.lang3.StringUtils;
@@ -110,6 +113,9 @@ public class JsonParser extends BaseParser implements IParser {
 	private static final Set<String> BUNDLE_TEXTNODE_CHILDREN_DSTU1;
 	private static final Set<String> BUNDLE_TEXTNODE_CHILDREN_DSTU2;
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(JsonParser.HeldExtension.class);
+	private static volatile JsonGeneratorFactory ourGeneratorFactory;
+	private static volatile JsonProvider ourJsonProvider;
+	private static volatile JsonGeneratorFactory ourPrettyPrintGeneratorFactory;
 
 	static {
 		HashSet<String> hashSetDstu1 = new HashSet<String>();
@@ -141,38 +147,48 @@ public class JsonParser extends BaseParser implements IParser {
 		myContext = theContext;
 	}
 
-	private boolean addToHeldComments(int valueIdx, List<String> theCommentsToAdd, ArrayList<ArrayList<String>> theListToAddTo) {
-		if (theCommentsToAdd.size() > 0) {
-			theListToAddTo.ensureCapacity(valueIdx);
-			while (theListToAddTo.size() <= valueIdx) {
-				theListToAddTo.add(null);
-			}
-			if (theListToAddTo.get(valueIdx) == null) {
-				theListToAddTo.set(valueIdx, new ArrayList<String>());
-			}
-			theListToAddTo.get(valueIdx).addAll(theCommentsToAdd);
-			return true;
-		} else {
-			return false;
+	/**
+	 * @param theListToAddTo
+	 *           The list to add to, or <code>null</code> if nothing has been held yet for the current child (the list is
+	 *           only created once there is something to hold, since most values have no comments)
+	 * @return Returns the list which was added to
+	 */
+	private ArrayList<ArrayList<String>> addToHeldComments(int valueIdx, List<String> theCommentsToAdd, ArrayList<ArrayList<String>> theListToAddTo) {
+		if (theCommentsToAdd.isEmpty()) {
+			return theListToAddTo;
+		}
+		ArrayList<ArrayList<String>> retVal = theListToAddTo != null ? theListToAddTo : new ArrayList<ArrayList<String>>(valueIdx + 1);
+		while (retVal.size() <= valueIdx) {
+			retVal.add(null);
+		}
+		if (retVal.get(valueIdx) == null) {
+			retVal.set(valueIdx, new ArrayList<String>(theCommentsToAdd.size()));
 		}
+		retVal.get(valueIdx).addAll(theCommentsToAdd);
+		return retVal;
 	}
 
-	private boolean addToHeldExtensions(int valueIdx, List<? extends IBaseExtension<?, ?>> ext, ArrayList<ArrayList<HeldExtension>> list, boolean theIsModifier) {
-		if (ext.size() > 0) {
-			list.ensureCapacity(valueIdx);
-			while (list.size() <= valueIdx) {
-				list.add(null);
-			}
-			if (list.get(valueIdx) == null) {
-				list.set(valueIdx, new ArrayList<JsonParser.HeldExtension>());
-			}
-			for (IBaseExtension<?, ?> next : ext) {
-				list.get(valueIdx).add(new HeldExtension(next, theIsModifier));
-			}
-			return true;
-		} else {
-			return false;
+	/**
+	 * @param list
+	 *           The list to add to, or <code>null</code> if nothing has been held yet for the current child (the list is
+	 *           only created once there is something to hold, since most values have no extensions)
+	 * @return Returns the list which was added to
+	 */
+	private ArrayList<ArrayList<HeldExtension>> addToHeldExtensions(int valueIdx, List<? extends IBaseExtension<?, ?>> ext, ArrayList<ArrayList<HeldExtension>> list, boolean theIsModifier) {
+		if (ext.isEmpty()) {
+			return list;
+		}
+		ArrayList<ArrayList<HeldExtension>> retVal = list != null ? list : new ArrayList<ArrayList<HeldExtension>>(valueIdx + 1);
+		while (retVal.size() <= valueIdx) {
+			retVal.add(null);
+		}
+		if (retVal.get(valueIdx) == null) {
+			retVal.set(valueIdx, new ArrayList<JsonParser.HeldExtension>(ext.size()));
+		}
+		for (IBaseExtension<?, ?> next : ext) {
+			retVal.get(valueIdx).add(new HeldExtension(next, theIsModifier));
 		}
+		return retVal;
 	}
 
 	private void assertObjectOfType(JsonValue theResourceTypeObj, ValueType theValueType, String thePosition) {
@@ -185,14 +201,80 @@ public class JsonParser extends BaseParser implements IParser {
 		}
 	}
 
-	private JsonGenerator createJsonGenerator(Writer theWriter) {
-		Map<String, Object> properties = new HashMap<String, Object>(1);
-		if (myPrettyPrint) {
-			properties.put(JsonGenerator.PRETTY_PRINTING, myPrettyPrint);
+	private void addValue(JsonArrayBuilder theBuilder, javax.json.stream.JsonParser theParser, Event theEvent) {
+		switch (theEvent) {
+		case START_OBJECT:
+			theBuilder.add(readObject(theParser, getJsonProvider().createObjectBuilder()));
+			break;
+		case START_ARRAY:
+			theBuilder.add(readArray(theParser));
+			break;
+		case VALUE_STRING:
+			theBuilder.add(theParser.getString());
+			break;
+		case VALUE_NUMBER:
+			theBuilder.add(theParser.getBigDecimal());
+			break;
+		case VALUE_TRUE:
+			theBuilder.add(JsonValue.TRUE);
+			break;
+		case VALUE_FALSE:
+			theBuilder.add(JsonValue.FALSE);
+			break;
+		case VALUE_NULL:
+			theBuilder.addNull();
+			break;
+		default:
+			throw new DataFormatException("Syntax error parsing JSON FHIR structure: Unexpected token " + theEvent.name());
 		}
-		JsonGeneratorFactory jgf = Json.createGeneratorFactory(properties);
-		JsonGenerator eventWriter = jgf.createGenerator(theWriter);
-		return eventWriter;
+	}
+
+	private void addValue(JsonObjectBuilder theBuilder, String theName, javax.json.stream.JsonParser theParser, Event theEvent) {
+		switch (theEvent) {
+		case START_OBJECT:
+			theBuilder.add(theName, readObject(theParser, getJsonProvider().createObjectBuilder()));
+			break;
+		case START_ARRAY:
+			theBuilder.add(theName, readArray(theParser));
+			break;
+		case VALUE_STRING:
+			theBuilder.add(theName, theParser.getString());
+			break;
+		case VALUE_NUMBER:
+			theBuilder.add(theName, theParser.getBigDecimal());
+			break;
+		case VALUE_TRUE:
+			theBuilder.add(theName, JsonValue.TRUE);
+			break;
+		case VALUE_FALSE:
+			theBuilder.add(theName, JsonValue.FALSE);
+			break;
+		case VALUE_NULL:
+			theBuilder.addNull(theName);
+			break;
+		default:
+			throw new DataFormatException("Syntax error parsing JSON FHIR structure: Unexpected token " + theEvent.name() + " at element '" + theName + "'");
+		}
+	}
+
+	private JsonValue alternateAt(JsonValue theAlternateVal, int theIndex) {
+		if (theAlternateVal instanceof JsonArray) {
+			JsonArray array = (JsonArray) theAlternateVal;
+			if (theIndex < array.size()) {
+				return array.get(theIndex);
+			}
+		}
+		return null;
+	}
+
+	private void assertStartOfObject(javax.json.stream.JsonParser theParser) {
+		if (!theParser.hasNext() || theParser.next() != Event.START_OBJECT) {
+			throw new DataFormatException("Invalid JSON content detected, expected a JSON object");
+		}
+	}
+
+	private JsonGenerator createJsonGenerator(Writer theWriter) {
+		return getGeneratorFactory().createGenerator(theWriter);
 	}
 
 	@Override
@@ -208,40 +290,71 @@ public class JsonParser extends BaseParser implements IParser {
 
 	@Override
 	protected void doEncodeResourceToWriter(IBaseResource theResource, Writer theWriter) throws IOException {
-		JsonGenerator eventWriter = createJsonGenerator(theWriter);
-
-		RuntimeResourceDefinition resDef = myContext.getResourceDefinition(theResource);
-		encodeResourceToJsonStreamWriter(resDef, theResource, eventWriter, null, false);
-		eventWriter.flush();
+		encodeResourceToJsonGenerator(theResource, createJsonGenerator(theWriter));
 	}
 
 	@Override
 	public <T extends IBaseResource> T doParseResource(Class<T> theResourceType, Reader theReader) {
 		try {
-			JsonReader reader = Json.createReader(theReader);
-			JsonObject object = reader.readObject();
+			return doParseResource(theResourceType, getJsonProvider().createParser(theReader));
+		} catch (JsonParsingException e) {
+			throw new DataFormatException("Failed to parse JSON: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Encodes a resource to any JSON-P generator. This is also used by {@link BinaryCodec}, which supplies a
+	 * generator that writes its own format.
+	 */
+	void encodeResourceToJsonGenerator(IBaseResource theResource, JsonGenerator theEventWriter) throws IOException {
+		RuntimeResourceDefinition resDef = myContext.getResourceDefinition(theResource);
+		encodeResourceToJsonStreamWriter(resDef, theResource, theEventWriter, null, false);
+		theEventWriter.flush();
+	}
+
+	/**
+	 * Parses a resource from any JSON-P event stream. This is also used by {@link BinaryCodec}, which supplies a
+	 * parser that reads its own format.
+	 */
+	<T extends IBaseResource> T doParseResource(Class<T> theResourceType, javax.json.stream.JsonParser theParser) {
+		assertStartOfObject(theParser);
+
+		/*
+		 * The resource is streamed straight into the parser state as long as
+		 * "resourceType" is the first member (which is how we and most other
+		 * encoders write it). Otherwise we need to buffer the object to find it.
+		 */
+		LeadingMember leadingMember = readLeadingMember(theParser, "resourceType");
+		JsonObject object = leadingMember.getBufferedObject();
 
+		String resourceType;
+		if (object != null) {
 			JsonValue resourceTypeObj = object.get("resourceType");
 			assertObjectOfType(resourceTypeObj, JsonValue.ValueType.STRING, "resourceType");
-			String resourceType = ((JsonString) resourceTypeObj).getString();
+			resourceType = ((JsonString) resourceTypeObj).getString();
+		} else {
+			resourceType = leadingMember.getValue();
+		}
 
-			ParserState<? extends IBaseResource> state = ParserState.getPreResourceInstance(this, theResourceType, myContext, true, getErrorHandler());
-			state.enteringNewElement(null, resourceType);
+		ParserState<? extends IBaseResource> state = ParserState.getPreResourceInstance(this, theResourceType, myContext, true, getErrorHandler());
+		state.enteringNewElement(null, resourceType);
 
+		if (object != null) {
 			parseChildren(object, state);
+		} else {
+			streamChildren(theParser, state);
+		}
 
-			state.endingElement();
-			state.endingElement();
+		state.endingElement();
+		state.endingElement();
 
-			@SuppressWarnings("unchecked")
-			T retVal = (T) state.getObject();
+		@SuppressWarnings("unchecked")
+		T retVal = (T) state.getObject();
 
-			return retVal;
-		} catch (JsonParsingException e) {
-			throw new DataFormatException("Failed to parse JSON: " + e.getMessage(), e);
-		}
+		return retVal;
 	}
 
+
 	private void encodeBundleToWriterInDstu1Format(Bundle theBundle, JsonGenerator eventWriter) throws IOException {
 		eventWriter.writeStartObject();
 
@@ -594,10 +707,14 @@ public class JsonParser extends BaseParser implements IParser {
 			String currentChildName = null;
 			boolean inArray = false;
 
-			ArrayList<ArrayList<HeldExtension>> extensions = new ArrayList<ArrayList<HeldExtension>>(0);
-			ArrayList<ArrayList<HeldExtension>> modifierExtensions = new ArrayList<ArrayList<HeldExtension>>(0);
-			ArrayList<ArrayList<String>> comments = new ArrayList<ArrayList<String>>(0);
-			ArrayList<String> ids = new ArrayList<String>(0);
+			/*
+			 * These are only created if a value actually has something to hold, since
+			 * the vast majority of values have no extensions, comments or IDs
+			 */
+			ArrayList<ArrayList<HeldExtension>> extensions = null;
+			ArrayList<ArrayList<HeldExtension>> modifierExtensions = null;
+			ArrayList<ArrayList<String>> comments = null;
+			ArrayList<String> ids = null;
 
 			int valueIdx = 0;
 			for (IBase nextValue : values) {
@@ -629,30 +746,35 @@ public class JsonParser extends BaseParser implements IParser {
 				if (primitive) {
 					if (nextValue instanceof ISupportsUndeclaredExtensions) {
 						List<ExtensionDt> ext = ((ISupportsUndeclaredExtensions) nextValue).getUndeclaredExtensions();
-						force |= addToHeldExtensions(valueIdx, ext, extensions, false);
+						force |= !ext.isEmpty();
+						extensions = addToHeldExtensions(valueIdx, ext, extensions, false);
 
 						ext = ((ISupportsUndeclaredExtensions) nextValue).getUndeclaredModifierExtensions();
-						force |= addToHeldExtensions(valueIdx, ext, modifierExtensions, true);
+						force |= !ext.isEmpty();
+						modifierExtensions = addToHeldExtensions(valueIdx, ext, modifierExtensions, true);
 					} else {
 						if (nextValue instanceof IBaseHasExtensions) {
 							IBaseHasExtensions element = (IBaseHasExtensions) nextValue;
 							List<? extends IBaseExtension<?, ?>> ext = element.getExtension();
-							force |= addToHeldExtensions(valueIdx, ext, extensions, false);
+							force |= !ext.isEmpty();
+							extensions = addToHeldExtensions(valueIdx, ext, extensions, false);
 						}
 						if (nextValue instanceof IBaseHasModifierExtensions) {
 							IBaseHasModifierExtensions element = (IBaseHasModifierExtensions) nextValue;
 							List<? extends IBaseExtension<?, ?>> ext = element.getModifierExtension();
-							force |= addToHeldExtensions(valueIdx, ext, extensions, true);
+							force |= !ext.isEmpty();
+							extensions = addToHeldExtensions(valueIdx, ext, extensions, true);
 						}
 					}
 					if (nextValue.hasFormatComment()) {
-						force |= addToHeldComments(valueIdx, nextValue.getFormatCommentsPre(), comments);
-						force |= addToHeldComments(valueIdx, nextValue.getFormatCommentsPost(), comments);
+						force |= !nextValue.getFormatCommentsPre().isEmpty() || !nextValue.getFormatCommentsPost().isEmpty();
+						comments = addToHeldComments(valueIdx, nextValue.getFormatCommentsPre(), comments);
+						comments = addToHeldComments(valueIdx, nextValue.getFormatCommentsPost(), comments);
 					}
 					String elementId = getCompositeElementId(nextValue);
 					if (isNotBlank(elementId)) {
 						force = true;
-						addToHeldIds(valueIdx, ids, elementId);
+						ids = addToHeldIds(valueIdx, ids, elementId);
 					}
 				}
 
@@ -681,7 +803,7 @@ public class JsonParser extends BaseParser implements IParser {
 				theEventWriter.writeEnd();
 			}
 
-			if (!extensions.isEmpty() || !modifierExtensions.isEmpty() || !comments.isEmpty()) {
+			if (extensions != null || modifierExtensions != null || comments != null) {
 				if (inArray) {
 					// If this is a repeatable field, the extensions go in an array too
 					theEventWriter.writeStartArray('_' + currentChildName);
@@ -694,18 +816,18 @@ public class JsonParser extends BaseParser implements IParser {
 
 					List<HeldExtension> heldExts = Collections.emptyList();
 					List<HeldExtension> heldModExts = Collections.emptyList();
-					if (extensions.size() > i && extensions.get(i) != null && extensions.get(i).isEmpty() == false) {
+					if (extensions != null && extensions.size() > i && extensions.get(i) != null && extensions.get(i).isEmpty() == false) {
 						haveContent = true;
 						heldExts = extensions.get(i);
 					}
 
-					if (modifierExtensions.size() > i && modifierExtensions.get(i) != null && modifierExtensions.get(i).isEmpty() == false) {
+					if (modifierExtensions != null && modifierExtensions.size() > i && modifierExtensions.get(i) != null && modifierExtensions.get(i).isEmpty() == false) {
 						haveContent = true;
 						heldModExts = modifierExtensions.get(i);
 					}
 
 					ArrayList<String> nextComments;
-					if (comments.size() > i) {
+					if (comments != null && comments.size() > i) {
 						nextComments = comments.get(i);
 					} else {
 						nextComments = null;
@@ -715,7 +837,7 @@ public class JsonParser extends BaseParser implements IParser {
 					}
 
 					String elementId = null;
-					if (ids.size() > i) {
+					if (ids != null && ids.size() > i) {
 						elementId = ids.get(i);
 						haveContent |= isNotBlank(elementId);
 					}
@@ -748,14 +870,15 @@ public class JsonParser extends BaseParser implements IParser {
 		}
 	}
 
-	private void addToHeldIds(int theValueIdx, ArrayList<String> theListToAddTo, String theId) {
-		theListToAddTo.ensureCapacity(theValueIdx);
-		while (theListToAddTo.size() <= theValueIdx) {
-			theListToAddTo.add(null);
+	private ArrayList<String> addToHeldIds(int theValueIdx, ArrayList<String> theListToAddTo, String theId) {
+		ArrayList<String> retVal = theListToAddTo != null ? theListToAddTo : new ArrayList<String>(theValueIdx + 1);
+		while (retVal.size() <= theValueIdx) {
+			retVal.add(null);
 		}
-		if (theListToAddTo.get(theValueIdx) == null) {
-			theListToAddTo.set(theValueIdx, theId);
+		if (retVal.get(theValueIdx) == null) {
+			retVal.set(theValueIdx, theId);
 		}
+		return retVal;
 	}
 
 	private void encodeCompositeElementToStreamWriter(RuntimeResourceDefinition theResDef, IBaseResource theResource, IBase theNextValue, JsonGenerator theEventWriter, boolean theContainedResource, CompositeChildElement theParent) throws IOException, DataFormatException {
@@ -938,6 +1061,11 @@ public class JsonParser extends BaseParser implements IParser {
 	 * called _name): resource extensions, and extension extensions
 	 */
 	private void extractAndWriteExtensionsAsDirectChild(IBase theElement, JsonGenerator theEventWriter, BaseRuntimeElementDefinition<?> theElementDef, RuntimeResourceDefinition theResDef, IBaseResource theResource) throws IOException {
+		if (!hasExtensions(theElement) && (theElementDef == null || theElementDef.getExtensions().isEmpty())) {
+			// Avoid building the held extension lists for the (very common) case of no extensions
+			return;
+		}
+
 		List<HeldExtension> extensions = new ArrayList<HeldExtension>(0);
 		List<HeldExtension> modifierExtensions = new ArrayList<HeldExtension>(0);
 
@@ -1018,6 +1146,41 @@ public class JsonParser extends BaseParser implements IParser {
 		}
 	}
 
+	/**
+	 * Every call to one of the static <code>Json.createXXX</code> methods looks the JSON provider up again using
+	 * the service loader, which is far more expensive than the call itself. Providers are thread safe, so this
+	 * one is looked up once and then shared by all parsers.
+	 */
+	static JsonProvider getJsonProvider() {
+		JsonProvider retVal = ourJsonProvider;
+		if (retVal == null) {
+			retVal = JsonProvider.provider();
+			ourJsonProvider = retVal;
+		}
+		return retVal;
+	}
+
+	/**
+	 * Generator factories are thread safe and looking up the JSON provider is expensive, so
+	 * they are created once and shared instead of being created for every encode call
+	 */
+	private JsonGeneratorFactory getGeneratorFactory() {
+		JsonGeneratorFactory retVal = myPrettyPrint ? ourPrettyPrintGeneratorFactory : ourGeneratorFactory;
+		if (retVal == null) {
+			Map<String, Object> properties = new HashMap<String, Object>(1);
+			if (myPrettyPrint) {
+				properties.put(JsonGenerator.PRETTY_PRINTING, myPrettyPrint);
+			}
+			retVal = getJsonProvider().createGeneratorFactory(properties);
+			if (myPrettyPrint) {
+				ourPrettyPrintGeneratorFactory = retVal;
+			} else {
+				ourGeneratorFactory = retVal;
+			}
+		}
+		return retVal;
+	}
+
 	@Override
 	public EncodingEnum getEncoding() {
 		return EncodingEnum.JSON;
@@ -1034,6 +1197,23 @@ public class JsonParser extends BaseParser implements IParser {
 		return (JsonArray) object;
 	}
 
+	@Override
+	public boolean isPrettyPrint() {
+		return myPrettyPrint;
+	}
+
+	/**
+	 * Returns <code>true</code> for members of an object which represent a FHIR element that can be streamed
+	 * directly into the parser state, as opposed to the special members which are buffered and handled by
+	 * {@link #parseChildren(JsonObject, ParserState, Set)}
+	 */
+	private boolean isStreamableElementName(String theName) {
+		if (theName.length() == 0 || theName.charAt(0) == '_') {
+			return false;
+		}
+		return !"resourceType".equals(theName) && !"fhir_comments".equals(theName) && !"extension".equals(theName) && !"modifierExtension".equals(theName);
+	}
+
 	private void parseAlternates(JsonValue theAlternateVal, ParserState<?> theState, String theElementName) {
 		if (theAlternateVal == null || theAlternateVal.getValueType() == ValueType.NULL) {
 			return;
@@ -1081,40 +1261,50 @@ public class JsonParser extends BaseParser implements IParser {
 
 	@Override
 	public <T extends IBaseResource> Bundle parseBundle(Class<T> theResourceType, Reader theReader) {
-		JsonReader reader;
-		JsonObject object;
-
 		try {
-			reader = Json.createReader(theReader);
-			object = reader.readObject();
-		} catch (JsonParsingException e) {
-			if (e.getMessage().startsWith("Unexpected char 39")) {
-				throw new DataFormatException("Failed to parse JSON encoded FHIR content: " + e.getMessage() + " - This may indicate that single quotes are being used as JSON escapes where double quotes are required", e);
+			javax.json.stream.JsonParser parser = getJsonProvider().createParser(theReader);
+			assertStartOfObject(parser);
+
+			LeadingMember leadingMember = readLeadingMember(parser, "resourceType");
+			JsonObject object = leadingMember.getBufferedObject();
+
+			String resourceType;
+			if (object != null) {
+				JsonValue resourceTypeObj = object.get("resourceType");
+				assertObjectOfType(resourceTypeObj, JsonValue.ValueType.STRING, "resourceType");
+				resourceType = ((JsonString) resourceTypeObj).getString();
+			} else {
+				resourceType = leadingMember.getValue();
+			}
+			if (!"Bundle".equals(resourceType)) {
+				throw new DataFormatException("Trying to parse bundle but found resourceType other than 'Bundle'. Found: '" + resourceType + "'");
 			}
-			throw new DataFormatException("Failed to parse JSON encoded FHIR content: " + e.getMessage(), e);
-		}
-		JsonValue resourceTypeObj = object.get("resourceType");
-		assertObjectOfType(resourceTypeObj, JsonValue.ValueType.STRING, "resourceType");
-		String resourceType = ((JsonString) resourceTypeObj).getString();
-		if (!"Bundle".equals(resourceType)) {
-			throw new DataFormatException("Trying to parse bundle but found resourceType other than 'Bundle'. Found: '" + resourceType + "'");
-		}
 
-		ParserState<Bundle> state = ParserState.getPreAtomInstance(this, myContext, theResourceType, true, getErrorHandler());
-		if (myContext.getVersion().getVersion().isNewerThan(FhirVersionEnum.DSTU1)) {
-			state.enteringNewElement(null, "Bundle");
-		} else {
-			state.enteringNewElement(null, "feed");
-		}
+			ParserState<Bundle> state = ParserState.getPreAtomInstance(this, myContext, theResourceType, true, getErrorHandler());
+			if (myContext.getVersion().getVersion().isNewerThan(FhirVersionEnum.DSTU1)) {
+				state.enteringNewElement(null, "Bundle");
+			} else {
+				state.enteringNewElement(null, "feed");
+			}
 
-		parseBundleChildren(object, state);
+			if (object != null) {
+				parseBundleChildren(object, state);
+			} else {
+				streamBundleChildren(parser, state);
+			}
 
-		state.endingElement();
-		state.endingElement();
+			state.endingElement();
+			state.endingElement();
 
-		Bundle retVal = state.getObject();
+			Bundle retVal = state.getObject();
 
-		return retVal;
+			return retVal;
+		} catch (JsonParsingException e) {
+			if (e.getMessage().startsWith("Unexpected char 39")) {
+				throw new DataFormatException("Failed to parse JSON encoded FHIR content: " + e.getMessage() + " - This may indicate that single quotes are being used as JSON escapes where double quotes are required", e);
+			}
+			throw new DataFormatException("Failed to parse JSON encoded FHIR content: " + e.getMessage(), e);
+		}
 	}
 
 	private void parseBundleChildren(JsonObject theObject, ParserState<?> theState) {
@@ -1192,6 +1382,15 @@ public class JsonParser extends BaseParser implements IParser {
 	}
 
 	private void parseChildren(JsonObject theObject, ParserState<?> theState) {
+		parseChildren(theObject, theState, null);
+	}
+
+	/**
+	 * @param theStreamedNames
+	 *           The names of any sibling elements which have already been streamed into the parser state (and are
+	 *           therefore not present in <code>theObject</code>), or <code>null</code>
+	 */
+	private void parseChildren(JsonObject theObject, ParserState<?> theState, Set<String> theStreamedNames) {
 		Set<String> keySet = theObject.keySet();
 
 		int allUnderscoreNames = 0;
@@ -1202,11 +1401,15 @@ public class JsonParser extends BaseParser implements IParser {
 				continue;
 			} else if ("extension".equals(nextName)) {
 				JsonArray array = grabJsonArray(theObject, nextName, "extension");
-				parseExtension(theState, array, false);
+				if (array != null) {
+					parseExtension(theState, array, false);
+				}
 				continue;
 			} else if ("modifierExtension".equals(nextName)) {
 				JsonArray array = grabJsonArray(theObject, nextName, "modifierExtension");
-				parseExtension(theState, array, true);
+				if (array != null) {
+					parseExtension(theState, array, true);
+				}
 				continue;
 			} else if (nextName.equals("fhir_comments")) {
 				parseFhirComments(theObject.get(nextName), theState);
@@ -1248,7 +1451,7 @@ public class JsonParser extends BaseParser implements IParser {
 					JsonValue nextValue = theObject.get(alternateName);
 					if (nextValue.getValueType() == ValueType.OBJECT) {
 						String nextName = alternateName.substring(1);
-						if (theObject.get(nextName) == null) {
+						if (theObject.get(nextName) == null && (theStreamedNames == null || !theStreamedNames.contains(nextName))) {
 							theState.enteringNewElement(null, nextName);
 							parseAlternates(nextValue, theState, alternateName);
 							theState.endingElement();
@@ -1328,25 +1531,29 @@ public class JsonParser extends BaseParser implements IParser {
 	private void parseExtension(ParserState<?> theState, JsonArray theValues, boolean theIsModifier) {
 		for (int i = 0; i < theValues.size(); i++) {
 			JsonObject nextExtObj = theValues.getJsonObject(i);
-			String url = nextExtObj.getString("url");
-			theState.enteringNewElementExtension(null, url, theIsModifier);
-			for (Iterator<String> iter = nextExtObj.keySet().iterator(); iter.hasNext();) {
-				String next = iter.next();
-				if ("url".equals(next)) {
-					continue;
-				} else if ("extension".equals(next)) {
-					JsonArray jsonVal = (JsonArray) nextExtObj.get(next);
-					parseExtension(theState, jsonVal, false);
-				} else if ("modifierExtension".equals(next)) {
-					JsonArray jsonVal = (JsonArray) nextExtObj.get(next);
-					parseExtension(theState, jsonVal, true);
-				} else {
-					JsonValue jsonVal = nextExtObj.get(next);
-					parseChildren(theState, next, jsonVal, null, null);
-				}
+			parseExtension(theState, nextExtObj, theIsModifier);
+		}
+	}
+
+	private void parseExtension(ParserState<?> theState, JsonObject theExtObj, boolean theIsModifier) {
+		String url = theExtObj.getString("url");
+		theState.enteringNewElementExtension(null, url, theIsModifier);
+		for (Iterator<String> iter = theExtObj.keySet().iterator(); iter.hasNext();) {
+			String next = iter.next();
+			if ("url".equals(next)) {
+				continue;
+			} else if ("extension".equals(next)) {
+				JsonArray jsonVal = (JsonArray) theExtObj.get(next);
+				parseExtension(theState, jsonVal, false);
+			} else if ("modifierExtension".equals(next)) {
+				JsonArray jsonVal = (JsonArray) theExtObj.get(next);
+				parseExtension(theState, jsonVal, true);
+			} else {
+				JsonValue jsonVal = theExtObj.get(next);
+				parseChildren(theState, next, jsonVal, null, null);
 			}
-			theState.endingElement();
 		}
+		theState.endingElement();
 	}
 
 	private void parseFhirComments(JsonValue theObject, ParserState<?> theState) {
@@ -1364,7 +1571,7 @@ public class JsonParser extends BaseParser implements IParser {
 
 	@Override
 	public TagList parseTagList(Reader theReader) {
-		JsonReader reader = Json.createReader(theReader);
+		JsonReader reader = getJsonProvider().createReader(theReader);
 		JsonObject object = reader.readObject();
 
 		JsonValue resourceTypeObj = object.get("resourceType");
@@ -1408,6 +1615,297 @@ public class JsonParser extends BaseParser implements IParser {
 	// theState.endingElement();
 	// }
 
+	private JsonArray readArray(javax.json.stream.JsonParser theParser) {
+		JsonArrayBuilder builder = getJsonProvider().createArrayBuilder();
+		for (Event event = theParser.next(); event != Event.END_ARRAY; event = theParser.next()) {
+			addValue(builder, theParser, event);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Reads the first member of an object whose opening brace has just been consumed. If that member is
+	 * named <code>theName</code> and has a string value, only that member is consumed and its value is
+	 * returned. Otherwise the remainder of the object is buffered and returned instead, so that the caller
+	 * can fall back to parsing it as a tree.
+	 */
+	private LeadingMember readLeadingMember(javax.json.stream.JsonParser theParser, String theName) {
+		Event event = theParser.next();
+		JsonObjectBuilder builder = getJsonProvider().createObjectBuilder();
+		if (event == Event.END_OBJECT) {
+			return new LeadingMember(null, builder.build());
+		}
+
+		String name = theParser.getString();
+		Event valueEvent = theParser.next();
+		if (theName.equals(name) && valueEvent == Event.VALUE_STRING) {
+			return new LeadingMember(theParser.getString(), null);
+		}
+
+		addValue(builder, name, theParser, valueEvent);
+		return new LeadingMember(null, readObject(theParser, builder));
+	}
+
+	private JsonObject readObject(javax.json.stream.JsonParser theParser, JsonObjectBuilder theBuilder) {
+		for (Event event = theParser.next(); event != Event.END_OBJECT; event = theParser.next()) {
+			String name = theParser.getString();
+			addValue(theBuilder, name, theParser, theParser.next());
+		}
+		return theBuilder.build();
+	}
+
+	private void skipValue(javax.json.stream.JsonParser theParser, Event theEvent) {
+		if (theEvent != Event.START_OBJECT && theEvent != Event.START_ARRAY) {
+			return;
+		}
+		int depth = 1;
+		while (depth > 0) {
+			switch (theParser.next()) {
+			case START_OBJECT:
+			case START_ARRAY:
+				depth++;
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				depth--;
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Streaming equivalent of {@link #parseBundleChildren(JsonObject, ParserState)}. Entries are streamed one at a
+	 * time, and the small bundle-level text and link children are buffered and handed to the tree parser once
+	 * the object has been read.
+	 */
+	private void streamBundleChildren(javax.json.stream.JsonParser theParser, ParserState<?> theState) {
+		Set<String> textNodeChildren;
+		if (myContext.getVersion().getVersion() == FhirVersionEnum.DSTU1) {
+			textNodeChildren = BUNDLE_TEXTNODE_CHILDREN_DSTU1;
+		} else {
+			textNodeChildren = BUNDLE_TEXTNODE_CHILDREN_DSTU2;
+		}
+
+		JsonObjectBuilder buffered = getJsonProvider().createObjectBuilder();
+		for (Event event = theParser.next(); event != Event.END_OBJECT; event = theParser.next()) {
+			String nextName = theParser.getString();
+			Event valueEvent = theParser.next();
+			if ("entry".equals(nextName) && valueEvent == Event.START_ARRAY) {
+				for (Event entryEvent = theParser.next(); entryEvent != Event.END_ARRAY; entryEvent = theParser.next()) {
+					if (entryEvent != Event.START_OBJECT) {
+						throw new DataFormatException("Syntax error parsing JSON FHIR structure: Expected OBJECT at element 'entry', found '" + entryEvent.name() + "'");
+					}
+					theState.enteringNewElement(null, "entry");
+					streamBundleChildren(theParser, theState);
+					theState.endingElement();
+				}
+			} else if ("resourceType".equals(nextName) || "entry".equals(nextName) || "link".equals(nextName) || textNodeChildren.contains(nextName)) {
+				addValue(buffered, nextName, theParser, valueEvent);
+			} else {
+				streamValue(theParser, valueEvent, theState, nextName, null, null);
+			}
+		}
+
+		parseBundleChildren(buffered.build(), theState);
+	}
+
+	/**
+	 * Streaming equivalent of {@link #parseChildren(JsonObject, ParserState)}, called once the opening brace of the
+	 * object (and its leading <code>resourceType</code>, if any) has been consumed.
+	 * <p>
+	 * Complex children and extensions are streamed into the parser state as they are read. Primitive children,
+	 * <code>_element</code> siblings and <code>fhir_comments</code> are small, so they are buffered until the end
+	 * of the object and then handed to the tree parser, which pairs each primitive with its <code>_element</code>
+	 * sibling no matter which of the two came first.
+	 * </p>
+	 */
+	private void streamChildren(javax.json.stream.JsonParser theParser, ParserState<?> theState) {
+		JsonObjectBuilder buffered = getJsonProvider().createObjectBuilder();
+		Map<String, JsonValue> alternates = null;
+		Set<String> streamedNames = null;
+
+		for (Event event = theParser.next(); event != Event.END_OBJECT; event = theParser.next()) {
+			String nextName = theParser.getString();
+			Event valueEvent = theParser.next();
+
+			if (valueEvent == Event.START_ARRAY && ("extension".equals(nextName) || "modifierExtension".equals(nextName))) {
+				streamExtensions(theParser, theState, "modifierExtension".equals(nextName));
+				continue;
+			}
+
+			if (isStreamableElementName(nextName) && (valueEvent == Event.START_OBJECT || valueEvent == Event.START_ARRAY)) {
+				String alternateName = '_' + nextName;
+				JsonValue alternateVal = alternates != null ? alternates.get(alternateName) : null;
+				if (valueEvent == Event.START_OBJECT) {
+					streamObject(theParser, theState, nextName, alternateVal, alternateName);
+				} else {
+					JsonArray primitives = streamArray(theParser, theState, nextName, alternateVal, alternateName);
+					if (primitives != null) {
+						buffered.add(nextName, primitives);
+						continue;
+					}
+				}
+				if (streamedNames == null) {
+					streamedNames = new HashSet<String>();
+				}
+				streamedNames.add(nextName);
+				continue;
+			}
+
+			if (nextName.length() > 1 && nextName.charAt(0) == '_' && (valueEvent == Event.START_OBJECT || valueEvent == Event.START_ARRAY)) {
+				JsonValue alternateVal = valueEvent == Event.START_OBJECT ? readObject(theParser, getJsonProvider().createObjectBuilder()) : readArray(theParser);
+				if (alternates == null) {
+					alternates = new HashMap<String, JsonValue>();
+				}
+				alternates.put(nextName, alternateVal);
+				buffered.add(nextName, alternateVal);
+				continue;
+			}
+
+			addValue(buffered, nextName, theParser, valueEvent);
+		}
+
+		parseChildren(buffered.build(), theState, streamedNames);
+	}
+
+	/**
+	 * Streams the members of an array whose opening bracket has just been consumed. Arrays containing only
+	 * primitives are buffered and returned so that they can be paired with their <code>_element</code> array.
+	 * As soon as a complex value is found the array is streamed into the parser state and <code>null</code> is
+	 * returned.
+	 */
+	private JsonArray streamArray(javax.json.stream.JsonParser theParser, ParserState<?> theState, String theName, JsonValue theAlternateVal, String theAlternateName) {
+		JsonArrayBuilder builder = getJsonProvider().createArrayBuilder();
+		for (Event event = theParser.next(); event != Event.END_ARRAY; event = theParser.next()) {
+			if (event != Event.START_OBJECT && event != Event.START_ARRAY) {
+				addValue(builder, theParser, event);
+				continue;
+			}
+
+			JsonArray leading = builder.build();
+			int index = 0;
+			for (; index < leading.size(); index++) {
+				parseChildren(theState, theName, leading.get(index), alternateAt(theAlternateVal, index), theAlternateName);
+			}
+			for (; event != Event.END_ARRAY; event = theParser.next()) {
+				streamValue(theParser, event, theState, theName, alternateAt(theAlternateVal, index), theAlternateName);
+				index++;
+			}
+			return null;
+		}
+		return builder.build();
+	}
+
+	private void streamExtensions(javax.json.stream.JsonParser theParser, ParserState<?> theState, boolean theIsModifier) {
+		for (Event event = theParser.next(); event != Event.END_ARRAY; event = theParser.next()) {
+			if (event != Event.START_OBJECT) {
+				throw new DataFormatException("Syntax error parsing JSON FHIR structure: Expected OBJECT in extension array, found '" + event.name() + "'");
+			}
+
+			LeadingMember leadingMember = readLeadingMember(theParser, "url");
+			if (leadingMember.getBufferedObject() != null) {
+				parseExtension(theState, leadingMember.getBufferedObject(), theIsModifier);
+				continue;
+			}
+
+			theState.enteringNewElementExtension(null, leadingMember.getValue(), theIsModifier);
+			if (theState.isSwallowingElement()) {
+				skipValue(theParser, Event.START_OBJECT);
+				theState.endingElement();
+				continue;
+			}
+			for (Event memberEvent = theParser.next(); memberEvent != Event.END_OBJECT; memberEvent = theParser.next()) {
+				String next = theParser.getString();
+				Event valueEvent = theParser.next();
+				if ("url".equals(next)) {
+					skipValue(theParser, valueEvent);
+				} else if (valueEvent == Event.START_ARRAY && "extension".equals(next)) {
+					streamExtensions(theParser, theState, false);
+				} else if (valueEvent == Event.START_ARRAY && "modifierExtension".equals(next)) {
+					streamExtensions(theParser, theState, true);
+				} else {
+					streamValue(theParser, valueEvent, theState, next, null, null);
+				}
+			}
+			theState.endingElement();
+		}
+	}
+
+	private void streamObject(javax.json.stream.JsonParser theParser, ParserState<?> theState, String theName, JsonValue theAlternateVal, String theAlternateName) {
+		theState.enteringNewElement(null, theName);
+		if (theState.isSwallowingElement()) {
+			skipValue(theParser, Event.START_OBJECT);
+			theState.endingElement();
+			return;
+		}
+		parseAlternates(theAlternateVal, theState, theAlternateName);
+		if (theState.isPreResource()) {
+			LeadingMember leadingMember = readLeadingMember(theParser, "resourceType");
+			JsonObject object = leadingMember.getBufferedObject();
+			String resType = object != null ? object.getString("resourceType", null) : leadingMember.getValue();
+			if (isBlank(resType)) {
+				throw new DataFormatException("Missing required element 'resourceType' from JSON resource object, unable to parse");
+			}
+			theState.enteringNewElement(null, resType);
+			if (object != null) {
+				parseChildren(object, theState);
+			} else {
+				streamChildren(theParser, theState);
+			}
+			theState.endingElement();
+		} else {
+			streamChildren(theParser, theState);
+		}
+		theState.endingElement();
+	}
+
+	/**
+	 * Streaming equivalent of {@link #parseChildren(ParserState, String, JsonValue, JsonValue, String)}
+	 */
+	private void streamValue(javax.json.stream.JsonParser theParser, Event theEvent, ParserState<?> theState, String theName, JsonValue theAlternateVal, String theAlternateName) {
+		switch (theEvent) {
+		case START_ARRAY: {
+			int index = 0;
+			for (Event event = theParser.next(); event != Event.END_ARRAY; event = theParser.next()) {
+				streamValue(theParser, event, theState, theName, alternateAt(theAlternateVal, index), theAlternateName);
+				index++;
+			}
+			break;
+		}
+		case START_OBJECT:
+			streamObject(theParser, theState, theName, theAlternateVal, theAlternateName);
+			break;
+		case VALUE_STRING:
+			theState.enteringNewElement(null, theName);
+			theState.attributeValue("value", theParser.getString());
+			parseAlternates(theAlternateVal, theState, theAlternateName);
+			theState.endingElement();
+			break;
+		case VALUE_NUMBER:
+			theState.enteringNewElement(null, theName);
+			theState.attributeValue("value", theParser.getBigDecimal().toPlainString());
+			parseAlternates(theAlternateVal, theState, theAlternateName);
+			theState.endingElement();
+			break;
+		case VALUE_TRUE:
+		case VALUE_FALSE:
+			theState.enteringNewElement(null, theName);
+			theState.attributeValue("value", theEvent == Event.VALUE_TRUE ? "true" : "false");
+			parseAlternates(theAlternateVal, theState, theAlternateName);
+			theState.endingElement();
+			break;
+		case VALUE_NULL:
+			theState.enteringNewElement(null, theName);
+			parseAlternates(theAlternateVal, theState, theAlternateName);
+			theState.endingElement();
+			break;
+		default:
+			throw new DataFormatException("Syntax error parsing JSON FHIR structure: Unexpected token " + theEvent.name() + " at element '" + theName + "'");
+		}
+	}
+
 	@Override
 	public IParser setPrettyPrint(boolean thePrettyPrint) {
 		myPrettyPrint = thePrettyPrint;
@@ -1550,6 +2048,27 @@ public class JsonParser extends BaseParser implements IParser {
 		// }
 	}
 
+	/**
+	 * The leading member of a streamed object, or the whole object if the expected member did not come first
+	 */
+	private static class LeadingMember {
+		private final JsonObject myBufferedObject;
+		private final String myValue;
+
+		public LeadingMember(String theValue, JsonObject theBufferedObject) {
+			myValue = theValue;
+			myBufferedObject = theBufferedObject;
+		}
+
+		public JsonObject getBufferedObject() {
+			return myBufferedObject;
+		}
+
+		public String getValue() {
+			return myValue;
+		}
+	}
+
 	private class HeldExtension implements Comparable<HeldExtension> {
 
 		private RuntimeChildDeclaredExtensionDefinition myDef;
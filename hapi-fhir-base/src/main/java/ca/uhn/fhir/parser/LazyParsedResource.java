@@ -0,0 +1,469 @@
+package ca.uhn.fhir.parser;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.json.stream.JsonParser.Event;
+import javax.json.stream.JsonParsingException;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.ConfigurationException;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.rest.server.EncodingEnum;
+import ca.uhn.fhir.util.XmlUtil;
+
+/**
+ * A resource which has been scanned but not (yet) parsed, as returned by
+ * {@link IParser#parseResourceLazily(Class, String)}.
+ * <p>
+ * Scanning makes a single pass over the raw text and records where each top level child of the resource
+ * starts and ends, without building any model objects. Children are only parsed when they are asked for
+ * using {@link #getResource(String...)}, so a consumer which only needs e.g. the <code>id</code>,
+ * <code>meta</code> and one or two other elements of a large resource doesn't pay for building the rest
+ * of it. When the resource is encoded again using {@link #encode()}, the original text of any child
+ * which was never materialized is copied as-is instead of being re-encoded.
+ * </p>
+ * <p>
+ * Thread safety: This class is not thread safe
+ * </p>
+ */
+public class LazyParsedResource<T extends IBaseResource> {
+
+	/**
+	 * Children which are always materialized, since they are small and nearly every consumer needs them
+	 */
+	private static final Set<String> ALWAYS_MATERIALIZED = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("id", "meta")));
+	private static final String RESOURCE_TYPE = "resourceType";
+
+	private final List<RawChild> myChildren;
+	private final FhirContext myContext;
+	private final EncodingEnum myEncoding;
+	private final IParserErrorHandler myErrorHandler;
+	private T myFullResource;
+	private final Set<String> myMaterializedChildNames = new LinkedHashSet<String>();
+	private T myPartialResource;
+	private final RuntimeResourceDefinition myResourceDef;
+	private final Class<T> myResourceType;
+	private final String myText;
+	private final QName myXmlRootName;
+	private final String myXmlRootStartTag;
+
+	private LazyParsedResource(FhirContext theContext, EncodingEnum theEncoding, IParserErrorHandler theErrorHandler, Class<T> theResourceType, String theText, String theResourceName, List<RawChild> theChildren, QName theXmlRootName,
+			String theXmlRootStartTag) {
+		myContext = theContext;
+		myEncoding = theEncoding;
+		myErrorHandler = theErrorHandler;
+		myResourceType = theResourceType;
+		myText = theText;
+		myChildren = theChildren;
+		myXmlRootName = theXmlRootName;
+		myXmlRootStartTag = theXmlRootStartTag;
+
+		if (theResourceType != null) {
+			myResourceDef = theContext.getResourceDefinition(theResourceType);
+		} else {
+			myResourceDef = theContext.getResourceDefinition(theResourceName);
+		}
+		for (RawChild next : theChildren) {
+			next.myName = toLogicalName(next.myRawName);
+		}
+	}
+
+	private String assemble(List<RawChild> theChildren, String theXmlRootStartTag) {
+		StringBuilder b = new StringBuilder(myText.length());
+		if (myEncoding == EncodingEnum.JSON) {
+			b.append("{\"").append(RESOURCE_TYPE).append("\":\"").append(myResourceDef.getName()).append('"');
+			for (RawChild next : theChildren) {
+				// The raw text starts just after the member name, i.e. it is ": value"
+				b.append(",\"").append(next.myRawName).append('"');
+				b.append(next.mySource, next.myStart, next.myEnd);
+			}
+			b.append('}');
+		} else {
+			b.append(theXmlRootStartTag);
+			for (RawChild next : theChildren) {
+				b.append(next.mySource, next.myStart, next.myEnd);
+			}
+			b.append("</");
+			if (StringUtils.isNotBlank(myXmlRootName.getPrefix())) {
+				b.append(myXmlRootName.getPrefix()).append(':');
+			}
+			b.append(myXmlRootName.getLocalPart()).append('>');
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Encodes the resource in the same encoding it was parsed from.
+	 * <p>
+	 * If nothing has been materialized, this returns the original text. Otherwise, children which have been
+	 * materialized (and which may therefore have been modified) are encoded from the materialized resource, and
+	 * all other children are copied from the original text.
+	 * </p>
+	 */
+	public String encode() {
+		if (myFullResource != null) {
+			return newParser().encodeResourceToString(myFullResource);
+		}
+		if (myPartialResource == null) {
+			return myText;
+		}
+
+		String encodedPartial = newParser().encodeResourceToString(myPartialResource);
+		LazyParsedResource<T> reencoded = scan(myContext, myEncoding, myErrorHandler, myResourceType, encodedPartial);
+
+		List<RawChild> children = new ArrayList<RawChild>(reencoded.myChildren);
+		for (RawChild next : myChildren) {
+			if (!isMaterialized(next.myName)) {
+				children.add(next);
+			}
+		}
+		sortIntoEncodingOrder(children);
+
+		String rootStartTag = myXmlRootStartTag;
+		if (myEncoding == EncodingEnum.XML && StringUtils.isNotBlank(myXmlRootName.getPrefix()) && !rootStartTag.contains("xmlns=")) {
+			// The re-encoded children use the default namespace, so the root needs to declare it
+			int nameEnd = myXmlRootName.getPrefix().length() + myXmlRootName.getLocalPart().length() + 2;
+			rootStartTag = rootStartTag.substring(0, nameEnd) + " xmlns=\"" + myXmlRootName.getNamespaceURI() + "\"" + rootStartTag.substring(nameEnd);
+		}
+
+		return assemble(children, rootStartTag);
+	}
+
+	/**
+	 * Returns the names of the top level children which are present in the resource (e.g.
+	 * <code>identifier</code> or <code>deceased</code>, regardless of the datatype chosen for a choice element).
+	 */
+	public Set<String> getChildNames() {
+		Set<String> retVal = new LinkedHashSet<String>();
+		for (RawChild next : myChildren) {
+			retVal.add(next.myName);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns the original text of the given top level child, or <code>null</code> if it is not present. For a
+	 * repeating element in XML, this includes all repetitions.
+	 */
+	public String getChildText(String theChildName) {
+		String name = toLogicalName(theChildName);
+		StringBuilder b = null;
+		for (RawChild next : myChildren) {
+			if (next.myName.equals(name)) {
+				if (b == null) {
+					b = new StringBuilder();
+				}
+				if (myEncoding == EncodingEnum.JSON) {
+					if (b.length() > 0) {
+						b.append(',');
+					}
+					b.append('"').append(next.myRawName).append('"');
+				}
+				b.append(next.mySource, next.myStart, next.myEnd);
+			}
+		}
+		return b != null ? b.toString().trim() : null;
+	}
+
+	/**
+	 * Returns the fully parsed resource. After this has been called, {@link #encode()} will always re-encode the
+	 * whole resource, since any part of it may have been modified.
+	 */
+	public T getResource() {
+		if (myFullResource == null) {
+			myFullResource = parse(myText);
+			myPartialResource = null;
+		}
+		return myFullResource;
+	}
+
+	/**
+	 * Returns a resource containing only the given top level children (plus <code>id</code> and <code>meta</code>,
+	 * which are always included). Children which were requested by previous calls to this method are also included,
+	 * so a consumer can materialize children incrementally as it needs them. Note that each call returns a new
+	 * instance.
+	 * 
+	 * @param theChildNames
+	 *           The names of the children to materialize, e.g. <code>identifier</code> or <code>value[x]</code>
+	 */
+	public T getResource(String... theChildNames) {
+		Validate.notNull(theChildNames, "theChildNames must not be null");
+		if (myFullResource != null) {
+			return myFullResource;
+		}
+
+		for (String next : theChildNames) {
+			myMaterializedChildNames.add(toLogicalName(next));
+		}
+
+		List<RawChild> children = new ArrayList<RawChild>();
+		for (RawChild next : myChildren) {
+			if (isMaterialized(next.myName)) {
+				children.add(next);
+			}
+		}
+
+		myPartialResource = parse(assemble(children, myXmlRootStartTag));
+		return myPartialResource;
+	}
+
+	/**
+	 * Returns the name of the resource type, e.g. <code>Patient</code>
+	 */
+	public String getResourceName() {
+		return myResourceDef.getName();
+	}
+
+	private boolean isMaterialized(String theName) {
+		return ALWAYS_MATERIALIZED.contains(theName) || myMaterializedChildNames.contains(theName);
+	}
+
+	private IParser newParser() {
+		IParser retVal = myEncoding == EncodingEnum.JSON ? myContext.newJsonParser() : myContext.newXmlParser();
+		if (myErrorHandler != null) {
+			retVal.setParserErrorHandler(myErrorHandler);
+		}
+		return retVal;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T parse(String theText) {
+		return (T) newParser().parseResource(myResourceType, theText);
+	}
+
+	/**
+	 * Sorts children into the order the encoders write them in, keeping the existing order for children
+	 * with the same name (i.e. repetitions in XML)
+	 */
+	private void sortIntoEncodingOrder(List<RawChild> theChildren) {
+		final List<BaseRuntimeChildDefinition> childDefs = myResourceDef.getChildrenAndExtension();
+		for (RawChild next : theChildren) {
+			if ("fhir_comments".equals(next.myName)) {
+				next.myOrder = -3;
+			} else if ("id".equals(next.myName)) {
+				next.myOrder = -2;
+			} else if ("meta".equals(next.myName)) {
+				next.myOrder = -1;
+			} else {
+				BaseRuntimeChildDefinition childDef = myResourceDef.getChildByName(next.myName);
+				int index = childDef != null ? childDefs.indexOf(childDef) : -1;
+				next.myOrder = index != -1 ? index : Integer.MAX_VALUE;
+			}
+		}
+		Collections.sort(theChildren, new Comparator<RawChild>() {
+			@Override
+			public int compare(RawChild theO1, RawChild theO2) {
+				return theO1.myOrder < theO2.myOrder ? -1 : (theO1.myOrder == theO2.myOrder ? 0 : 1);
+			}
+		});
+	}
+
+	/**
+	 * Converts a name as it appears in the raw text (e.g. <code>deceasedBoolean</code> or <code>_birthDate</code>)
+	 * or as supplied by a caller (e.g. <code>deceased[x]</code>) to the name of the child it belongs to
+	 */
+	private String toLogicalName(String theName) {
+		String name = theName;
+		if (name.startsWith("_")) {
+			name = name.substring(1);
+		}
+		BaseRuntimeChildDefinition childDef = myResourceDef.getChildByName(name);
+		if (childDef != null) {
+			return childDef.getElementName();
+		}
+		if (name.endsWith("[x]")) {
+			return name.substring(0, name.length() - 3);
+		}
+		return name;
+	}
+
+	static <T extends IBaseResource> LazyParsedResource<T> scan(FhirContext theContext, EncodingEnum theEncoding, IParserErrorHandler theErrorHandler, Class<T> theResourceType, String theText) {
+		if (theEncoding == EncodingEnum.JSON) {
+			return scanJson(theContext, theErrorHandler, theResourceType, theText);
+		} else {
+			return scanXml(theContext, theErrorHandler, theResourceType, theText);
+		}
+	}
+
+	private static <T extends IBaseResource> LazyParsedResource<T> scanJson(FhirContext theContext, IParserErrorHandler theErrorHandler, Class<T> theResourceType, String theText) {
+		javax.json.stream.JsonParser parser = JsonParser.getJsonProvider().createParser(new StringReader(theText));
+		try {
+			if (!parser.hasNext() || parser.next() != Event.START_OBJECT) {
+				throw new DataFormatException("Failed to parse JSON: Expected a JSON object");
+			}
+
+			String resourceName = null;
+			List<RawChild> children = new ArrayList<RawChild>();
+			while (true) {
+				Event event = parser.next();
+				if (event == Event.END_OBJECT) {
+					break;
+				}
+
+				String name = parser.getString();
+				int keyEnd = toOffset(parser.getLocation().getStreamOffset());
+
+				event = parser.next();
+				if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+					skipJsonValue(parser);
+				}
+				int valueEnd = toOffset(parser.getLocation().getStreamOffset());
+
+				if (RESOURCE_TYPE.equals(name)) {
+					if (event != Event.VALUE_STRING) {
+						throw new DataFormatException("Failed to parse JSON: Expected a string for '" + RESOURCE_TYPE + "'");
+					}
+					resourceName = parser.getString();
+				} else {
+					children.add(new RawChild(name, theText, keyEnd, valueEnd));
+				}
+			}
+
+			if (resourceName == null) {
+				throw new DataFormatException("Failed to parse JSON: Resource does not have a '" + RESOURCE_TYPE + "' property");
+			}
+			return new LazyParsedResource<T>(theContext, EncodingEnum.JSON, theErrorHandler, theResourceType, theText, resourceName, children, null, null);
+		} catch (JsonParsingException e) {
+			throw new DataFormatException("Failed to parse JSON: " + e.getMessage(), e);
+		} finally {
+			parser.close();
+		}
+	}
+
+	private static <T extends IBaseResource> LazyParsedResource<T> scanXml(FhirContext theContext, IParserErrorHandler theErrorHandler, Class<T> theResourceType, String theText) {
+		try {
+			XMLEventReader reader = XmlUtil.createXmlReader(new StringReader(theText));
+
+			StartElement root = null;
+			while (root == null && reader.hasNext()) {
+				XMLEvent next = reader.nextEvent();
+				if (next.isStartElement()) {
+					root = next.asStartElement();
+				}
+			}
+			if (root == null) {
+				throw new DataFormatException("Failed to parse XML: No root element found");
+			}
+
+			int rootStart = toOffset(root.getLocation().getCharacterOffset());
+			int segmentStart = toOffset(reader.peek().getLocation().getCharacterOffset());
+			String rootStartTag;
+			if (segmentStart > rootStart) {
+				rootStartTag = theText.substring(rootStart, segmentStart);
+			} else {
+				// Empty root element, e.g. <Patient/>
+				rootStartTag = theText.substring(rootStart, theText.indexOf("/>", rootStart)) + ">";
+			}
+
+			List<RawChild> children = new ArrayList<RawChild>();
+			while (reader.hasNext()) {
+				XMLEvent next = reader.nextEvent();
+				if (next.isEndElement()) {
+					break;
+				}
+				if (next.isStartElement()) {
+					String name = next.asStartElement().getName().getLocalPart();
+					int depth = 1;
+					while (depth > 0) {
+						XMLEvent nested = reader.nextEvent();
+						if (nested.isStartElement()) {
+							depth++;
+						} else if (nested.isEndElement()) {
+							depth--;
+						}
+					}
+
+					// The child includes any whitespace and comments before it, and ends where the next event starts
+					int segmentEnd = toOffset(reader.peek().getLocation().getCharacterOffset());
+					children.add(new RawChild(name, theText, segmentStart, segmentEnd));
+					segmentStart = segmentEnd;
+				}
+			}
+
+			return new LazyParsedResource<T>(theContext, EncodingEnum.XML, theErrorHandler, theResourceType, theText, root.getName().getLocalPart(), children, root.getName(), rootStartTag);
+		} catch (XMLStreamException e) {
+			throw new DataFormatException("Failed to parse XML: " + e.getMessage(), e);
+		}
+	}
+
+	private static void skipJsonValue(javax.json.stream.JsonParser theParser) {
+		int depth = 1;
+		while (depth > 0) {
+			switch (theParser.next()) {
+			case START_ARRAY:
+			case START_OBJECT:
+				depth++;
+				break;
+			case END_ARRAY:
+			case END_OBJECT:
+				depth--;
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	private static int toOffset(long theOffset) {
+		if (theOffset < 0) {
+			throw new ConfigurationException("The JSON/XML parser implementation on the classpath does not report character offsets, which are required for lazy parsing");
+		}
+		return (int) theOffset;
+	}
+
+	private static class RawChild {
+		private final int myEnd;
+		private String myName;
+		private int myOrder;
+		private final String myRawName;
+		private final String mySource;
+		private final int myStart;
+
+		public RawChild(String theRawName, String theSource, int theStart, int theEnd) {
+			myRawName = theRawName;
+			mySource = theSource;
+			myStart = theStart;
+			myEnd = theEnd;
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package ca.uhn.fhir.parser;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import ca.uhn.fhir.rest.server.EncodingEnum;
+
+/**
+ * An immutable snapshot of the configuration of a parser, which can be created once and then used to encode and
+ * parse resources from any number of threads at the same time.
+ * <p>
+ * Parsers themselves are not thread safe: they carry their configuration (pretty printing, elements to encode, etc.)
+ * in mutable fields alongside the state used while a resource is being encoded or parsed. This class captures the
+ * configuration of a parser when it is created, and every call made through it is carried out by a new parser
+ * which shares that configuration, so no state is ever shared between calls.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ * <pre>
+ * ParserConfiguration config = new ParserConfiguration(ctx.newJsonParser().setPrettyPrint(true).setSummaryMode(true));
+ * String encoded = config.encodeResourceToString(patient);
+ * </pre>
+ * <p>
+ * Note that the {@link IParserErrorHandler error handler} of the parser is shared by every call, so it should be
+ * thread safe itself (the built in {@link LenientErrorHandler} and {@link StrictErrorHandler} are).
+ * </p>
+ */
+public final class ParserConfiguration {
+
+	private final BaseParser myTemplate;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param theParser
+	 *           The parser whose configuration should be captured. Changes made to this parser after this
+	 *           object has been created have no effect on it.
+	 */
+	public ParserConfiguration(IParser theParser) {
+		Validate.notNull(theParser, "theParser must not be null");
+		Validate.isTrue(theParser instanceof BaseParser, "Unsupported parser type: " + theParser.getClass().getName());
+
+		BaseParser template = ((BaseParser) theParser).copyConfiguration();
+		template.setDontEncodeElements(unmodifiableCopy(template.getDontEncodeElements()));
+		template.setEncodeElements(unmodifiableCopy(template.getEncodeElements()));
+		template.setEncodeElementsAppliesToResourceTypes(unmodifiableCopy(template.getEncodeElementsAppliesToResourceTypes()));
+		template.setParseElements(unmodifiableCopy(template.getParseElements()));
+		if (template.getPreferTypes() != null) {
+			template.setPreferTypes(Collections.unmodifiableList(new ArrayList<Class<? extends IBaseResource>>(template.getPreferTypes())));
+		}
+		myTemplate = template;
+	}
+
+	public String encodeResourceToString(IBaseResource theResource) throws DataFormatException {
+		return newParser().encodeResourceToString(theResource);
+	}
+
+	public void encodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream) throws IOException, DataFormatException {
+		newParser().encodeResourceToOutputStream(theResource, theOutputStream);
+	}
+
+	public void encodeResourceToWriter(IBaseResource theResource, Writer theWriter) throws IOException, DataFormatException {
+		newParser().encodeResourceToWriter(theResource, theWriter);
+	}
+
+	public EncodingEnum getEncoding() {
+		return myTemplate.getEncoding();
+	}
+
+	/**
+	 * Returns a new parser which has this configuration. The parser may be changed freely without
+	 * affecting this object or any other parser it has returned.
+	 */
+	public IParser newParser() {
+		return myTemplate.copyConfiguration();
+	}
+
+	public <T extends IBaseResource> T parseResource(Class<T> theResourceType, Reader theReader) throws DataFormatException {
+		return newParser().parseResource(theResourceType, theReader);
+	}
+
+	public <T extends IBaseResource> T parseResource(Class<T> theResourceType, String theString) throws DataFormatException {
+		return newParser().parseResource(theResourceType, theString);
+	}
+
+	public IBaseResource parseResource(Reader theReader) throws DataFormatException {
+		return newParser().parseResource(theReader);
+	}
+
+	public IBaseResource parseResource(String theMessageString) throws DataFormatException {
+		return newParser().parseResource(theMessageString);
+	}
+
+	private static Set<String> unmodifiableCopy(Set<String> theSet) {
+		if (theSet == null) {
+			return null;
+		}
+		return Collections.unmodifiableSet(new LinkedHashSet<String>(theSet));
+	}
+
+}
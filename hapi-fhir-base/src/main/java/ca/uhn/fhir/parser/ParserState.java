@@ -97,19 +97,51 @@ class ParserState<T> {
 
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ParserState.class);
 
+	private final IBundleEntryHandler myBundleEntryHandler;
 	private List<String> myComments = new ArrayList<String>(2);
 	private final FhirContext myContext;
 	private final IParserErrorHandler myErrorHandler;
 	private final boolean myJsonMode;
 	private T myObject;
+	private Set<String> myParseElementParents;
+	private Set<String> myParseElementResourceTypes;
+	private Set<String> myParseElements;
+	private boolean myParseElementsIncludesStars;
 	private final IParser myParser;
 	private IBase myPreviousElement;
 	private BaseState myState;
+	/**
+	 * The root Bundle whose entries are being handed to {@link #myBundleEntryHandler} instead of being added to it
+	 */
+	private IBaseResource myStreamedBundle;
+
 	private ParserState(IParser theParser, FhirContext theContext, boolean theJsonMode, IParserErrorHandler theErrorHandler) {
 		myParser = theParser;
 		myContext = theContext;
 		myJsonMode = theJsonMode;
 		myErrorHandler = theErrorHandler;
+		myBundleEntryHandler = theParser instanceof BaseParser ? ((BaseParser) theParser).getBundleEntryHandler() : null;
+
+		Set<String> parseElements = theParser.getParseElements();
+		if (parseElements != null) {
+			myParseElements = new HashSet<String>();
+			myParseElementParents = new HashSet<String>();
+			myParseElementResourceTypes = new HashSet<String>();
+			for (String next : parseElements) {
+				String path = next.replace("[x]", "");
+				myParseElements.add(path);
+				int dotIdx = path.indexOf('.');
+				String resourceType = dotIdx != -1 ? path.substring(0, dotIdx) : path;
+				if ("*".equals(resourceType)) {
+					myParseElementsIncludesStars = true;
+				} else {
+					myParseElementResourceTypes.add(resourceType);
+				}
+				for (; dotIdx != -1; dotIdx = path.indexOf('.', dotIdx + 1)) {
+					myParseElementParents.add(path.substring(0, dotIdx));
+				}
+			}
+		}
 	}
 
 	public void attributeValue(String theName, String theValue) throws DataFormatException {
@@ -145,10 +177,58 @@ class ParserState<T> {
 		return myObject;
 	}
 
+	/**
+	 * Returns the path to use as the root of the {@link IParser#setParseElements(Set) parse element} filter for a
+	 * resource of the given type, or <code>null</code> if the resource should be parsed completely
+	 */
+	private String getParseFilterPath(String theResourceName) {
+		if (myParseElements == null || myParseElements.contains(theResourceName)) {
+			return null;
+		}
+		if (myParseElementsIncludesStars || myParseElementResourceTypes.contains(theResourceName)) {
+			return theResourceName;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the path to use when filtering the children of the given child element, <code>""</code> if the child
+	 * should be parsed completely, or <code>null</code> if it should be skipped
+	 */
+	private String getParseFilterPath(String theParentPath, String theChildName) {
+		String path = theParentPath + '.' + theChildName;
+		if (isParseElementPath(myParseElements, path)) {
+			return "";
+		}
+		if (isParseElementPath(myParseElementParents, path)) {
+			return path;
+		}
+		return null;
+	}
+
+	private boolean isParseElementPath(Set<String> thePaths, String thePath) {
+		if (thePaths.contains(thePath)) {
+			return true;
+		}
+		if (myParseElementsIncludesStars) {
+			return thePaths.contains("*" + thePath.substring(thePath.indexOf('.')));
+		}
+		return false;
+	}
+
 	public boolean isPreResource() {
 		return myState.isPreResource();
 	}
 
+	/**
+	 * Returns <code>true</code> if the element which was just entered is being discarded along with all of its
+	 * children (because it is unknown or was filtered out by {@link IParser#setParseElements(Set)}), meaning that
+	 * the caller may skip straight to the end of the element.
+	 */
+	public boolean isSwallowingElement() {
+		return myState.isSwallowingElement();
+	}
+
 	private Object newContainedDt(IResource theTarget) {
 		return ReflectionUtil.newInstance(theTarget.getStructureFhirVersionEnum().getVersionImplementation().getContainedType());
 	}
@@ -870,6 +950,10 @@ class ParserState<T> {
 			return false;
 		}
 
+		public boolean isSwallowingElement() {
+			return false;
+		}
+
 		protected void logAndSwallowUnexpectedElement(String theLocalPart) {
 			myErrorHandler.unknownElement(null, theLocalPart);
 			push(new SwallowChildrenWholeState(getPreResourceState()));
@@ -1543,6 +1627,11 @@ class ParserState<T> {
 		private BaseRuntimeElementCompositeDefinition<?> myDefinition;
 		private IBase myInstance;
 		private Set<String> myParsedNonRepeatableNames = new HashSet<String>();
+		/**
+		 * If not null, only the children of this element which are selected by {@link IParser#setParseElements(Set)}
+		 * are parsed. This is the path to this element, e.g. <code>Patient.name</code>
+		 */
+		private String myParseFilterPath;
 
 		public ElementCompositeState(PreResourceState thePreResourceState, BaseRuntimeElementCompositeDefinition<?> theDef, IBase theInstance) {
 			super(thePreResourceState);
@@ -1594,6 +1683,18 @@ class ParserState<T> {
 				return;
 			}
 
+			String childFilterPath = null;
+			if (myParseFilterPath != null && !isAlwaysParsed(child.getElementName())) {
+				childFilterPath = getParseFilterPath(myParseFilterPath, child.getElementName());
+				if (childFilterPath == null) {
+					push(new SwallowChildrenWholeState(getPreResourceState()));
+					return;
+				}
+				if (childFilterPath.length() == 0) {
+					childFilterPath = null;
+				}
+			}
+
 			if ((child.getMax() == 0 || child.getMax() == 1) && !myParsedNonRepeatableNames.add(theChildName)) {
 				myErrorHandler.unexpectedRepeatingElement(null, theChildName);
 				push(new SwallowChildrenWholeState(getPreResourceState()));
@@ -1612,6 +1713,7 @@ class ParserState<T> {
 				ICompositeType newChildInstance = (ICompositeType) compositeTarget.newInstance(child.getInstanceConstructorArguments());
 				child.getMutator().addValue(myInstance, newChildInstance);
 				ParserState<T>.ElementCompositeState newState = new ElementCompositeState(getPreResourceState(), compositeTarget, newChildInstance);
+				newState.setParseFilterPath(childFilterPath);
 				push(newState);
 				return;
 			}
@@ -1628,8 +1730,14 @@ class ParserState<T> {
 			case RESOURCE_BLOCK: {
 				RuntimeResourceBlockDefinition blockTarget = (RuntimeResourceBlockDefinition) target;
 				IBase newBlockInstance = blockTarget.newInstance();
-				child.getMutator().addValue(myInstance, newBlockInstance);
-				ElementCompositeState newState = new ElementCompositeState(getPreResourceState(), blockTarget, newBlockInstance);
+				ElementCompositeState newState;
+				if (myInstance == myStreamedBundle && "entry".equals(child.getElementName())) {
+					newState = new StreamedBundleEntryState(getPreResourceState(), blockTarget, newBlockInstance);
+				} else {
+					child.getMutator().addValue(myInstance, newBlockInstance);
+					newState = new ElementCompositeState(getPreResourceState(), blockTarget, newBlockInstance);
+				}
+				newState.setParseFilterPath(childFilterPath);
 				push(newState);
 				return;
 			}
@@ -1689,6 +1797,11 @@ class ParserState<T> {
 
 		@Override
 		public void enteringNewElementExtension(StartElement theElement, String theUrlAttr, boolean theIsModifier) {
+			if (myParseFilterPath != null && getParseFilterPath(myParseFilterPath, theIsModifier ? "modifierExtension" : "extension") == null) {
+				push(new SwallowChildrenWholeState(getPreResourceState()));
+				return;
+			}
+
 			RuntimeChildDeclaredExtensionDefinition declaredExtension = myDefinition.getDeclaredExtension(theUrlAttr);
 			if (declaredExtension != null) {
 				BaseState newState = new DeclaredExtensionState(getPreResourceState(), declaredExtension, myInstance);
@@ -1703,6 +1816,17 @@ class ParserState<T> {
 			return myInstance;
 		}
 
+		/**
+		 * The ID and meta of a resource are parsed even if they aren't selected by the parse element filter
+		 */
+		private boolean isAlwaysParsed(String theChildName) {
+			return myInstance instanceof IBaseResource && ("id".equals(theChildName) || "meta".equals(theChildName));
+		}
+
+		public void setParseFilterPath(String theParseFilterPath) {
+			myParseFilterPath = theParseFilterPath;
+		}
+
 	}
 
 	public class ElementIdState extends BaseState {
@@ -2037,6 +2161,10 @@ class ParserState<T> {
 			myInstance = def.newInstance();
 
 			String resourceName = def.getName();
+			if (myBundleEntryHandler != null && myStreamedBundle == null && "Bundle".equals(resourceName)) {
+				// The root resource is always the first one entered, so nested Bundles keep their entries
+				myStreamedBundle = myInstance;
+			}
 			if ("Binary".equals(resourceName) && myContext.getVersion().getVersion() == FhirVersionEnum.DSTU1) {
 				push(new BinaryResourceStateForDstu1(getRootPreResourceState(), (IBaseBinary) myInstance));
 			} else if (myInstance instanceof IResource) {
@@ -2405,6 +2533,7 @@ class ParserState<T> {
 		public ResourceStateHapi(PreResourceState thePreResourceState, BaseRuntimeElementCompositeDefinition<?> theDef, IResource theInstance) {
 			super(thePreResourceState, theDef, theInstance);
 			myInstance = theInstance;
+			setParseFilterPath(getParseFilterPath(theDef.getName()));
 		}
 
 		@Override
@@ -2423,6 +2552,7 @@ class ParserState<T> {
 
 		public ResourceStateHl7Org(PreResourceState thePreResourceState, BaseRuntimeElementCompositeDefinition<?> theDef, IBaseResource theInstance) {
 			super(thePreResourceState, theDef, theInstance);
+			setParseFilterPath(getParseFilterPath(theDef.getName()));
 		}
 
 	}
@@ -2440,6 +2570,32 @@ class ParserState<T> {
 
 	}
 
+	/**
+	 * A <code>Bundle.entry</code> of the root Bundle when the parser was asked to hand entries to an
+	 * {@link IBundleEntryHandler}. The entry is never added to the Bundle, and is passed to the handler once it
+	 * (including its resource) has been completely parsed.
+	 */
+	private class StreamedBundleEntryState extends ElementCompositeState {
+
+		private BaseRuntimeElementCompositeDefinition<?> myEntryDefinition;
+
+		public StreamedBundleEntryState(PreResourceState thePreResourceState, BaseRuntimeElementCompositeDefinition<?> theDef, IBase theInstance) {
+			super(thePreResourceState, theDef, theInstance);
+			myEntryDefinition = theDef;
+		}
+
+		@Override
+		public void endingElement() {
+			IBase entry = getCurrentElement();
+			((BaseParser) myParser).populateBundleEntryId(myEntryDefinition, entry);
+			List<IBase> resources = myEntryDefinition.getChildByName("resource").getAccessor().getValues(entry);
+			IBaseResource resource = resources != null && resources.size() > 0 ? (IBaseResource) resources.get(0) : null;
+			super.endingElement();
+			myBundleEntryHandler.handleEntry(entry, resource);
+		}
+
+	}
+
 	private class SwallowChildrenWholeState extends BaseState {
 
 		private int myDepth;
@@ -2471,6 +2627,11 @@ class ParserState<T> {
 			myDepth++;
 		}
 
+		@Override
+		public boolean isSwallowingElement() {
+			return myDepth == 0;
+		}
+
 	}
 
 	private class TagListState extends BaseState {
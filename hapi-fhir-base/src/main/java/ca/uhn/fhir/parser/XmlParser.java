@@ -24,10 +24,12 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -137,6 +139,13 @@ public class XmlParser extends BaseParser implements IParser {
 		}
 	}
 
+	private XMLStreamWriter createXmlWriter(OutputStream theOutputStream) throws XMLStreamException {
+		XMLStreamWriter eventWriter;
+		eventWriter = XmlUtil.createXmlStreamWriter(theOutputStream);
+		eventWriter = decorateStreamWriter(eventWriter);
+		return eventWriter;
+	}
+
 	private XMLStreamWriter createXmlWriter(Writer theWriter) throws XMLStreamException {
 		XMLStreamWriter eventWriter;
 		eventWriter = XmlUtil.createXmlStreamWriter(theWriter);
@@ -168,6 +177,19 @@ public class XmlParser extends BaseParser implements IParser {
 		}
 	}
 
+	@Override
+	protected void doEncodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream) throws DataFormatException {
+		XMLStreamWriter eventWriter;
+		try {
+			eventWriter = createXmlWriter(theOutputStream);
+
+			encodeResourceToXmlStreamWriter(theResource, eventWriter, false);
+			eventWriter.flush();
+		} catch (XMLStreamException e) {
+			throw new ConfigurationException("Failed to initialize STaX event factory", e);
+		}
+	}
+
 	@Override
 	public void doEncodeResourceToWriter(IBaseResource theResource, Writer theWriter) throws DataFormatException {
 		XMLStreamWriter eventWriter;
@@ -220,6 +242,13 @@ public class XmlParser extends BaseParser implements IParser {
 							parserState.enteringNewElement(namespaceURI, elementName);
 						}
 
+						if (parserState.isSwallowingElement()) {
+							heldComments.clear();
+							skipElement(streamReader);
+							parserState.endingElement();
+							break;
+						}
+
 						if (!heldComments.isEmpty()) {
 							for (String next : heldComments) {
 								parserState.commentPre(next);
@@ -1052,6 +1081,11 @@ public class XmlParser extends BaseParser implements IParser {
 		return EncodingEnum.XML;
 	}
 
+	@Override
+	public boolean isPrettyPrint() {
+		return myPrettyPrint;
+	}
+
 	@Override
 	public <T extends IBaseResource> Bundle parseBundle(Class<T> theResourceType, Reader theReader) {
 		XMLEventReader streamReader = createStreamReader(theReader);
@@ -1083,12 +1117,32 @@ public class XmlParser extends BaseParser implements IParser {
 		return this;
 	}
 
+	/**
+	 * Skips past the end of the element whose start tag was just read, without handing any of its content to the
+	 * parser state
+	 */
+	private void skipElement(XMLEventReader theReader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			XMLEvent next = theReader.nextEvent();
+			if (next.isStartElement()) {
+				depth++;
+			} else if (next.isEndElement()) {
+				depth--;
+			}
+		}
+	}
+
 	/**
 	 * This is just to work around the fact that casting java.util.List<ca.uhn.fhir.model.api.ExtensionDt> to
 	 * java.util.List<? extends org.hl7.fhir.instance.model.api.IBaseExtension<?, ?>> seems to be
 	 * rejected by the compiler some of the time.
 	 */
 	private <Q extends IBaseExtension<?, ?>> List<IBaseExtension<?, ?>> toBaseExtensionList(final List<Q> theList) {
+		if (theList.isEmpty()) {
+			// Most elements have no extensions, so don't copy anything for them
+			return Collections.emptyList();
+		}
 		List<IBaseExtension<?, ?>> retVal = new ArrayList<IBaseExtension<?, ?>>(theList.size());
 		retVal.addAll(theList);
 		return retVal;
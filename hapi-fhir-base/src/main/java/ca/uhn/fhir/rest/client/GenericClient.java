@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -111,6 +112,7 @@ import ca.uhn.fhir.rest.gclient.IQuery;
 import ca.uhn.fhir.rest.gclient.IRead;
 import ca.uhn.fhir.rest.gclient.IReadExecutable;
 import ca.uhn.fhir.rest.gclient.IReadIfNoneMatch;
+import ca.uhn.fhir.rest.gclient.IReadManyExecutable;
 import ca.uhn.fhir.rest.gclient.IReadTyped;
 import ca.uhn.fhir.rest.gclient.ISort;
 import ca.uhn.fhir.rest.gclient.ITransaction;
@@ -1790,6 +1792,19 @@ public class GenericClient extends BaseClient implements IGenericClient {
 			return this;
 		}
 
+		@SuppressWarnings("unchecked")
+		@Override
+		public IReadManyExecutable withIds(Collection theIds) {
+			Validate.notNull(theIds, "theIds must not be null");
+			return new ReadManyInternal(myType, theIds);
+		}
+
+		@Override
+		public IReadManyExecutable withIds(String... theIds) {
+			Validate.notNull(theIds, "theIds must not be null");
+			return new ReadManyInternal(myType, Arrays.asList(theIds));
+		}
+
 		@Override
 		public IReadExecutable withIdAndVersion(String theId, String theVersion) {
 			Validate.notBlank(theId, "The ID can not be blank");
@@ -1814,6 +1829,42 @@ public class GenericClient extends BaseClient implements IGenericClient {
 
 	}
 
+	private class ReadManyInternal extends BaseClientExecutable implements IReadManyExecutable {
+		private final List<String> myIds;
+		private final RuntimeResourceDefinition myType;
+
+		public ReadManyInternal(RuntimeResourceDefinition theType, Collection<String> theIds) {
+			myType = theType;
+			myIds = new ArrayList<String>(theIds.size());
+			for (String next : theIds) {
+				Validate.notBlank(next, "The IDs can not be blank");
+				// Accept both "123" and "Patient/123"
+				myIds.add(new IdDt(next).getIdPart());
+			}
+		}
+
+		@Override
+		public Object execute() {
+			if (myIds.isEmpty()) {
+				return new ArrayList<IBaseResource>();
+			}
+
+			/*
+			 * Always POST the IDs in a Parameters body so that the request URL does not
+			 * grow with the number of IDs requested
+			 */
+			IBaseParameters parameters = ParametersUtil.newInstance(myContext);
+			for (String nextId : myIds) {
+				ParametersUtil.addParameterToParameters(myContext, parameters, ParametersUtil.createString(myContext, nextId), Constants.EXTOP_READ_MANY_ID);
+			}
+			BaseHttpClientInvocation invocation = OperationMethodBinding.createOperationInvocation(myContext, myType.getName(), null, Constants.EXTOP_READ_MANY, parameters, false);
+
+			ResourceListResponseHandler handler = new ResourceListResponseHandler(myType.getImplementingClass());
+			return invoke(null, handler, invocation);
+		}
+
+	}
+
 	private final class ResourceListResponseHandler implements IClientResponseHandler<List<IBaseResource>> {
 
 		private Class<? extends IBaseResource> myType;
@@ -20,6 +20,8 @@ package ca.uhn.fhir.rest.gclient;
  * #L%
  */
 
+import java.util.Collection;
+
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 
@@ -55,6 +57,30 @@ public interface IReadTyped<T extends IBaseResource> {
 	 */
 	IReadExecutable<T> withId(IIdType theId);
 
+	/**
+	 * Read several resources of this type in a single round trip, using the <code>$read-many</code>
+	 * operation. IDs which are not known to the server are not included in the results.
+	 * The IDs are sent in a <code>Parameters</code> resource in the body of a POST.
+	 * <p>
+	 * Note that this operation is an extension which is only supported by HAPI FHIR JPA servers
+	 * </p>
+	 * 
+	 * @param theIds The resource IDs, e.g. "123"
+	 */
+	IReadManyExecutable<T> withIds(Collection<String> theIds);
+
+	/**
+	 * Read several resources of this type in a single round trip, using the <code>$read-many</code>
+	 * operation. IDs which are not known to the server are not included in the results.
+	 * The IDs are sent in a <code>Parameters</code> resource in the body of a POST.
+	 * <p>
+	 * Note that this operation is an extension which is only supported by HAPI FHIR JPA servers
+	 * </p>
+	 * 
+	 * @param theIds The resource IDs, e.g. "123"
+	 */
+	IReadManyExecutable<T> withIds(String... theIds);
+
 	IReadExecutable<T> withUrl(String theUrl);
 
 	IReadExecutable<T> withUrl(IIdType theUrl);
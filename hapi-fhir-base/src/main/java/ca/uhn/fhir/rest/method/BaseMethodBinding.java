@@ -71,6 +71,7 @@ import ca.uhn.fhir.rest.server.IBundleProvider;
 import ca.uhn.fhir.rest.server.IDynamicSearchResourceProvider;
 import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.IRestfulServer;
+import ca.uhn.fhir.rest.server.RequestMetrics;
 import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
@@ -245,24 +246,57 @@ public abstract class BaseMethodBinding<T> implements IClientResponseHandler<T>
 		return getRestOperationType();
 	}
 
+	/**
+	 * Does this method binding handle the given request?
+	 */
 	public abstract boolean incomingServerRequestMatchesMethod(RequestDetails theRequest);
 
+	/**
+	 * Could this method binding handle the given request with some set of request parameters? Implementations
+	 * must base their decision only on the request type, resource name, operation, secondary operation, ID (presence
+	 * and whether it has a version) and compartment name of the request, and must not return <code>false</code> for
+	 * any request which {@link #incomingServerRequestMatchesMethod(RequestDetails)} would accept. The server remembers
+	 * the outcome of this method keyed on those values, and only asks the bindings which returned <code>true</code>
+	 * whether they handle a given request.
+	 * <p>
+	 * The default implementation returns <code>true</code>
+	 * </p>
+	 */
+	public boolean incomingServerRequestMatchesShape(RequestDetails theRequest) {
+		return true;
+	}
+
 	public abstract BaseHttpClientInvocation invokeClient(Object[] theArgs) throws InternalErrorException;
 
 	public abstract Object invokeServer(IRestfulServer<?> theServer, RequestDetails theRequest) throws BaseServerResponseException, IOException;
 
-	protected final Object invokeServerMethod(IRestfulServer<?> theServer, RequestDetails theRequest, Object[] theMethodParams) {
-		// Handle server action interceptors
+	/**
+	 * Notifies the server's interceptors that this method is about to handle the given request. This is normally called
+	 * by {@link #invokeServerMethod(IRestfulServer, RequestDetails, Object[])}, but subclasses which are able to answer a
+	 * request without invoking the provider method must still call it themselves.
+	 */
+	protected final void invokeIncomingRequestPreHandledInterceptors(IRestfulServer<?> theServer, RequestDetails theRequest, Object[] theMethodParams) {
 		RestOperationTypeEnum operationType = getRestOperationType(theRequest);
 		if (operationType != null) {
-			for (IServerInterceptor next : theServer.getInterceptors()) {
-				ActionRequestDetails details = new ActionRequestDetails(theRequest);
-				populateActionRequestDetailsForInterceptor(theRequest, details, theMethodParams);
-				next.incomingRequestPreHandled(operationType, details);
+			RequestMetrics.Timer timer = theRequest.getMetrics().startTimer(RequestMetrics.PHASE_INTERCEPTORS);
+			try {
+				for (IServerInterceptor next : theServer.getInterceptors()) {
+					ActionRequestDetails details = new ActionRequestDetails(theRequest);
+					populateActionRequestDetailsForInterceptor(theRequest, details, theMethodParams);
+					next.incomingRequestPreHandled(operationType, details);
+				}
+			} finally {
+				timer.stop();
 			}
 		}
+	}
+
+	protected final Object invokeServerMethod(IRestfulServer<?> theServer, RequestDetails theRequest, Object[] theMethodParams) {
+		// Handle server action interceptors
+		invokeIncomingRequestPreHandledInterceptors(theServer, theRequest, theMethodParams);
 
 		// Actually invoke the method
+		RequestMetrics.Timer timer = theRequest.getMetrics().startTimer(RequestMetrics.PHASE_METHOD);
 		try {
 			Method method = getMethod();
 			return method.invoke(getProvider(), theMethodParams);
@@ -274,6 +308,8 @@ public abstract class BaseMethodBinding<T> implements IClientResponseHandler<T>
 			}
 		} catch (Exception e) {
 			throw new InternalErrorException("Failed to call access method", e);
+		} finally {
+			timer.stop();
 		}
 	}
 
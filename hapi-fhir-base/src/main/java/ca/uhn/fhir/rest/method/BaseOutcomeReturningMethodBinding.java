@@ -161,6 +161,12 @@ abstract class BaseOutcomeReturningMethodBinding extends BaseMethodBinding<Metho
 		return true;
 	}
 
+	@Override
+	public boolean incomingServerRequestMatchesShape(RequestDetails theRequest) {
+		// Create, update, delete and validate requests are matched on the shape of the request alone
+		return incomingServerRequestMatchesMethod(theRequest);
+	}
+
 	@Override
 	public MethodOutcome invokeClient(String theResponseMimeType, Reader theResponseReader, int theResponseStatusCode, Map<String, List<String>> theHeaders) throws BaseServerResponseException {
 		if (theResponseStatusCode >= 200 && theResponseStatusCode < 300) {
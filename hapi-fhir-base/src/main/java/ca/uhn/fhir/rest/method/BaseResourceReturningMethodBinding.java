@@ -57,6 +57,7 @@ import ca.uhn.fhir.rest.server.EncodingEnum;
 import ca.uhn.fhir.rest.server.IBundleProvider;
 import ca.uhn.fhir.rest.server.IRestfulServer;
 import ca.uhn.fhir.rest.server.IVersionSpecificBundleFactory;
+import ca.uhn.fhir.rest.server.RequestMetrics;
 import ca.uhn.fhir.rest.server.RestfulServerUtils;
 import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
@@ -250,13 +251,20 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 		Set<SummaryEnum> summaryMode = RestfulServerUtils.determineSummaryMode(theRequest);
 		if (responseObject.getResource() != null) {
 			
-			for (int i = theServer.getInterceptors().size() - 1; i >= 0; i--) {
-				IServerInterceptor next = theServer.getInterceptors().get(i);
-				boolean continueProcessing = next.outgoingResponse(theRequest, responseObject.getResource());
-				if (!continueProcessing) {
-					return null;
+			RequestMetrics.Timer timer = theRequest.getMetrics().startTimer(RequestMetrics.PHASE_INTERCEPTORS);
+			try {
+				for (int i = theServer.getInterceptors().size() - 1; i >= 0; i--) {
+					IServerInterceptor next = theServer.getInterceptors().get(i);
+					boolean continueProcessing = next.outgoingResponse(theRequest, responseObject.getResource());
+					if (!continueProcessing) {
+						return null;
+					}
 				}
+			} finally {
+				timer.stop();
 			}
+
+			beforeStreamResource(theRequest, responseObject.getResource());
 			
 			boolean prettyPrint = RestfulServerUtils.prettyPrintResponse(theServer, theRequest);
 			
@@ -271,19 +279,33 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 				requestIsBrowser = true;
 			}
 			
-			for (int i = theServer.getInterceptors().size() - 1; i >= 0; i--) {
-				IServerInterceptor next = theServer.getInterceptors().get(i);
-				boolean continueProcessing = next.outgoingResponse(theRequest, responseObject.getDstu1Bundle());
-				if (!continueProcessing) {
-					ourLog.debug("Interceptor {} returned false, not continuing processing");
-					return null;
+			RequestMetrics.Timer timer = theRequest.getMetrics().startTimer(RequestMetrics.PHASE_INTERCEPTORS);
+			try {
+				for (int i = theServer.getInterceptors().size() - 1; i >= 0; i--) {
+					IServerInterceptor next = theServer.getInterceptors().get(i);
+					boolean continueProcessing = next.outgoingResponse(theRequest, responseObject.getDstu1Bundle());
+					if (!continueProcessing) {
+						ourLog.debug("Interceptor {} returned false, not continuing processing");
+						return null;
+					}
 				}
+			} finally {
+				timer.stop();
 			}
 
 			return theRequest.getResponse().streamResponseAsBundle(responseObject.getDstu1Bundle(), summaryMode, theRequest.isRespondGzip(), requestIsBrowser);
 		}
 	}
 
+	/**
+	 * Called once the server's interceptors have all accepted a single resource response, just before it is streamed
+	 * to the client. Subclasses may throw a {@link BaseServerResponseException} here (e.g. to respond with
+	 * <code>304 Not Modified</code> instead). The default implementation does nothing.
+	 */
+	protected void beforeStreamResource(RequestDetails theRequest, IBaseResource theResource) {
+		// nothing
+	}
+
 	public ResourceOrDstu1Bundle doInvokeServer(IRestfulServer<?> theServer, RequestDetails theRequest) {
 		// Method params
 		Object[] params = new Object[getParameters().size()];
@@ -376,7 +398,12 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 				EncodingEnum linkEncoding = theRequest.getParameters().containsKey(Constants.PARAM_FORMAT) ? responseEncoding : null;
 
 				boolean prettyPrint = RestfulServerUtils.prettyPrintResponse(theServer, theRequest);
-				bundleFactory.initializeBundleFromBundleProvider(theServer, result, linkEncoding, theRequest.getFhirServerBase(), linkSelf, prettyPrint, start, count, null, getResponseBundleType(), includes);
+				RequestMetrics.Timer timer = theRequest.getMetrics().startTimer(RequestMetrics.PHASE_BUNDLE);
+				try {
+					bundleFactory.initializeBundleFromBundleProvider(theServer, result, linkEncoding, theRequest.getFhirServerBase(), linkSelf, prettyPrint, start, count, null, getResponseBundleType(), includes);
+				} finally {
+					timer.stop();
+				}
 				Bundle bundle = bundleFactory.getDstu1Bundle();
 				if (bundle != null) {
 					responseObject = new ResourceOrDstu1Bundle(bundle);
@@ -396,7 +423,13 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 				throw new InternalErrorException("Method returned multiple resources");
 			}
 
-			IBaseResource resource = result.getResources(0, 1).get(0);
+			RequestMetrics.Timer timer = theRequest.getMetrics().startTimer(RequestMetrics.PHASE_BUNDLE);
+			IBaseResource resource;
+			try {
+				resource = result.getResources(0, 1).get(0);
+			} finally {
+				timer.stop();
+			}
 			responseObject = new ResourceOrDstu1Bundle(resource);
 			break;
 		}
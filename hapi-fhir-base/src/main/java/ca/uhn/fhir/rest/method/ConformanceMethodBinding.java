@@ -20,25 +20,46 @@ package ca.uhn.fhir.rest.method;
  * #L%
  */
 
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseConformance;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
 import ca.uhn.fhir.context.ConfigurationException;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.model.valueset.BundleTypeEnum;
 import ca.uhn.fhir.rest.api.RequestTypeEnum;
 import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.server.Constants;
+import ca.uhn.fhir.rest.server.ETagSupportEnum;
+import ca.uhn.fhir.rest.server.EncodingEnum;
 import ca.uhn.fhir.rest.server.IBundleProvider;
+import ca.uhn.fhir.rest.server.IRestfulResponse;
 import ca.uhn.fhir.rest.server.IRestfulServer;
+import ca.uhn.fhir.rest.server.RestfulServerUtils;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.MethodNotAllowedException;
+import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
+import ca.uhn.fhir.util.DateUtils;
 
 public class ConformanceMethodBinding extends BaseResourceReturningMethodBinding {
 
+	private final ConcurrentHashMap<String, CachedResponse> myResponseCache = new ConcurrentHashMap<String, CachedResponse>();
+	private volatile long myResponseCacheMillis;
+
 	public ConformanceMethodBinding(Method theMethod, FhirContext theContext, Object theProvider) {
 		super(theMethod.getReturnType(), theMethod, theContext, theProvider);
 
@@ -53,11 +74,26 @@ public class ConformanceMethodBinding extends BaseResourceReturningMethodBinding
 
 	}
 
+	/**
+	 * Discards any cached responses, so that the next request invokes the conformance provider again
+	 */
+	public void clearResponseCache() {
+		myResponseCache.clear();
+	}
+
 	@Override
 	public ReturnTypeEnum getReturnType() {
 		return ReturnTypeEnum.RESOURCE;
 	}
 
+	/**
+	 * Returns the number of milliseconds for which an encoded conformance statement is reused, or zero or less if
+	 * responses are not cached
+	 */
+	public long getResponseCacheMillis() {
+		return myResponseCacheMillis;
+	}
+
 	@Override
 	public HttpGetClientInvocation invokeClient(Object[] theArgs) throws InternalErrorException {
 		HttpGetClientInvocation retVal = MethodUtil.createConformanceInvocation(getContext());
@@ -72,6 +108,65 @@ public class ConformanceMethodBinding extends BaseResourceReturningMethodBinding
 		return retVal;
 	}
 
+	@Override
+	public Object invokeServer(IRestfulServer<?> theServer, RequestDetails theRequest) throws BaseServerResponseException, IOException {
+		long cacheMillis = myResponseCacheMillis;
+		Set<SummaryEnum> summaryMode = RestfulServerUtils.determineSummaryMode(theRequest);
+		if (cacheMillis <= 0 || summaryMode.contains(SummaryEnum.TEXT)) {
+			return super.invokeServer(theServer, theRequest);
+		}
+
+		EncodingEnum encoding = RestfulServerUtils.determineResponseEncodingWithDefault(theRequest);
+		boolean prettyPrint = RestfulServerUtils.prettyPrintResponse(theServer, theRequest);
+		String key = createCacheKey(theRequest, encoding, prettyPrint, summaryMode);
+
+		long now = System.currentTimeMillis();
+		CachedResponse response = myResponseCache.get(key);
+		if (response == null || response.myExpires < now) {
+			/*
+			 * The response is encoded and cached before the interceptors see it, so that what gets cached does not
+			 * depend on which interceptors ran for (or what they did to the resource during) this particular request
+			 */
+			IBaseResource conformance = doInvokeServer(theServer, theRequest).getResource();
+			String body = RestfulServerUtils.getNewParser(getContext(), theRequest).encodeResourceToString(conformance);
+			IIdType contentLocation = null;
+			if (conformance.getIdElement() != null) {
+				contentLocation = RestfulServerUtils.fullyQualifyResourceIdOrReturnNull(theServer, conformance, theRequest.getFhirServerBase(), conformance.getIdElement());
+			}
+			response = new CachedResponse(conformance, body, encoding.getResourceContentType(), contentLocation, now + cacheMillis);
+			myResponseCache.put(key, response);
+		} else {
+			// The provider isn't invoked, but interceptors (e.g. for authorization) still need to see the request
+			invokeIncomingRequestPreHandledInterceptors(theServer, theRequest, new Object[getParameters().size()]);
+		}
+
+		if (!invokeOutgoingResponseInterceptors(theServer, theRequest, response.myResource)) {
+			return null;
+		}
+
+		IRestfulResponse restfulResponse = theRequest.getResponse();
+		if (response.myContentLocation != null) {
+			restfulResponse.addHeader(Constants.HEADER_LOCATION, response.myContentLocation);
+			restfulResponse.addHeader(Constants.HEADER_CONTENT_LOCATION, response.myContentLocation);
+		}
+		if (response.myLastModified != null) {
+			restfulResponse.addHeader(Constants.HEADER_LAST_MODIFIED, response.myLastModified);
+		}
+
+		String charset = Constants.CHARSET_NAME_UTF8;
+		if (theServer.getETagSupport() == ETagSupportEnum.ENABLED) {
+			restfulResponse.addHeader(Constants.HEADER_ETAG, response.myETag);
+			if (ifNoneMatchMatches(theRequest.getHeader(Constants.HEADER_IF_NONE_MATCH_LC), response.myETag)) {
+				Writer writer = restfulResponse.getResponseWriter(Constants.STATUS_HTTP_304_NOT_MODIFIED, "Not Modified", null, charset, false);
+				return restfulResponse.sendWriterResponse(Constants.STATUS_HTTP_304_NOT_MODIFIED, null, charset, writer);
+			}
+		}
+
+		Writer writer = restfulResponse.getResponseWriter(Constants.STATUS_HTTP_200_OK, null, response.myContentType, charset, theRequest.isRespondGzip());
+		writer.write(response.myBody);
+		return restfulResponse.sendWriterResponse(Constants.STATUS_HTTP_200_OK, response.myContentType, charset, writer);
+	}
+
 	@Override
 	public IBundleProvider invokeServer(IRestfulServer<?> theServer, RequestDetails theRequest, Object[] theMethodParams) throws BaseServerResponseException {
 		IBaseResource conf = (IBaseResource) invokeServerMethod(theServer, theRequest, theMethodParams);
@@ -111,4 +206,86 @@ public class ConformanceMethodBinding extends BaseResourceReturningMethodBinding
 		return null;
 	}
 
+	/**
+	 * Sets the number of milliseconds for which an encoded conformance statement is reused for requests asking for the
+	 * same encoding, pretty printing, <code>_summary</code>, <code>_elements</code> and server base. A value of zero or
+	 * less (the default) disables caching. Changing this value discards any cached responses.
+	 */
+	public void setResponseCacheMillis(long theResponseCacheMillis) {
+		myResponseCacheMillis = theResponseCacheMillis;
+		clearResponseCache();
+	}
+
+	private static String createCacheKey(RequestDetails theRequest, EncodingEnum theEncoding, boolean thePrettyPrint, Set<SummaryEnum> theSummaryMode) {
+		StringBuilder b = new StringBuilder();
+		b.append(theEncoding.name());
+		b.append('|').append(thePrettyPrint);
+		b.append('|').append(new TreeSet<SummaryEnum>(theSummaryMode));
+		Set<String> elements = ElementsParameter.getElementsValueOrNull(theRequest);
+		b.append('|');
+		if (elements != null) {
+			b.append(new TreeSet<String>(elements));
+		}
+		b.append('|').append(theRequest.getFhirServerBase());
+		return b.toString();
+	}
+
+	/**
+	 * Returns <code>true</code> if the given <code>If-None-Match</code> header value contains the given entity tag (or
+	 * is <code>*</code>). As required for this header, weak comparison is used.
+	 */
+	static boolean ifNoneMatchMatches(String theIfNoneMatch, String theETag) {
+		if (StringUtils.isBlank(theIfNoneMatch)) {
+			return false;
+		}
+		for (String next : theIfNoneMatch.split(",")) {
+			next = next.trim();
+			if (next.startsWith("W/")) {
+				next = next.substring(2);
+			}
+			if ("*".equals(next) || theETag.equals(next)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean invokeOutgoingResponseInterceptors(IRestfulServer<?> theServer, RequestDetails theRequest, IBaseResource theResource) {
+		for (int i = theServer.getInterceptors().size() - 1; i >= 0; i--) {
+			IServerInterceptor next = theServer.getInterceptors().get(i);
+			if (!next.outgoingResponse(theRequest, theResource)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static class CachedResponse {
+
+		private final String myBody;
+		private final String myContentLocation;
+		private final String myContentType;
+		private final String myETag;
+		private final long myExpires;
+		private final String myLastModified;
+		private final IBaseResource myResource;
+
+		public CachedResponse(IBaseResource theResource, String theBody, String theContentType, IIdType theContentLocation, long theExpires) {
+			myResource = theResource;
+			myBody = theBody;
+			myContentLocation = theContentLocation != null ? theContentLocation.getValue() : null;
+			myContentType = theContentType;
+			myExpires = theExpires;
+			myETag = '"' + DigestUtils.sha1Hex(theBody.getBytes(Constants.CHARSET_UTF8)) + '"';
+
+			IPrimitiveType<Date> lastUpdated = RestfulServerUtils.extractLastUpdatedFromResource(theResource);
+			if (lastUpdated != null && lastUpdated.isEmpty() == false) {
+				myLastModified = DateUtils.formatDate(lastUpdated.getValue());
+			} else {
+				myLastModified = null;
+			}
+		}
+
+	}
+
 }
@@ -104,28 +104,7 @@ public class DynamicSearchMethodBinding extends BaseResourceReturningMethodBindi
 
 	@Override
 	public boolean incomingServerRequestMatchesMethod(RequestDetails theRequest) {
-		if (!theRequest.getResourceName().equals(getResourceName())) {
-			ourLog.trace("Method {} doesn't match because resource name {} != {}", new Object[] { getMethod().getName(), theRequest.getResourceName(), getResourceName() } );
-			return false;
-		}
-		if (theRequest.getId() != null && myIdParamIndex == null) {
-			ourLog.trace("Method {} doesn't match because ID is not null: {}", theRequest.getId());
-			return false;
-		}
-		if (theRequest.getRequestType() == RequestTypeEnum.GET && theRequest.getOperation() != null && !Constants.PARAM_SEARCH.equals(theRequest.getOperation())) {
-			ourLog.trace("Method {} doesn't match because request type is GET but operation is not null: {}", theRequest.getId(), theRequest.getOperation());
-			return false;
-		}
-		if (theRequest.getRequestType() == RequestTypeEnum.POST && !Constants.PARAM_SEARCH.equals(theRequest.getOperation())) {
-			ourLog.trace("Method {} doesn't match because request type is POST but operation is not _search: {}", theRequest.getId(), theRequest.getOperation());
-			return false;
-		}
-		if (theRequest.getRequestType() != RequestTypeEnum.GET && theRequest.getRequestType() != RequestTypeEnum.POST) {
-			ourLog.trace("Method {} doesn't match because request type is {}", getMethod());
-			return false;
-		}
-		if (theRequest.getCompartmentName() != null) {
-			ourLog.trace("Method {} doesn't match because it is for compartment {}", new Object[] { getMethod(), theRequest.getCompartmentName() });
+		if (!incomingServerRequestMatchesShape(theRequest)) {
 			return false;
 		}
 
@@ -154,6 +133,35 @@ public class DynamicSearchMethodBinding extends BaseResourceReturningMethodBindi
 		return true;
 	}
 
+	@Override
+	public boolean incomingServerRequestMatchesShape(RequestDetails theRequest) {
+		if (!theRequest.getResourceName().equals(getResourceName())) {
+			ourLog.trace("Method {} doesn't match because resource name {} != {}", new Object[] { getMethod().getName(), theRequest.getResourceName(), getResourceName() } );
+			return false;
+		}
+		if (theRequest.getId() != null && myIdParamIndex == null) {
+			ourLog.trace("Method {} doesn't match because ID is not null: {}", theRequest.getId());
+			return false;
+		}
+		if (theRequest.getRequestType() == RequestTypeEnum.GET && theRequest.getOperation() != null && !Constants.PARAM_SEARCH.equals(theRequest.getOperation())) {
+			ourLog.trace("Method {} doesn't match because request type is GET but operation is not null: {}", theRequest.getId(), theRequest.getOperation());
+			return false;
+		}
+		if (theRequest.getRequestType() == RequestTypeEnum.POST && !Constants.PARAM_SEARCH.equals(theRequest.getOperation())) {
+			ourLog.trace("Method {} doesn't match because request type is POST but operation is not _search: {}", theRequest.getId(), theRequest.getOperation());
+			return false;
+		}
+		if (theRequest.getRequestType() != RequestTypeEnum.GET && theRequest.getRequestType() != RequestTypeEnum.POST) {
+			ourLog.trace("Method {} doesn't match because request type is {}", getMethod());
+			return false;
+		}
+		if (theRequest.getCompartmentName() != null) {
+			ourLog.trace("Method {} doesn't match because it is for compartment {}", new Object[] { getMethod(), theRequest.getCompartmentName() });
+			return false;
+		}
+		return true;
+	}
+
 	@Override
 	public BaseHttpClientInvocation invokeClient(Object[] theArgs) throws InternalErrorException {
 		// there should be no way to call this....
@@ -129,6 +129,12 @@ public class HistoryMethodBinding extends BaseResourceReturningMethodBinding {
 
 		return true;
 	}
+
+	@Override
+	public boolean incomingServerRequestMatchesShape(RequestDetails theRequest) {
+		// History requests are matched on the shape of the request alone
+		return incomingServerRequestMatchesMethod(theRequest);
+	}
 	
 	@Override
 	public BaseHttpClientInvocation invokeClient(Object[] theArgs) throws InternalErrorException {
@@ -240,6 +240,12 @@ public class OperationMethodBinding extends BaseResourceReturningMethodBinding {
 		return true;
 	}
 
+	@Override
+	public boolean incomingServerRequestMatchesShape(RequestDetails theRequest) {
+		// Operations are matched on the shape of the request alone
+		return incomingServerRequestMatchesMethod(theRequest);
+	}
+
 	@Override
 	public BaseHttpClientInvocation invokeClient(Object[] theArgs) throws InternalErrorException {
 		String id = null;
@@ -290,6 +296,13 @@ public class OperationMethodBinding extends BaseResourceReturningMethodBinding {
 	@Override
 	public Object invokeServer(IRestfulServer<?> theServer, RequestDetails theRequest) throws BaseServerResponseException, IOException {
 		if (theRequest.getRequestType() == RequestTypeEnum.POST) {
+			for (IParameter next : getParameters()) {
+				if (next instanceof ResourceParameter) {
+					// The body is also bound to a method parameter, so it needs to be read twice
+					theRequest.loadRequestContents();
+					break;
+				}
+			}
 			IBaseResource requestContents = ResourceParameter.loadResourceFromRequest(theRequest, this, null);
 			theRequest.getUserData().put(OperationParameter.REQUEST_CONTENTS_USERDATA_KEY, requestContents);
 		}
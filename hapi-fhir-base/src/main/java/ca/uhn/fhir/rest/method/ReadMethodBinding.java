@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -36,6 +37,7 @@ import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
 import ca.uhn.fhir.context.ConfigurationException;
 import ca.uhn.fhir.context.FhirContext;
@@ -51,12 +53,16 @@ import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
 import ca.uhn.fhir.rest.server.Constants;
 import ca.uhn.fhir.rest.server.ETagSupportEnum;
 import ca.uhn.fhir.rest.server.IBundleProvider;
+import ca.uhn.fhir.rest.server.IResourceVersionProvider;
 import ca.uhn.fhir.rest.server.IRestfulServer;
+import ca.uhn.fhir.rest.server.ResourceVersion;
+import ca.uhn.fhir.rest.server.RestfulServerUtils;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.NotModifiedException;
+import ca.uhn.fhir.util.DateUtils;
 
 public class ReadMethodBinding extends BaseResourceReturningMethodBinding implements IClientResponseHandlerHandlesBinary<Object> {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ReadMethodBinding.class);
@@ -124,7 +130,7 @@ public class ReadMethodBinding extends BaseResourceReturningMethodBinding implem
 
 	@Override
 	public boolean incomingServerRequestMatchesMethod(RequestDetails theRequest) {
-		if (!theRequest.getResourceName().equals(getResourceName())) {
+		if (!incomingServerRequestMatchesShape(theRequest)) {
 			return false;
 		}
 		for (String next : theRequest.getParameters().keySet()) {
@@ -132,6 +138,14 @@ public class ReadMethodBinding extends BaseResourceReturningMethodBinding implem
 				return false;
 			}
 		}
+		return true;
+	}
+
+	@Override
+	public boolean incomingServerRequestMatchesShape(RequestDetails theRequest) {
+		if (!theRequest.getResourceName().equals(getResourceName())) {
+			return false;
+		}
 		if (theRequest.getId() == null) {
 			return false;
 		}
@@ -211,6 +225,40 @@ public class ReadMethodBinding extends BaseResourceReturningMethodBinding implem
 		throw new IllegalStateException("" + getMethodReturnType()); // should not happen
 	}
 
+	@Override
+	protected void beforeStreamResource(RequestDetails theRequest, IBaseResource theResource) {
+		/*
+		 * This happens after the interceptors have seen the resource, so that e.g. an authorization
+		 * interceptor can still refuse it even if the client's copy is current
+		 */
+		String ifNoneMatch = getIfNoneMatch(theRequest);
+		String ifModifiedSince = theRequest.getHeader(Constants.HEADER_IF_MODIFIED_SINCE_LC);
+		if (StringUtils.isBlank(ifNoneMatch) && StringUtils.isBlank(ifModifiedSince)) {
+			return;
+		}
+
+		String versionId = null;
+		if (theResource.getIdElement() != null && theResource.getIdElement().hasVersionIdPart()) {
+			versionId = theResource.getIdElement().getVersionIdPart();
+		}
+		Date lastUpdated = null;
+		IPrimitiveType<Date> lastUpdatedType = RestfulServerUtils.extractLastUpdatedFromResource(theResource);
+		if (lastUpdatedType != null) {
+			lastUpdated = lastUpdatedType.getValue();
+		}
+
+		if (isNotModified(ifNoneMatch, ifModifiedSince, versionId, lastUpdated)) {
+			throw new NotModifiedException("Not Modified");
+		}
+	}
+
+	private static String getIfNoneMatch(RequestDetails theRequest) {
+		if (theRequest.getServer().getETagSupport() != ETagSupportEnum.ENABLED) {
+			return null;
+		}
+		return theRequest.getHeader(Constants.HEADER_IF_NONE_MATCH_LC);
+	}
+
 	@Override
 	public IBundleProvider invokeServer(IRestfulServer<?> theServer, RequestDetails theRequest, Object[] theMethodParams) throws InvalidRequestException, InternalErrorException {
 		theMethodParams[myIdIndex] = MethodUtil.convertIdToType(theRequest.getId(), myIdParameterType);
@@ -218,26 +266,25 @@ public class ReadMethodBinding extends BaseResourceReturningMethodBinding implem
 			theMethodParams[myVersionIdIndex] = new IdDt(theRequest.getId().getVersionIdPart());
 		}
 
-		Object response = invokeServerMethod(theServer, theRequest, theMethodParams);
-		IBundleProvider retVal = toResourceList(response);
-
-		if (theRequest.getServer().getETagSupport() == ETagSupportEnum.ENABLED) {
-			String ifNoneMatch = theRequest.getHeader(Constants.HEADER_IF_NONE_MATCH_LC);
-			if (retVal.size() == 1 && StringUtils.isNotBlank(ifNoneMatch)) {
-				List<IBaseResource> responseResources = retVal.getResources(0, 1);
-				IBaseResource responseResource = responseResources.get(0);
-
-				ifNoneMatch = MethodUtil.parseETagValue(ifNoneMatch);
-				if (responseResource.getIdElement() != null && responseResource.getIdElement().hasVersionIdPart()) {
-					if (responseResource.getIdElement().getVersionIdPart().equals(ifNoneMatch)) {
-						ourLog.debug("Returning HTTP 301 because request specified {}={}", Constants.HEADER_IF_NONE_MATCH, ifNoneMatch);
-						throw new NotModifiedException("Not Modified");
-					}
+		/*
+		 * If the provider can tell us the current version without loading the resource, we
+		 * may be able to answer a conditional read without invoking the read method at all.
+		 * Interceptors never see a resource in that case, so this is only done if there are
+		 * none which might need to (e.g. to authorize the read).
+		 */
+		if (getProvider() instanceof IResourceVersionProvider && theServer.getInterceptors().isEmpty()) {
+			String ifNoneMatch = getIfNoneMatch(theRequest);
+			String ifModifiedSince = theRequest.getHeader(Constants.HEADER_IF_MODIFIED_SINCE_LC);
+			if (StringUtils.isNotBlank(ifNoneMatch) || StringUtils.isNotBlank(ifModifiedSince)) {
+				ResourceVersion version = ((IResourceVersionProvider) getProvider()).getResourceVersion(theRequest.getId(), theRequest);
+				if (version != null && isNotModified(ifNoneMatch, ifModifiedSince, version.getVersionId(), version.getLastUpdated())) {
+					throw new NotModifiedException("Not Modified");
 				}
 			}
 		}
 
-		return retVal;
+		Object response = invokeServerMethod(theServer, theRequest, theMethodParams);
+		return toResourceList(response);
 	}
 
 	@Override
@@ -249,6 +296,32 @@ public class ReadMethodBinding extends BaseResourceReturningMethodBinding implem
 		return mySupportsVersion || myVersionIdIndex != null;
 	}
 
+	/**
+	 * Determines whether a conditional read can be answered with <code>304 Not Modified</code>. As required by RFC 7232,
+	 * <code>If-Modified-Since</code> is only considered if no <code>If-None-Match</code> header is present.
+	 */
+	static boolean isNotModified(String theIfNoneMatch, String theIfModifiedSince, String theVersionId, Date theLastUpdated) {
+		if (StringUtils.isNotBlank(theIfNoneMatch)) {
+			String ifNoneMatch = MethodUtil.parseETagValue(theIfNoneMatch);
+			if (theVersionId != null && theVersionId.equals(ifNoneMatch)) {
+				ourLog.debug("Returning HTTP 304 because request specified {}={}", Constants.HEADER_IF_NONE_MATCH, theIfNoneMatch);
+				return true;
+			}
+			return false;
+		}
+
+		if (StringUtils.isNotBlank(theIfModifiedSince) && theLastUpdated != null) {
+			Date ifModifiedSince = DateUtils.parseDate(theIfModifiedSince);
+			// HTTP dates only have second precision
+			if (ifModifiedSince != null && theLastUpdated.getTime() / 1000 <= ifModifiedSince.getTime() / 1000) {
+				ourLog.debug("Returning HTTP 304 because request specified {}={}", Constants.HEADER_IF_MODIFIED_SINCE, theIfModifiedSince);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	public static HttpGetClientInvocation createAbsoluteReadInvocation(FhirContext theContext, IIdType theId) {
 		return new HttpGetClientInvocation(theContext, theId.toVersionless().getValue());
 	}
@@ -1,5 +1,6 @@
 package ca.uhn.fhir.rest.method;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -40,6 +41,8 @@ import ca.uhn.fhir.rest.api.RequestTypeEnum;
 import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
 import ca.uhn.fhir.rest.server.IRestfulResponse;
 import ca.uhn.fhir.rest.server.IRestfulServerDefaults;
+import ca.uhn.fhir.rest.server.RequestMetrics;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
 import ca.uhn.fhir.rest.server.interceptor.IServerOperationInterceptor;
 
@@ -49,9 +52,11 @@ public abstract class RequestDetails {
 	private String myCompleteUrl;
 	private String myFhirServerBase;
 	private IIdType myId;
+	private RequestMetrics myMetrics = RequestMetrics.DISABLED;
 	private String myOperation;
 	private Map<String, String[]> myParameters;
 	private byte[] myRequestContents;
+	private boolean myRequestContentsStreamed;
 	private String myRequestPath;
 	private RequestTypeEnum myRequestType;
 	private String myResourceName;
@@ -63,6 +68,15 @@ public abstract class RequestDetails {
 	private Map<String, List<String>> myUnqualifiedToQualifiedNames;
 	private Map<Object, Object> myUserData;
 	protected abstract byte[] getByteStreamRequestContents();
+
+	/**
+	 * Opens a stream over the (decoded) request body. The default implementation returns the contents of
+	 * {@link #getByteStreamRequestContents()}, subclasses should override this to read directly from the
+	 * underlying request instead.
+	 */
+	protected InputStream openRequestContentsStream() throws IOException {
+		return new ByteArrayInputStream(getByteStreamRequestContents());
+	}
 	
 	/**
 	 * Return the charset as defined by the header contenttype. Return null if it is not set.
@@ -107,6 +121,14 @@ public abstract class RequestDetails {
 	 */
 	public abstract InputStream getInputStream() throws IOException;
 
+	/**
+	 * Returns the timings and counters collected while processing this request. This is never <code>null</code>, but
+	 * if metrics are not enabled on the server an instance which does not record anything is returned.
+	 */
+	public RequestMetrics getMetrics() {
+		return myMetrics;
+	}
+
 	public String getOperation() {
 		return myOperation;
 	}
@@ -148,6 +170,34 @@ public abstract class RequestDetails {
 		return myRequestPath;
 	}
 
+	/**
+	 * Returns a stream over the body of the request. By default the body is loaded into memory (see
+	 * {@link #loadRequestContents()}) and a stream over that copy is returned, so the body remains available
+	 * afterwards.
+	 * <p>
+	 * If {@link #isStreamRequestContents() streaming} is enabled and the body has not been loaded yet, the body
+	 * is instead read directly from the incoming request as it is consumed. In that case this method may only be
+	 * called once and {@link #loadRequestContents()} can not be called afterwards.
+	 * </p>
+	 */
+	public final InputStream getRequestContentsStream() {
+		if (myRequestContents == null && !isStreamRequestContents()) {
+			loadRequestContents();
+		}
+		if (myRequestContents != null) {
+			return new ByteArrayInputStream(myRequestContents);
+		}
+		if (myRequestContentsStreamed) {
+			throw new IllegalStateException("The request body has already been consumed");
+		}
+		myRequestContentsStreamed = true;
+		try {
+			return openRequestContentsStream();
+		} catch (IOException e) {
+			throw new InvalidRequestException(String.format("Could not load request resource: %s", e.getMessage()));
+		}
+	}
+
 	public RequestTypeEnum getRequestType() {
 		return myRequestType;
 	}
@@ -211,8 +261,27 @@ public abstract class RequestDetails {
 		return myRespondGzip;
 	}
 
+	/**
+	 * Should {@link #getRequestContentsStream()} read the body directly from the incoming request instead of
+	 * loading it into memory first? The default implementation returns <code>false</code>.
+	 */
+	protected boolean isStreamRequestContents() {
+		return false;
+	}
+
+	/**
+	 * Loads the complete body of the request into memory and returns it. The result is kept, so this method
+	 * may be called any number of times, and subsequent calls to {@link #getRequestContentsStream()} will read
+	 * from this copy.
+	 * 
+	 * @throws IllegalStateException If {@link #isStreamRequestContents() streaming} is enabled and the body has already
+	 *            been consumed through {@link #getRequestContentsStream()}
+	 */
 	public final byte[] loadRequestContents() {
 		if (myRequestContents == null) {
+			if (myRequestContentsStreamed) {
+				throw new IllegalStateException("The request body has already been streamed to the request handler, call loadRequestContents() before the request is processed in order to access it");
+			}
 			myRequestContents = getByteStreamRequestContents();
 		}
 		return myRequestContents;
@@ -234,6 +303,10 @@ public abstract class RequestDetails {
 		myId = theId;
 	}
 
+	public void setMetrics(RequestMetrics theMetrics) {
+		myMetrics = theMetrics != null ? theMetrics : RequestMetrics.DISABLED;
+	}
+
 	public void setOperation(String theOperation) {
 		myOperation = theOperation;
 	}
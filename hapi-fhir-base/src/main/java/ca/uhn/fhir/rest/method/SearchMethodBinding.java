@@ -59,6 +59,7 @@ public class SearchMethodBinding extends BaseResourceReturningMethodBinding {
 	private String myDescription;
 	private Integer myIdParamIndex;
 	private String myQueryName;
+	private List<BaseQueryParameter> myQueryParameters;
 	private boolean myAllowUnknownParams;
 
 	public SearchMethodBinding(Class<? extends IBaseResource> theReturnResourceType, Method theMethod, FhirContext theContext, Object theProvider) {
@@ -113,6 +114,7 @@ public class SearchMethodBinding extends BaseResourceReturningMethodBinding {
 			throw new ConfigurationException(msg);
 		}
 
+		populateQueryParameters();
 	}
 
 	public String getDescription() {
@@ -140,37 +142,44 @@ public class SearchMethodBinding extends BaseResourceReturningMethodBinding {
 
 	@Override
 	public boolean incomingServerRequestMatchesMethod(RequestDetails theRequest) {
-		if (theRequest.getId() != null && myIdParamIndex == null) {
-			ourLog.trace("Method {} doesn't match because ID is not null: {}", theRequest.getId());
-			return false;
-		}
-		if (theRequest.getRequestType() == RequestTypeEnum.GET && theRequest.getOperation() != null && !Constants.PARAM_SEARCH.equals(theRequest.getOperation())) {
-			ourLog.trace("Method {} doesn't match because request type is GET but operation is not null: {}", theRequest.getId(), theRequest.getOperation());
-			return false;
-		}
-		if (theRequest.getRequestType() == RequestTypeEnum.POST && !Constants.PARAM_SEARCH.equals(theRequest.getOperation())) {
-			ourLog.trace("Method {} doesn't match because request type is POST but operation is not _search: {}", theRequest.getId(), theRequest.getOperation());
+		if (!incomingServerRequestMatchesShape(theRequest)) {
 			return false;
 		}
-		if (theRequest.getRequestType() != RequestTypeEnum.GET && theRequest.getRequestType() != RequestTypeEnum.POST) {
-			ourLog.trace("Method {} doesn't match because request type is {}", getMethod());
+
+		String[] queryNameValues = theRequest.getParameters().get(Constants.PARAM_QUERY);
+		boolean hasQueryName = queryNameValues != null && StringUtils.isNotBlank(queryNameValues[0]);
+		if (myQueryName != null) {
+			if (!hasQueryName || !myQueryName.equals(queryNameValues[0])) {
+				ourLog.trace("Query name does not match {}", myQueryName);
+				return false;
+			}
+		} else if (hasQueryName) {
+			ourLog.trace("Query has name");
 			return false;
 		}
-		if (!StringUtils.equals(myCompartmentName, theRequest.getCompartmentName())) {
-			ourLog.trace("Method {} doesn't match because it is for compartment {} but request is compartment {}", new Object[] { getMethod(), myCompartmentName, theRequest.getCompartmentName() });
-			return false;
+
+		Set<String> unqualifiedNames = theRequest.getUnqualifiedToQualifiedNames().keySet();
+		Set<String> qualifiedParamNames = theRequest.getParameters().keySet();
+
+		/*
+		 * Reject on a missing required parameter before doing any of the more
+		 * expensive qualifier processing below
+		 */
+		for (BaseQueryParameter next : myQueryParameters) {
+			if (next.isRequired() && !qualifiedParamNames.contains(next.getName()) && !unqualifiedNames.contains(next.getName())) {
+				ourLog.trace("Method {} doesn't match param '{}' is not present", getMethod().getName(), next.getName());
+				return false;
+			}
 		}
+
 		// This is used to track all the parameters so we can reject queries that
 		// have additional params we don't understand
 		Set<String> methodParamsTemp = new HashSet<String>();
+		if (myQueryName != null) {
+			methodParamsTemp.add(Constants.PARAM_QUERY);
+		}
 
-		Set<String> unqualifiedNames = theRequest.getUnqualifiedToQualifiedNames().keySet();
-		Set<String> qualifiedParamNames = theRequest.getParameters().keySet();
-		for (int i = 0; i < this.getParameters().size(); i++) {
-			if (!(getParameters().get(i) instanceof BaseQueryParameter)) {
-				continue;
-			}
-			BaseQueryParameter temp = (BaseQueryParameter) getParameters().get(i);
+		for (BaseQueryParameter temp : myQueryParameters) {
 			String name = temp.getName();
 			if (temp.isRequired()) {
 
@@ -185,12 +194,6 @@ public class SearchMethodBinding extends BaseResourceReturningMethodBinding {
 					qualifiedNames = processWhitelistAndBlacklist(qualifiedNames, temp.getQualifierWhitelist(), temp.getQualifierBlacklist());
 					methodParamsTemp.addAll(qualifiedNames);
 				}
-				if (!qualifiedParamNames.contains(name) && !unqualifiedNames.contains(name))
-				{
-					ourLog.trace("Method {} doesn't match param '{}' is not present", getMethod().getName(), name);
-					return false;
-				}
-
 			} else {
 				if (qualifiedParamNames.contains(name)) {
 					QualifierDetails qualifiers = extractQualifiersFromParameterName(name);
@@ -208,27 +211,6 @@ public class SearchMethodBinding extends BaseResourceReturningMethodBinding {
 				}
 			}
 		}
-		if (myQueryName != null) {
-			String[] queryNameValues = theRequest.getParameters().get(Constants.PARAM_QUERY);
-			if (queryNameValues != null && StringUtils.isNotBlank(queryNameValues[0])) {
-				String queryName = queryNameValues[0];
-				if (!myQueryName.equals(queryName)) {
-					ourLog.trace("Query name does not match {}", myQueryName);
-					return false;
-				} else {
-					methodParamsTemp.add(Constants.PARAM_QUERY);
-				}
-			} else {
-				ourLog.trace("Query name does not match {}", myQueryName);
-				return false;
-			}
-		} else {
-			String[] queryNameValues = theRequest.getParameters().get(Constants.PARAM_QUERY);
-			if (queryNameValues != null && StringUtils.isNotBlank(queryNameValues[0])) {
-				ourLog.trace("Query has name");
-				return false;
-			}
-		}
 		for (String next : theRequest.getParameters().keySet()) {
 			if (ALLOWED_PARAMS.contains(next)) {
 				methodParamsTemp.add(next);
@@ -245,6 +227,31 @@ public class SearchMethodBinding extends BaseResourceReturningMethodBinding {
 		return true;
 	}
 
+	@Override
+	public boolean incomingServerRequestMatchesShape(RequestDetails theRequest) {
+		if (theRequest.getId() != null && myIdParamIndex == null) {
+			ourLog.trace("Method {} doesn't match because ID is not null: {}", theRequest.getId());
+			return false;
+		}
+		if (theRequest.getRequestType() == RequestTypeEnum.GET && theRequest.getOperation() != null && !Constants.PARAM_SEARCH.equals(theRequest.getOperation())) {
+			ourLog.trace("Method {} doesn't match because request type is GET but operation is not null: {}", theRequest.getId(), theRequest.getOperation());
+			return false;
+		}
+		if (theRequest.getRequestType() == RequestTypeEnum.POST && !Constants.PARAM_SEARCH.equals(theRequest.getOperation())) {
+			ourLog.trace("Method {} doesn't match because request type is POST but operation is not _search: {}", theRequest.getId(), theRequest.getOperation());
+			return false;
+		}
+		if (theRequest.getRequestType() != RequestTypeEnum.GET && theRequest.getRequestType() != RequestTypeEnum.POST) {
+			ourLog.trace("Method {} doesn't match because request type is {}", getMethod());
+			return false;
+		}
+		if (!StringUtils.equals(myCompartmentName, theRequest.getCompartmentName())) {
+			ourLog.trace("Method {} doesn't match because it is for compartment {} but request is compartment {}", new Object[] { getMethod(), myCompartmentName, theRequest.getCompartmentName() });
+			return false;
+		}
+		return true;
+	}
+
 	@Override
 	public BaseHttpClientInvocation invokeClient(Object[] theArgs) throws InternalErrorException {
 		assert (myQueryName == null || ((theArgs != null ? theArgs.length : 0) == getParameters().size())) : "Wrong number of arguments: " + (theArgs != null ? theArgs.length : "null");
@@ -287,6 +294,20 @@ public class SearchMethodBinding extends BaseResourceReturningMethodBinding {
 		return false;
 	}
 
+	/**
+	 * Collects the query parameters once so that request matching doesn't have to
+	 * filter the full parameter list for every incoming request
+	 */
+	private void populateQueryParameters() {
+		List<BaseQueryParameter> queryParameters = new ArrayList<BaseQueryParameter>();
+		for (IParameter next : getParameters()) {
+			if (next instanceof BaseQueryParameter) {
+				queryParameters.add((BaseQueryParameter) next);
+			}
+		}
+		myQueryParameters = Collections.unmodifiableList(queryParameters);
+	}
+
 	private List<String> processWhitelistAndBlacklist(List<String> theQualifiedNames, Set<String> theQualifierWhitelist, Set<String> theQualifierBlacklist) {
 		if (theQualifierWhitelist == null && theQualifierBlacklist == null) {
 			return theQualifiedNames;
@@ -302,6 +323,13 @@ public class SearchMethodBinding extends BaseResourceReturningMethodBinding {
 		return retVal;
 	}
 
+	/** For unit tests only */
+	@Override
+	public void setParameters(List<IParameter> theParameters) {
+		super.setParameters(theParameters);
+		populateQueryParameters();
+	}
+
 	@Override
 	public String toString() {
 		return getMethod().toString();
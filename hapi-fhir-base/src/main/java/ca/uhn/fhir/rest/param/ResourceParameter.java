@@ -21,8 +21,6 @@ package ca.uhn.fhir.rest.param;
  */
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.lang.reflect.Method;
@@ -32,7 +30,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -52,6 +49,7 @@ import ca.uhn.fhir.rest.method.RequestDetails;
 import ca.uhn.fhir.rest.server.Constants;
 import ca.uhn.fhir.rest.server.EncodingEnum;
 import ca.uhn.fhir.rest.server.IResourceProvider;
+import ca.uhn.fhir.rest.server.RequestMetrics;
 import ca.uhn.fhir.rest.server.RestfulServerUtils;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
@@ -102,25 +100,44 @@ public class ResourceParameter implements IParameter {
 	public Object translateQueryParametersIntoServerArgument(RequestDetails theRequest, BaseMethodBinding<?> theMethodBinding) throws InternalErrorException, InvalidRequestException {
 		switch (myMode) {
 		case BODY:
-			try {
-				return IOUtils.toString(createRequestReader(theRequest));
-			} catch (IOException e) {
-				// Shouldn't happen since we're reading from a byte array
-				throw new InternalErrorException("Failed to load request", e);
-			}
+			return new String(theRequest.loadRequestContents(), determineRequestCharset(theRequest));
 		case BODY_BYTE_ARRAY:
 			return theRequest.loadRequestContents();
 		case ENCODING:
 			return RestfulServerUtils.determineRequestEncoding(theRequest);
 		case RESOURCE:
 		default:
+			if (isBodyReadMoreThanOnce(theMethodBinding)) {
+				// Make sure the body is still available for the other parameters
+				theRequest.loadRequestContents();
+			}
 			return parseResourceFromRequest(theRequest, theMethodBinding, myResourceType);
 		}
 		// }
 	}
 
+	/**
+	 * Does the given method have more than one parameter which consumes the request body?
+	 */
+	private static boolean isBodyReadMoreThanOnce(BaseMethodBinding<?> theMethodBinding) {
+		if (theMethodBinding == null) {
+			return false;
+		}
+		int count = 0;
+		for (IParameter next : theMethodBinding.getParameters()) {
+			if (next instanceof ResourceParameter && ((ResourceParameter) next).myMode != Mode.ENCODING) {
+				count++;
+			}
+		}
+		return count > 1;
+	}
+
+	/**
+	 * Creates a reader over the request body which reads directly from the incoming request (unless
+	 * the body has already been loaded into memory). The body may therefore only be read once.
+	 */
 	public static Reader createRequestReader(RequestDetails theRequest, Charset charset) {
-		Reader requestReader = new InputStreamReader(new ByteArrayInputStream(theRequest.loadRequestContents()), charset);
+		Reader requestReader = new InputStreamReader(theRequest.getRequestContentsStream(), charset);
 		return requestReader;
 	}
 
@@ -141,7 +158,6 @@ public class ResourceParameter implements IParameter {
 		FhirContext ctx = theRequest.getServer().getFhirContext();
 
 		final Charset charset = determineRequestCharset(theRequest);
-		Reader requestReader = createRequestReader(theRequest, charset);
 
 		RestOperationTypeEnum restOperationType = theMethodBinding != null ? theMethodBinding.getRestOperationType() : null;
 
@@ -156,21 +172,14 @@ public class ResourceParameter implements IParameter {
 			}
 			if (isBlank(ctValue)) {
 				/*
-				 * If the client didn't send a content type, try to guess
+				 * If the client didn't send a content type, try to guess. This needs
+				 * the whole body, so it is loaded into memory and then parsed from there.
 				 */
-				String body;
-				try {
-					body = IOUtils.toString(requestReader);
-				} catch (IOException e) {
-					// This shouldn't happen since we're reading from a byte array..
-					throw new InternalErrorException(e);
-				}
+				String body = new String(theRequest.loadRequestContents(), charset);
 				encoding = MethodUtil.detectEncodingNoDefault(body);
 				if (encoding == null) {
 					String msg = ctx.getLocalizer().getMessage(ResourceParameter.class, "noContentTypeInRequest", restOperationType);
 					throw new InvalidRequestException(msg);
-				} else {
-					requestReader = new InputStreamReader(new ByteArrayInputStream(theRequest.loadRequestContents()), charset);
 				}
 			} else {
 				String msg = ctx.getLocalizer().getMessage(ResourceParameter.class, "invalidContentTypeInRequest", ctValue, restOperationType);
@@ -179,8 +188,10 @@ public class ResourceParameter implements IParameter {
 		}
 
 		IParser parser = encoding.newParser(ctx);
+		Reader requestReader = createRequestReader(theRequest, charset);
 
 		T retVal;
+		RequestMetrics.Timer timer = theRequest.getMetrics().startTimer(RequestMetrics.PHASE_PARSE);
 		try {
 			if (theResourceType != null) {
 				retVal = parser.parseResource(theResourceType, requestReader);
@@ -190,6 +201,8 @@ public class ResourceParameter implements IParameter {
 		} catch (DataFormatException e) {
 			String msg = ctx.getLocalizer().getMessage(ResourceParameter.class, "failedToParseRequest", encoding.name(), e.getMessage());
 			throw new InvalidRequestException(msg);
+		} finally {
+			timer.stop();
 		}
 		
 		if (theRequest.getServer().getFhirContext().getVersion().getVersion().equals(FhirVersionEnum.DSTU1)) {
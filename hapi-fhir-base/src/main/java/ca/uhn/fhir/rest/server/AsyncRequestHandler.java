@@ -0,0 +1,301 @@
+package ca.uhn.fhir.rest.server;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import ca.uhn.fhir.rest.api.RequestTypeEnum;
+
+/**
+ * Processes a single request for a {@link RestfulServer} running in asynchronous mode (see
+ * {@link RestfulServer#setAsyncExecutor(java.util.concurrent.Executor)}).
+ * <p>
+ * The request is handled on an executor thread exactly as it would be synchronously, including
+ * reading the request body with blocking IO, so this offloads processing from the container
+ * threads rather than making the request IO non-blocking. The response body is buffered in memory
+ * in full and then written back to the client using Servlet 3.1 non-blocking output, so that
+ * neither the container thread nor the executor thread waits on a slow client while the response
+ * is being sent.
+ * </p>
+ * <p>
+ * The handler must also be registered as a listener on the async context, so that once the
+ * container has timed the request out (or failed it), nothing more is written to the response and
+ * the context is not completed a second time.
+ * </p>
+ */
+class AsyncRequestHandler implements Runnable, AsyncListener {
+
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(AsyncRequestHandler.class);
+	private static final int WRITE_CHUNK_SIZE = 8 * 1024;
+
+	private final AsyncContext myAsyncContext;
+	private final BufferedResponse myBufferedResponse;
+	private final AtomicBoolean myFinished = new AtomicBoolean();
+	private final HttpServletRequest myRequest;
+	private final RequestTypeEnum myRequestType;
+	private final HttpServletResponse myResponse;
+	private final RestfulServer myServer;
+
+	AsyncRequestHandler(RestfulServer theServer, RequestTypeEnum theRequestType, HttpServletRequest theRequest, HttpServletResponse theResponse, AsyncContext theAsyncContext) {
+		myServer = theServer;
+		myRequestType = theRequestType;
+		myRequest = theRequest;
+		myResponse = theResponse;
+		myAsyncContext = theAsyncContext;
+		myBufferedResponse = new BufferedResponse(theResponse);
+	}
+
+	/**
+	 * Completes the async context unless the request has already been finished, either by an
+	 * earlier call to this method or by the container
+	 */
+	private void complete() {
+		if (!myFinished.compareAndSet(false, true)) {
+			return;
+		}
+		completeContext();
+	}
+
+	private void completeContext() {
+		try {
+			myAsyncContext.complete();
+		} catch (IllegalStateException e) {
+			ourLog.debug("Async context was already completed: {}", e.toString());
+		}
+	}
+
+	boolean isFinished() {
+		return myFinished.get();
+	}
+
+	@Override
+	public void onComplete(AsyncEvent theEvent) {
+		myFinished.set(true);
+	}
+
+	@Override
+	public void onError(AsyncEvent theEvent) {
+		ourLog.debug("Asynchronous request failed", theEvent.getThrowable());
+		myFinished.set(true);
+	}
+
+	@Override
+	public void onStartAsync(AsyncEvent theEvent) {
+		// nothing
+	}
+
+	@Override
+	public void onTimeout(AsyncEvent theEvent) {
+		if (!myFinished.compareAndSet(false, true)) {
+			return;
+		}
+		ourLog.warn("Asynchronous request timed out before the response was written: {}", myRequest.getRequestURI());
+		try {
+			if (!myResponse.isCommitted()) {
+				myResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			}
+		} catch (IOException e) {
+			ourLog.debug("Failed to send timeout response", e);
+		}
+		completeContext();
+	}
+
+	@Override
+	public void run() {
+		try {
+			myServer.handleRequest(myRequestType, myRequest, myBufferedResponse);
+		} catch (Throwable e) {
+			ourLog.error("Failure during asynchronous processing of request", e);
+			myBufferedResponse.resetBuffer();
+			try {
+				if (!isFinished() && !myResponse.isCommitted()) {
+					myResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+				}
+			} catch (IOException e1) {
+				ourLog.debug("Failed to send error response", e1);
+			}
+		}
+
+		if (isFinished()) {
+			ourLog.debug("Request already finished by the container, discarding the response");
+			return;
+		}
+
+		try {
+			writeResponse();
+		} catch (Throwable e) {
+			ourLog.error("Failed to write response", e);
+			complete();
+		}
+	}
+
+	private void writeResponse() throws IOException {
+		byte[] content = myBufferedResponse.getContent();
+		if (content.length == 0 || myResponse.isCommitted()) {
+			complete();
+			return;
+		}
+
+		myResponse.setContentLength(content.length);
+		ServletOutputStream outputStream = myResponse.getOutputStream();
+		outputStream.setWriteListener(new ContentWriteListener(outputStream, content));
+	}
+
+	/**
+	 * Collects everything written by the request handling code (including interceptors) in memory.
+	 * Status and headers are passed straight through to the real response.
+	 */
+	private static class BufferedResponse extends HttpServletResponseWrapper {
+
+		private final ByteArrayOutputStream myBuffer = new ByteArrayOutputStream();
+		private ServletOutputStream myOutputStream;
+		private PrintWriter myWriter;
+
+		public BufferedResponse(HttpServletResponse theResponse) {
+			super(theResponse);
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			if (myWriter != null) {
+				myWriter.flush();
+			}
+		}
+
+		byte[] getContent() {
+			if (myWriter != null) {
+				myWriter.close();
+			}
+			return myBuffer.toByteArray();
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (myOutputStream == null) {
+				myOutputStream = new ServletOutputStream() {
+					@Override
+					public boolean isReady() {
+						return true;
+					}
+
+					@Override
+					public void setWriteListener(WriteListener theWriteListener) {
+						throw new IllegalStateException("Non-blocking output is not supported while the response is being buffered");
+					}
+
+					@Override
+					public void write(byte[] theBytes, int theOffset, int theLength) {
+						myBuffer.write(theBytes, theOffset, theLength);
+					}
+
+					@Override
+					public void write(int theByte) {
+						myBuffer.write(theByte);
+					}
+				};
+			}
+			return myOutputStream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (myWriter == null) {
+				myWriter = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+			}
+			return myWriter;
+		}
+
+		@Override
+		public void reset() {
+			super.reset();
+			resetBuffer();
+		}
+
+		@Override
+		public void resetBuffer() {
+			if (myWriter != null) {
+				myWriter.flush();
+			}
+			myBuffer.reset();
+		}
+
+		@Override
+		public void setContentLength(int theLength) {
+			// The length of the buffered content is set once processing has finished
+		}
+
+		@Override
+		public void setContentLengthLong(long theLength) {
+			// The length of the buffered content is set once processing has finished
+		}
+
+	}
+
+	/**
+	 * Writes the buffered content whenever the container reports that the connection can accept
+	 * more data
+	 */
+	private class ContentWriteListener implements WriteListener {
+
+		private final byte[] myContent;
+		private int myOffset;
+		private final ServletOutputStream myOutputStream;
+
+		public ContentWriteListener(ServletOutputStream theOutputStream, byte[] theContent) {
+			myOutputStream = theOutputStream;
+			myContent = theContent;
+		}
+
+		@Override
+		public void onError(Throwable theThrowable) {
+			ourLog.debug("Failed to write response", theThrowable);
+			complete();
+		}
+
+		@Override
+		public void onWritePossible() throws IOException {
+			while (!isFinished() && myOutputStream.isReady()) {
+				if (myOffset >= myContent.length) {
+					complete();
+					return;
+				}
+				int length = Math.min(WRITE_CHUNK_SIZE, myContent.length - myOffset);
+				myOutputStream.write(myContent, myOffset, length);
+				myOffset += length;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,316 @@
+package ca.uhn.fhir.rest.server;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * An in-memory {@link IPagingProvider} which can be used concurrently by many requests without them contending for a
+ * lock. This is a drop-in replacement for {@link FifoMemoryPagingProvider}, with the following additions:
+ * <ul>
+ * <li>Result lists which have not been accessed within the {@link #setTimeToLiveMillis(long) time to live} are
+ * expired</li>
+ * <li>In addition to the maximum number of result lists passed to the constructor, the total
+ * {@link #setMaximumWeight(long) weight} of the stored result lists may be bounded. By default the weight of a result
+ * list is the number of resources it contains, but subclasses may override {@link #weigh(IBundleProvider)} (e.g. to
+ * estimate the number of bytes it holds)</li>
+ * <li>Hit, miss, eviction and expiry counts are kept for monitoring</li>
+ * </ul>
+ * When a bound is exceeded, the oldest result lists are evicted first.
+ */
+public class ConcurrentMemoryPagingProvider implements IPagingProvider {
+
+	/**
+	 * Default value for {@link #setTimeToLiveMillis(long)}: 10 minutes
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 10 * 60 * 1000L;
+
+	private int myDefaultPageSize = 10;
+	private final ConcurrentHashMap<String, StoredList> myStoredLists = new ConcurrentHashMap<String, StoredList>();
+	private final ReentrantLock myEvictionLock = new ReentrantLock();
+	private final AtomicLong myEvictionCount = new AtomicLong();
+	private final AtomicLong myExpiryCount = new AtomicLong();
+	private final AtomicLong myHitCount = new AtomicLong();
+	private final ConcurrentLinkedQueue<String> myInsertionOrder = new ConcurrentLinkedQueue<String>();
+	private int myMaximumPageSize = 50;
+	private long myMaximumWeight = Long.MAX_VALUE;
+	private final AtomicLong myMissCount = new AtomicLong();
+	private volatile long myNextExpirySweep;
+	private final int mySize;
+	private volatile long myTimeToLiveMillis = DEFAULT_TIME_TO_LIVE_MILLIS;
+	private final AtomicLong myWeight = new AtomicLong();
+
+	/**
+	 * Constructor
+	 * 
+	 * @param theSize
+	 *           The maximum number of result lists to store
+	 */
+	public ConcurrentMemoryPagingProvider(int theSize) {
+		Validate.isTrue(theSize > 0, "theSize must be greater than 0");
+		mySize = theSize;
+	}
+
+	private void evictIfNeeded(long theNow) {
+		boolean overCapacity = myStoredLists.size() > mySize || myWeight.get() > myMaximumWeight;
+		if (!overCapacity && theNow < myNextExpirySweep) {
+			return;
+		}
+
+		// Only one thread needs to evict at a time, the others can carry on
+		if (!myEvictionLock.tryLock()) {
+			return;
+		}
+		try {
+			if (theNow >= myNextExpirySweep) {
+				for (Iterator<Entry<String, StoredList>> iter = myStoredLists.entrySet().iterator(); iter.hasNext();) {
+					Entry<String, StoredList> next = iter.next();
+					if (next.getValue().isExpired(theNow, myTimeToLiveMillis)) {
+						if (myStoredLists.remove(next.getKey(), next.getValue())) {
+							myWeight.addAndGet(-next.getValue().myWeight);
+							myExpiryCount.incrementAndGet();
+						}
+					}
+				}
+
+				/*
+				 * Lists which expired (here or in retrieveResultList) leave their keys behind in the
+				 * queue, drop them all in one pass
+				 */
+				for (Iterator<String> iter = myInsertionOrder.iterator(); iter.hasNext();) {
+					if (!myStoredLists.containsKey(iter.next())) {
+						iter.remove();
+					}
+				}
+				myNextExpirySweep = theNow + Math.max(myTimeToLiveMillis / 10, 1L);
+			}
+
+			// Always keep the most recently stored list, even if it exceeds the maximum weight on its own
+			while ((myStoredLists.size() > mySize || myWeight.get() > myMaximumWeight) && myStoredLists.size() > 1) {
+				String key = myInsertionOrder.poll();
+				if (key == null) {
+					break;
+				}
+				// Keys of lists which have already expired are skipped
+				StoredList removed = myStoredLists.remove(key);
+				if (removed != null) {
+					myWeight.addAndGet(-removed.myWeight);
+					myEvictionCount.incrementAndGet();
+				}
+			}
+		} finally {
+			myEvictionLock.unlock();
+		}
+	}
+
+	@Override
+	public int getDefaultPageSize() {
+		return myDefaultPageSize;
+	}
+
+	/**
+	 * Returns the number of result lists which have been evicted because the maximum size or weight was exceeded
+	 */
+	public long getEvictionCount() {
+		return myEvictionCount.get();
+	}
+
+	/**
+	 * Returns the number of result lists which have been discarded because they were not accessed within the time to
+	 * live
+	 */
+	public long getExpiryCount() {
+		return myExpiryCount.get();
+	}
+
+	/**
+	 * Returns the number of successful calls to {@link #retrieveResultList(String)}
+	 */
+	public long getHitCount() {
+		return myHitCount.get();
+	}
+
+	@Override
+	public int getMaximumPageSize() {
+		return myMaximumPageSize;
+	}
+
+	/**
+	 * Returns the maximum total weight of the stored result lists
+	 * 
+	 * @see #setMaximumWeight(long)
+	 */
+	public long getMaximumWeight() {
+		return myMaximumWeight;
+	}
+
+	/**
+	 * Returns the number of calls to {@link #retrieveResultList(String)} for an unknown (e.g. evicted or expired) ID
+	 */
+	public long getMissCount() {
+		return myMissCount.get();
+	}
+
+	/**
+	 * Returns the number of result lists currently stored
+	 */
+	public int getStoredCount() {
+		return myStoredLists.size();
+	}
+
+	/**
+	 * Returns the time (in milliseconds) after which a result list which has not been accessed is discarded
+	 */
+	public long getTimeToLiveMillis() {
+		return myTimeToLiveMillis;
+	}
+
+	/** For unit tests only */
+	int getInsertionOrderSize() {
+		return myInsertionOrder.size();
+	}
+
+	/**
+	 * Returns the current time in milliseconds. Unit tests override this to control expiry.
+	 */
+	long now() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the total weight of the result lists currently stored
+	 */
+	public long getWeight() {
+		return myWeight.get();
+	}
+
+	@Override
+	public IBundleProvider retrieveResultList(String theId) {
+		StoredList entry = myStoredLists.get(theId);
+		long now = now();
+		if (entry != null && entry.isExpired(now, myTimeToLiveMillis)) {
+			// The key is left in the queue, it is skipped on eviction and dropped on the next expiry sweep
+			if (myStoredLists.remove(theId, entry)) {
+				myWeight.addAndGet(-entry.myWeight);
+				myExpiryCount.incrementAndGet();
+			}
+			entry = null;
+		}
+
+		if (entry == null) {
+			myMissCount.incrementAndGet();
+			return null;
+		}
+
+		entry.myLastAccessed = now;
+		myHitCount.incrementAndGet();
+		return entry.myBundleProvider;
+	}
+
+	public ConcurrentMemoryPagingProvider setDefaultPageSize(int theDefaultPageSize) {
+		Validate.isTrue(theDefaultPageSize > 0, "size must be greater than 0");
+		myDefaultPageSize = theDefaultPageSize;
+		return this;
+	}
+
+	public ConcurrentMemoryPagingProvider setMaximumPageSize(int theMaximumPageSize) {
+		Validate.isTrue(theMaximumPageSize > 0, "size must be greater than 0");
+		myMaximumPageSize = theMaximumPageSize;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum total weight (as calculated by {@link #weigh(IBundleProvider)}) of the stored result lists. By
+	 * default the weight is not bounded.
+	 */
+	public ConcurrentMemoryPagingProvider setMaximumWeight(long theMaximumWeight) {
+		Validate.isTrue(theMaximumWeight > 0, "theMaximumWeight must be greater than 0");
+		myMaximumWeight = theMaximumWeight;
+		return this;
+	}
+
+	/**
+	 * Sets the time (in milliseconds) after which a result list which has not been accessed is discarded. The default is
+	 * {@link #DEFAULT_TIME_TO_LIVE_MILLIS}.
+	 */
+	public ConcurrentMemoryPagingProvider setTimeToLiveMillis(long theTimeToLiveMillis) {
+		Validate.isTrue(theTimeToLiveMillis > 0, "theTimeToLiveMillis must be greater than 0");
+		myTimeToLiveMillis = theTimeToLiveMillis;
+		myNextExpirySweep = 0;
+		return this;
+	}
+
+	@Override
+	public String storeResultList(IBundleProvider theList) {
+		long now = now();
+		StoredList entry = new StoredList(theList, weigh(theList), now);
+
+		String key = UUID.randomUUID().toString();
+		/*
+		 * Store the list before queueing its key. Otherwise a concurrent eviction could poll the
+		 * key before the list is stored, and the list would never be evicted by capacity.
+		 */
+		myStoredLists.put(key, entry);
+		myWeight.addAndGet(entry.myWeight);
+		myInsertionOrder.add(key);
+
+		evictIfNeeded(now);
+		return key;
+	}
+
+	/**
+	 * Returns the weight of the given result list, which is used to bound the memory held by this provider (see
+	 * {@link #setMaximumWeight(long)}). The default implementation returns the number of resources in the list (or 1 if
+	 * the size is unknown or zero). Subclasses may override this method, e.g. to return an estimate of the number of
+	 * bytes the list holds. This method is called once, when the list is stored.
+	 */
+	protected long weigh(IBundleProvider theList) {
+		int size = theList.size();
+		return size > 0 ? size : 1;
+	}
+
+	private static class StoredList {
+
+		private final IBundleProvider myBundleProvider;
+		private volatile long myLastAccessed;
+		private final long myWeight;
+
+		public StoredList(IBundleProvider theBundleProvider, long theWeight, long theNow) {
+			myBundleProvider = theBundleProvider;
+			myWeight = theWeight;
+			myLastAccessed = theNow;
+		}
+
+		public boolean isExpired(long theNow, long theTimeToLiveMillis) {
+			return theNow - myLastAccessed > theTimeToLiveMillis;
+		}
+
+	}
+
+}
@@ -44,6 +44,8 @@ public class Constants {
 	public static final String CT_X_FORM_URLENCODED = "application/x-www-form-urlencoded";
 	public static final String CT_XML = "application/xml";
 	public static final String ENCODING_GZIP = "gzip";
+	public static final String EXTOP_READ_MANY = "$read-many";
+	public static final String EXTOP_READ_MANY_ID = "id";
 	public static final String EXTOP_VALIDATE = "$validate";
 	public static final String EXTOP_VALIDATE_MODE = "mode";
 	public static final String EXTOP_VALIDATE_PROFILE = "profile";
@@ -82,6 +84,8 @@ public class Constants {
 	public static final String HEADER_ETAG_LC = HEADER_ETAG.toLowerCase();
 	public static final String HEADER_IF_MATCH = "If-Match";
 	public static final String HEADER_IF_MATCH_LC = HEADER_IF_MATCH.toLowerCase();
+	public static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+	public static final String HEADER_IF_MODIFIED_SINCE_LC = HEADER_IF_MODIFIED_SINCE.toLowerCase();
 	public static final String HEADER_IF_NONE_EXIST = "If-None-Exist";
 	public static final String HEADER_IF_NONE_EXIST_LC = HEADER_IF_NONE_EXIST.toLowerCase();
 	public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
@@ -95,7 +99,9 @@ public class Constants {
 	public static final String HEADER_PREFER_RETURN = "return";
 	public static final String HEADER_PREFER_RETURN_MINIMAL = "minimal";
 	public static final String HEADER_PREFER_RETURN_REPRESENTATION = "representation";
+	public static final String HEADER_SERVER_TIMING = "Server-Timing";
 	public static final String HEADER_SUFFIX_CT_UTF_8 = "; charset=UTF-8";
+	public static final String HEADER_VARY = "Vary";
 	public static final String HEADERVALUE_CORS_ALLOW_METHODS_ALL = "GET, POST, PUT, DELETE, OPTIONS";
 	public static final Map<Integer, String> HTTP_STATUS_NAMES;
 	public static final String LINK_FHIR_BASE = "fhir-base";
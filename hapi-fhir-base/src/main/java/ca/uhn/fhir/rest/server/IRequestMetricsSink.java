@@ -0,0 +1,44 @@
+package ca.uhn.fhir.rest.server;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.rest.method.RequestDetails;
+
+/**
+ * Receives the {@link RequestMetrics} collected for each request handled by a {@link RestfulServer}
+ * 
+ * @see RestfulServer#setRequestMetricsSink(IRequestMetricsSink)
+ */
+public interface IRequestMetricsSink {
+
+	/**
+	 * Invoked once processing of a request is complete and the response has been written, whether or not the request
+	 * was successful. This method is invoked on the thread which handled the request, so implementations should return
+	 * quickly (e.g. by handing the metrics off to a reporting library or queue).
+	 * 
+	 * @param theRequestDetails
+	 *           The details of the request which was processed
+	 * @param theMetrics
+	 *           The metrics which were collected
+	 */
+	void requestCompleted(RequestDetails theRequestDetails, RequestMetrics theMetrics);
+
+}
@@ -0,0 +1,58 @@
+package ca.uhn.fhir.rest.server;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.hl7.fhir.instance.model.api.IIdType;
+
+import ca.uhn.fhir.rest.method.RequestDetails;
+
+/**
+ * May optionally be implemented by a resource provider which is able to determine the current version of a resource
+ * much more cheaply than by reading the resource itself (e.g. by looking at an index or a database column, without
+ * loading and parsing the resource body).
+ * <p>
+ * When a conditional read (a read with an <code>If-None-Match</code> or <code>If-Modified-Since</code> header) is
+ * received for a provider implementing this interface, the server first calls
+ * {@link #getResourceVersion(IIdType, RequestDetails)}, and responds with <code>304 Not Modified</code> without
+ * invoking the <code>@Read</code> method at all if the client's copy is still current.
+ * </p>
+ * <p>
+ * This is only done if the server has no interceptors registered, since interceptors (such as the
+ * <code>AuthorizationInterceptor</code>) may need to examine the resource before deciding whether it may be returned.
+ * Otherwise the resource is read as usual, and <code>304 Not Modified</code> is only returned once the interceptors
+ * have accepted it.
+ * </p>
+ */
+public interface IResourceVersionProvider {
+
+	/**
+	 * Returns the current version of the resource with the given ID
+	 * 
+	 * @param theId
+	 *           The ID being read. If this ID has a version part, the request is a vread.
+	 * @param theRequestDetails
+	 *           The request details
+	 * @return The current version, or <code>null</code> if it can not be determined cheaply (e.g. because the resource
+	 *         does not exist or was deleted), in which case the <code>@Read</code> method is invoked as usual
+	 */
+	ResourceVersion getResourceVersion(IIdType theId, RequestDetails theRequestDetails);
+
+}
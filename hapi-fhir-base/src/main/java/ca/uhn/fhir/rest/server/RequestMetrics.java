@@ -0,0 +1,309 @@
+package ca.uhn.fhir.rest.server;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import ca.uhn.fhir.rest.method.RequestDetails;
+
+/**
+ * Collects the time spent in each phase of processing a single request, as well as counters such as the number of
+ * resources loaded or the number of bytes written.
+ * <p>
+ * Phases may be nested (e.g. {@link #PHASE_DAO} time is also part of {@link #PHASE_METHOD}) so the phase timings are
+ * not expected to add up to the total time. A phase which is entered more than once in a request accumulates the time
+ * of every invocation.
+ * </p>
+ * <p>
+ * Metrics are only collected if the server has a {@link RestfulServer#setRequestMetricsSink(IRequestMetricsSink) metrics
+ * sink} or has the {@link RestfulServer#setServerTimingHeaderEnabled(boolean) Server-Timing header} enabled. Otherwise
+ * {@link RequestDetails#getMetrics()} returns an instance which ignores everything that is recorded, so
+ * instrumented code never needs to check whether metrics are enabled.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ */
+public class RequestMetrics {
+
+	/**
+	 * Counter: Number of uncompressed bytes written to the response body
+	 */
+	public static final String COUNTER_BYTES_WRITTEN = "bytesWritten";
+
+	/**
+	 * Counter: Number of resources loaded from the backing store
+	 */
+	public static final String COUNTER_RESOURCES_LOADED = "resourcesLoaded";
+
+	/**
+	 * Counter: Number of SQL statements issued
+	 */
+	public static final String COUNTER_SQL_STATEMENTS = "sqlStatements";
+
+	/**
+	 * Phase: Loading the requested page of resources from the bundle provider and assembling the response bundle
+	 */
+	public static final String PHASE_BUNDLE = "bundle";
+
+	/**
+	 * Phase: Work done by the data access layer (e.g. the JPA DAOs)
+	 */
+	public static final String PHASE_DAO = "dao";
+
+	/**
+	 * Phase: Encoding the response and writing it to the client
+	 */
+	public static final String PHASE_ENCODE = "encode";
+
+	/**
+	 * Phase: Loading resources for <code>_include</code> and <code>_revinclude</code>
+	 */
+	public static final String PHASE_INCLUDES = "includes";
+
+	/**
+	 * Phase: Calls to server interceptors
+	 */
+	public static final String PHASE_INTERCEPTORS = "interceptors";
+
+	/**
+	 * Phase: Invoking the resource provider method
+	 */
+	public static final String PHASE_METHOD = "method";
+
+	/**
+	 * Phase: Parsing the request URL, parameters and body
+	 */
+	public static final String PHASE_PARSE = "parse";
+
+	/**
+	 * An instance which does not record anything
+	 */
+	public static final RequestMetrics DISABLED = new RequestMetrics(false);
+
+	private static final Timer DISABLED_TIMER = new Timer(null, null);
+	private static final ThreadLocal<RequestMetrics> ourCurrent = new ThreadLocal<RequestMetrics>();
+
+	private final Map<String, Long> myCounters;
+	private final boolean myEnabled;
+	private final Map<String, Long> myPhaseNanos;
+	private final long myStarted;
+
+	/**
+	 * Constructor
+	 */
+	public RequestMetrics() {
+		this(true);
+	}
+
+	private RequestMetrics(boolean theEnabled) {
+		myEnabled = theEnabled;
+		myStarted = theEnabled ? System.nanoTime() : 0;
+		myCounters = theEnabled ? new LinkedHashMap<String, Long>() : null;
+		myPhaseNanos = theEnabled ? new LinkedHashMap<String, Long>() : null;
+	}
+
+	/**
+	 * Adds time to the given phase
+	 * 
+	 * @param thePhase
+	 *           The phase name, e.g. {@link #PHASE_ENCODE}. Must be a valid HTTP token if it is to be included in the
+	 *           Server-Timing header.
+	 * @param theNanos
+	 *           The elapsed time in nanoseconds
+	 */
+	public void addPhaseNanos(String thePhase, long theNanos) {
+		if (!myEnabled) {
+			return;
+		}
+		synchronized (this) {
+			Long existing = myPhaseNanos.get(thePhase);
+			myPhaseNanos.put(thePhase, existing != null ? existing + theNanos : theNanos);
+		}
+	}
+
+	/**
+	 * Returns the current value of the given counter, or 0 if it was never incremented
+	 */
+	public synchronized long getCounter(String theCounter) {
+		if (!myEnabled) {
+			return 0;
+		}
+		Long retVal = myCounters.get(theCounter);
+		return retVal != null ? retVal : 0;
+	}
+
+	/**
+	 * Returns a snapshot of all counters, in the order in which they were first incremented
+	 */
+	public synchronized Map<String, Long> getCounters() {
+		if (!myEnabled) {
+			return Collections.emptyMap();
+		}
+		return new LinkedHashMap<String, Long>(myCounters);
+	}
+
+	/**
+	 * Returns the time in nanoseconds since this object was created
+	 */
+	public long getElapsedNanos() {
+		if (!myEnabled) {
+			return 0;
+		}
+		return System.nanoTime() - myStarted;
+	}
+
+	/**
+	 * Returns the total time in nanoseconds recorded for the given phase, or 0 if it was never entered
+	 */
+	public synchronized long getPhaseNanos(String thePhase) {
+		if (!myEnabled) {
+			return 0;
+		}
+		Long retVal = myPhaseNanos.get(thePhase);
+		return retVal != null ? retVal : 0;
+	}
+
+	/**
+	 * Returns a snapshot of all phase timings in nanoseconds, in the order in which the phases were first completed
+	 */
+	public synchronized Map<String, Long> getPhaseNanos() {
+		if (!myEnabled) {
+			return Collections.emptyMap();
+		}
+		return new LinkedHashMap<String, Long>(myPhaseNanos);
+	}
+
+	/**
+	 * Adds the given amount to a counter
+	 * 
+	 * @param theCounter
+	 *           The counter name, e.g. {@link #COUNTER_RESOURCES_LOADED}
+	 * @param theAmount
+	 *           The amount to add
+	 */
+	public void incrementCounter(String theCounter, long theAmount) {
+		if (!myEnabled) {
+			return;
+		}
+		synchronized (this) {
+			Long existing = myCounters.get(theCounter);
+			myCounters.put(theCounter, existing != null ? existing + theAmount : theAmount);
+		}
+	}
+
+	/**
+	 * Returns <code>false</code> if this instance does not record anything
+	 */
+	public boolean isEnabled() {
+		return myEnabled;
+	}
+
+	/**
+	 * Starts timing the given phase. The returned timer must be {@link Timer#stop() stopped} when the phase is complete,
+	 * normally in a <code>finally</code> block.
+	 * 
+	 * @param thePhase
+	 *           The phase name, e.g. {@link #PHASE_METHOD}
+	 */
+	public Timer startTimer(String thePhase) {
+		if (!myEnabled) {
+			return DISABLED_TIMER;
+		}
+		return new Timer(this, thePhase);
+	}
+
+	/**
+	 * Returns the phases recorded so far formatted as the value of a <code>Server-Timing</code> header, with the time
+	 * elapsed since the start of the request appended as <code>total</code>. Durations are in milliseconds.
+	 */
+	public String toServerTimingHeader() {
+		StringBuilder b = new StringBuilder();
+		for (Entry<String, Long> next : getPhaseNanos().entrySet()) {
+			appendServerTiming(b, next.getKey(), next.getValue());
+		}
+		appendServerTiming(b, "total", getElapsedNanos());
+		return b.toString();
+	}
+
+	private static void appendServerTiming(StringBuilder theBuilder, String theName, long theNanos) {
+		if (theBuilder.length() > 0) {
+			theBuilder.append(", ");
+		}
+		theBuilder.append(theName);
+		theBuilder.append(";dur=");
+		theBuilder.append(String.format(Locale.US, "%.3f", theNanos / 1000000.0));
+	}
+
+	/**
+	 * Returns the metrics for the request being processed by the current thread. This is intended for code which does
+	 * not have access to the {@link RequestDetails} (e.g. bundle providers which load resources lazily). If no request is
+	 * being processed, or metrics are not enabled, {@link #DISABLED} is returned.
+	 */
+	public static RequestMetrics getCurrent() {
+		RequestMetrics retVal = ourCurrent.get();
+		return retVal != null ? retVal : DISABLED;
+	}
+
+	/**
+	 * Binds the given metrics to the current thread, or clears the binding if <code>null</code>
+	 * 
+	 * @see #getCurrent()
+	 */
+	public static void setCurrent(RequestMetrics theMetrics) {
+		if (theMetrics == null) {
+			ourCurrent.remove();
+		} else {
+			ourCurrent.set(theMetrics);
+		}
+	}
+
+	/**
+	 * Times a single invocation of a phase
+	 */
+	public static class Timer {
+
+		private final RequestMetrics myMetrics;
+		private final String myPhase;
+		private final long myStarted;
+
+		private Timer(RequestMetrics theMetrics, String thePhase) {
+			myMetrics = theMetrics;
+			myPhase = thePhase;
+			myStarted = theMetrics != null ? System.nanoTime() : 0;
+		}
+
+		/**
+		 * Adds the time elapsed since this timer was started to its phase
+		 */
+		public void stop() {
+			if (myMetrics != null) {
+				myMetrics.addPhaseNanos(myPhase, System.nanoTime() - myStarted);
+			}
+		}
+
+	}
+
+}
@@ -21,8 +21,15 @@ package ca.uhn.fhir.rest.server;
  */
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.instance.model.api.IIdType;
+
+import ca.uhn.fhir.rest.api.RequestTypeEnum;
 import ca.uhn.fhir.rest.method.BaseMethodBinding;
 import ca.uhn.fhir.rest.method.RequestDetails;
 
@@ -31,10 +38,17 @@ import ca.uhn.fhir.rest.method.RequestDetails;
  */
 public class ResourceBinding {
 
+	/**
+	 * Upper bound on the number of distinct request shapes remembered by {@link #getMethod(RequestDetails)}. Requests
+	 * with a shape which is not remembered once this many shapes are known are matched against all of the bindings.
+	 */
+	static final int MAX_DISPATCH_CACHE_SIZE = 1000;
+
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ResourceBinding.class);
 
 	private String resourceName;
 	private List<BaseMethodBinding<?>> methods = new ArrayList<BaseMethodBinding<?>>();
+	private final Map<DispatchKey, List<BaseMethodBinding<?>>> myDispatchCache = new ConcurrentHashMap<DispatchKey, List<BaseMethodBinding<?>>>();
 
 	public ResourceBinding() {
 	}
@@ -50,8 +64,16 @@ public class ResourceBinding {
 			return null;
 		}
 
+		/*
+		 * Most bindings can rule a request out from its shape alone (see
+		 * BaseMethodBinding#incomingServerRequestMatchesShape), so we remember which
+		 * bindings are candidates for each shape and only ask those to look at the
+		 * request parameters
+		 */
+		List<BaseMethodBinding<?>> candidates = getCandidateMethods(theRequest);
+
 		ourLog.debug("Looking for a handler for {}", theRequest);
-		for (BaseMethodBinding<?> rm : methods) {
+		for (BaseMethodBinding<?> rm : candidates) {
 			if (rm.incomingServerRequestMatchesMethod(theRequest)) {
 				ourLog.debug("Handler {} matches", rm);
 				return rm;
@@ -62,6 +84,27 @@ public class ResourceBinding {
 		return null;
 	}
 
+	private List<BaseMethodBinding<?>> getCandidateMethods(RequestDetails theRequest) {
+		DispatchKey key = new DispatchKey(theRequest);
+		List<BaseMethodBinding<?>> retVal = myDispatchCache.get(key);
+		if (retVal != null) {
+			return retVal;
+		}
+
+		retVal = new ArrayList<BaseMethodBinding<?>>();
+		for (BaseMethodBinding<?> rm : methods) {
+			if (rm.incomingServerRequestMatchesShape(theRequest)) {
+				retVal.add(rm);
+			}
+		}
+		retVal = Collections.unmodifiableList(retVal);
+
+		if (myDispatchCache.size() < MAX_DISPATCH_CACHE_SIZE) {
+			myDispatchCache.put(key, retVal);
+		}
+		return retVal;
+	}
+
 	public String getResourceName() {
 		return resourceName;
 	}
@@ -74,12 +117,23 @@ public class ResourceBinding {
 		return methods;
 	}
 
+	/**
+	 * Sets the method bindings for this resource. Note that if the list is later
+	 * modified directly, the new bindings may not be considered for request shapes
+	 * which have already been seen; use {@link #addMethod(BaseMethodBinding)} instead.
+	 */
 	public void setMethods(List<BaseMethodBinding<?>> methods) {
 		this.methods = methods;
+		myDispatchCache.clear();
 	}
 
 	public void addMethod(BaseMethodBinding<?> method) {
 		this.methods.add(method);
+		myDispatchCache.clear();
+	}
+
+	int getDispatchCacheSize() {
+		return myDispatchCache.size();
 	}
 
 	@Override
@@ -94,4 +148,71 @@ public class ResourceBinding {
 		return 0;
 	}
 
+	/**
+	 * The parts of a request which method bindings use to decide whether they
+	 * could handle it, i.e. everything but the request parameters
+	 */
+	private static final class DispatchKey {
+
+		private final String myCompartmentName;
+		private final int myHashCode;
+		private final int myIdState;
+		private final String myOperation;
+		private final RequestTypeEnum myRequestType;
+		private final String myResourceName;
+		private final String mySecondaryOperation;
+
+		public DispatchKey(RequestDetails theRequest) {
+			myRequestType = theRequest.getRequestType();
+			myResourceName = theRequest.getResourceName();
+			myOperation = theRequest.getOperation();
+			mySecondaryOperation = theRequest.getSecondaryOperation();
+			myCompartmentName = theRequest.getCompartmentName();
+
+			IIdType id = theRequest.getId();
+			if (id == null) {
+				myIdState = 0;
+			} else if (id.isEmpty()) {
+				myIdState = 1;
+			} else if (id.hasVersionIdPart()) {
+				myIdState = 2;
+			} else {
+				myIdState = 3;
+			}
+
+			int hashCode = 1;
+			hashCode = 31 * hashCode + (myRequestType != null ? myRequestType.hashCode() : 0);
+			hashCode = 31 * hashCode + (myResourceName != null ? myResourceName.hashCode() : 0);
+			hashCode = 31 * hashCode + (myOperation != null ? myOperation.hashCode() : 0);
+			hashCode = 31 * hashCode + (mySecondaryOperation != null ? mySecondaryOperation.hashCode() : 0);
+			hashCode = 31 * hashCode + (myCompartmentName != null ? myCompartmentName.hashCode() : 0);
+			hashCode = 31 * hashCode + myIdState;
+			myHashCode = hashCode;
+		}
+
+		@Override
+		public boolean equals(Object theObj) {
+			if (this == theObj) {
+				return true;
+			}
+			if (!(theObj instanceof DispatchKey)) {
+				return false;
+			}
+			DispatchKey other = (DispatchKey) theObj;
+			return myHashCode == other.myHashCode
+					&& myRequestType == other.myRequestType
+					&& myIdState == other.myIdState
+					&& StringUtils.equals(myResourceName, other.myResourceName)
+					&& StringUtils.equals(myOperation, other.myOperation)
+					&& StringUtils.equals(mySecondaryOperation, other.mySecondaryOperation)
+					&& StringUtils.equals(myCompartmentName, other.myCompartmentName);
+		}
+
+		@Override
+		public int hashCode() {
+			return myHashCode;
+		}
+
+	}
+
 }
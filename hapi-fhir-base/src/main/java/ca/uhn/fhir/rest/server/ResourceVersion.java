@@ -0,0 +1,55 @@
+package ca.uhn.fhir.rest.server;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Date;
+
+/**
+ * The version ID and last updated time of a resource, as returned by
+ * {@link IResourceVersionProvider#getResourceVersion(org.hl7.fhir.instance.model.api.IIdType, ca.uhn.fhir.rest.method.RequestDetails)}
+ */
+public class ResourceVersion {
+
+	private final Date myLastUpdated;
+	private final String myVersionId;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param theVersionId
+	 *           The version ID (may be <code>null</code> if not known)
+	 * @param theLastUpdated
+	 *           The last updated time (may be <code>null</code> if not known)
+	 */
+	public ResourceVersion(String theVersionId, Date theLastUpdated) {
+		myVersionId = theVersionId;
+		myLastUpdated = theLastUpdated;
+	}
+
+	public Date getLastUpdated() {
+		return myLastUpdated;
+	}
+
+	public String getVersionId() {
+		return myVersionId;
+	}
+
+}
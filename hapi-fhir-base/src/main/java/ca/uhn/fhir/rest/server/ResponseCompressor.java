@@ -0,0 +1,457 @@
+package ca.uhn.fhir.rest.server;
+
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.lang3.Validate;
+
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.method.RequestDetails;
+
+/**
+ * Compresses server responses for clients which indicate support for it using an <code>Accept-Encoding</code> header.
+ * The <code>gzip</code> and <code>deflate</code> content codings are supported.
+ * <p>
+ * Responses smaller than the {@link #setMinimumSize(int) minimum size} are sent uncompressed, since compressing them
+ * costs CPU time while saving very few bytes. Optionally, compressed representations of responses which are requested
+ * over and over again without changing (see {@link #isCacheable(RequestDetails)}) can be kept in a
+ * {@link #setCacheSize(int) cache}, so that they only need to be compressed once.
+ * </p>
+ * <p>
+ * Counters of the number of bytes passed in and out of the compressor are kept, and may be read at any time in order to
+ * monitor the compression ratio which is being achieved.
+ * </p>
+ * 
+ * @see RestfulServer#setResponseCompressor(ResponseCompressor)
+ */
+public class ResponseCompressor {
+
+	/**
+	 * Default value for {@link #setMinimumSize(int)}: 0 (compress all responses)
+	 */
+	public static final int DEFAULT_MINIMUM_SIZE = 0;
+
+	public static final String ENCODING_DEFLATE = "deflate";
+
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ResponseCompressor.class);
+
+	private final AtomicLong myBytesIn = new AtomicLong();
+	private final AtomicLong myBytesOut = new AtomicLong();
+	private Map<String, byte[]> myCache;
+	private final AtomicLong myCacheHitCount = new AtomicLong();
+	private int myCacheSize;
+	private final AtomicLong myCompressedResponseCount = new AtomicLong();
+	private int myCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+	private boolean myDeflateEnabled = true;
+	private int myMinimumSize = DEFAULT_MINIMUM_SIZE;
+
+	private byte[] compress(byte[] theBytes, String theEncoding) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(theBytes.length / 4 + 64);
+		OutputStream os = newCompressingStream(bos, theEncoding);
+		os.write(theBytes);
+		os.close();
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Returns the total number of uncompressed bytes in responses which have been compressed
+	 */
+	public long getBytesIn() {
+		return myBytesIn.get();
+	}
+
+	/**
+	 * Returns the total number of compressed bytes which have been written
+	 */
+	public long getBytesOut() {
+		return myBytesOut.get();
+	}
+
+	/**
+	 * Returns the number of compressed responses which were served from the cache
+	 */
+	public long getCacheHitCount() {
+		return myCacheHitCount.get();
+	}
+
+	/**
+	 * Returns the maximum number of compressed responses to cache
+	 * 
+	 * @see #setCacheSize(int)
+	 */
+	public int getCacheSize() {
+		return myCacheSize;
+	}
+
+	/**
+	 * Returns the number of responses which have been compressed
+	 */
+	public long getCompressedResponseCount() {
+		return myCompressedResponseCount.get();
+	}
+
+	/**
+	 * Returns the compression level (0-9, or -1 for the default level)
+	 */
+	public int getCompressionLevel() {
+		return myCompressionLevel;
+	}
+
+	/**
+	 * Returns the minimum size (in bytes) of a response before it is compressed
+	 */
+	public int getMinimumSize() {
+		return myMinimumSize;
+	}
+
+	/**
+	 * Should the compressed representation of the response to the given request be cached? The cache is keyed on a
+	 * digest of the uncompressed bytes, so caching never causes an incorrect response to be served, but only responses
+	 * which are likely to be requested repeatedly without changing should be cached in order to make good use of it.
+	 * <p>
+	 * By default, only responses to reads of a specific version (vread) and responses to reads of StructureDefinition
+	 * resources are cached. Other responses, and search results in particular, are rarely requested twice with exactly
+	 * the same content and would only push useful entries out of the cache. Subclasses may override this method in
+	 * order to change this.
+	 * </p>
+	 */
+	protected boolean isCacheable(RequestDetails theRequest) {
+		RestOperationTypeEnum operationType = theRequest.getRestOperationType();
+		if (operationType == RestOperationTypeEnum.VREAD) {
+			return true;
+		}
+		if (operationType != RestOperationTypeEnum.READ) {
+			return false;
+		}
+		if (theRequest.getId() != null && theRequest.getId().hasVersionIdPart()) {
+			return true;
+		}
+		return "StructureDefinition".equals(theRequest.getResourceName());
+	}
+
+	/**
+	 * Should the <code>deflate</code> content coding be offered to clients (default is <code>true</code>)
+	 */
+	public boolean isDeflateEnabled() {
+		return myDeflateEnabled;
+	}
+
+	/**
+	 * Selects the content coding to use for a response, based on the value of the request's <code>Accept-Encoding</code>
+	 * header
+	 * 
+	 * @return {@link Constants#ENCODING_GZIP}, {@link #ENCODING_DEFLATE}, or <code>null</code> if the response should
+	 *         not be compressed
+	 */
+	public String negotiateContentEncoding(String theAcceptEncoding) {
+		if (theAcceptEncoding == null) {
+			return null;
+		}
+
+		double gzipQuality = 0;
+		double deflateQuality = 0;
+		double wildcardQuality = 0;
+		for (String next : theAcceptEncoding.split(",")) {
+			String coding = next.trim();
+			double quality = 1;
+			int semicolonIdx = coding.indexOf(';');
+			if (semicolonIdx != -1) {
+				String params = coding.substring(semicolonIdx + 1).trim();
+				coding = coding.substring(0, semicolonIdx).trim();
+				if (params.startsWith("q=")) {
+					try {
+						quality = Double.parseDouble(params.substring(2).trim());
+					} catch (NumberFormatException e) {
+						ourLog.debug("Invalid quality value in {} header: {}", Constants.HEADER_ACCEPT_ENCODING, theAcceptEncoding);
+						quality = 0;
+					}
+				}
+			}
+
+			if (Constants.ENCODING_GZIP.equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+				gzipQuality = quality;
+			} else if (ENCODING_DEFLATE.equalsIgnoreCase(coding)) {
+				deflateQuality = quality;
+			} else if ("*".equals(coding)) {
+				wildcardQuality = quality;
+			}
+		}
+
+		if (gzipQuality == 0 && deflateQuality == 0) {
+			gzipQuality = wildcardQuality;
+		}
+		if (!myDeflateEnabled) {
+			deflateQuality = 0;
+		}
+
+		if (gzipQuality > 0 && gzipQuality >= deflateQuality) {
+			return Constants.ENCODING_GZIP;
+		}
+		if (deflateQuality > 0) {
+			return ENCODING_DEFLATE;
+		}
+		return null;
+	}
+
+	private OutputStream newCompressingStream(OutputStream theOutputStream, String theEncoding) throws IOException {
+		if (ENCODING_DEFLATE.equals(theEncoding)) {
+			final Deflater deflater = new Deflater(myCompressionLevel);
+			return new DeflaterOutputStream(theOutputStream, deflater) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						deflater.end();
+					}
+				}
+			};
+		}
+
+		final int level = myCompressionLevel;
+		return new GZIPOutputStream(theOutputStream) {
+			{
+				def.setLevel(level);
+			}
+		};
+	}
+
+	/**
+	 * Creates a stream which writes the response body to the given servlet response, compressing it using the given
+	 * content coding if it turns out to be large enough. A <code>Vary: Accept-Encoding</code> header is always added to
+	 * the response, and the appropriate <code>Content-Encoding</code> header is added if the body is compressed. The
+	 * stream must be closed once the entire body has been written.
+	 * 
+	 * @param theRequest
+	 *           The request being responded to
+	 * @param theResponse
+	 *           The servlet response
+	 * @param theEncoding
+	 *           The content coding, as returned by {@link #negotiateContentEncoding(String)}
+	 */
+	public OutputStream newOutputStream(RequestDetails theRequest, HttpServletResponse theResponse, String theEncoding) {
+		Validate.notBlank(theEncoding, "theEncoding must not be blank");
+		boolean cacheable = myCacheSize > 0 && isCacheable(theRequest);
+		return new CompressingOutputStream(theResponse, theEncoding, cacheable);
+	}
+
+	/**
+	 * Resets the byte and response counters to zero
+	 */
+	public void resetCounters() {
+		myBytesIn.set(0);
+		myBytesOut.set(0);
+		myCacheHitCount.set(0);
+		myCompressedResponseCount.set(0);
+	}
+
+	/**
+	 * Sets the maximum number of compressed responses to keep in the cache. When the cache is full, the least recently
+	 * used entry is discarded. The default is 0, which disables the cache.
+	 * 
+	 * @see #isCacheable(RequestDetails)
+	 */
+	public synchronized void setCacheSize(final int theCacheSize) {
+		Validate.isTrue(theCacheSize >= 0, "theCacheSize must not be negative");
+		myCacheSize = theCacheSize;
+		if (theCacheSize > 0) {
+			myCache = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, byte[]> theEldest) {
+					return size() > theCacheSize;
+				}
+			};
+		} else {
+			myCache = null;
+		}
+	}
+
+	/**
+	 * Sets the compression level, from 0 (no compression) to 9 (best compression), or -1 to use the default level of the
+	 * underlying compressor. Higher levels produce smaller responses, at the cost of more CPU time. Changing this setting
+	 * discards any cached responses.
+	 */
+	public synchronized void setCompressionLevel(int theCompressionLevel) {
+		Validate.isTrue(theCompressionLevel >= -1 && theCompressionLevel <= 9, "theCompressionLevel must be between -1 and 9");
+		myCompressionLevel = theCompressionLevel;
+		if (myCache != null) {
+			myCache.clear();
+		}
+	}
+
+	/**
+	 * Should the <code>deflate</code> content coding be offered to clients (default is <code>true</code>). If set to
+	 * <code>false</code>, only <code>gzip</code> is used.
+	 */
+	public void setDeflateEnabled(boolean theDeflateEnabled) {
+		myDeflateEnabled = theDeflateEnabled;
+	}
+
+	/**
+	 * Sets the minimum size (in bytes) of a response before it is compressed. Smaller responses are sent uncompressed. The
+	 * default is {@link #DEFAULT_MINIMUM_SIZE}.
+	 */
+	public void setMinimumSize(int theMinimumSize) {
+		Validate.isTrue(theMinimumSize >= 0, "theMinimumSize must not be negative");
+		myMinimumSize = theMinimumSize;
+	}
+
+	private class CompressingOutputStream extends OutputStream {
+
+		private ByteArrayOutputStream myBuffer = new ByteArrayOutputStream();
+		private final boolean myCacheable;
+		private boolean myClosed;
+		private CountingOutputStream myCountingStream;
+		private final String myEncoding;
+		private final HttpServletResponse myResponse;
+		private OutputStream myTarget;
+		private long myUncompressedCount;
+
+		public CompressingOutputStream(HttpServletResponse theResponse, String theEncoding, boolean theCacheable) {
+			myResponse = theResponse;
+			myEncoding = theEncoding;
+			myCacheable = theCacheable;
+
+			// Whether or not this body ends up compressed, the response depends on Accept-Encoding
+			myResponse.addHeader(Constants.HEADER_VARY, Constants.HEADER_ACCEPT_ENCODING);
+		}
+
+		private void addCompressionHeaders() {
+			myResponse.addHeader(Constants.HEADER_CONTENT_ENCODING, myEncoding);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (myClosed) {
+				return;
+			}
+			myClosed = true;
+
+			if (myTarget != null) {
+				myTarget.close();
+				recordCompressed(myUncompressedCount, myCountingStream.getByteCount());
+				return;
+			}
+
+			byte[] bytes = myBuffer.toByteArray();
+			myBuffer = null;
+			if (bytes.length < myMinimumSize) {
+				myResponse.setContentLength(bytes.length);
+				OutputStream os = myResponse.getOutputStream();
+				os.write(bytes);
+				os.close();
+				return;
+			}
+
+			byte[] compressed = null;
+			String key = null;
+			if (myCacheable) {
+				key = myEncoding + '/' + myCompressionLevel + '/' + DigestUtils.sha1Hex(bytes);
+				synchronized (ResponseCompressor.this) {
+					if (myCache != null) {
+						compressed = myCache.get(key);
+					}
+				}
+				if (compressed != null) {
+					myCacheHitCount.incrementAndGet();
+				}
+			}
+			if (compressed == null) {
+				compressed = compress(bytes, myEncoding);
+				if (key != null) {
+					synchronized (ResponseCompressor.this) {
+						if (myCache != null) {
+							myCache.put(key, compressed);
+						}
+					}
+				}
+			}
+
+			addCompressionHeaders();
+			myResponse.setContentLength(compressed.length);
+			OutputStream os = myResponse.getOutputStream();
+			os.write(compressed);
+			os.close();
+			recordCompressed(bytes.length, compressed.length);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			// Buffered content is only written once we know whether it should be compressed
+			if (myTarget != null) {
+				myTarget.flush();
+			}
+		}
+
+		private void recordCompressed(long theBytesIn, long theBytesOut) {
+			myBytesIn.addAndGet(theBytesIn);
+			myBytesOut.addAndGet(theBytesOut);
+			myCompressedResponseCount.incrementAndGet();
+			ourLog.trace("Compressed response from {} to {} bytes using {}", new Object[] { theBytesIn, theBytesOut, myEncoding });
+		}
+
+		private void startCompressing() throws IOException {
+			addCompressionHeaders();
+			myCountingStream = new CountingOutputStream(myResponse.getOutputStream());
+			myTarget = newCompressingStream(myCountingStream, myEncoding);
+			myBuffer.writeTo(myTarget);
+			myBuffer = null;
+		}
+
+		@Override
+		public void write(byte[] theBytes, int theOffset, int theLength) throws IOException {
+			if (myClosed) {
+				throw new IOException("Stream is closed");
+			}
+			myUncompressedCount += theLength;
+			if (myTarget != null) {
+				myTarget.write(theBytes, theOffset, theLength);
+				return;
+			}
+			myBuffer.write(theBytes, theOffset, theLength);
+			if (!myCacheable && myBuffer.size() >= myMinimumSize) {
+				startCompressing();
+			}
+		}
+
+		@Override
+		public void write(int theByte) throws IOException {
+			write(new byte[] { (byte) theByte }, 0, 1);
+		}
+
+	}
+
+}
@@ -37,10 +37,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.jar.Manifest;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.UnavailableException;
 import javax.servlet.http.HttpServlet;
@@ -89,6 +92,17 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 	 */
 	public static final ETagSupportEnum DEFAULT_ETAG_SUPPORT = ETagSupportEnum.ENABLED;
 
+	/**
+	 * Default setting for {@link #setAsyncTimeout(long) the asynchronous request timeout}: 0 (no timeout)
+	 */
+	public static final long DEFAULT_ASYNC_TIMEOUT = 0;
+
+	/**
+	 * Default setting for {@link #setConformanceCacheMillis(long) the conformance statement cache duration}: 0 (the
+	 * conformance statement is not cached)
+	 */
+	public static final long DEFAULT_CONFORMANCE_CACHE_MILLIS = 0;
+
 	private static final ExceptionHandlingInterceptor DEFAULT_EXCEPTION_HANDLER = new ExceptionHandlingInterceptor();
 
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(RestfulServer.class);
@@ -98,7 +112,11 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 	 * context, in order to avoid a dependency on Servlet-API 3.0+
 	 */
 	public static final String SERVLET_CONTEXT_ATTRIBUTE = "ca.uhn.fhir.rest.server.RestfulServer.servlet_context";
+	private Executor myAsyncExecutor;
+	private long myAsyncTimeout = DEFAULT_ASYNC_TIMEOUT;
+	private boolean myAsyncUnsupportedWarningLogged;
 	private BundleInclusionRule myBundleInclusionRule = BundleInclusionRule.BASED_ON_INCLUDES;
+	private long myConformanceCacheMillis = DEFAULT_CONFORMANCE_CACHE_MILLIS;
 	private boolean myDefaultPrettyPrint = false;
 	private EncodingEnum myDefaultResponseEncoding = EncodingEnum.XML;
 	private ETagSupportEnum myETagSupport = DEFAULT_ETAG_SUPPORT;
@@ -109,16 +127,20 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 	private IPagingProvider myPagingProvider;
 	private final List<Object> myPlainProviders = new ArrayList<Object>();
 	private Lock myProviderRegistrationMutex = new ReentrantLock();
+	private IRequestMetricsSink myRequestMetricsSink;
 	private Map<String, ResourceBinding> myResourceNameToBinding = new HashMap<String, ResourceBinding>();
 	private final List<IResourceProvider> myResourceProviders = new ArrayList<IResourceProvider>();
 	private IServerAddressStrategy myServerAddressStrategy = new IncomingRequestAddressStrategy();
 	private ResourceBinding myServerBinding = new ResourceBinding();
 	private BaseMethodBinding<?> myServerConformanceMethod;
 	private Object myServerConformanceProvider;
+	private ResponseCompressor myResponseCompressor = new ResponseCompressor();
 	private String myServerName = "HAPI FHIR Server";
+	private boolean myServerTimingHeaderEnabled;
 	/** This is configurable but by default we just use HAPI version */
 	private String myServerVersion = VersionUtil.getVersion();
 	private boolean myStarted;
+	private boolean myStreamRequestContents;
 	private Map<String, IResourceProvider> myTypeToProvider = new HashMap<String, IResourceProvider>();
 	private boolean myUncompressIncomingContents = true;
 	private boolean myUseBrowserFriendlyContentTypes;
@@ -265,29 +287,63 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		return resourceMethod;
 	}
 
+	/**
+	 * Hands the request to {@link #handleRequest(RequestTypeEnum, HttpServletRequest, HttpServletResponse)}, either
+	 * directly or, if an {@link #setAsyncExecutor(Executor) async executor} has been configured, on a thread of that
+	 * executor
+	 */
+	private void dispatchRequest(RequestTypeEnum theRequestType, HttpServletRequest theRequest, HttpServletResponse theResponse) throws ServletException, IOException {
+		Executor asyncExecutor = myAsyncExecutor;
+		if (asyncExecutor == null) {
+			handleRequest(theRequestType, theRequest, theResponse);
+			return;
+		}
+
+		if (!theRequest.isAsyncSupported()) {
+			if (!myAsyncUnsupportedWarningLogged) {
+				ourLog.warn("An async executor is configured but the servlet container does not support asynchronous processing for this servlet (is async-supported enabled in the servlet configuration?), processing requests synchronously");
+				myAsyncUnsupportedWarningLogged = true;
+			}
+			handleRequest(theRequestType, theRequest, theResponse);
+			return;
+		}
+
+		AsyncContext asyncContext = theRequest.startAsync(theRequest, theResponse);
+		asyncContext.setTimeout(myAsyncTimeout);
+		AsyncRequestHandler handler = new AsyncRequestHandler(this, theRequestType, theRequest, theResponse, asyncContext);
+		asyncContext.addListener(handler);
+		try {
+			asyncExecutor.execute(handler);
+		} catch (RejectedExecutionException e) {
+			ourLog.warn("Async executor rejected request, responding with HTTP 503: {}", e.toString());
+			theResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			asyncContext.complete();
+		}
+	}
+
 	@Override
 	protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		handleRequest(RequestTypeEnum.DELETE, request, response);
+		dispatchRequest(RequestTypeEnum.DELETE, request, response);
 	}
 
 	@Override
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		handleRequest(RequestTypeEnum.GET, request, response);
+		dispatchRequest(RequestTypeEnum.GET, request, response);
 	}
 
 	@Override
 	protected void doOptions(HttpServletRequest theReq, HttpServletResponse theResp) throws ServletException, IOException {
-		handleRequest(RequestTypeEnum.OPTIONS, theReq, theResp);
+		dispatchRequest(RequestTypeEnum.OPTIONS, theReq, theResp);
 	}
 
 	@Override
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		handleRequest(RequestTypeEnum.POST, request, response);
+		dispatchRequest(RequestTypeEnum.POST, request, response);
 	}
 
 	@Override
 	protected void doPut(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		handleRequest(RequestTypeEnum.PUT, request, response);
+		dispatchRequest(RequestTypeEnum.PUT, request, response);
 	}
 
 	/**
@@ -335,6 +391,7 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 			count++;
 
 			if (foundMethodBinding instanceof ConformanceMethodBinding) {
+				((ConformanceMethodBinding) foundMethodBinding).setResponseCacheMillis(myConformanceCacheMillis);
 				myServerConformanceMethod = foundMethodBinding;
 				continue;
 			}
@@ -395,11 +452,39 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		return myFhirContext.getAddProfileTagWhenEncoding();
 	}
 
+	/**
+	 * Returns the executor used to process requests asynchronously, or <code>null</code> (the default) if requests are
+	 * processed synchronously on the container thread
+	 * 
+	 * @see #setAsyncExecutor(Executor)
+	 */
+	public Executor getAsyncExecutor() {
+		return myAsyncExecutor;
+	}
+
+	/**
+	 * Returns the timeout in milliseconds applied to requests which are processed asynchronously
+	 * 
+	 * @see #setAsyncTimeout(long)
+	 */
+	public long getAsyncTimeout() {
+		return myAsyncTimeout;
+	}
+
 	@Override
 	public BundleInclusionRule getBundleInclusionRule() {
 		return myBundleInclusionRule;
 	}
 
+	/**
+	 * Returns the number of milliseconds for which the encoded conformance statement is reused
+	 * 
+	 * @see #setConformanceCacheMillis(long)
+	 */
+	public long getConformanceCacheMillis() {
+		return myConformanceCacheMillis;
+	}
+
 	/**
 	 * Returns the default encoding to return (XML/JSON) if an incoming request does not specify a preference (either
 	 * with the <code>_format</code> URL parameter, or with an <code>Accept</code> header
@@ -415,6 +500,24 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		return myETagSupport;
 	}
 
+	/**
+	 * Returns the sink which receives the metrics collected for each request, or <code>null</code> if none
+	 * 
+	 * @see #setRequestMetricsSink(IRequestMetricsSink)
+	 */
+	public IRequestMetricsSink getRequestMetricsSink() {
+		return myRequestMetricsSink;
+	}
+
+	/**
+	 * Returns the compressor used to compress responses, or <code>null</code> if responses are never compressed
+	 * 
+	 * @see #setResponseCompressor(ResponseCompressor)
+	 */
+	public ResponseCompressor getResponseCompressor() {
+		return myResponseCompressor;
+	}
+
 	/**
 	 * Gets the {@link FhirContext} associated with this server. For efficient processing, resource providers and plain
 	 * providers should generally use this context if one is needed, as opposed to
@@ -553,124 +656,142 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		requestDetails.setServletRequest(theRequest);
 		requestDetails.setServletResponse(theResponse);
 
+		RequestMetrics metrics = null;
+		if (myRequestMetricsSink != null || myServerTimingHeaderEnabled) {
+			metrics = new RequestMetrics();
+			requestDetails.setMetrics(metrics);
+			RequestMetrics.setCurrent(metrics);
+		}
+
 		theRequest.setAttribute(SERVLET_CONTEXT_ATTRIBUTE, getServletContext());
 
 		try {
 
-			for (IServerInterceptor next : myInterceptors) {
-				boolean continueProcessing = next.incomingRequestPreProcessed(theRequest, theResponse);
-				if (!continueProcessing) {
-					ourLog.debug("Interceptor {} returned false, not continuing processing");
-					return;
+			RequestMetrics.Timer interceptorTimer = requestDetails.getMetrics().startTimer(RequestMetrics.PHASE_INTERCEPTORS);
+			try {
+				for (IServerInterceptor next : myInterceptors) {
+					boolean continueProcessing = next.incomingRequestPreProcessed(theRequest, theResponse);
+					if (!continueProcessing) {
+						ourLog.debug("Interceptor {} returned false, not continuing processing");
+						return;
+					}
 				}
+			} finally {
+				interceptorTimer.stop();
 			}
 
-			String requestFullPath = StringUtils.defaultString(theRequest.getRequestURI());
-			String servletPath = StringUtils.defaultString(theRequest.getServletPath());
-			StringBuffer requestUrl = theRequest.getRequestURL();
-			String servletContextPath = IncomingRequestAddressStrategy.determineServletContextPath(theRequest, this);
-
-			/*
-			 * Just for debugging..
-			 */
-			if (ourLog.isTraceEnabled()) {
-				ourLog.trace("Request FullPath: {}", requestFullPath);
-				ourLog.trace("Servlet Path: {}", servletPath);
-				ourLog.trace("Request Url: {}", requestUrl);
-				ourLog.trace("Context Path: {}", servletContextPath);
-			}
+			BaseMethodBinding<?> resourceMethod;
+			RequestMetrics.Timer parseTimer = requestDetails.getMetrics().startTimer(RequestMetrics.PHASE_PARSE);
+			try {
+				String requestFullPath = StringUtils.defaultString(theRequest.getRequestURI());
+				String servletPath = StringUtils.defaultString(theRequest.getServletPath());
+				StringBuffer requestUrl = theRequest.getRequestURL();
+				String servletContextPath = IncomingRequestAddressStrategy.determineServletContextPath(theRequest, this);
 
-			String requestPath = getRequestPath(requestFullPath, servletContextPath, servletPath);
+				/*
+				 * Just for debugging..
+				 */
+				if (ourLog.isTraceEnabled()) {
+					ourLog.trace("Request FullPath: {}", requestFullPath);
+					ourLog.trace("Servlet Path: {}", servletPath);
+					ourLog.trace("Request Url: {}", requestUrl);
+					ourLog.trace("Context Path: {}", servletContextPath);
+				}
 
-			if (requestPath.length() > 0 && requestPath.charAt(0) == '/') {
-				requestPath = requestPath.substring(1);
-			}
+				String requestPath = getRequestPath(requestFullPath, servletContextPath, servletPath);
 
-			fhirServerBase = getServerBaseForRequest(theRequest);
+				if (requestPath.length() > 0 && requestPath.charAt(0) == '/') {
+					requestPath = requestPath.substring(1);
+				}
 
-			String completeUrl;
-			Map<String, String[]> params = null;
-			if (StringUtils.isNotBlank(theRequest.getQueryString())) {
-				completeUrl = requestUrl + "?" + theRequest.getQueryString();
-				/*
-				 * By default, we manually parse the request params (the URL params, or the body for
-				 * POST form queries) since Java containers can't be trusted to use UTF-8 encoding
-				 * when parsing. Specifically Tomcat 7 and Glassfish 4.0 use 8859-1 for some dumb
-				 * reason.... grr.....
-				 */
-				if (isIgnoreServerParsedRequestParameters()) {
-					String contentType = theRequest.getHeader(Constants.HEADER_CONTENT_TYPE);
-					if (theRequestType == RequestTypeEnum.POST && isNotBlank(contentType) && contentType.startsWith(Constants.CT_X_FORM_URLENCODED)) {
-						String requestBody = new String(requestDetails.loadRequestContents(), Charsets.UTF_8);
-						params = UrlUtil.parseQueryStrings(theRequest.getQueryString(), requestBody);
-					} else if (theRequestType == RequestTypeEnum.GET) {
-						params = UrlUtil.parseQueryString(theRequest.getQueryString());
+				fhirServerBase = getServerBaseForRequest(theRequest);
+
+				String completeUrl;
+				Map<String, String[]> params = null;
+				if (StringUtils.isNotBlank(theRequest.getQueryString())) {
+					completeUrl = requestUrl + "?" + theRequest.getQueryString();
+					/*
+					 * By default, we manually parse the request params (the URL params, or the body for
+					 * POST form queries) since Java containers can't be trusted to use UTF-8 encoding
+					 * when parsing. Specifically Tomcat 7 and Glassfish 4.0 use 8859-1 for some dumb
+					 * reason.... grr.....
+					 */
+					if (isIgnoreServerParsedRequestParameters()) {
+						String contentType = theRequest.getHeader(Constants.HEADER_CONTENT_TYPE);
+						if (theRequestType == RequestTypeEnum.POST && isNotBlank(contentType) && contentType.startsWith(Constants.CT_X_FORM_URLENCODED)) {
+							String requestBody = new String(requestDetails.loadRequestContents(), Charsets.UTF_8);
+							params = UrlUtil.parseQueryStrings(theRequest.getQueryString(), requestBody);
+						} else if (theRequestType == RequestTypeEnum.GET) {
+							params = UrlUtil.parseQueryString(theRequest.getQueryString());
+						}
 					}
+				} else {
+					completeUrl = requestUrl.toString();
 				}
-			} else {
-				completeUrl = requestUrl.toString();
-			}
 
-			if (params == null) {
-				params = new HashMap<String, String[]>(theRequest.getParameterMap());
-			}
+				if (params == null) {
+					params = new HashMap<String, String[]>(theRequest.getParameterMap());
+				}
 
-			requestDetails.setParameters(params);
+				requestDetails.setParameters(params);
 
-			IIdType id;
-			populateRequestDetailsFromRequestPath(requestDetails, requestPath);
+				IIdType id;
+				populateRequestDetailsFromRequestPath(requestDetails, requestPath);
 
-			if (theRequestType == RequestTypeEnum.PUT) {
-				String contentLocation = theRequest.getHeader(Constants.HEADER_CONTENT_LOCATION);
-				if (contentLocation != null) {
-					id = myFhirContext.getVersion().newIdType();
-					id.setValue(contentLocation);
-					requestDetails.setId(id);
+				if (theRequestType == RequestTypeEnum.PUT) {
+					String contentLocation = theRequest.getHeader(Constants.HEADER_CONTENT_LOCATION);
+					if (contentLocation != null) {
+						id = myFhirContext.getVersion().newIdType();
+						id.setValue(contentLocation);
+						requestDetails.setId(id);
+					}
 				}
-			}
 
-			String acceptEncoding = theRequest.getHeader(Constants.HEADER_ACCEPT_ENCODING);
-			boolean respondGzip = false;
-			if (acceptEncoding != null) {
-				String[] parts = acceptEncoding.trim().split("\\s*,\\s*");
-				for (String string : parts) {
-					if (string.equals("gzip")) {
-						respondGzip = true;
-					}
+				boolean respondGzip = false;
+				if (myResponseCompressor != null) {
+					String acceptEncoding = theRequest.getHeader(Constants.HEADER_ACCEPT_ENCODING);
+					respondGzip = myResponseCompressor.negotiateContentEncoding(acceptEncoding) != null;
 				}
+				requestDetails.setRespondGzip(respondGzip);
+				requestDetails.setRequestPath(requestPath);
+				requestDetails.setFhirServerBase(fhirServerBase);
+				requestDetails.setCompleteUrl(completeUrl);
+
+				// String pagingAction = theRequest.getParameter(Constants.PARAM_PAGINGACTION);
+				// if (getPagingProvider() != null && isNotBlank(pagingAction)) {
+				// requestDetails.setRestOperationType(RestOperationTypeEnum.GET_PAGE);
+				// if (theRequestType != RequestTypeEnum.GET) {
+				// /*
+				// * We reconstruct the link-self URL using the request parameters, and this would break if the parameters came
+				// in using a POST. We could probably work around that but why bother unless
+				// * someone comes up with a reason for needing it.
+				// */
+				// throw new InvalidRequestException(getFhirContext().getLocalizer().getMessage(RestfulServer.class,
+				// "getPagesNonHttpGet"));
+				// }
+				// handlePagingRequest(requestDetails, theResponse, pagingAction);
+				// return;
+				// }
+
+				resourceMethod = determineResourceMethod(requestDetails, requestPath);
+
+				requestDetails.setRestOperationType(resourceMethod.getRestOperationType());
+			} finally {
+				parseTimer.stop();
 			}
-			requestDetails.setRespondGzip(respondGzip);
-			requestDetails.setRequestPath(requestPath);
-			requestDetails.setFhirServerBase(fhirServerBase);
-			requestDetails.setCompleteUrl(completeUrl);
-
-			// String pagingAction = theRequest.getParameter(Constants.PARAM_PAGINGACTION);
-			// if (getPagingProvider() != null && isNotBlank(pagingAction)) {
-			// requestDetails.setRestOperationType(RestOperationTypeEnum.GET_PAGE);
-			// if (theRequestType != RequestTypeEnum.GET) {
-			// /*
-			// * We reconstruct the link-self URL using the request parameters, and this would break if the parameters came
-			// in using a POST. We could probably work around that but why bother unless
-			// * someone comes up with a reason for needing it.
-			// */
-			// throw new InvalidRequestException(getFhirContext().getLocalizer().getMessage(RestfulServer.class,
-			// "getPagesNonHttpGet"));
-			// }
-			// handlePagingRequest(requestDetails, theResponse, pagingAction);
-			// return;
-			// }
-
-			BaseMethodBinding<?> resourceMethod = determineResourceMethod(requestDetails, requestPath);
-
-			requestDetails.setRestOperationType(resourceMethod.getRestOperationType());
 
 			// Handle server interceptors
-			for (IServerInterceptor next : myInterceptors) {
-				boolean continueProcessing = next.incomingRequestPostProcessed(requestDetails, theRequest, theResponse);
-				if (!continueProcessing) {
-					ourLog.debug("Interceptor {} returned false, not continuing processing");
-					return;
+			interceptorTimer = requestDetails.getMetrics().startTimer(RequestMetrics.PHASE_INTERCEPTORS);
+			try {
+				for (IServerInterceptor next : myInterceptors) {
+					boolean continueProcessing = next.incomingRequestPostProcessed(requestDetails, theRequest, theResponse);
+					if (!continueProcessing) {
+						ourLog.debug("Interceptor {} returned false, not continuing processing");
+						return;
+					}
 				}
+			} finally {
+				interceptorTimer.stop();
 			}
 
 			/*
@@ -757,6 +878,17 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 			 */
 			DEFAULT_EXCEPTION_HANDLER.handleException(requestDetails, exception, theRequest, theResponse);
 
+		} finally {
+			if (metrics != null) {
+				RequestMetrics.setCurrent(null);
+				if (myRequestMetricsSink != null) {
+					try {
+						myRequestMetricsSink.requestCompleted(requestDetails, metrics);
+					} catch (RuntimeException e) {
+						ourLog.error("Failed to report request metrics", e);
+					}
+				}
+			}
 		}
 	}
 
@@ -924,6 +1056,25 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		return myIgnoreServerParsedRequestParameters;
 	}
 
+	/**
+	 * Should the server add a <code>Server-Timing</code> header to responses (default is <code>false</code>)
+	 * 
+	 * @see #setServerTimingHeaderEnabled(boolean)
+	 */
+	public boolean isServerTimingHeaderEnabled() {
+		return myServerTimingHeaderEnabled;
+	}
+
+	/**
+	 * Should request bodies be parsed as they are read from the client, instead of being loaded into
+	 * memory first (default is <code>false</code>)?
+	 * 
+	 * @see #setStreamRequestContents(boolean)
+	 */
+	public boolean isStreamRequestContents() {
+		return myStreamRequestContents;
+	}
+
 	/**
 	 * Should the server attempt to decompress incoming request contents (default is <code>true</code>). Typically this
 	 * should be set to <code>true</code> unless the server has other configuration to
@@ -1120,6 +1271,13 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 					}
 				}
 			}
+			clearConformanceCache();
+		}
+	}
+
+	private void clearConformanceCache() {
+		if (myServerConformanceMethod instanceof ConformanceMethodBinding) {
+			((ConformanceMethodBinding) myServerConformanceMethod).clearResponseCache();
 		}
 	}
 
@@ -1206,6 +1364,68 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		myFhirContext.setAddProfileTagWhenEncoding(theAddProfileTag);
 	}
 
+	/**
+	 * Offloads request processing to the given executor. If set, incoming requests are put into asynchronous mode
+	 * (using Servlet 3.x <code>startAsync()</code>) and are processed on a thread supplied by the executor, which frees
+	 * container threads while slow requests (e.g. requests waiting on a database) are being processed. The number of
+	 * requests processed at the same time is then bounded by the executor rather than by the container thread pool.
+	 * <p>
+	 * This is not fully non-blocking IO: the request body is read with blocking IO on the executor thread, so a client
+	 * which uploads slowly still holds an executor thread. Only the response is written using non-blocking output.
+	 * </p>
+	 * <p>
+	 * To do so, the complete response body is buffered in memory before the first byte of it is written, so each request
+	 * in flight holds a copy of its whole (possibly compressed) response until the client has received it. Large
+	 * responses (e.g. big search pages or <code>$everything</code> results) therefore cost considerably more heap in this
+	 * mode than when they are streamed synchronously, and the maximum page size should be chosen with that in mind.
+	 * </p>
+	 * <p>
+	 * The servlet must be declared as supporting asynchronous processing
+	 * (<code>&lt;async-supported&gt;true&lt;/async-supported&gt;</code> in web.xml). If the executor rejects a request,
+	 * the client receives an HTTP 503 response.
+	 * </p>
+	 * <p>
+	 * The default is <code>null</code>, meaning that requests are processed synchronously on the container thread.
+	 * </p>
+	 * 
+	 * @param theAsyncExecutor
+	 *           The executor, or <code>null</code> to process requests synchronously
+	 */
+	public void setAsyncExecutor(Executor theAsyncExecutor) {
+		myAsyncExecutor = theAsyncExecutor;
+	}
+
+	/**
+	 * Sets the timeout in milliseconds for requests which are processed asynchronously (see
+	 * {@link #setAsyncExecutor(Executor)}). A value of zero or less means no timeout. The default is
+	 * {@link #DEFAULT_ASYNC_TIMEOUT}. A request which times out receives an HTTP 503 response, and whatever
+	 * its processing produces afterward is discarded.
+	 */
+	public void setAsyncTimeout(long theAsyncTimeout) {
+		myAsyncTimeout = theAsyncTimeout;
+	}
+
+	/**
+	 * Sets the number of milliseconds for which the encoded conformance statement (the response to
+	 * <code>/metadata</code>) is reused. Responses are cached separately for each requested encoding, pretty printing,
+	 * <code>_summary</code>, <code>_elements</code> and server base, and are served with a strong <code>ETag</code> so
+	 * that clients can revalidate them using <code>If-None-Match</code>. The cache is discarded whenever providers are
+	 * registered or unregistered. A value of zero or less disables caching. The default is
+	 * {@link #DEFAULT_CONFORMANCE_CACHE_MILLIS}, so caching must be enabled explicitly.
+	 * <p>
+	 * Note that the response is encoded and cached before interceptors are notified, and interceptors are then
+	 * notified with the resource instance which was originally returned by the conformance provider. Changes an
+	 * interceptor makes to that resource are therefore not reflected in the response, so caching should not be enabled
+	 * if an interceptor needs to modify the conformance statement.
+	 * </p>
+	 */
+	public void setConformanceCacheMillis(long theConformanceCacheMillis) {
+		myConformanceCacheMillis = theConformanceCacheMillis;
+		if (myServerConformanceMethod instanceof ConformanceMethodBinding) {
+			((ConformanceMethodBinding) myServerConformanceMethod).setResponseCacheMillis(theConformanceCacheMillis);
+		}
+	}
+
 	/**
 	 * Set how bundle factory should decide whether referenced resources should be included in bundles
 	 *
@@ -1368,6 +1588,26 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		}
 	}
 
+	/**
+	 * Sets a sink which receives the {@link RequestMetrics timings and counters} collected while processing each request
+	 * (e.g. in order to publish them to a monitoring system). Setting a sink enables the collection of metrics for
+	 * every request, which adds a small amount of overhead. The default is <code>null</code>.
+	 */
+	public void setRequestMetricsSink(IRequestMetricsSink theRequestMetricsSink) {
+		myRequestMetricsSink = theRequestMetricsSink;
+	}
+
+	/**
+	 * Sets the compressor used to compress responses for clients which accept a compressed response (using the
+	 * <code>Accept-Encoding</code> header). This can be used to configure the minimum response size and the compression
+	 * level, to enable caching of compressed responses, and to read compression statistics. Set to <code>null</code> to
+	 * never compress responses (e.g. because compression is handled by the container or a proxy). The default is a
+	 * {@link ResponseCompressor} with default settings.
+	 */
+	public void setResponseCompressor(ResponseCompressor theResponseCompressor) {
+		myResponseCompressor = theResponseCompressor;
+	}
+
 	/**
 	 * Provide a server address strategy, which is used to determine what base URL to provide clients to refer to this
 	 * server. Defaults to an instance of {@link IncomingRequestAddressStrategy}
@@ -1419,6 +1659,17 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		myServerName = theServerName;
 	}
 
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>) the server collects {@link RequestMetrics timings}
+	 * for each request and returns them to the client in a <code>Server-Timing</code> header, where they can be
+	 * viewed using browser developer tools. Because headers are written before the response body, the header only
+	 * contains the phases which were complete at that point (i.e. it does not include the time taken to encode the
+	 * response). Note that this exposes some details of the server's processing to clients.
+	 */
+	public void setServerTimingHeaderEnabled(boolean theServerTimingHeaderEnabled) {
+		myServerTimingHeaderEnabled = theServerTimingHeaderEnabled;
+	}
+
 	/**
 	 * Gets the server's version, as exported in conformance profiles exported by the server. This is informational only,
 	 * but can be helpful to set with something appropriate.
@@ -1427,6 +1678,21 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		myServerVersion = theServerVersion;
 	}
 
+	/**
+	 * Should request bodies be parsed as they are read from the client, instead of being loaded into
+	 * memory first (default is <code>false</code>)? Streaming avoids holding large request bodies (such as
+	 * transaction bundles) in memory before parsing them.
+	 * <p>
+	 * When this is enabled, the body can only be read once. Interceptors which need the raw body must call
+	 * {@link RequestDetails#loadRequestContents()} no later than
+	 * {@link IServerInterceptor#incomingRequestPostProcessed(RequestDetails, HttpServletRequest, HttpServletResponse)},
+	 * since calling it after the body has been parsed throws an {@link IllegalStateException}.
+	 * </p>
+	 */
+	public void setStreamRequestContents(boolean theStreamRequestContents) {
+		myStreamRequestContents = theStreamRequestContents;
+	}
+
 	/**
 	 * Should the server attempt to decompress incoming request contents (default is <code>true</code>). Typically this
 	 * should be set to <code>true</code> unless the server has other configuration to
@@ -1488,6 +1754,7 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 				}
 				invokeDestroy(provider);
 			}
+			clearConformanceCache();
 		}
 	}
 
@@ -156,6 +156,14 @@ public class LoggingInterceptor extends InterceptorAdapter {
 		String line = subs.replace(myMessageFormat);
 		myLogger.info(line);
 
+		/*
+		 * If the server streams request bodies to the parser, the body can't be read
+		 * later, so if the error message might need it we have to keep a copy now
+		 */
+		if (myLogExceptions && StringUtils.contains(myErrorMessageFormat, "${requestBodyFhir}")) {
+			theRequestDetails.loadRequestContents();
+		}
+
 		return true;
 	}
 
@@ -24,6 +24,7 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.Collections;
@@ -59,7 +60,6 @@ public class ServletRequestDetails extends RequestDetails {
 	private RestfulServer myServer;
 	private HttpServletRequest myServletRequest;
 	private HttpServletResponse myServletResponse;
-	private byte[] requestContents;
 
 	public ServletRequestDetails() {
 		super();
@@ -68,6 +68,16 @@ public class ServletRequestDetails extends RequestDetails {
 
 	@Override
 	protected byte[] getByteStreamRequestContents() {
+		try {
+			return IOUtils.toByteArray(openRequestContentsStream());
+		} catch (IOException e) {
+			ourLog.error("Could not load request resource", e);
+			throw new InvalidRequestException(String.format("Could not load request resource: %s", e.getMessage()));
+		}
+	}
+
+	@Override
+	protected InputStream openRequestContentsStream() throws IOException {
 		/*
 		 * This is weird, but this class is used both in clients and in servers, and we want to avoid needing to depend on
 		 * servlet-api in clients since there is no point. So we dynamically load a class that does the servlet processing
@@ -95,26 +105,27 @@ public class ServletRequestDetails extends RequestDetails {
 			ourRequestReader = reader;
 		}
 
-		try {
-			InputStream inputStream = reader.getInputStream(this);
-			requestContents = IOUtils.toByteArray(inputStream);
-			
-			if (myServer.isUncompressIncomingContents()) {
-				String contentEncoding = myServletRequest.getHeader(Constants.HEADER_CONTENT_ENCODING);
-				if ("gzip".equals(contentEncoding)) {
-					ourLog.debug("Uncompressing (GZip) incoming content");
-					if (requestContents.length > 0) {
-						GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(requestContents));
-						requestContents = IOUtils.toByteArray(gis);
-					}
+		InputStream inputStream = reader.getInputStream(this);
+
+		if (myServer.isUncompressIncomingContents()) {
+			String contentEncoding = myServletRequest.getHeader(Constants.HEADER_CONTENT_ENCODING);
+			if ("gzip".equals(contentEncoding)) {
+				ourLog.debug("Uncompressing (GZip) incoming content");
+				/*
+				 * An empty body is passed through as-is, since GZIPInputStream fails
+				 * if there is no header to read
+				 */
+				PushbackInputStream pushbackStream = new PushbackInputStream(inputStream);
+				int firstByte = pushbackStream.read();
+				if (firstByte == -1) {
+					return new ByteArrayInputStream(new byte[0]);
 				}
+				pushbackStream.unread(firstByte);
+				inputStream = new GZIPInputStream(pushbackStream);
 			}
-			
-			return requestContents;
-		} catch (IOException e) {
-			ourLog.error("Could not load request resource", e);
-			throw new InvalidRequestException(String.format("Could not load request resource: %s", e.getMessage()));
 		}
+
+		return inputStream;
 	}
 
 	@Override
@@ -156,6 +167,11 @@ public class ServletRequestDetails extends RequestDetails {
 		return myServletResponse;
 	}
 
+	@Override
+	protected boolean isStreamRequestContents() {
+		return myServer.isStreamRequestContents();
+	}
+
 	public void setServer(RestfulServer theServer) {
 		this.myServer = theServer;
 	}
@@ -22,12 +22,12 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
  * #L%
  */
 
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.util.Map.Entry;
-import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
@@ -37,6 +37,8 @@ import org.hl7.fhir.instance.model.api.IBaseBinary;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.method.ParseAction;
 import ca.uhn.fhir.rest.server.Constants;
+import ca.uhn.fhir.rest.server.RequestMetrics;
+import ca.uhn.fhir.rest.server.ResponseCompressor;
 import ca.uhn.fhir.rest.server.RestfulResponse;
 
 public class ServletRestfulResponse extends RestfulResponse<ServletRequestDetails> {
@@ -58,6 +60,7 @@ public class ServletRestfulResponse extends RestfulResponse<ServletRequestDetail
 			ServletOutputStream oos = theHttpResponse.getOutputStream();
 			oos.write(bin.getContent());
 			oos.close();
+			getRequestDetails().getMetrics().incrementCounter(RequestMetrics.COUNTER_BYTES_WRITTEN, bin.getContent().length);
 			return null;
 		}
 	}
@@ -69,12 +72,28 @@ public class ServletRestfulResponse extends RestfulResponse<ServletRequestDetail
 		theHttpResponse.setCharacterEncoding(theCharset);
 		theHttpResponse.setStatus(theStatusCode);
 		theHttpResponse.setContentType(theContentType);
-		if (theRespondGzip) {
-			theHttpResponse.addHeader(Constants.HEADER_CONTENT_ENCODING, Constants.ENCODING_GZIP);
-			return new OutputStreamWriter(new GZIPOutputStream(theHttpResponse.getOutputStream()), Constants.CHARSET_NAME_UTF8);
-		} else {
-			return theHttpResponse.getWriter();
+
+		Writer retVal = null;
+		ResponseCompressor compressor = getRequestDetails().getServer().getResponseCompressor();
+		if (theRespondGzip && compressor != null) {
+			String encoding = compressor.negotiateContentEncoding(getRequestDetails().getHeader(Constants.HEADER_ACCEPT_ENCODING));
+			if (encoding != null) {
+				retVal = new OutputStreamWriter(compressor.newOutputStream(getRequestDetails(), theHttpResponse, encoding), Constants.CHARSET_NAME_UTF8);
+			}
+		}
+		if (retVal == null) {
+			if (compressor != null) {
+				// Another client asking for a compressed response would have got one, so caches must not reuse this one for it
+				theHttpResponse.addHeader(Constants.HEADER_VARY, Constants.HEADER_ACCEPT_ENCODING);
+			}
+			retVal = theHttpResponse.getWriter();
 		}
+
+		RequestMetrics metrics = getRequestDetails().getMetrics();
+		if (metrics.isEnabled()) {
+			retVal = new MetricsWriter(retVal, metrics);
+		}
+		return retVal;
 	}
 
 	private void addHeaders() {
@@ -83,6 +102,9 @@ public class ServletRestfulResponse extends RestfulResponse<ServletRequestDetail
 		for (Entry<String, String> header : getHeaders().entrySet()) {
 			theHttpResponse.setHeader(header.getKey(), header.getValue());
 		}
+		if (getRequestDetails().getServer().isServerTimingHeaderEnabled()) {
+			theHttpResponse.setHeader(Constants.HEADER_SERVER_TIMING, getRequestDetails().getMetrics().toServerTimingHeader());
+		}
 	}
 
 	@Override
@@ -96,4 +118,70 @@ public class ServletRestfulResponse extends RestfulResponse<ServletRequestDetail
 		addHeaders();
 		return getRequestDetails().getServer().returnResponse(getRequestDetails(), outcome, operationStatus, allowPrefer, response, resourceName);
 	}
+
+	/**
+	 * Records the time spent writing the response body (which includes encoding it, since resources are encoded
+	 * directly to the writer) as well as the number of bytes written, assuming UTF-8
+	 */
+	private static class MetricsWriter extends FilterWriter {
+
+		private long myBytes;
+		private boolean myClosed;
+		private final RequestMetrics myMetrics;
+		private final RequestMetrics.Timer myTimer;
+
+		public MetricsWriter(Writer theWrap, RequestMetrics theMetrics) {
+			super(theWrap);
+			myMetrics = theMetrics;
+			myTimer = theMetrics.startTimer(RequestMetrics.PHASE_ENCODE);
+		}
+
+		private void count(char theChar) {
+			if (theChar < 0x80) {
+				myBytes++;
+			} else if (theChar < 0x800 || (theChar >= Character.MIN_SURROGATE && theChar <= Character.MAX_SURROGATE)) {
+				// Each half of a surrogate pair counts as 2 of the 4 bytes needed for the pair
+				myBytes += 2;
+			} else {
+				myBytes += 3;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				if (!myClosed) {
+					myClosed = true;
+					myTimer.stop();
+					myMetrics.incrementCounter(RequestMetrics.COUNTER_BYTES_WRITTEN, myBytes);
+				}
+			}
+		}
+
+		@Override
+		public void write(char[] theBuffer, int theOffset, int theLength) throws IOException {
+			super.write(theBuffer, theOffset, theLength);
+			for (int i = theOffset; i < theOffset + theLength; i++) {
+				count(theBuffer[i]);
+			}
+		}
+
+		@Override
+		public void write(int theChar) throws IOException {
+			super.write(theChar);
+			count((char) theChar);
+		}
+
+		@Override
+		public void write(String theString, int theOffset, int theLength) throws IOException {
+			super.write(theString, theOffset, theLength);
+			for (int i = theOffset; i < theOffset + theLength; i++) {
+				count(theString.charAt(i));
+			}
+		}
+
+	}
+
 }
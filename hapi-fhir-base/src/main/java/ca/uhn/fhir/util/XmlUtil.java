@@ -1526,6 +1526,15 @@ public class XmlUtil {
 		return er;
 	}
 
+	/**
+	 * Creates a writer which encodes as UTF-8 directly to the given stream
+	 */
+	public static XMLStreamWriter createXmlStreamWriter(OutputStream theOutputStream) throws FactoryConfigurationError, XMLStreamException {
+		XMLOutputFactory outputFactory = getOrCreateOutputFactory();
+		XMLStreamWriter retVal = outputFactory.createXMLStreamWriter(theOutputStream, "UTF-8");
+		return retVal;
+	}
+
 	public static XMLStreamWriter createXmlStreamWriter(Writer theWriter) throws FactoryConfigurationError, XMLStreamException {
 		XMLOutputFactory outputFactory = getOrCreateOutputFactory();
 		XMLStreamWriter retVal = outputFactory.createXMLStreamWriter(theWriter);
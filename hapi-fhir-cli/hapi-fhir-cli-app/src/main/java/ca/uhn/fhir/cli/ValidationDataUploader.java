@@ -15,6 +15,8 @@ import org.apache.commons.io.IOUtils;
 import org.hl7.fhir.dstu3.model.Bundle.BundleEntryComponent;
 import org.hl7.fhir.dstu3.model.Conformance;
 import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
@@ -26,7 +28,9 @@ import ca.uhn.fhir.model.dstu2.resource.Bundle.Entry;
 import ca.uhn.fhir.model.dstu2.resource.StructureDefinition;
 import ca.uhn.fhir.model.dstu2.resource.ValueSet;
 import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.IBundleEntryHandler;
 import ca.uhn.fhir.rest.client.IGenericClient;
+import ca.uhn.fhir.rest.server.Constants;
 import ca.uhn.fhir.rest.server.exceptions.PreconditionFailedException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 
@@ -179,72 +183,10 @@ public class ValidationDataUploader extends BaseCommand {
 		ourLog.info("Uploading definitions to server: " + targetServer);
 
 		long start = System.currentTimeMillis();
-		int total = 0;
-		int count = 0;
-		org.hl7.fhir.dstu3.model.Bundle bundle;
-		String vsContents;
-		
-		try {
-			ctx.getVersion().getPathToSchemaDefinitions();
-			vsContents = IOUtils.toString(ValidationDataUploader.class.getResourceAsStream("/org/hl7/fhir/instance/model/dstu3/valueset/"+"valuesets.xml"), "UTF-8");
-		} catch (IOException e) {
-			throw new CommandFailureException(e.toString());
-		}
-		bundle = ctx.newXmlParser().parseResource(org.hl7.fhir.dstu3.model.Bundle.class, vsContents);
-
-		total = bundle.getEntry().size();
-		count = 1;
-		for (BundleEntryComponent i : bundle.getEntry()) {
-			org.hl7.fhir.dstu3.model.Resource next = i.getResource();
-			next.setId(next.getIdElement().toUnqualifiedVersionless());
-
-			ourLog.info("Uploading ValueSet {}/{} : {}", new Object[] { count, total, next.getIdElement().getValue() });
-			try {
-				client.update().resource(next).execute();
-			} catch (UnprocessableEntityException e) {
-				ourLog.warn("UnprocessableEntityException: " + e.toString());
-			}
-			count++;
-		}
-
-		try {
-			vsContents = IOUtils.toString(ValidationDataUploader.class.getResourceAsStream("/org/hl7/fhir/instance/model/dstu3/valueset/"+"v3-codesystems.xml"), "UTF-8");
-		} catch (IOException e) {
-			throw new CommandFailureException(e.toString());
-		}
-
-		bundle = ctx.newXmlParser().parseResource(org.hl7.fhir.dstu3.model.Bundle.class, vsContents);
-		total = bundle.getEntry().size();
-		count = 1;
-		for (BundleEntryComponent i : bundle.getEntry()) {
-			org.hl7.fhir.dstu3.model.Resource next = i.getResource();
-			next.setId(next.getIdElement().toUnqualifiedVersionless());
-
-			ourLog.info("Uploading v3-codesystems ValueSet {}/{} : {}", new Object[] { count, total, next.getIdElement().getValue() });
-			client.update().resource(next).execute();
 
-			count++;
-		}
-
-		try {
-			vsContents = IOUtils.toString(ValidationDataUploader.class.getResourceAsStream("/org/hl7/fhir/instance/model/dstu3/valueset/"+"v2-tables.xml"), "UTF-8");
-		} catch (IOException e) {
-			throw new CommandFailureException(e.toString());
-		}
-		bundle = ctx.newXmlParser().parseResource(org.hl7.fhir.dstu3.model.Bundle.class, vsContents);
-		total = bundle.getEntry().size();
-		count = 1;
-		for (BundleEntryComponent i : bundle.getEntry()) {
-			org.hl7.fhir.dstu3.model.Resource next = i.getResource();
-			if (next.getIdElement().isIdPartValidLong()) {
-				next.setIdElement(new IdType("v2-"+ next.getIdElement().getIdPart()));
-			}
-			next.setId(next.getIdElement().toUnqualifiedVersionless());
-
-			ourLog.info("Uploading v2-tables ValueSet {}/{} : {}", new Object[] { count, total, next.getIdElement().getValue() });
-			client.update().resource(next).execute();
-			count++;
-		}
+		uploadDstu3ValueSets(ctx, client, "valuesets.xml", "ValueSet", null);
+		uploadDstu3ValueSets(ctx, client, "v3-codesystems.xml", "v3-codesystems ValueSet", null);
+		uploadDstu3ValueSets(ctx, client, "v2-tables.xml", "v2-tables ValueSet", "v2-");
 
 		ourLog.info("Finished uploading ValueSets");
 
@@ -260,6 +202,42 @@ public class ValidationDataUploader extends BaseCommand {
 		ourLog.info("Finished uploading definitions to server (took {} ms)", delay);
 	}
 
+	/**
+	 * The ValueSet bundles are large, so their entries are uploaded as they are parsed instead of parsing each bundle
+	 * completely first
+	 * 
+	 * @param theNumericIdPrefix
+	 *           If not null, ValueSets with a purely numeric ID have it prefixed with this value
+	 */
+	private void uploadDstu3ValueSets(FhirContext ctx, final IGenericClient client, String theFileName, final String theDescription, final String theNumericIdPrefix) throws CommandFailureException {
+		final int[] count = new int[] { 1 };
+		InputStreamReader reader = new InputStreamReader(ValidationDataUploader.class.getResourceAsStream("/org/hl7/fhir/instance/model/dstu3/valueset/" + theFileName), Constants.CHARSET_UTF8);
+		try {
+			ctx.newXmlParser().parseBundleEntries(org.hl7.fhir.dstu3.model.Bundle.class, reader, new IBundleEntryHandler() {
+				@Override
+				public void handleEntry(IBase theEntry, IBaseResource theResource) {
+					org.hl7.fhir.dstu3.model.Resource next = (org.hl7.fhir.dstu3.model.Resource) theResource;
+					if (theNumericIdPrefix != null && next.getIdElement().isIdPartValidLong()) {
+						next.setIdElement(new IdType(theNumericIdPrefix + next.getIdElement().getIdPart()));
+					}
+					next.setId(next.getIdElement().toUnqualifiedVersionless());
+
+					ourLog.info("Uploading {} {} : {}", new Object[] { theDescription, count[0], next.getIdElement().getValue() });
+					try {
+						client.update().resource(next).execute();
+					} catch (UnprocessableEntityException e) {
+						ourLog.warn("UnprocessableEntityException: " + e.toString());
+					}
+					count[0]++;
+				}
+			});
+		} catch (DataFormatException e) {
+			throw new CommandFailureException(e.toString());
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
 	private void uploadDstu3Profiles(FhirContext ctx, IGenericClient client, String name) throws CommandFailureException {
 		int total;
 		int count;
@@ -5,6 +5,8 @@ import java.util.Properties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import ca.uhn.fhir.jpa.config.HibernateSearchAsyncIndexingConfig;
+
 @Configuration
 public class FhirDbConfig {
 
@@ -26,7 +28,7 @@ public class FhirDbConfig {
 		extraProperties.put("hibernate.search.default.directory_provider", "filesystem");
 		extraProperties.put("hibernate.search.default.indexBase", "target/lucenefiles");
 		extraProperties.put("hibernate.search.lucene_version", "LUCENE_CURRENT");
-		extraProperties.put("hibernate.search.default.worker.execution", "async");
+		new HibernateSearchAsyncIndexingConfig().applyTo(extraProperties);
 		
 		if (System.getProperty("lowmem") != null) {
 			extraProperties.put("hibernate.search.autoregister_listeners", "false");
@@ -0,0 +1,146 @@
+package ca.uhn.fhir.jpa.config;
+
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Properties;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Helper for configuring Hibernate Search so that fulltext indexing happens off of the
+ * transaction commit path.
+ * <p>
+ * By default Hibernate Search analyzes and writes index changes synchronously as each
+ * transaction commits, which adds the cost of every analyzer to the write latency of the
+ * FHIR operation. When these properties are applied, index work is instead queued at
+ * commit time and applied in batches by a dedicated indexing thread. Changes become
+ * visible to fulltext searches (e.g. <code>_content</code>, <code>_text</code> and
+ * <code>$suggest-keywords</code>) after at most the configured refresh interval.
+ * </p>
+ * <p>
+ * Usage:
+ * </p>
+ * <pre>
+ * Properties extraProperties = new Properties();
+ * // ... other hibernate properties ...
+ * new HibernateSearchAsyncIndexingConfig().setRefreshIntervalMillis(1000).applyTo(extraProperties);
+ * </pre>
+ * 
+ * @since 1.6
+ */
+public class HibernateSearchAsyncIndexingConfig {
+
+	private static final String PREFIX = "hibernate.search.default.";
+
+	// ***
+	// update setter javadoc if default changes
+	// ***
+	private int myMaxQueuedWork = 1000;
+
+	// ***
+	// update setter javadoc if default changes
+	// ***
+	private long myRefreshIntervalMillis = 1000;
+
+	// ***
+	// update setter javadoc if default changes
+	// ***
+	private int myThreadCount = 1;
+
+	/**
+	 * Adds the Hibernate Search properties for asynchronous, batched indexing to the given
+	 * JPA properties
+	 */
+	public Properties applyTo(Properties theJpaProperties) {
+		Validate.notNull(theJpaProperties, "theJpaProperties must not be null");
+		theJpaProperties.put(PREFIX + "worker.execution", "async");
+		theJpaProperties.put(PREFIX + "worker.thread_pool.size", Integer.toString(myThreadCount));
+		theJpaProperties.put(PREFIX + "worker.buffer_queue.max", Integer.toString(myMaxQueuedWork));
+		theJpaProperties.put(PREFIX + "indexmanager", "near-real-time");
+		theJpaProperties.put(PREFIX + "index_flush_interval", Long.toString(myRefreshIntervalMillis));
+		return theJpaProperties;
+	}
+
+	/**
+	 * See {@link #setMaxQueuedWork(int)}
+	 */
+	public int getMaxQueuedWork() {
+		return myMaxQueuedWork;
+	}
+
+	/**
+	 * See {@link #setRefreshIntervalMillis(long)}
+	 */
+	public long getRefreshIntervalMillis() {
+		return myRefreshIntervalMillis;
+	}
+
+	/**
+	 * See {@link #setThreadCount(int)}
+	 */
+	public int getThreadCount() {
+		return myThreadCount;
+	}
+
+	/**
+	 * Sets the maximum number of committed transactions whose index work may be waiting for
+	 * the indexing thread. Once the queue is full, committing threads apply their own index
+	 * work synchronously, which throttles writers instead of letting the backlog grow without
+	 * bound.
+	 * <p>
+	 * Defaults to 1000
+	 * </p>
+	 */
+	public HibernateSearchAsyncIndexingConfig setMaxQueuedWork(int theMaxQueuedWork) {
+		Validate.isTrue(theMaxQueuedWork > 0, "theMaxQueuedWork must be > 0");
+		myMaxQueuedWork = theMaxQueuedWork;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum time in milliseconds between an index change being applied and it
+	 * being flushed and made visible to searches. Larger values allow more changes to be
+	 * written in each batch.
+	 * <p>
+	 * Defaults to 1000
+	 * </p>
+	 */
+	public HibernateSearchAsyncIndexingConfig setRefreshIntervalMillis(long theRefreshIntervalMillis) {
+		Validate.isTrue(theRefreshIntervalMillis > 0, "theRefreshIntervalMillis must be > 0");
+		myRefreshIntervalMillis = theRefreshIntervalMillis;
+		return this;
+	}
+
+	/**
+	 * Sets the number of threads which apply queued index work. A single thread avoids
+	 * contention on the Lucene index writer and is normally the best choice.
+	 * <p>
+	 * Defaults to 1
+	 * </p>
+	 */
+	public HibernateSearchAsyncIndexingConfig setThreadCount(int theThreadCount) {
+		Validate.isTrue(theThreadCount > 0, "theThreadCount must be > 0");
+		myThreadCount = theThreadCount;
+		return this;
+	}
+
+}
@@ -646,6 +646,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> implements IDao {
 	@Override
 	public void injectDependenciesIntoBundleProvider(PersistedJpaBundleProvider theProvider) {
 		theProvider.setContext(getContext());
+		theProvider.setDaoConfig(myConfig);
 		theProvider.setEntityManager(myEntityManager);
 		theProvider.setPlatformTransactionManager(myPlatformTransactionManager);
 		theProvider.setSearchDao(mySearchDao);
@@ -707,16 +708,18 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> implements IDao {
 			}
 		}
 
-		String encoded = myConfig.getResourceEncoding().newParser(myContext).encodeResourceToString(theResource);
 		ResourceEncodingEnum encoding = myConfig.getResourceEncoding();
 		theEntity.setEncoding(encoding);
 		theEntity.setFhirVersion(myContext.getVersion().getVersion());
 		switch (encoding) {
 		case JSON:
-			theEntity.setResource(encoded.getBytes(Charsets.UTF_8));
+			theEntity.setResource(encoding.newParser(myContext).encodeResourceToString(theResource).getBytes(Charsets.UTF_8));
 			break;
 		case JSONC:
-			theEntity.setResource(GZipUtil.compress(encoded));
+			theEntity.setResource(GZipUtil.compress(encoding.newParser(myContext).encodeResourceToString(theResource)));
+			break;
+		case BIN:
+			theEntity.setResource(myContext.newBinaryCodec().encodeResourceToBytes(theResource));
 			break;
 		}
 
@@ -1017,12 +1020,19 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> implements IDao {
 		case JSONC:
 			resourceText = GZipUtil.decompress(theEntity.getResource());
 			break;
+		case BIN:
+			break;
 		}
 
-		IParser parser = theEntity.getEncoding().newParser(getContext(theEntity.getFhirVersion()));
+		FhirContext context = getContext(theEntity.getFhirVersion());
 		R retVal;
 		try {
-			retVal = parser.parseResource(theResourceType, resourceText);
+			if (theEntity.getEncoding() == ResourceEncodingEnum.BIN) {
+				retVal = context.newBinaryCodec().parseResource(theResourceType, theEntity.getResource());
+			} else {
+				IParser parser = theEntity.getEncoding().newParser(context);
+				retVal = parser.parseResource(theResourceType, resourceText);
+			}
 		} catch (Exception e) {
 			StringBuilder b = new StringBuilder();
 			b.append("Failed to parse database resource[");
@@ -1186,6 +1196,12 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> implements IDao {
 					}
 				}
 
+				if (!myConfig.getFulltextAutocompleteSearchParams().isEmpty()) {
+					for (ResourceIndexedSearchParamString next : stringParams) {
+						next.setAutocompleteIndexed(myConfig.isFulltextAutocompleteSearchParam(theEntity.getResourceType(), next.getParamName()));
+					}
+				}
+
 				/*
 				 * Handle references within the resource that are match URLs, for example references like "Patient?identifier=foo". These match URLs are resolved and replaced with the ID of the matching
 				 * resource.
@@ -26,7 +26,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -59,6 +62,7 @@ import ca.uhn.fhir.jpa.dao.data.IResourceIndexedSearchParamUriDao;
 import ca.uhn.fhir.jpa.dao.data.ISearchResultDao;
 import ca.uhn.fhir.jpa.entity.BaseHasResource;
 import ca.uhn.fhir.jpa.entity.BaseTag;
+import ca.uhn.fhir.jpa.entity.ForcedId;
 import ca.uhn.fhir.jpa.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.entity.ResourceLink;
 import ca.uhn.fhir.jpa.entity.ResourceTable;
@@ -78,6 +82,8 @@ import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
 import ca.uhn.fhir.rest.method.RequestDetails;
 import ca.uhn.fhir.rest.method.RestSearchParameterTypeEnum;
 import ca.uhn.fhir.rest.server.IBundleProvider;
+import ca.uhn.fhir.rest.server.RequestMetrics;
+import ca.uhn.fhir.rest.server.ResourceVersion;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.PreconditionFailedException;
@@ -218,13 +224,17 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 	public DaoMethodOutcome delete(IIdType theId, RequestDetails theRequestDetails) {
 		List<DeleteConflict> deleteConflicts = new ArrayList<DeleteConflict>();
 		StopWatch w = new StopWatch();
+		RequestMetrics.Timer timer = RequestMetrics.getCurrent().startTimer(RequestMetrics.PHASE_DAO);
+		try {
+			ResourceTable savedEntity = delete(theId, deleteConflicts, theRequestDetails);
 
-		ResourceTable savedEntity = delete(theId, deleteConflicts, theRequestDetails);
-
-		validateDeleteConflictsEmptyOrThrowException(deleteConflicts);
+			validateDeleteConflictsEmptyOrThrowException(deleteConflicts);
 
-		ourLog.info("Processed delete on {} in {}ms", theId.getValue(), w.getMillisAndRestart());
-		return toMethodOutcome(savedEntity, null);
+			ourLog.info("Processed delete on {} in {}ms", theId.getValue(), w.getMillisAndRestart());
+			return toMethodOutcome(savedEntity, null);
+		} finally {
+			timer.stop();
+		}
 	}
 
 	@Override
@@ -269,81 +279,90 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 	@Override
 	public DaoMethodOutcome deleteByUrl(String theUrl, RequestDetails theRequestDetails) {
 		StopWatch w = new StopWatch();
-		List<DeleteConflict> deleteConflicts = new ArrayList<DeleteConflict>();
+		RequestMetrics.Timer timer = RequestMetrics.getCurrent().startTimer(RequestMetrics.PHASE_DAO);
+		try {
+			List<DeleteConflict> deleteConflicts = new ArrayList<DeleteConflict>();
 
-		List<ResourceTable> deletedResources = deleteByUrl(theUrl, deleteConflicts, theRequestDetails);
+			List<ResourceTable> deletedResources = deleteByUrl(theUrl, deleteConflicts, theRequestDetails);
 
-		validateDeleteConflictsEmptyOrThrowException(deleteConflicts);
+			validateDeleteConflictsEmptyOrThrowException(deleteConflicts);
 
-		if (deletedResources.isEmpty()) {
-			throw new ResourceNotFoundException(getContext().getLocalizer().getMessage(BaseHapiFhirResourceDao.class, "unableToDeleteNotFound", theUrl));
-		}
+			if (deletedResources.isEmpty()) {
+				throw new ResourceNotFoundException(getContext().getLocalizer().getMessage(BaseHapiFhirResourceDao.class, "unableToDeleteNotFound", theUrl));
+			}
 
-		ourLog.info("Processed delete on {} (matched {} resource(s)) in {}ms", new Object[] { theUrl, deletedResources.size(), w.getMillisAndRestart() });
-		return new DaoMethodOutcome();
+			ourLog.info("Processed delete on {} (matched {} resource(s)) in {}ms", new Object[] { theUrl, deletedResources.size(), w.getMillisAndRestart() });
+			return new DaoMethodOutcome();
+		} finally {
+			timer.stop();
+		}
 	}
 
 	private DaoMethodOutcome doCreate(T theResource, String theIfNoneExist, boolean thePerformIndexing, Date theUpdateTime, RequestDetails theRequestDetails) {
 		StopWatch w = new StopWatch();
-
-		preProcessResourceForStorage(theResource);
-
-		ResourceTable entity = new ResourceTable();
-		entity.setResourceType(toResourceName(theResource));
-
-		if (isNotBlank(theIfNoneExist)) {
-			Set<Long> match = processMatchUrl(theIfNoneExist, myResourceType);
-			if (match.size() > 1) {
-				String msg = getContext().getLocalizer().getMessage(BaseHapiFhirDao.class, "transactionOperationWithMultipleMatchFailure", "CREATE", theIfNoneExist, match.size());
-				throw new PreconditionFailedException(msg);
-			} else if (match.size() == 1) {
-				Long pid = match.iterator().next();
-				entity = myEntityManager.find(ResourceTable.class, pid);
-				return toMethodOutcome(entity, theResource).setCreated(false);
-			}
-		}
-
-		if (isNotBlank(theResource.getIdElement().getIdPart())) {
-			if (isValidPid(theResource.getIdElement())) {
-				throw new UnprocessableEntityException(
-						"This server cannot create an entity with a user-specified numeric ID - Client should not specify an ID when creating a new resource, or should include at least one letter in the ID to force a client-defined ID");
+		RequestMetrics.Timer timer = RequestMetrics.getCurrent().startTimer(RequestMetrics.PHASE_DAO);
+		try {
+			preProcessResourceForStorage(theResource);
+
+			ResourceTable entity = new ResourceTable();
+			entity.setResourceType(toResourceName(theResource));
+
+			if (isNotBlank(theIfNoneExist)) {
+				Set<Long> match = processMatchUrl(theIfNoneExist, myResourceType);
+				if (match.size() > 1) {
+					String msg = getContext().getLocalizer().getMessage(BaseHapiFhirDao.class, "transactionOperationWithMultipleMatchFailure", "CREATE", theIfNoneExist, match.size());
+					throw new PreconditionFailedException(msg);
+				} else if (match.size() == 1) {
+					Long pid = match.iterator().next();
+					entity = myEntityManager.find(ResourceTable.class, pid);
+					return toMethodOutcome(entity, theResource).setCreated(false);
+				}
 			}
-			createForcedIdIfNeeded(entity, theResource.getIdElement());
 
-			if (entity.getForcedId() != null) {
-				try {
-					translateForcedIdToPid(getResourceName(), theResource.getIdElement().getIdPart());
-					throw new UnprocessableEntityException(getContext().getLocalizer().getMessage(BaseHapiFhirResourceDao.class, "duplicateCreateForcedId", theResource.getIdElement().getIdPart()));
-				} catch (ResourceNotFoundException e) {
-					// good, this ID doesn't exist so we can create it
+			if (isNotBlank(theResource.getIdElement().getIdPart())) {
+				if (isValidPid(theResource.getIdElement())) {
+					throw new UnprocessableEntityException(
+							"This server cannot create an entity with a user-specified numeric ID - Client should not specify an ID when creating a new resource, or should include at least one letter in the ID to force a client-defined ID");
+				}
+				createForcedIdIfNeeded(entity, theResource.getIdElement());
+
+				if (entity.getForcedId() != null) {
+					try {
+						translateForcedIdToPid(getResourceName(), theResource.getIdElement().getIdPart());
+						throw new UnprocessableEntityException(getContext().getLocalizer().getMessage(BaseHapiFhirResourceDao.class, "duplicateCreateForcedId", theResource.getIdElement().getIdPart()));
+					} catch (ResourceNotFoundException e) {
+						// good, this ID doesn't exist so we can create it
+					}
 				}
-			}
 
-		}
+			}
 
-		// Notify interceptors
-		ActionRequestDetails requestDetails = new ActionRequestDetails(theResource.getIdElement(), toResourceName(theResource), theResource, getContext(), theRequestDetails);
-		notifyInterceptors(RestOperationTypeEnum.CREATE, requestDetails);
+			// Notify interceptors
+			ActionRequestDetails requestDetails = new ActionRequestDetails(theResource.getIdElement(), toResourceName(theResource), theResource, getContext(), theRequestDetails);
+			notifyInterceptors(RestOperationTypeEnum.CREATE, requestDetails);
 
-		// Perform actual DB update
-		updateEntity(theResource, entity, false, null, thePerformIndexing, true, theUpdateTime, theRequestDetails);
-		theResource.setId(entity.getIdDt());
+			// Perform actual DB update
+			updateEntity(theResource, entity, false, null, thePerformIndexing, true, theUpdateTime, theRequestDetails);
+			theResource.setId(entity.getIdDt());
 
-		// Notify JPA interceptors
-		theRequestDetails.getRequestOperationCallback().resourceCreated(theResource);
-		for (IServerInterceptor next : getConfig().getInterceptors()) {
-			if (next instanceof IJpaServerInterceptor) {
-				((IJpaServerInterceptor) next).resourceCreated(requestDetails, entity);
+			// Notify JPA interceptors
+			theRequestDetails.getRequestOperationCallback().resourceCreated(theResource);
+			for (IServerInterceptor next : getConfig().getInterceptors()) {
+				if (next instanceof IJpaServerInterceptor) {
+					((IJpaServerInterceptor) next).resourceCreated(requestDetails, entity);
+				}
 			}
-		}
 
-		DaoMethodOutcome outcome = toMethodOutcome(entity, theResource).setCreated(true);
+			DaoMethodOutcome outcome = toMethodOutcome(entity, theResource).setCreated(true);
 
-		String msg = getContext().getLocalizer().getMessage(BaseHapiFhirResourceDao.class, "successfulCreate", outcome.getId(), w.getMillisAndRestart());
-		outcome.setOperationOutcome(createInfoOperationOutcome(msg));
+			String msg = getContext().getLocalizer().getMessage(BaseHapiFhirResourceDao.class, "successfulCreate", outcome.getId(), w.getMillisAndRestart());
+			outcome.setOperationOutcome(createInfoOperationOutcome(msg));
 
-		ourLog.info(msg);
-		return outcome;
+			ourLog.info(msg);
+			return outcome;
+		} finally {
+			timer.stop();
+		}
 	}
 
 	private <MT extends IBaseMetaType> void doMetaAdd(MT theMetaAdd, BaseHasResource entity) {
@@ -440,9 +459,14 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		notifyInterceptors(RestOperationTypeEnum.HISTORY_TYPE, requestDetails);
 
 		StopWatch w = new StopWatch();
-		IBundleProvider retVal = super.history(myResourceName, null, theSince, theUntil);
-		ourLog.info("Processed history on {} in {}ms", myResourceName, w.getMillisAndRestart());
-		return retVal;
+		RequestMetrics.Timer timer = RequestMetrics.getCurrent().startTimer(RequestMetrics.PHASE_DAO);
+		try {
+			IBundleProvider retVal = super.history(myResourceName, null, theSince, theUntil);
+			ourLog.info("Processed history on {} in {}ms", myResourceName, w.getMillisAndRestart());
+			return retVal;
+		} finally {
+			timer.stop();
+		}
 	}
 
 	@Override
@@ -452,14 +476,18 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		notifyInterceptors(RestOperationTypeEnum.HISTORY_INSTANCE, requestDetails);
 
 		StopWatch w = new StopWatch();
+		RequestMetrics.Timer timer = RequestMetrics.getCurrent().startTimer(RequestMetrics.PHASE_DAO);
+		try {
+			IIdType id = theId.withResourceType(myResourceName).toUnqualifiedVersionless();
+			BaseHasResource entity = readEntity(id);
 
-		IIdType id = theId.withResourceType(myResourceName).toUnqualifiedVersionless();
-		BaseHasResource entity = readEntity(id);
-
-		IBundleProvider retVal = super.history(myResourceName, entity.getId(), theSince, theUntil);
+			IBundleProvider retVal = super.history(myResourceName, entity.getId(), theSince, theUntil);
 
-		ourLog.info("Processed history on {} in {}ms", id, w.getMillisAndRestart());
-		return retVal;
+			ourLog.info("Processed history on {} in {}ms", id, w.getMillisAndRestart());
+			return retVal;
+		} finally {
+			timer.stop();
+		}
 	}
 
 	// @Override
@@ -709,23 +737,115 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		notifyInterceptors(operationType, requestDetails);
 
 		StopWatch w = new StopWatch();
-		BaseHasResource entity = readEntity(theId);
-		validateResourceType(entity);
+		RequestMetrics.Timer timer = RequestMetrics.getCurrent().startTimer(RequestMetrics.PHASE_DAO);
+		try {
+			BaseHasResource entity = readEntity(theId);
+			validateResourceType(entity);
 
-		T retVal = toResource(myResourceType, entity, false);
+			T retVal = toResource(myResourceType, entity, false);
+			RequestMetrics.getCurrent().incrementCounter(RequestMetrics.COUNTER_RESOURCES_LOADED, 1);
 
-		IPrimitiveType<Date> deleted;
-		if (retVal instanceof IResource) {
-			deleted = ResourceMetadataKeyEnum.DELETED_AT.get((IResource) retVal);
-		} else {
-			deleted = ResourceMetadataKeyEnum.DELETED_AT.get((IAnyResource) retVal);
+			IPrimitiveType<Date> deleted;
+			if (retVal instanceof IResource) {
+				deleted = ResourceMetadataKeyEnum.DELETED_AT.get((IResource) retVal);
+			} else {
+				deleted = ResourceMetadataKeyEnum.DELETED_AT.get((IAnyResource) retVal);
+			}
+			if (deleted != null && !deleted.isEmpty()) {
+				throw new ResourceGoneException("Resource was deleted at " + deleted.getValueAsString());
+			}
+
+			ourLog.info("Processed read on {} in {}ms", theId.getValue(), w.getMillisAndRestart());
+			return retVal;
+		} finally {
+			timer.stop();
 		}
-		if (deleted != null && !deleted.isEmpty()) {
-			throw new ResourceGoneException("Resource was deleted at " + deleted.getValueAsString());
+	}
+
+	@Override
+	public List<T> readMany(Collection<IIdType> theIds, RequestDetails theRequestDetails) {
+		if (theIds.size() > getConfig().getReadManyLimit()) {
+			throw new InvalidRequestException("Can not read more than " + getConfig().getReadManyLimit() + " resources at once, " + theIds.size() + " IDs were requested");
 		}
 
-		ourLog.info("Processed read on {} in {}ms", theId.getValue(), w.getMillisAndRestart());
-		return retVal;
+		for (IIdType next : theIds) {
+			validateResourceTypeAndThrowIllegalArgumentException(next);
+			if (next.hasVersionIdPart()) {
+				throw new InvalidRequestException("Can not read specific versions of resources at once, requested ID: " + next.getValue());
+			}
+
+			// Notify interceptors
+			ActionRequestDetails requestDetails = new ActionRequestDetails(next, getResourceName(), getContext(), theRequestDetails);
+			notifyInterceptors(RestOperationTypeEnum.READ, requestDetails);
+		}
+
+		StopWatch w = new StopWatch();
+		RequestMetrics.Timer timer = RequestMetrics.getCurrent().startTimer(RequestMetrics.PHASE_DAO);
+		try {
+			/*
+			 * Numeric IDs are PIDs, the others are forced IDs which are all translated using one query
+			 */
+			Set<String> forcedIds = new HashSet<String>();
+			for (IIdType next : theIds) {
+				if (!isValidPid(next)) {
+					forcedIds.add(next.getIdPart());
+				}
+			}
+			Map<String, Long> forcedIdToPid = new HashMap<String, Long>();
+			if (!forcedIds.isEmpty()) {
+				for (ForcedId next : myForcedIdDao.findByTypeAndForcedIds(getResourceName(), forcedIds)) {
+					forcedIdToPid.put(next.getForcedId(), next.getResourcePid());
+				}
+			}
+
+			Set<Long> pids = new LinkedHashSet<Long>();
+			Set<Long> numericPids = new HashSet<Long>();
+			Set<Long> forcedPids = new HashSet<Long>();
+			for (IIdType next : theIds) {
+				if (isValidPid(next)) {
+					pids.add(next.getIdPartAsLong());
+					numericPids.add(next.getIdPartAsLong());
+				} else if (forcedIdToPid.containsKey(next.getIdPart())) {
+					Long pid = forcedIdToPid.get(next.getIdPart());
+					pids.add(pid);
+					forcedPids.add(pid);
+				}
+			}
+
+			List<IBaseResource> resources = new ArrayList<IBaseResource>();
+			SearchBuilder.loadResourcesByPid(pids, resources, Collections.<Long> emptySet(), false, myEntityManager, getContext(), this);
+
+			List<T> retVal = new ArrayList<T>(resources.size());
+			Iterator<Long> pidIter = pids.iterator();
+			for (IBaseResource next : resources) {
+				Long pid = pidIter.next();
+				if (next == null || !myResourceType.isInstance(next)) {
+					continue;
+				}
+
+				IPrimitiveType<Date> deleted;
+				if (next instanceof IResource) {
+					deleted = ResourceMetadataKeyEnum.DELETED_AT.get((IResource) next);
+				} else {
+					deleted = ResourceMetadataKeyEnum.DELETED_AT.get((IAnyResource) next);
+				}
+				if (deleted != null && !deleted.isEmpty()) {
+					continue;
+				}
+
+				// A numeric ID can not be used to retrieve a resource which has a forced ID, unless the forced ID was requested too
+				if (numericPids.contains(pid) && !forcedPids.contains(pid) && !pid.toString().equals(next.getIdElement().getIdPart())) {
+					continue;
+				}
+
+				retVal.add(myResourceType.cast(next));
+			}
+
+			ourLog.info("Processed read of {} {} resources in {}ms", new Object[] { retVal.size(), getResourceName(), w.getMillisAndRestart() });
+			return retVal;
+		} finally {
+			timer.stop();
+		}
 	}
 
 	@Override
@@ -789,6 +909,50 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		return entity;
 	}
 
+	@Override
+	public ResourceVersion readVersion(IIdType theId, RequestDetails theRequestDetails) {
+		validateResourceTypeAndThrowIllegalArgumentException(theId);
+
+		Long pid;
+		try {
+			pid = translateForcedIdToPid(getResourceName(), theId.getIdPart());
+		} catch (ResourceNotFoundException e) {
+			return null;
+		}
+
+		/*
+		 * Only select the columns we need, so that the resource body is never loaded
+		 */
+		TypedQuery<Object[]> q = myEntityManager.createQuery("SELECT t.myResourceType, t.myVersion, t.myUpdated, t.myDeleted, f.myForcedId FROM ResourceTable t LEFT JOIN t.myForcedId f WHERE t.myId = :PID", Object[].class);
+		q.setParameter("PID", pid);
+		List<Object[]> results = q.getResultList();
+		if (results.isEmpty()) {
+			return null;
+		}
+
+		Object[] result = results.get(0);
+		String resourceType = (String) result[0];
+		long version = (Long) result[1];
+		Date updated = (Date) result[2];
+		Date deleted = (Date) result[3];
+		String forcedId = (String) result[4];
+
+		// Let a regular read produce the appropriate error in these cases
+		if (!getResourceName().equals(resourceType) || deleted != null) {
+			return null;
+		}
+		if (forcedId != null && theId.isIdPartValidLong()) {
+			return null;
+		}
+		if (theId.hasVersionIdPart()) {
+			if (!theId.isVersionIdPartValidLong() || theId.getVersionIdPartAsLong().longValue() != version) {
+				return null;
+			}
+		}
+
+		return new ResourceVersion(Long.toString(version), updated);
+	}
+
 	@Override
 	public void reindex(T theResource, ResourceTable theEntity, RequestDetails theRequestDetails) {
 		updateEntity(theResource, theEntity, false, null, true, false, theEntity.getUpdatedDate(), theRequestDetails);
@@ -844,7 +1008,13 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		SearchBuilder builder = new SearchBuilder(getContext(), myEntityManager, myPlatformTransactionManager, mySearchDao, mySearchResultDao, this, myResourceIndexedSearchParamUriDao, myForcedIdDao,
 				myTerminologySvc);
 		builder.setType(getResourceType(), getResourceName());
-		return builder.search(theParams);
+
+		RequestMetrics.Timer timer = RequestMetrics.getCurrent().startTimer(RequestMetrics.PHASE_DAO);
+		try {
+			return builder.search(theParams);
+		} finally {
+			timer.stop();
+		}
 	}
 
 	@Override
@@ -965,72 +1135,76 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 	@Override
 	public DaoMethodOutcome update(T theResource, String theMatchUrl, boolean thePerformIndexing, RequestDetails theRequestDetails) {
 		StopWatch w = new StopWatch();
-
-		preProcessResourceForStorage(theResource);
-
-		final ResourceTable entity;
-
-		IIdType resourceId;
-		if (isNotBlank(theMatchUrl)) {
-			Set<Long> match = processMatchUrl(theMatchUrl, myResourceType);
-			if (match.size() > 1) {
-				String msg = getContext().getLocalizer().getMessage(BaseHapiFhirDao.class, "transactionOperationWithMultipleMatchFailure", "UPDATE", theMatchUrl, match.size());
-				throw new PreconditionFailedException(msg);
-			} else if (match.size() == 1) {
-				Long pid = match.iterator().next();
-				entity = myEntityManager.find(ResourceTable.class, pid);
-				resourceId = entity.getIdDt();
+		RequestMetrics.Timer timer = RequestMetrics.getCurrent().startTimer(RequestMetrics.PHASE_DAO);
+		try {
+			preProcessResourceForStorage(theResource);
+
+			final ResourceTable entity;
+
+			IIdType resourceId;
+			if (isNotBlank(theMatchUrl)) {
+				Set<Long> match = processMatchUrl(theMatchUrl, myResourceType);
+				if (match.size() > 1) {
+					String msg = getContext().getLocalizer().getMessage(BaseHapiFhirDao.class, "transactionOperationWithMultipleMatchFailure", "UPDATE", theMatchUrl, match.size());
+					throw new PreconditionFailedException(msg);
+				} else if (match.size() == 1) {
+					Long pid = match.iterator().next();
+					entity = myEntityManager.find(ResourceTable.class, pid);
+					resourceId = entity.getIdDt();
+				} else {
+					return create(theResource, null, thePerformIndexing, theRequestDetails);
+				}
 			} else {
-				return create(theResource, null, thePerformIndexing, theRequestDetails);
-			}
-		} else {
-			/*
-			 * Note: resourcdeId will not be null or empty here, because we check it and reject requests in BaseOutcomeReturningMethodBindingWithResourceParam
-			 */
-			resourceId = theResource.getIdElement();
-
-			try {
-				entity = readEntityLatestVersion(resourceId);
-			} catch (ResourceNotFoundException e) {
-				if (resourceId.isIdPartValidLong()) {
-					throw new InvalidRequestException(
-							getContext().getLocalizer().getMessage(BaseHapiFhirResourceDao.class, "failedToCreateWithClientAssignedNumericId", theResource.getIdElement().getIdPart()));
+				/*
+				 * Note: resourcdeId will not be null or empty here, because we check it and reject requests in BaseOutcomeReturningMethodBindingWithResourceParam
+				 */
+				resourceId = theResource.getIdElement();
+
+				try {
+					entity = readEntityLatestVersion(resourceId);
+				} catch (ResourceNotFoundException e) {
+					if (resourceId.isIdPartValidLong()) {
+						throw new InvalidRequestException(
+								getContext().getLocalizer().getMessage(BaseHapiFhirResourceDao.class, "failedToCreateWithClientAssignedNumericId", theResource.getIdElement().getIdPart()));
+					}
+					return doCreate(theResource, null, thePerformIndexing, new Date(), theRequestDetails);
 				}
-				return doCreate(theResource, null, thePerformIndexing, new Date(), theRequestDetails);
 			}
-		}
 
-		if (resourceId.hasVersionIdPart() && Long.parseLong(resourceId.getVersionIdPart()) != entity.getVersion()) {
-			throw new InvalidRequestException("Trying to update " + resourceId + " but this is not the current version");
-		}
+			if (resourceId.hasVersionIdPart() && Long.parseLong(resourceId.getVersionIdPart()) != entity.getVersion()) {
+				throw new InvalidRequestException("Trying to update " + resourceId + " but this is not the current version");
+			}
 
-		if (resourceId.hasResourceType() && !resourceId.getResourceType().equals(getResourceName())) {
-			throw new UnprocessableEntityException(
-					"Invalid resource ID[" + entity.getIdDt().toUnqualifiedVersionless() + "] of type[" + entity.getResourceType() + "] - Does not match expected [" + getResourceName() + "]");
-		}
+			if (resourceId.hasResourceType() && !resourceId.getResourceType().equals(getResourceName())) {
+				throw new UnprocessableEntityException(
+						"Invalid resource ID[" + entity.getIdDt().toUnqualifiedVersionless() + "] of type[" + entity.getResourceType() + "] - Does not match expected [" + getResourceName() + "]");
+			}
 
-		// Notify interceptors
-		ActionRequestDetails requestDetails = new ActionRequestDetails(resourceId, getResourceName(), theResource, getContext(), theRequestDetails);
-		notifyInterceptors(RestOperationTypeEnum.UPDATE, requestDetails);
+			// Notify interceptors
+			ActionRequestDetails requestDetails = new ActionRequestDetails(resourceId, getResourceName(), theResource, getContext(), theRequestDetails);
+			notifyInterceptors(RestOperationTypeEnum.UPDATE, requestDetails);
 
-		// Perform update
-		ResourceTable savedEntity = updateEntity(theResource, entity, true, null, thePerformIndexing, true, new Date(), theRequestDetails);
+			// Perform update
+			ResourceTable savedEntity = updateEntity(theResource, entity, true, null, thePerformIndexing, true, new Date(), theRequestDetails);
 
-		// Notify interceptors
-		theRequestDetails.getRequestOperationCallback().resourceUpdated(theResource);
-		for (IServerInterceptor next : getConfig().getInterceptors()) {
-			if (next instanceof IJpaServerInterceptor) {
-				((IJpaServerInterceptor) next).resourceUpdated(requestDetails, entity);
+			// Notify interceptors
+			theRequestDetails.getRequestOperationCallback().resourceUpdated(theResource);
+			for (IServerInterceptor next : getConfig().getInterceptors()) {
+				if (next instanceof IJpaServerInterceptor) {
+					((IJpaServerInterceptor) next).resourceUpdated(requestDetails, entity);
+				}
 			}
-		}
 
-		DaoMethodOutcome outcome = toMethodOutcome(savedEntity, theResource).setCreated(false);
+			DaoMethodOutcome outcome = toMethodOutcome(savedEntity, theResource).setCreated(false);
 
-		String msg = getContext().getLocalizer().getMessage(BaseHapiFhirResourceDao.class, "successfulCreate", outcome.getId(), w.getMillisAndRestart());
-		outcome.setOperationOutcome(createInfoOperationOutcome(msg));
+			String msg = getContext().getLocalizer().getMessage(BaseHapiFhirResourceDao.class, "successfulCreate", outcome.getId(), w.getMillisAndRestart());
+			outcome.setOperationOutcome(createInfoOperationOutcome(msg));
 
-		ourLog.info(msg);
-		return outcome;
+			ourLog.info(msg);
+			return outcome;
+		} finally {
+			timer.stop();
+		}
 	}
 
 	@Override
@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.Validate;
@@ -52,6 +53,13 @@ public class DaoConfig {
 	// update setter javadoc if default changes
 	// ***
 	private int myDeferIndexingForCodesystemsOfSize = 2000;
+
+	private Set<String> myFulltextAutocompleteSearchParams = new HashSet<String>();
+
+	// ***
+	// update setter javadoc if default changes
+	// ***
+	private int myFulltextFirstMaxHits = 1000;
 	// ***
 	// update setter javadoc if default changes
 	// ***
@@ -62,6 +70,8 @@ public class DaoConfig {
 	
 	private int myIncludeLimit = 2000;
 	
+	private ExecutorService myIncludeLoadingExecutor;
+
 	// ***
 	// update setter javadoc if default changes
 	// ***
@@ -73,6 +83,16 @@ public class DaoConfig {
 	// update setter javadoc if default changes
 	// ***
 	private int myMaximumExpansionSize = 5000;
+
+	// ***
+	// update setter javadoc if default changes
+	// ***
+	private boolean myPreExpandValueSets = false;
+	
+	// ***
+	// update setter javadoc if default changes
+	// ***
+	private int myReadManyLimit = 1000;
 	
 	private ResourceEncodingEnum myResourceEncoding = ResourceEncodingEnum.JSONC;
 	private boolean mySchedulingDisabled;
@@ -82,7 +102,17 @@ public class DaoConfig {
 	private long mySubscriptionPollDelay = 1000;
 	
 	private Long mySubscriptionPurgeInactiveAfterMillis;
+
+	// ***
+	// update setter javadoc if default changes
+	// ***
+	private long mySuggestKeywordsCacheMillis = 5 * DateUtils.MILLIS_PER_SECOND;
 	
+	// ***
+	// update setter javadoc if default changes
+	// ***
+	private int myTermCodeLookupCacheSize = 50000;
+
 	private Set<String> myTreatBaseUrlsAsLocal = new HashSet<String>();
 
 	/**
@@ -111,7 +141,21 @@ public class DaoConfig {
 	public long getExpireSearchResultsAfterMillis() {
 		return myExpireSearchResultsAfterMillis;
 	}
-	
+
+	/**
+	 * See {@link #setFulltextAutocompleteSearchParams(Set)}
+	 */
+	public Set<String> getFulltextAutocompleteSearchParams() {
+		return myFulltextAutocompleteSearchParams;
+	}
+
+	/**
+	 * See {@link #setFulltextFirstMaxHits(int)}
+	 */
+	public int getFulltextFirstMaxHits() {
+		return myFulltextFirstMaxHits;
+	}
+
 	/**
 	 * Gets the maximum number of results to return in a GetTags query (DSTU1 only)
 	 */
@@ -123,6 +167,16 @@ public class DaoConfig {
 		return myIncludeLimit;
 	}
 	
+	/**
+	 * Returns the executor used to resolve the <code>_include</code> and <code>_revinclude</code> paths of a search
+	 * concurrently, or <code>null</code> (which is the default) if they are resolved one after the other
+	 * 
+	 * @see #setIncludeLoadingExecutor(ExecutorService)
+	 */
+	public ExecutorService getIncludeLoadingExecutor() {
+		return myIncludeLoadingExecutor;
+	}
+
 	/**
 	 * Returns the interceptors which will be notified of operations.
 	 * 
@@ -141,6 +195,16 @@ public class DaoConfig {
 	public int getMaximumExpansionSize() {
 		return myMaximumExpansionSize;
 	}
+
+	/**
+	 * Returns the maximum number of IDs which may be requested in a single <code>$read-many</code> operation
+	 * 
+	 * @see #setReadManyLimit(int)
+	 */
+	public int getReadManyLimit() {
+		return myReadManyLimit;
+	}
+
 	public ResourceEncodingEnum getResourceEncoding() {
 		return myResourceEncoding;
 	}
@@ -150,6 +214,20 @@ public class DaoConfig {
 	public Long getSubscriptionPurgeInactiveAfterMillis() {
 		return mySubscriptionPurgeInactiveAfterMillis;
 	}
+	/**
+	 * See {@link #setSuggestKeywordsCacheMillis(long)}
+	 */
+	public long getSuggestKeywordsCacheMillis() {
+		return mySuggestKeywordsCacheMillis;
+	}
+
+	/**
+	 * See {@link #setTermCodeLookupCacheSize(int)}
+	 */
+	public int getTermCodeLookupCacheSize() {
+		return myTermCodeLookupCacheSize;
+	}
+
 	/**
 	 * This setting may be used to advise the server that any references found in
 	 * resources that have any of the base URLs given here will be replaced with
@@ -202,6 +280,19 @@ public class DaoConfig {
 		return myAllowMultipleDelete;
 	}
 
+	/**
+	 * Returns <code>true</code> if string values for the given search parameter should be indexed
+	 * into the autocomplete (n-gram and phonetic) fulltext fields
+	 * 
+	 * @see #setFulltextAutocompleteSearchParams(Set)
+	 */
+	public boolean isFulltextAutocompleteSearchParam(String theResourceType, String theParamName) {
+		if (myFulltextAutocompleteSearchParams.isEmpty()) {
+			return false;
+		}
+		return myFulltextAutocompleteSearchParams.contains(theResourceType + ":" + theParamName) || myFulltextAutocompleteSearchParams.contains("*:" + theParamName);
+	}
+
 	/**
 	 * Should contained IDs be indexed the same way that non-contained IDs are (default is
 	 * <code>true</code>) 
@@ -210,6 +301,13 @@ public class DaoConfig {
 		return myIndexContainedResources;
 	}
 
+	/**
+	 * See {@link #setPreExpandValueSets(boolean)}
+	 */
+	public boolean isPreExpandValueSets() {
+		return myPreExpandValueSets;
+	}
+
 	public boolean isSchedulingDisabled() {
 		return mySchedulingDisabled;
 	}
@@ -296,6 +394,39 @@ public class DaoConfig {
 		myExpireSearchResultsAfterMillis = theExpireSearchResultsAfterMillis;
 	}
 
+	/**
+	 * Sets the string search parameters whose values will be indexed into the fulltext autocomplete
+	 * fields (edge n-gram, n-gram and phonetic). Each of these fields runs an additional analyzer for
+	 * every string value that is stored, so they are only populated for the parameters listed here.
+	 * <p>
+	 * Entries take the form <code>[resourceType]:[paramName]</code> (e.g. <code>Patient:name</code>),
+	 * or <code>*:[paramName]</code> to match the parameter on any resource type. Defaults to an
+	 * empty set. Changes apply to resources as they are stored or reindexed.
+	 * </p>
+	 * 
+	 * @since 1.6
+	 */
+	public void setFulltextAutocompleteSearchParams(Set<String> theFulltextAutocompleteSearchParams) {
+		myFulltextAutocompleteSearchParams = theFulltextAutocompleteSearchParams != null ? theFulltextAutocompleteSearchParams : new HashSet<String>();
+	}
+
+	/**
+	 * Controls the order in which a search combining fulltext parameters (<code>_content</code>
+	 * or <code>_text</code>) with other criteria is evaluated. If the fulltext parameters match
+	 * at most this many resources, they are evaluated first and their matches restrict the other
+	 * criteria. Otherwise the other criteria are evaluated first and their matches are applied as
+	 * a filter within the fulltext query.
+	 * <p>
+	 * Defaults to 1000
+	 * </p>
+	 * 
+	 * @since 1.6
+	 */
+	public void setFulltextFirstMaxHits(int theFulltextFirstMaxHits) {
+		Validate.isTrue(theFulltextFirstMaxHits >= 0, "theFulltextFirstMaxHits must be >= 0");
+		myFulltextFirstMaxHits = theFulltextFirstMaxHits;
+	}
+
 	public void setHardSearchLimit(int theHardSearchLimit) {
 		myHardSearchLimit = theHardSearchLimit;
 	}
@@ -316,6 +447,28 @@ public class DaoConfig {
 		myIncludeLimit = theIncludeLimit;
 	}
 
+	/**
+	 * Sets the executor used to resolve independent <code>_include</code> and <code>_revinclude</code> paths
+	 * concurrently. Each level of includes is still loaded one after the other (breadth first), but the
+	 * queries for the individual paths of a level are submitted to this executor, so its pool size bounds
+	 * the fan-out of a single search. Queries which are executed by the executor use their own database
+	 * connection. If <code>null</code> (which is the default), all queries are executed by the calling
+	 * thread.
+	 * <p>
+	 * Because these queries do not run in the transaction of the search, they only see data which has
+	 * been committed (read committed). In particular, resource links which were written earlier in the same
+	 * transaction as the search (e.g. by a FHIR transaction which creates resources and then searches
+	 * with includes) are not visible to them, so do not set an executor if includes need to be resolved
+	 * within such transactions.
+	 * </p>
+	 * <p>
+	 * Note that the executor is not shut down by the server, this is the responsibility of the caller.
+	 * </p>
+	 */
+	public void setIncludeLoadingExecutor(ExecutorService theIncludeLoadingExecutor) {
+		myIncludeLoadingExecutor = theIncludeLoadingExecutor;
+	}
+
 	/**
 	 * Should contained IDs be indexed the same way that non-contained IDs are (default is
 	 * <code>true</code>) 
@@ -362,6 +515,38 @@ public class DaoConfig {
 		myMaximumExpansionSize = theMaximumExpansionSize;
 	}
 
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>) ValueSets which are stored
+	 * on the server will be expanded in the background and the expansion will be materialized
+	 * into dedicated tables. Materialized expansions are used to page through
+	 * <code>$expand</code> results, to answer <code>$validate-code</code> requests, and to
+	 * resolve <code>:in</code> and <code>:not-in</code> token searches using a database join
+	 * instead of expanding the ValueSet for every request.
+	 * <p>
+	 * Expansions are rebuilt whenever the ValueSet changes or a new version of a code system is
+	 * stored. Until a fresh expansion is available the server falls back to expanding the
+	 * ValueSet on demand.
+	 * </p>
+	 * <p>
+	 * Expansions are stored per ValueSet resource along with its URL and version, and a lookup by URL
+	 * may specify a version using the <code>[url]|[version]</code> syntax. An expansion is only used
+	 * while the code system versions it was built from are still current.
+	 * </p>
+	 * 
+	 * @since 1.6
+	 */
+	public void setPreExpandValueSets(boolean thePreExpandValueSets) {
+		myPreExpandValueSets = thePreExpandValueSets;
+	}
+
+	/**
+	 * Sets the maximum number of IDs which may be requested in a single <code>$read-many</code> operation
+	 * (default is 1000). Requests containing more IDs are rejected.
+	 */
+	public void setReadManyLimit(int theReadManyLimit) {
+		myReadManyLimit = theReadManyLimit;
+	}
+
 	public void setResourceEncoding(ResourceEncodingEnum theResourceEncoding) {
 		myResourceEncoding = theResourceEncoding;
 	}
@@ -394,6 +579,40 @@ public class DaoConfig {
 		setSubscriptionPurgeInactiveAfterMillis(theSeconds * DateUtils.MILLIS_PER_SECOND);
 	}
 
+	/**
+	 * Sets the number of milliseconds for which the results of a <code>$suggest-keywords</code>
+	 * operation are cached, keyed on the context, search parameter and text. Because the operation
+	 * is typically invoked on every keystroke of a type-ahead field, a short cache avoids repeating
+	 * identical fulltext queries, at the cost of newly indexed content taking up to this long to
+	 * appear in suggestions. Set to <code>0</code> to disable caching.
+	 * <p>
+	 * Defaults to 5000 (5 seconds). Changes to this setting apply to suggestions cached after
+	 * the change; previously cached suggestions are discarded.
+	 * </p>
+	 * 
+	 * @since 1.6
+	 */
+	public void setSuggestKeywordsCacheMillis(long theSuggestKeywordsCacheMillis) {
+		Validate.isTrue(theSuggestKeywordsCacheMillis >= 0, "theSuggestKeywordsCacheMillis must be >= 0");
+		mySuggestKeywordsCacheMillis = theSuggestKeywordsCacheMillis;
+	}
+
+	/**
+	 * Sets the maximum number of (system, code) lookups which will be cached in memory by the
+	 * terminology service. The cache is used when validating codes and expanding ValueSets
+	 * against code systems stored on the server, and is discarded whenever a new version of
+	 * a code system is stored. Set to <code>0</code> to disable caching.
+	 * <p>
+	 * Defaults to 50000. Changes to this setting take effect when the server is restarted.
+	 * </p>
+	 * 
+	 * @since 1.6
+	 */
+	public void setTermCodeLookupCacheSize(int theTermCodeLookupCacheSize) {
+		Validate.isTrue(theTermCodeLookupCacheSize >= 0, "theTermCodeLookupCacheSize must be >= 0");
+		myTermCodeLookupCacheSize = theTermCodeLookupCacheSize;
+	}
+
 	/**
 	 * This setting may be used to advise the server that any references found in
 	 * resources that have any of the base URLs given here will be replaced with
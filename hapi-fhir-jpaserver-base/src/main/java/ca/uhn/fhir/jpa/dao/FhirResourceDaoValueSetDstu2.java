@@ -20,11 +20,13 @@ package ca.uhn.fhir.jpa.dao;
  * #L%
  */
 
+import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -33,6 +35,7 @@ import javax.annotation.PostConstruct;
 import org.apache.commons.codec.binary.StringUtils;
 import org.hl7.fhir.instance.hapi.validation.DefaultProfileValidationSupport;
 import org.hl7.fhir.instance.hapi.validation.ValidationSupportChain;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,15 +43,20 @@ import org.springframework.beans.factory.annotation.Qualifier;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.jpa.entity.BaseHasResource;
+import ca.uhn.fhir.jpa.entity.ResourceTable;
+import ca.uhn.fhir.jpa.entity.TermValueSet;
+import ca.uhn.fhir.jpa.entity.TermValueSetCode;
 import ca.uhn.fhir.model.dstu2.composite.CodeableConceptDt;
 import ca.uhn.fhir.model.dstu2.composite.CodingDt;
 import ca.uhn.fhir.model.dstu2.resource.ValueSet;
 import ca.uhn.fhir.model.dstu2.resource.ValueSet.CodeSystemConcept;
 import ca.uhn.fhir.model.dstu2.resource.ValueSet.ComposeInclude;
 import ca.uhn.fhir.model.dstu2.resource.ValueSet.ComposeIncludeConcept;
+import ca.uhn.fhir.model.dstu2.resource.ValueSet.Expansion;
 import ca.uhn.fhir.model.dstu2.resource.ValueSet.ExpansionContains;
 import ca.uhn.fhir.model.primitive.DateTimeDt;
 import ca.uhn.fhir.model.primitive.IdDt;
+import ca.uhn.fhir.model.primitive.IntegerDt;
 import ca.uhn.fhir.rest.method.RequestDetails;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.param.UriParam;
@@ -84,6 +92,76 @@ public class FhirResourceDaoValueSetDstu2 extends FhirResourceDaoDstu2<ValueSet>
 
 	}
 
+	@Override
+	public ValueSet expand(IIdType theId, String theFilter, int theOffset, int theCount) {
+		if (isBlank(theFilter)) {
+			TermValueSet preExpanded = findPreExpandedValueSet(theId);
+			if (preExpanded != null) {
+				return expandFromPreExpansion(preExpanded, theOffset, theCount);
+			}
+		}
+		return applyPaging(expand(theId, theFilter), theOffset, theCount);
+	}
+
+	@Override
+	public ValueSet expandByIdentifier(String theUri, String theFilter, int theOffset, int theCount) {
+		if (isBlank(theFilter)) {
+			TermValueSet preExpanded = myTerminologySvc.findPreExpandedValueSet(theUri);
+			if (preExpanded != null) {
+				return expandFromPreExpansion(preExpanded, theOffset, theCount);
+			}
+		}
+		return applyPaging(expandByIdentifier(theUri, theFilter), theOffset, theCount);
+	}
+
+	private ValueSet applyPaging(ValueSet theExpanded, int theOffset, int theCount) {
+		Expansion expansion = theExpanded.getExpansion();
+		List<ExpansionContains> contains = expansion.getContains();
+		int total = contains.size();
+		int from = Math.min(Math.max(0, theOffset), total);
+		int to = (int) Math.min((long) from + Math.max(0, theCount), total);
+		if (from == 0 && to == total) {
+			return theExpanded;
+		}
+
+		List<ExpansionContains> page = new ArrayList<ExpansionContains>(contains.subList(from, to));
+		expansion.setContains(page);
+		expansion.setTotal(new IntegerDt(total));
+		expansion.setOffset(new IntegerDt(from));
+		return theExpanded;
+	}
+
+	private ValueSet expandFromPreExpansion(TermValueSet thePreExpanded, int theOffset, int theCount) {
+		ValueSet retVal = new ValueSet();
+		retVal.setDate(DateTimeDt.withCurrentTime());
+		Expansion expansion = retVal.getExpansion();
+		expansion.setTimestamp(new DateTimeDt(thePreExpanded.getExpanded()));
+		expansion.setTotal(new IntegerDt(thePreExpanded.getTotalConcepts()));
+		expansion.setOffset(new IntegerDt(Math.max(0, theOffset)));
+
+		for (TermValueSetCode next : myTerminologySvc.findPreExpandedCodes(thePreExpanded, theOffset, theCount)) {
+			addCompose(retVal, next.getSystem(), next.getCode(), next.getDisplay());
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Returns the pre-expansion for the ValueSet with the given ID, but only if it was
+	 * built from the current version of that ValueSet
+	 */
+	private TermValueSet findPreExpandedValueSet(IIdType theId) {
+		if (!theId.hasIdPart() || theId.hasVersionIdPart() || theId.hasBaseUrl()) {
+			return null;
+		}
+		BaseHasResource entity = readEntity(theId);
+		TermValueSet retVal = myTerminologySvc.findPreExpandedValueSetByResourcePid(entity.getId());
+		if (retVal != null && retVal.getResourceVersionId() != null && retVal.getResourceVersionId().longValue() == entity.getVersion()) {
+			return retVal;
+		}
+		return null;
+	}
+
 	private ValueSet loadValueSetForExpansion(IIdType theId) {
 		if (theId.getValue().startsWith("http://hl7.org/fhir/")) {
 			org.hl7.fhir.instance.model.ValueSet valueSet = myValidationSupport.fetchResource(myRiCtx, org.hl7.fhir.instance.model.ValueSet.class, theId.getValue());
@@ -212,9 +290,15 @@ public class FhirResourceDaoValueSetDstu2 extends FhirResourceDaoDstu2<ValueSet>
 		}
 
 		for (IIdType nextId : valueSetIds) {
-			ValueSet expansion = expand(nextId, null);
-			List<ExpansionContains> contains = expansion.getExpansion().getContains();
-			ValidateCodeResult result = validateCodeIsInContains(contains, toStringOrNull(theSystem), toStringOrNull(theCode), theCoding, theCodeableConcept);
+			ValidateCodeResult result;
+			TermValueSet preExpanded = findPreExpandedValueSet(nextId);
+			if (preExpanded != null) {
+				result = validateCodeIsInPreExpansion(preExpanded, toStringOrNull(theSystem), toStringOrNull(theCode), theCoding, theCodeableConcept);
+			} else {
+				ValueSet expansion = expand(nextId, null);
+				List<ExpansionContains> contains = expansion.getExpansion().getContains();
+				result = validateCodeIsInContains(contains, toStringOrNull(theSystem), toStringOrNull(theCode), theCoding, theCodeableConcept);
+			}
 			if (result != null) {
 				if (theDisplay != null && isNotBlank(theDisplay.getValue()) && isNotBlank(result.getDisplay())) {
 					if (!theDisplay.getValue().equals(result.getDisplay())) {
@@ -353,6 +437,47 @@ public class FhirResourceDaoValueSetDstu2 extends FhirResourceDaoDstu2<ValueSet>
 		return null;
 	}
 
+	private ValidateCodeResult validateCodeIsInPreExpansion(TermValueSet thePreExpanded, String theSystem, String theCode, CodingDt theCoding, CodeableConceptDt theCodeableConcept) {
+		List<TermValueSetCode> candidates = new ArrayList<TermValueSetCode>();
+		if (isNotBlank(theCode)) {
+			candidates.add(myTerminologySvc.findPreExpandedCode(thePreExpanded, theSystem, theCode));
+		} else if (theCoding != null) {
+			if (isNotBlank(theCoding.getSystem()) && isNotBlank(theCoding.getCode())) {
+				candidates.add(myTerminologySvc.findPreExpandedCode(thePreExpanded, theCoding.getSystem(), theCoding.getCode()));
+			}
+		} else {
+			for (CodingDt next : theCodeableConcept.getCoding()) {
+				if (isNotBlank(next.getSystem()) && isNotBlank(next.getCode())) {
+					candidates.add(myTerminologySvc.findPreExpandedCode(thePreExpanded, next.getSystem(), next.getCode()));
+				}
+			}
+		}
+
+		for (TermValueSetCode next : candidates) {
+			if (next != null) {
+				return new ValidateCodeResult(true, "Validation succeeded", next.getDisplay());
+			}
+		}
+		return null;
+	}
+
+	@Override
+	protected ResourceTable updateEntity(IBaseResource theResource, ResourceTable theEntity, boolean theUpdateHistory, Date theDeletedTimestampOrNull, boolean thePerformIndexing,
+			boolean theUpdateVersion, Date theUpdateTime, RequestDetails theRequestDetails) {
+		ResourceTable retVal = super.updateEntity(theResource, theEntity, theUpdateHistory, theDeletedTimestampOrNull, thePerformIndexing, theUpdateVersion, theUpdateTime, theRequestDetails);
+
+		if (theDeletedTimestampOrNull != null) {
+			myTerminologySvc.deleteValueSetPreExpansion(retVal.getId());
+		} else {
+			ValueSet valueSet = (ValueSet) theResource;
+			if (valueSet != null && isNotBlank(valueSet.getUrl())) {
+				myTerminologySvc.storeValueSetForPreExpansion(valueSet.getUrl(), defaultIfBlank(valueSet.getVersion(), null), retVal.getId(), retVal.getVersion());
+			}
+		}
+
+		return retVal;
+	}
+
 	@Override
 	public void purgeCaches() {
 		// nothing
@@ -23,11 +23,17 @@ package ca.uhn.fhir.jpa.dao;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -36,6 +42,8 @@ import javax.persistence.PersistenceContextType;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.highlight.Formatter;
 import org.apache.lucene.search.highlight.Highlighter;
@@ -49,8 +57,8 @@ import org.hibernate.search.query.dsl.QueryBuilder;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import ca.uhn.fhir.jpa.entity.ResourceTable;
 import ca.uhn.fhir.model.api.IQueryParameterType;
@@ -63,9 +71,19 @@ import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 public class FulltextSearchSvcImpl extends BaseHapiFhirDao<IBaseResource> implements IFulltextSearchSvc {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(FulltextSearchSvcImpl.class);
 
+	private static final int MAX_CACHED_SUGGESTIONS = 1000;
+
+	private static final int MAX_SUGGESTIONS = 20;
+
 	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
 	private EntityManager myEntityManager;
 
+	private volatile Analyzer myResourceTableAnalyzer;
+
+	private Cache<String, List<Suggestion>> mySuggestionCache;
+
+	private long mySuggestionCacheMillis;
+
 	private void addTextSearch(QueryBuilder theQueryBuilder, BooleanJunction<?> theBoolean, List<List<? extends IQueryParameterType>> theTerms, String theFieldName) {
 		if (theTerms == null) {
 			return;
@@ -86,7 +104,55 @@ public class FulltextSearchSvcImpl extends BaseHapiFhirDao<IBaseResource> implem
 		}
 	}
 
+	private Query createSearchQuery(QueryBuilder theQueryBuilder, String theResourceName, List<List<? extends IQueryParameterType>> theContentAndTerms, List<List<? extends IQueryParameterType>> theTextAndTerms, Long theReferencingPid, Collection<Long> theFilterPids) {
+		BooleanJunction<?> bool = theQueryBuilder.bool();
+
+		/*
+		 * Handle _content parameter (resource body content)
+		 */
+		addTextSearch(theQueryBuilder, bool, theContentAndTerms, "myContentText");
+
+		/*
+		 * Handle _text parameter (resource narrative content)
+		 */
+		addTextSearch(theQueryBuilder, bool, theTextAndTerms, "myNarrativeText");
+
+		if (theReferencingPid != null) {
+			bool.must(theQueryBuilder.keyword().onField("myResourceLinks.myTargetResourcePid").matching(theReferencingPid).createQuery());
+		}
+
+		if (bool.isEmpty()) {
+			return null;
+		}
+
+		if (isNotBlank(theResourceName)) {
+			bool.must(theQueryBuilder.keyword().onField("myResourceType").matching(theResourceName).createQuery());
+		}
+
+		/*
+		 * Restrict to resources which have already matched the other search criteria. This uses a
+		 * single terms query on the document ID (which Hibernate Search indexes as a string) instead
+		 * of a boolean clause per PID, so it isn't subject to Lucene's maximum clause count.
+		 */
+		if (theFilterPids != null) {
+			if (theFilterPids.isEmpty()) {
+				return null;
+			}
+			List<Term> terms = new ArrayList<Term>(theFilterPids.size());
+			for (Long nextPid : theFilterPids) {
+				terms.add(new Term("myId", nextPid.toString()));
+			}
+			bool.must(new TermsQuery(terms));
+		}
+
+		return bool.createQuery();
+	}
+
 	private List<Long> doSearch(String theResourceName, SearchParameterMap theParams, Long theReferencingPid) {
+		return doSearch(theResourceName, theParams, theReferencingPid, null);
+	}
+
+	private List<Long> doSearch(String theResourceName, SearchParameterMap theParams, Long theReferencingPid, Collection<Long> theFilterPids) {
 		FullTextEntityManager em = org.hibernate.search.jpa.Search.getFullTextEntityManager(myEntityManager);
 
 		List<Long> pids = null;
@@ -137,34 +203,18 @@ public class FulltextSearchSvcImpl extends BaseHapiFhirDao<IBaseResource> implem
 		*/
 		
 		QueryBuilder qb = em.getSearchFactory().buildQueryBuilder().forEntity(ResourceTable.class).get();
-		BooleanJunction<?> bool = qb.bool();
 
-		/*
-		 * Handle _content parameter (resource body content)
-		 */
 		List<List<? extends IQueryParameterType>> contentAndTerms = theParams.remove(Constants.PARAM_CONTENT);
-		addTextSearch(qb, bool, contentAndTerms, "myContentText");
-
-		/*
-		 * Handle _text parameter (resource narrative content)
-		 */
 		List<List<? extends IQueryParameterType>> textAndTerms = theParams.remove(Constants.PARAM_TEXT);
-		addTextSearch(qb, bool, textAndTerms, "myNarrativeText");
 
-		if (theReferencingPid != null) {
-			bool.must(qb.keyword().onField("myResourceLinks.myTargetResourcePid").matching(theReferencingPid).createQuery());
-		}
-
-		if (bool.isEmpty()) {
+		Query luceneQuery = createSearchQuery(qb, theResourceName, contentAndTerms, textAndTerms, theReferencingPid, theFilterPids);
+		if (luceneQuery == null) {
+			if (theFilterPids != null) {
+				return new ArrayList<Long>();
+			}
 			return pids;
 		}
 
-		if (isNotBlank(theResourceName)) {
-			bool.must(qb.keyword().onField("myResourceType").matching(theResourceName).createQuery());
-		}
-
-		Query luceneQuery = bool.createQuery();
-
 		// wrap Lucene query in a javax.persistence.Query
 		FullTextQuery jpaQuery = em.createFullTextQuery(luceneQuery, ResourceTable.class);
 		jpaQuery.setProjection("myId");
@@ -209,6 +259,79 @@ public class FulltextSearchSvcImpl extends BaseHapiFhirDao<IBaseResource> implem
 		return doSearch(theResourceName, theParams, null);
 	}
 
+	@Transactional()
+	@Override
+	public List<Long> search(String theResourceName, SearchParameterMap theParams, Collection<Long> theFilterPids) {
+		Validate.notNull(theFilterPids, "theFilterPids must not be null");
+		return doSearch(theResourceName, theParams, null, theFilterPids);
+	}
+
+	@Transactional()
+	@Override
+	public List<Long> searchIfSelective(String theResourceName, SearchParameterMap theParams, int theMaxHits) {
+		FullTextEntityManager em = org.hibernate.search.jpa.Search.getFullTextEntityManager(myEntityManager);
+		QueryBuilder qb = em.getSearchFactory().buildQueryBuilder().forEntity(ResourceTable.class).get();
+
+		Query luceneQuery = createSearchQuery(qb, theResourceName, theParams.get(Constants.PARAM_CONTENT), theParams.get(Constants.PARAM_TEXT), null, null);
+		if (luceneQuery == null) {
+			return null;
+		}
+
+		/*
+		 * Fetching one more hit than allowed tells us whether the text criteria are selective, and if
+		 * they are, the same query has already produced the results
+		 */
+		FullTextQuery jpaQuery = em.createFullTextQuery(luceneQuery, ResourceTable.class);
+		jpaQuery.setProjection("myId");
+		jpaQuery.setMaxResults((int) Math.min((long) theMaxHits + 1, Integer.MAX_VALUE));
+		List<?> result = jpaQuery.getResultList();
+		if (result.size() > theMaxHits) {
+			return null;
+		}
+
+		theParams.remove(Constants.PARAM_CONTENT);
+		theParams.remove(Constants.PARAM_TEXT);
+
+		ArrayList<Long> retVal = new ArrayList<Long>(result.size());
+		for (Object object : result) {
+			Long next = (Long) ((Object[]) object)[0];
+			if (next != null) {
+				retVal.add(next);
+			}
+		}
+		return retVal;
+	}
+
+	private Analyzer getResourceTableAnalyzer(FullTextEntityManager theEntityManager) {
+		Analyzer retVal = myResourceTableAnalyzer;
+		if (retVal == null) {
+			retVal = theEntityManager.getSearchFactory().getAnalyzer(ResourceTable.class);
+			myResourceTableAnalyzer = retVal;
+		}
+		return retVal;
+	}
+
+	private synchronized Cache<String, List<Suggestion>> getSuggestionCache() {
+		/*
+		 * The TTL of a Guava cache is fixed when it is built, so rebuild the cache
+		 * if the configured value has changed since then
+		 */
+		long cacheMillis = getConfig().getSuggestKeywordsCacheMillis();
+		if (mySuggestionCache == null || mySuggestionCacheMillis != cacheMillis) {
+			mySuggestionCacheMillis = cacheMillis;
+			mySuggestionCache = CacheBuilder.newBuilder()
+					.expireAfterWrite(Math.max(1, cacheMillis), TimeUnit.MILLISECONDS)
+					.maximumSize(MAX_CACHED_SUGGESTIONS)
+					.build();
+		}
+		return mySuggestionCache;
+	}
+
+	@Override
+	public void invalidateSuggestKeywordsCache() {
+		getSuggestionCache().invalidateAll();
+	}
+
 	@Override
 	public List<Suggestion> suggestKeywords(String theContext, String theSearchParam, String theText) {
 		Validate.notBlank(theContext, "theContext must be provided");
@@ -221,6 +344,17 @@ public class FulltextSearchSvcImpl extends BaseHapiFhirDao<IBaseResource> implem
 		if (contextParts.length != 3 || "Patient".equals(contextParts[0]) == false || "$everything".equals(contextParts[2]) == false) {
 			throw new InvalidRequestException("Invalid context: " + theContext);
 		}
+
+		boolean useCache = getConfig().getSuggestKeywordsCacheMillis() > 0;
+		String cacheKey = theContext + '|' + theSearchParam + '|' + theText.toLowerCase();
+		if (useCache) {
+			List<Suggestion> cached = getSuggestionCache().getIfPresent(cacheKey);
+			if (cached != null) {
+				ourLog.debug("Returning {} cached suggestions for term {}", cached.size(), theText);
+				return new ArrayList<Suggestion>(cached);
+			}
+		}
+
 		Long pid = BaseHapiFhirDao.translateForcedIdToPid(contextParts[0], contextParts[1], myForcedIdDao);
 
 		FullTextEntityManager em = org.hibernate.search.jpa.Search.getFullTextEntityManager(myEntityManager);
@@ -248,16 +382,23 @@ public class FulltextSearchSvcImpl extends BaseHapiFhirDao<IBaseResource> implem
 		ftq.setMaxResults(20);
 
 		List<?> resultList = ftq.getResultList();
-		List<Suggestion> suggestions = Lists.newArrayList();
+
+		/*
+		 * The formatter, scorer and highlighter only depend on the query, so a single
+		 * instance of each is shared across all of the hits
+		 */
+		SuggestionCollector collector = new SuggestionCollector();
+		MySuggestionFormatter formatter = new MySuggestionFormatter(theText, collector);
+		Scorer scorer = new QueryScorer(textQuery);
+		Highlighter highlighter = new Highlighter(formatter, scorer);
+		Analyzer analyzer = getResourceTableAnalyzer(em);
+
 		for (Object next : resultList) {
 			Object[] nextAsArray = (Object[]) next;
 			String nextValue = (String) nextAsArray[0];
 
 			try {
-				MySuggestionFormatter formatter = new MySuggestionFormatter(theText, suggestions);
-				Scorer scorer = new QueryScorer(textQuery);
-				Highlighter highlighter = new Highlighter(formatter, scorer);
-				Analyzer analyzer = em.getSearchFactory().getAnalyzer(ResourceTable.class);
+				formatter.clearFindPhrasesWith();
 
 				formatter.setAnalyzer("myContentTextPhonetic");
 				highlighter.getBestFragments(analyzer.tokenStream("myContentTextPhonetic", nextValue), nextValue, 10);
@@ -269,36 +410,108 @@ public class FulltextSearchSvcImpl extends BaseHapiFhirDao<IBaseResource> implem
 				formatter.setAnalyzer("myContentTextEdgeNGram");
 				highlighter.getBestFragments(analyzer.tokenStream("myContentTextEdgeNGram", nextValue), nextValue, 10);
 
-				// formatter.setAnalyzer("myContentText");
-				// highlighter.getBestFragments(analyzer.tokenStream("myContentText", nextValue), nextValue, 10);
-				// formatter.setAnalyzer("myContentTextNGram");
-				// highlighter.getBestFragments(analyzer.tokenStream("myContentTextNGram", nextValue), nextValue, 10);
-				// formatter.setAnalyzer("myContentTextEdgeNGram");
-				// highlighter.getBestFragments(analyzer.tokenStream("myContentTextEdgeNGram", nextValue), nextValue, 10);
-				// formatter.setAnalyzer("myContentTextPhonetic");
-				// highlighter.getBestFragments(analyzer.tokenStream("myContentTextPhonetic", nextValue), nextValue, 10);
 			} catch (Exception e) {
 				throw new InternalErrorException(e);
 			}
 
 		}
 
-		Collections.sort(suggestions);
+		List<Suggestion> suggestions = collector.getTopSuggestions(MAX_SUGGESTIONS);
 
-		Set<String> terms = Sets.newHashSet();
-		for (Iterator<Suggestion> iter = suggestions.iterator(); iter.hasNext();) {
-			String nextTerm = iter.next().getTerm().toLowerCase();
-			if (!terms.add(nextTerm)) {
-				iter.remove();
-			}
+		if (useCache) {
+			getSuggestionCache().put(cacheKey, new ArrayList<Suggestion>(suggestions));
 		}
 
 		long delay = System.currentTimeMillis() - start;
-		ourLog.info("Provided {} suggestions for term {} in {} ms", new Object[] { terms.size(), theText, delay });
+		ourLog.info("Provided {} suggestions for term {} in {} ms", new Object[] { suggestions.size(), theText, delay });
 
 		return suggestions;
 	}
 
+	/**
+	 * Collects candidate suggestions, keeping only the best score seen for each term. The
+	 * final ranking only needs to examine the distinct terms and keeps at most K of them.
+	 */
+	static class SuggestionCollector {
+
+		private final Map<String, SuggestionCandidate> myCandidates = new LinkedHashMap<String, SuggestionCandidate>();
+		private int myNextSequence;
+
+		void add(String theTerm, float theScore) {
+			SuggestionCandidate existing = myCandidates.get(theTerm);
+			if (existing == null || theScore > existing.myScore) {
+				myCandidates.put(theTerm, new SuggestionCandidate(theTerm, theScore, myNextSequence));
+			}
+			myNextSequence++;
+		}
+
+		Collection<SuggestionCandidate> getCandidates() {
+			return myCandidates.values();
+		}
+
+		/**
+		 * Returns up to <code>theMaxSuggestions</code> suggestions, best first, with terms which differ
+		 * only by case collapsed into a single suggestion
+		 */
+		List<Suggestion> getTopSuggestions(int theMaxSuggestions) {
+			Map<String, SuggestionCandidate> bestByLowerCase = new HashMap<String, SuggestionCandidate>();
+			for (SuggestionCandidate next : myCandidates.values()) {
+				String key = next.myTerm.toLowerCase();
+				SuggestionCandidate existing = bestByLowerCase.get(key);
+				if (existing == null || SuggestionCandidate.RANKING.compare(next, existing) < 0) {
+					bestByLowerCase.put(key, next);
+				}
+			}
+
+			// Min-heap on ranking, so the weakest of the current top K is always at the head
+			PriorityQueue<SuggestionCandidate> topK = new PriorityQueue<SuggestionCandidate>(theMaxSuggestions + 1, Collections.reverseOrder(SuggestionCandidate.RANKING));
+			for (SuggestionCandidate next : bestByLowerCase.values()) {
+				topK.add(next);
+				if (topK.size() > theMaxSuggestions) {
+					topK.poll();
+				}
+			}
+
+			List<SuggestionCandidate> sorted = new ArrayList<SuggestionCandidate>(topK);
+			Collections.sort(sorted, SuggestionCandidate.RANKING);
+
+			List<Suggestion> retVal = new ArrayList<Suggestion>(sorted.size());
+			for (SuggestionCandidate next : sorted) {
+				retVal.add(new Suggestion(next.myTerm, next.myScore));
+			}
+			return retVal;
+		}
+
+	}
+
+	static class SuggestionCandidate {
+
+		/**
+		 * Highest score first, ties broken by the order in which the candidates were found
+		 */
+		static final Comparator<SuggestionCandidate> RANKING = new Comparator<SuggestionCandidate>() {
+			@Override
+			public int compare(SuggestionCandidate theO1, SuggestionCandidate theO2) {
+				int retVal = Float.compare(theO2.myScore, theO1.myScore);
+				if (retVal == 0) {
+					retVal = theO1.mySequence < theO2.mySequence ? -1 : (theO1.mySequence == theO2.mySequence ? 0 : 1);
+				}
+				return retVal;
+			}
+		};
+
+		private final float myScore;
+		private final int mySequence;
+		private final String myTerm;
+
+		SuggestionCandidate(String theTerm, float theScore, int theSequence) {
+			myTerm = theTerm;
+			myScore = theScore;
+			mySequence = theSequence;
+		}
+
+	}
+
 	public static class Suggestion implements Comparable<Suggestion> {
 		public Suggestion(String theTerm, float theScore) {
 			myTerm = theTerm;
@@ -329,22 +542,27 @@ public class FulltextSearchSvcImpl extends BaseHapiFhirDao<IBaseResource> implem
 
 	public class MySuggestionFormatter implements Formatter {
 
-		private List<Suggestion> mySuggestions;
+		private SuggestionCollector mySuggestions;
 		private String myAnalyzer;
 		private ArrayList<String> myPartialMatchPhrases;
 		private ArrayList<Float> myPartialMatchScores;
 		private String myOriginalSearch;
 
-		public MySuggestionFormatter(String theOriginalSearch, List<Suggestion> theSuggestions) {
+		MySuggestionFormatter(String theOriginalSearch, SuggestionCollector theSuggestions) {
 			myOriginalSearch = theOriginalSearch;
 			mySuggestions = theSuggestions;
 		}
 
+		public void clearFindPhrasesWith() {
+			myPartialMatchPhrases = null;
+			myPartialMatchScores = null;
+		}
+
 		public void setFindPhrasesWith() {
 			myPartialMatchPhrases = new ArrayList<String>();
 			myPartialMatchScores = new ArrayList<Float>();
 
-			for (Suggestion next : mySuggestions) {
+			for (SuggestionCandidate next : mySuggestions.getCandidates()) {
 				myPartialMatchPhrases.add(' ' + next.myTerm);
 				myPartialMatchScores.add(next.myScore);
 			}
@@ -365,12 +583,12 @@ public class FulltextSearchSvcImpl extends BaseHapiFhirDao<IBaseResource> implem
 				if (theOriginalText.equalsIgnoreCase(myOriginalSearch)) {
 					score = score + 1.0f;
 				}
-				mySuggestions.add(new Suggestion(theOriginalText, score));
+				mySuggestions.add(theOriginalText, score);
 			} else if (myPartialMatchPhrases != null) {
 				if (theOriginalText.length() < 100) {
 					for (int i = 0; i < myPartialMatchPhrases.size(); i++) {
 						if (theOriginalText.contains(myPartialMatchPhrases.get(i))) {
-							mySuggestions.add(new Suggestion(theOriginalText, myPartialMatchScores.get(i) - 0.5f));
+							mySuggestions.add(theOriginalText, myPartialMatchScores.get(i) - 0.5f);
 						}
 					}
 				}
@@ -20,6 +20,7 @@ package ca.uhn.fhir.jpa.dao;
  * #L%
  */
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +41,8 @@ import ca.uhn.fhir.rest.api.ValidationModeEnum;
 import ca.uhn.fhir.rest.method.RequestDetails;
 import ca.uhn.fhir.rest.server.EncodingEnum;
 import ca.uhn.fhir.rest.server.IBundleProvider;
+import ca.uhn.fhir.rest.server.ResourceVersion;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 
 public interface IFhirResourceDao<T extends IBaseResource> extends IDao {
@@ -131,6 +134,18 @@ public interface IFhirResourceDao<T extends IBaseResource> extends IDao {
 	 */
 	T read(IIdType theId, RequestDetails theRequestDetails);
 
+	/**
+	 * Reads the current versions of several resources of this type at once. Forced IDs are resolved using a
+	 * single query and the resources are loaded using a single query. IDs which are not known to the server, or
+	 * which belong to deleted resources, are not included in the results. Interceptors are notified of a
+	 * read for each requested ID.
+	 * 
+	 * @return The resources, in the order in which their IDs were given
+	 * @throws InvalidRequestException
+	 *            If more IDs than {@link DaoConfig#getReadManyLimit()} are given, or an ID has a version
+	 */
+	List<T> readMany(Collection<IIdType> theIds, RequestDetails theRequestDetails);
+
 	BaseHasResource readEntity(IIdType theId);
 
 	/**
@@ -140,6 +155,16 @@ public interface IFhirResourceDao<T extends IBaseResource> extends IDao {
 	 */
 	BaseHasResource readEntity(IIdType theId, boolean theCheckForForcedId);
 
+	/**
+	 * Returns the current version ID and last updated time of the given resource, using only the resource table's
+	 * version columns (i.e. without loading or parsing the resource body). This is used to answer conditional reads.
+	 * Interceptors are not notified.
+	 * 
+	 * @return The version, or <code>null</code> if the resource does not exist, has been deleted, or (if the ID has a
+	 *         version part) the requested version is not the current one
+	 */
+	ResourceVersion readVersion(IIdType theId, RequestDetails theRequestDetails);
+
 	/**
 	 * Updates index tables associated with the given resource. Does not create a new
 	 * version or update the resource's update time.
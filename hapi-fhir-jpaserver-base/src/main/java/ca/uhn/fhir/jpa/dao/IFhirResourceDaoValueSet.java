@@ -32,6 +32,20 @@ public interface IFhirResourceDaoValueSet<T extends IBaseResource, CD, CC> exten
 
 	T expandByIdentifier(String theUri, String theFilter);
 
+	/**
+	 * Expands the ValueSet with the given ID, returning at most <code>theCount</code> codes starting
+	 * at <code>theOffset</code>. If a pre-expansion of the ValueSet is available (and no filter has been
+	 * supplied), the page is read directly from the pre-expansion tables.
+	 */
+	T expand(IIdType theId, String theFilter, int theOffset, int theCount);
+
+	/**
+	 * Expands the ValueSet with the given URI, returning at most <code>theCount</code> codes starting
+	 * at <code>theOffset</code>. If a pre-expansion of the ValueSet is available (and no filter has been
+	 * supplied), the page is read directly from the pre-expansion tables.
+	 */
+	T expandByIdentifier(String theUri, String theFilter, int theOffset, int theCount);
+
 	void purgeCaches();
 
 	ValidateCodeResult validateCode(IPrimitiveType<String> theValueSetIdentifier, IIdType theId, IPrimitiveType<String> theCode, IPrimitiveType<String> theSystem, IPrimitiveType<String> theDisplay, CD theCoding, CC theCodeableConcept);
@@ -20,6 +20,7 @@ package ca.uhn.fhir.jpa.dao;
  * #L%
  */
 
+import java.util.Collection;
 import java.util.List;
 
 import ca.uhn.fhir.jpa.dao.FulltextSearchSvcImpl.Suggestion;
@@ -27,9 +28,30 @@ import ca.uhn.fhir.jpa.dao.FulltextSearchSvcImpl.Suggestion;
 public interface IFulltextSearchSvc {
 
 	List<Suggestion> suggestKeywords(String theContext, String theSearchParam, String theText);
+
+	/**
+	 * Discards any cached results from {@link #suggestKeywords(String, String, String)}
+	 */
+	void invalidateSuggestKeywordsCache();
 	
 	List<Long> search(String theResourceName, SearchParameterMap theParams);
 
+	/**
+	 * Performs the fulltext portion of a search, returning only resources whose PID is in
+	 * <code>theFilterPids</code>. The filter is applied inside the Lucene query, so text hits
+	 * outside of it are never materialized.
+	 */
+	List<Long> search(String theResourceName, SearchParameterMap theParams, Collection<Long> theFilterPids);
+
+	/**
+	 * Performs the fulltext portion of a search (<code>_content</code> and <code>_text</code>), but only
+	 * if it matches at most <code>theMaxHits</code> resources. In that case the matching PIDs are returned
+	 * and the fulltext parameters are removed from the map, as {@link #search(String, SearchParameterMap)}
+	 * does. Otherwise (or if the map contains no fulltext parameters) <code>null</code> is returned and
+	 * the map is left unchanged.
+	 */
+	List<Long> searchIfSelective(String theResourceName, SearchParameterMap theParams, int theMaxHits);
+
 	List<Long> everything(String theResourceName, SearchParameterMap theParams);
 
 }
@@ -40,10 +40,17 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.AbstractQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Expression;
@@ -98,6 +105,8 @@ import ca.uhn.fhir.jpa.entity.SearchTypeEnum;
 import ca.uhn.fhir.jpa.entity.TagDefinition;
 import ca.uhn.fhir.jpa.entity.TagTypeEnum;
 import ca.uhn.fhir.jpa.entity.TermConcept;
+import ca.uhn.fhir.jpa.entity.TermValueSet;
+import ca.uhn.fhir.jpa.entity.TermValueSetCode;
 import ca.uhn.fhir.jpa.search.PersistedJpaBundleProvider;
 import ca.uhn.fhir.jpa.term.IHapiTerminologySvc;
 import ca.uhn.fhir.jpa.term.VersionIndependentConcept;
@@ -133,6 +142,7 @@ import ca.uhn.fhir.rest.param.UriParam;
 import ca.uhn.fhir.rest.param.UriParamQualifierEnum;
 import ca.uhn.fhir.rest.server.Constants;
 import ca.uhn.fhir.rest.server.IBundleProvider;
+import ca.uhn.fhir.rest.server.RequestMetrics;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
@@ -937,6 +947,14 @@ public class SearchBuilder {
 			return;
 		}
 
+		if (theList.get(0) instanceof TokenParam && ((TokenParam) theList.get(0)).getModifier() == TokenParamModifier.NOT_IN) {
+			if (theList.size() > 1) {
+				throw new InvalidRequestException("Parameter[" + theParamName + "] with modifier " + TokenParamModifier.NOT_IN.getValue() + " can only have a single value");
+			}
+			addPredicateTokenNotIn(theParamName, (TokenParam) theList.get(0));
+			return;
+		}
+
 		CriteriaBuilder builder = myEntityManager.getCriteriaBuilder();
 		CriteriaQuery<Long> cq = builder.createQuery(Long.class);
 		Root<ResourceIndexedSearchParamToken> from = cq.from(ResourceIndexedSearchParamToken.class);
@@ -954,6 +972,18 @@ public class SearchBuilder {
 					addPredicateString(theParamName, theList);
 					continue;
 				}
+
+				/*
+				 * If the ValueSet has been pre-expanded, join against the expansion instead
+				 * of expanding it and building a big OR list
+				 */
+				if (id.getModifier() == TokenParamModifier.IN) {
+					TermValueSet preExpanded = myTerminologySvc.findPreExpandedValueSet(id.getValue());
+					if (preExpanded != null) {
+						codePredicates.add(createPredicateTokenInPreExpansion(builder, cq, from, preExpanded));
+						continue;
+					}
+				}
 			}
 
 			Predicate singleCode = createPredicateToken(nextOr, theParamName, builder, from);
@@ -980,6 +1010,46 @@ public class SearchBuilder {
 		doSetPids(new HashSet<Long>(q.getResultList()));
 	}
 
+	/**
+	 * Handles <code>[param]:not-in=[valueset]</code>, which matches any resource that does not
+	 * have a token for the given param which is found in the given ValueSet
+	 */
+	private void addPredicateTokenNotIn(String theParamName, TokenParam theParam) {
+		CriteriaBuilder builder = myEntityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> cq = builder.createQuery(Long.class);
+		Root<ResourceTable> from = cq.from(ResourceTable.class);
+		cq.select(from.get("myId").as(Long.class));
+
+		Subquery<Long> subQ = cq.subquery(Long.class);
+		Root<ResourceIndexedSearchParamToken> subQfrom = subQ.from(ResourceIndexedSearchParamToken.class);
+		subQ.select(subQfrom.get("myResourcePid").as(Long.class));
+
+		Predicate inValueSet;
+		TermValueSet preExpanded = myTerminologySvc.findPreExpandedValueSet(theParam.getValue());
+		if (preExpanded != null) {
+			inValueSet = createPredicateTokenInPreExpansion(builder, subQ, subQfrom, preExpanded);
+		} else {
+			TokenParam inParam = new TokenParam(null, theParam.getValue()).setModifier(TokenParamModifier.IN);
+			inValueSet = createPredicateToken(inParam, theParamName, builder, subQfrom);
+		}
+
+		List<Predicate> predicates = new ArrayList<Predicate>();
+		predicates.add(builder.equal(from.get("myResourceType"), myResourceName));
+		predicates.add(builder.isNull(from.get("myDeleted")));
+		if (inValueSet != null) {
+			Predicate subQtype = builder.equal(subQfrom.get("myResourceType"), myResourceName);
+			Predicate subQname = builder.equal(subQfrom.get("myParamName"), theParamName);
+			subQ.where(builder.and(subQtype, subQname, inValueSet));
+			predicates.add(builder.not(builder.in(from.get("myId")).value(subQ)));
+		}
+		createPredicateResourceId(builder, cq, predicates, from.get("myId").as(Long.class));
+
+		cq.where(builder.and(toArray(predicates)));
+
+		TypedQuery<Long> q = myEntityManager.createQuery(cq);
+		doSetPids(new HashSet<Long>(q.getResultList()));
+	}
+
 	private void addPredicateUri(String theParamName, List<? extends IQueryParameterType> theList) {
 		if (Boolean.TRUE.equals(theList.get(0).getMissing())) {
 			addPredicateParamMissing("myParamsUri", theParamName, ResourceIndexedSearchParamUri.class);
@@ -1428,6 +1498,19 @@ public class SearchBuilder {
 		return singleCode;
 	}
 
+	private Predicate createPredicateTokenInPreExpansion(CriteriaBuilder theBuilder, AbstractQuery<?> theQuery, From<?, ResourceIndexedSearchParamToken> theFrom, TermValueSet theValueSet) {
+		Subquery<Long> subQ = theQuery.subquery(Long.class);
+		Root<TermValueSetCode> subQfrom = subQ.from(TermValueSetCode.class);
+		subQ.select(subQfrom.get("myId").as(Long.class));
+
+		Predicate valueSetPredicate = theBuilder.equal(subQfrom.get("myValueSetPid"), theValueSet.getId());
+		Predicate systemPredicate = theBuilder.equal(subQfrom.get("mySystem"), theFrom.get("mySystem"));
+		Predicate codePredicate = theBuilder.equal(subQfrom.get("myCode"), theFrom.get("myValue"));
+		subQ.where(theBuilder.and(valueSetPredicate, systemPredicate, codePredicate));
+
+		return theBuilder.exists(subQ);
+	}
+
 	private Predicate createResourceLinkPathPredicate(String theParamName, Root<? extends ResourceLink> from) {
 		return createResourceLinkPathPredicate(myContext, theParamName, from, myResourceType);
 	}
@@ -1567,6 +1650,14 @@ public class SearchBuilder {
 		}
 	}
 
+	private boolean doHavePids() {
+		if (myParams.isPersistResults()) {
+			return mySearchEntity.getTotalCount() != null && mySearchEntity.getTotalCount() > -1;
+		} else {
+			return myPids != null;
+		}
+	}
+
 	private boolean doHaveNoResults() {
 		if (myParams.isPersistResults()) {
 			return mySearchEntity.getTotalCount() == 0;
@@ -1775,12 +1866,29 @@ public class SearchBuilder {
 
 		} else {
 
+			boolean criteriaApplied = false;
 			if (mySearchDao == null) {
 				if (theParams.containsKey(Constants.PARAM_TEXT)) {
 					throw new InvalidRequestException("Fulltext search is not enabled on this service, can not process parameter: " + Constants.PARAM_TEXT);
 				} else if (theParams.containsKey(Constants.PARAM_CONTENT)) {
 					throw new InvalidRequestException("Fulltext search is not enabled on this service, can not process parameter: " + Constants.PARAM_CONTENT);
 				}
+			} else if (isFulltextSearchWithOtherCriteria(theParams)) {
+				/*
+				 * If the text criteria are selective enough, their (few) hits restrict the database
+				 * criteria. If not, the database criteria are evaluated first instead so that the large
+				 * set of text hits is never materialized.
+				 */
+				List<Long> searchResultPids = mySearchDao.searchIfSelective(myResourceName, theParams, myCallingDao.getConfig().getFulltextFirstMaxHits());
+				if (searchResultPids == null) {
+					ourLog.debug("Fulltext criteria are not selective, evaluating other criteria first");
+					searchCriteriaThenFulltext(theParams, lu);
+					criteriaApplied = true;
+				} else if (searchResultPids.isEmpty()) {
+					return doReturnProvider();
+				} else {
+					doSetPids(searchResultPids);
+				}
 			} else {
 				List<Long> searchResultPids = mySearchDao.search(myResourceName, theParams);
 				if (searchResultPids != null) {
@@ -1791,7 +1899,7 @@ public class SearchBuilder {
 				}
 			}
 
-			if (!theParams.isEmpty()) {
+			if (!criteriaApplied && !theParams.isEmpty()) {
 				searchForIdsWithAndOr(theParams, lu);
 			}
 
@@ -1826,6 +1934,47 @@ public class SearchBuilder {
 		return doReturnProvider();
 	}
 
+	private boolean isFulltextSearchWithOtherCriteria(SearchParameterMap theParams) {
+		int fulltextParamCount = 0;
+		if (theParams.containsKey(Constants.PARAM_CONTENT)) {
+			fulltextParamCount++;
+		}
+		if (theParams.containsKey(Constants.PARAM_TEXT)) {
+			fulltextParamCount++;
+		}
+		return fulltextParamCount > 0 && theParams.size() > fulltextParamCount;
+	}
+
+	/**
+	 * Evaluates the non-fulltext criteria of a search, and then pushes the matching PIDs into
+	 * the Lucene query as a filter
+	 */
+	private void searchCriteriaThenFulltext(SearchParameterMap theParams, DateRangeParam theLastUpdated) {
+		SearchParameterMap fulltextParams = new SearchParameterMap();
+		if (theParams.containsKey(Constants.PARAM_CONTENT)) {
+			fulltextParams.put(Constants.PARAM_CONTENT, theParams.remove(Constants.PARAM_CONTENT));
+		}
+		if (theParams.containsKey(Constants.PARAM_TEXT)) {
+			fulltextParams.put(Constants.PARAM_TEXT, theParams.remove(Constants.PARAM_TEXT));
+		}
+
+		searchForIdsWithAndOr(theParams, theLastUpdated);
+		if (doHaveNoResults()) {
+			return;
+		}
+
+		List<Long> searchResultPids;
+		if (doHavePids()) {
+			searchResultPids = mySearchDao.search(myResourceName, fulltextParams, doGetPids());
+		} else {
+			// None of the other criteria actually restricted the results
+			searchResultPids = mySearchDao.search(myResourceName, fulltextParams);
+		}
+		if (searchResultPids != null) {
+			doSetPids(searchResultPids);
+		}
+	}
+
 	private void searchForIdsWithAndOr(SearchParameterMap theParams, DateRangeParam theLastUpdated) {
 		SearchParameterMap params = theParams;
 		if (params == null) {
@@ -2102,7 +2251,10 @@ public class SearchBuilder {
 		cq.where(from.get("myId").in(theIncludePids));
 		TypedQuery<ResourceTable> q = entityManager.createQuery(cq);
 
-		for (ResourceTable next : q.getResultList()) {
+		List<ResourceTable> resultList = q.getResultList();
+		RequestMetrics.getCurrent().incrementCounter(RequestMetrics.COUNTER_RESOURCES_LOADED, resultList.size());
+
+		for (ResourceTable next : resultList) {
 			Class<? extends IBaseResource> resourceType = context.getResourceDefinition(next.getResourceType()).getImplementingClass();
 			IBaseResource resource = (IBaseResource) theDao.toResource(resourceType, next, theForHistoryOperation);
 			Integer index = position.get(next.getId());
@@ -2131,10 +2283,16 @@ public class SearchBuilder {
 
 	/**
 	 * THIS SHOULD RETURN HASHSET and not jsut Set because we add to it later (so it can't be Collections.emptySet())
+	 * <p>
+	 * Includes are resolved breadth first: each round issues one {@link ResourceLink} query per include (covering all of
+	 * the paths of its search parameter) for the PIDs found in the previous round. If the {@link DaoConfig} has an
+	 * {@link DaoConfig#setIncludeLoadingExecutor(ExecutorService) include loading executor}, the queries of a round are
+	 * executed concurrently.
+	 * </p>
 	 * 
 	 * @param theLastUpdated
 	 */
-	public static HashSet<Long> loadReverseIncludes(FhirContext theContext, EntityManager theEntityManager, Collection<Long> theMatches, Set<Include> theRevIncludes, boolean theReverseMode, DateRangeParam theLastUpdated) {
+	public static HashSet<Long> loadReverseIncludes(FhirContext theContext, EntityManager theEntityManager, Collection<Long> theMatches, Set<Include> theRevIncludes, boolean theReverseMode, DateRangeParam theLastUpdated, DaoConfig theDaoConfig) {
 		if (theMatches.size() == 0) {
 			return new HashSet<Long>();
 		}
@@ -2142,6 +2300,7 @@ public class SearchBuilder {
 			return new HashSet<Long>();
 		}
 		String searchFieldName = theReverseMode ? "myTargetResourcePid" : "mySourceResourcePid";
+		String resultFieldName = theReverseMode ? "mySourceResourcePid" : "myTargetResourcePid";
 
 		Collection<Long> nextRoundMatches = theMatches;
 		HashSet<Long> allAdded = new HashSet<Long>();
@@ -2149,125 +2308,198 @@ public class SearchBuilder {
 		ArrayList<Include> includes = new ArrayList<Include>(theRevIncludes);
 
 		int roundCounts = 0;
+		int queryCounts = 0;
 		StopWatch w = new StopWatch();
+		RequestMetrics.Timer timer = RequestMetrics.getCurrent().startTimer(RequestMetrics.PHASE_INCLUDES);
 
-		boolean addedSomeThisRound;
-		do {
-			roundCounts++;
+		try {
+			boolean addedSomeThisRound;
+			do {
+				roundCounts++;
 
-			HashSet<Long> pidsToInclude = new HashSet<Long>();
-			Set<Long> nextRoundOmit = new HashSet<Long>();
+				List<IncludeQuery> queries = new ArrayList<IncludeQuery>();
+				Set<Long> nextRoundOmit = new HashSet<Long>();
 
-			for (Iterator<Include> iter = includes.iterator(); iter.hasNext();) {
-				Include nextInclude = iter.next();
-				if (nextInclude.isRecurse() == false) {
-					iter.remove();
-				}
-
-				boolean matchAll = "*".equals(nextInclude.getValue());
-				if (matchAll) {
-					String sql;
-					sql = "SELECT r FROM ResourceLink r WHERE r." + searchFieldName + " IN (:target_pids)";
-					TypedQuery<ResourceLink> q = theEntityManager.createQuery(sql, ResourceLink.class);
-					q.setParameter("target_pids", nextRoundMatches);
-					List<ResourceLink> results = q.getResultList();
-					for (ResourceLink resourceLink : results) {
-						if (theReverseMode) {
-							// if (theEverythingModeEnum.isEncounter()) {
-							// if (resourceLink.getSourcePath().equals("Encounter.subject") ||
-							// resourceLink.getSourcePath().equals("Encounter.patient")) {
-							// nextRoundOmit.add(resourceLink.getSourceResourcePid());
-							// }
-							// }
-							pidsToInclude.add(resourceLink.getSourceResourcePid());
-						} else {
-							pidsToInclude.add(resourceLink.getTargetResourcePid());
-						}
+				for (Iterator<Include> iter = includes.iterator(); iter.hasNext();) {
+					Include nextInclude = iter.next();
+					if (nextInclude.isRecurse() == false) {
+						iter.remove();
 					}
-				} else {
 
-					List<String> paths;
-					RuntimeSearchParam param = null;
-					if (theContext.getVersion().getVersion() == FhirVersionEnum.DSTU1) {
-						paths = Collections.singletonList(nextInclude.getValue());
+					boolean matchAll = "*".equals(nextInclude.getValue());
+					if (matchAll) {
+						String sql;
+						sql = "SELECT r." + resultFieldName + " FROM ResourceLink r WHERE r." + searchFieldName + " IN (:target_pids)";
+						IncludeQuery query = new IncludeQuery(sql);
+						query.addParameter("target_pids", nextRoundMatches);
+						queries.add(query);
 					} else {
-						String resType = nextInclude.getParamType();
-						if (isBlank(resType)) {
-							continue;
-						}
-						RuntimeResourceDefinition def = theContext.getResourceDefinition(resType);
-						if (def == null) {
-							ourLog.warn("Unknown resource type in include/revinclude=" + nextInclude.getValue());
-							continue;
-						}
 
-						String paramName = nextInclude.getParamName();
-						param = isNotBlank(paramName) ? def.getSearchParam(paramName) : null;
-						if (param == null) {
-							ourLog.warn("Unknown param name in include/revinclude=" + nextInclude.getValue());
-							continue;
-						}
+						List<String> paths;
+						RuntimeSearchParam param = null;
+						if (theContext.getVersion().getVersion() == FhirVersionEnum.DSTU1) {
+							paths = Collections.singletonList(nextInclude.getValue());
+						} else {
+							String resType = nextInclude.getParamType();
+							if (isBlank(resType)) {
+								continue;
+							}
+							RuntimeResourceDefinition def = theContext.getResourceDefinition(resType);
+							if (def == null) {
+								ourLog.warn("Unknown resource type in include/revinclude=" + nextInclude.getValue());
+								continue;
+							}
 
-						paths = param.getPathsSplit();
-					}
+							String paramName = nextInclude.getParamName();
+							param = isNotBlank(paramName) ? def.getSearchParam(paramName) : null;
+							if (param == null) {
+								ourLog.warn("Unknown param name in include/revinclude=" + nextInclude.getValue());
+								continue;
+							}
+
+							paths = param.getPathsSplit();
+						}
 
-					String targetResourceType = defaultString(nextInclude.getParamTargetType(), null);
-					for (String nextPath : paths) {
+						String targetResourceType = defaultString(nextInclude.getParamTargetType(), null);
 						String sql;
 						boolean haveTargetTypesDefinedByParam = param != null && param.getTargets() != null && param.getTargets().isEmpty() == false;
 						if (targetResourceType != null) {
-							sql = "SELECT r FROM ResourceLink r WHERE r.mySourcePath = :src_path AND r." + searchFieldName + " IN (:target_pids) AND r.myTargetResourceType = :target_resource_type";
+							sql = "SELECT r." + resultFieldName + " FROM ResourceLink r WHERE r.mySourcePath IN (:src_paths) AND r." + searchFieldName + " IN (:target_pids) AND r.myTargetResourceType = :target_resource_type";
 						} else if (haveTargetTypesDefinedByParam) {
-							sql = "SELECT r FROM ResourceLink r WHERE r.mySourcePath = :src_path AND r." + searchFieldName + " IN (:target_pids) AND r.myTargetResourceType in (:target_resource_types)";
+							sql = "SELECT r." + resultFieldName + " FROM ResourceLink r WHERE r.mySourcePath IN (:src_paths) AND r." + searchFieldName + " IN (:target_pids) AND r.myTargetResourceType in (:target_resource_types)";
 						} else {
-							sql = "SELECT r FROM ResourceLink r WHERE r.mySourcePath = :src_path AND r." + searchFieldName + " IN (:target_pids)";
+							sql = "SELECT r." + resultFieldName + " FROM ResourceLink r WHERE r.mySourcePath IN (:src_paths) AND r." + searchFieldName + " IN (:target_pids)";
 						}
-						TypedQuery<ResourceLink> q = theEntityManager.createQuery(sql, ResourceLink.class);
-						q.setParameter("src_path", nextPath);
-						q.setParameter("target_pids", nextRoundMatches);
+						IncludeQuery query = new IncludeQuery(sql);
+						query.addParameter("src_paths", paths);
+						query.addParameter("target_pids", nextRoundMatches);
 						if (targetResourceType != null) {
-							q.setParameter("target_resource_type", targetResourceType);
+							query.addParameter("target_resource_type", targetResourceType);
 						} else if (haveTargetTypesDefinedByParam) {
-							q.setParameter("target_resource_types", param.getTargets());
-						}
-						List<ResourceLink> results = q.getResultList();
-						for (ResourceLink resourceLink : results) {
-							if (theReverseMode) {
-								Long pid = resourceLink.getSourceResourcePid();
-								pidsToInclude.add(pid);
-							} else {
-								Long pid = resourceLink.getTargetResourcePid();
-								pidsToInclude.add(pid);
-							}
+							query.addParameter("target_resource_types", param.getTargets());
 						}
+						queries.add(query);
 					}
 				}
-			}
 
-			if (theLastUpdated != null && (theLastUpdated.getLowerBoundAsInstant() != null || theLastUpdated.getUpperBoundAsInstant() != null)) {
-				pidsToInclude = new HashSet<Long>(filterResourceIdsByLastUpdated(theEntityManager, theLastUpdated, pidsToInclude));
-			}
-			for (Long next : pidsToInclude) {
-				if (original.contains(next) == false && allAdded.contains(next) == false) {
-					theMatches.add(next);
+				queryCounts += queries.size();
+				ExecutorService executor = theDaoConfig != null ? theDaoConfig.getIncludeLoadingExecutor() : null;
+				HashSet<Long> pidsToInclude = executeIncludeQueries(theEntityManager, queries, executor);
+
+				if (theLastUpdated != null && (theLastUpdated.getLowerBoundAsInstant() != null || theLastUpdated.getUpperBoundAsInstant() != null)) {
+					pidsToInclude = new HashSet<Long>(filterResourceIdsByLastUpdated(theEntityManager, theLastUpdated, pidsToInclude));
+				}
+				for (Long next : pidsToInclude) {
+					if (original.contains(next) == false && allAdded.contains(next) == false) {
+						theMatches.add(next);
+					}
 				}
-			}
 
-			pidsToInclude.removeAll(nextRoundOmit);
+				pidsToInclude.removeAll(nextRoundOmit);
 
-			addedSomeThisRound = allAdded.addAll(pidsToInclude);
-			nextRoundMatches = pidsToInclude;
-		} while (includes.size() > 0 && nextRoundMatches.size() > 0 && addedSomeThisRound);
+				addedSomeThisRound = allAdded.addAll(pidsToInclude);
+				nextRoundMatches = pidsToInclude;
+			} while (includes.size() > 0 && nextRoundMatches.size() > 0 && addedSomeThisRound);
+		} finally {
+			timer.stop();
+		}
 
-		ourLog.info("Loaded {} {} in {} rounds and {} ms", new Object[] { allAdded.size(), theReverseMode ? "_revincludes" : "_includes", roundCounts, w.getMillisAndRestart() });
+		ourLog.info("Loaded {} {} in {} rounds ({} queries) and {} ms", new Object[] { allAdded.size(), theReverseMode ? "_revincludes" : "_includes", roundCounts, queryCounts, w.getMillisAndRestart() });
 
 		return allAdded;
 	}
 
+	/**
+	 * Executes the given include queries and returns the union of the PIDs they found. If an executor is supplied and
+	 * there is more than one query, all but the first query are submitted to the executor, each using its own
+	 * EntityManager, and the first query is executed by the calling thread while the others are running. If the
+	 * executor rejects a query (e.g. because its queue is full), the query is executed by the calling thread instead.
+	 * Queries which have not completed when this method fails are cancelled, so that they release their connections.
+	 */
+	private static HashSet<Long> executeIncludeQueries(EntityManager theEntityManager, List<IncludeQuery> theQueries, ExecutorService theExecutor) {
+		HashSet<Long> retVal = new HashSet<Long>();
+		if (theExecutor == null || theQueries.size() < 2) {
+			for (IncludeQuery next : theQueries) {
+				next.execute(theEntityManager, retVal);
+			}
+			return retVal;
+		}
+
+		final EntityManagerFactory entityManagerFactory = theEntityManager.getEntityManagerFactory();
+		List<Future<HashSet<Long>>> futures = new ArrayList<Future<HashSet<Long>>>();
+		for (final IncludeQuery next : theQueries.subList(1, theQueries.size())) {
+			try {
+				futures.add(theExecutor.submit(new Callable<HashSet<Long>>() {
+					@Override
+					public HashSet<Long> call() throws Exception {
+						HashSet<Long> results = new HashSet<Long>();
+						EntityManager entityManager = entityManagerFactory.createEntityManager();
+						try {
+							next.execute(entityManager, results);
+						} finally {
+							entityManager.close();
+						}
+						return results;
+					}
+				}));
+			} catch (RejectedExecutionException e) {
+				next.execute(theEntityManager, retVal);
+			}
+		}
+
+		boolean completed = false;
+		try {
+			theQueries.get(0).execute(theEntityManager, retVal);
+
+			for (Future<HashSet<Long>> next : futures) {
+				try {
+					retVal.addAll(next.get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InternalErrorException("Interrupted while loading includes", e);
+				} catch (ExecutionException e) {
+					throw new InternalErrorException("Failed to load includes", e.getCause());
+				}
+			}
+			completed = true;
+		} finally {
+			if (!completed) {
+				for (Future<HashSet<Long>> next : futures) {
+					next.cancel(true);
+				}
+			}
+		}
+		return retVal;
+	}
+
 	static Predicate[] toArray(List<Predicate> thePredicates) {
 		return thePredicates.toArray(new Predicate[thePredicates.size()]);
 	}
 
+	/**
+	 * A JPQL query against {@link ResourceLink} which selects a single PID column
+	 */
+	private static class IncludeQuery {
+		private final Map<String, Object> myParameters = new HashMap<String, Object>();
+		private final String mySql;
+
+		public IncludeQuery(String theSql) {
+			mySql = theSql;
+		}
+
+		public void addParameter(String theName, Object theValue) {
+			myParameters.put(theName, theValue);
+		}
+
+		public void execute(EntityManager theEntityManager, Set<Long> theResults) {
+			TypedQuery<Long> q = theEntityManager.createQuery(mySql, Long.class);
+			for (Entry<String, Object> next : myParameters.entrySet()) {
+				q.setParameter(next.getKey(), next.getValue());
+			}
+			theResults.addAll(q.getResultList());
+		}
+	}
+
 	private final class BundleProviderInMemory implements IBundleProvider {
 		private final ArrayList<Long> myPids;
 
@@ -2299,9 +2531,9 @@ public class SearchBuilder {
 
 					Set<Long> revIncludedPids = new HashSet<Long>();
 					if (myParams.getEverythingMode() == null) {
-						revIncludedPids.addAll(loadReverseIncludes(myContext, myEntityManager, pidsSubList, myParams.getRevIncludes(), true, myParams.getLastUpdated()));
+						revIncludedPids.addAll(loadReverseIncludes(myContext, myEntityManager, pidsSubList, myParams.getRevIncludes(), true, myParams.getLastUpdated(), myCallingDao.getConfig()));
 					}
-					revIncludedPids.addAll(loadReverseIncludes(myContext, myEntityManager, pidsSubList, myParams.getIncludes(), false, myParams.getLastUpdated()));
+					revIncludedPids.addAll(loadReverseIncludes(myContext, myEntityManager, pidsSubList, myParams.getIncludes(), false, myParams.getLastUpdated(), myCallingDao.getConfig()));
 
 					// Execute the query and make sure we return distinct results
 					List<IBaseResource> resources = new ArrayList<IBaseResource>();
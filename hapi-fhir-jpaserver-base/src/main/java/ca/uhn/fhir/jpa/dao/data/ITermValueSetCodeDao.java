@@ -0,0 +1,48 @@
+package ca.uhn.fhir.jpa.dao.data;
+
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import ca.uhn.fhir.jpa.entity.TermValueSetCode;
+
+public interface ITermValueSetCodeDao extends JpaRepository<TermValueSetCode, Long> {
+
+	@Query("SELECT c FROM TermValueSetCode c WHERE c.myValueSetPid = :vs_pid AND c.myOrder >= :from_order AND c.myOrder < :to_order ORDER BY c.myOrder ASC")
+	List<TermValueSetCode> findByValueSetPidAndOrderRange(@Param("vs_pid") Long theValueSetPid, @Param("from_order") int theFromOrder, @Param("to_order") int theToOrder);
+
+	@Query("SELECT c FROM TermValueSetCode c WHERE c.myValueSetPid = :vs_pid AND c.mySystem = :system AND c.myCode = :code")
+	List<TermValueSetCode> findByValueSetPidAndSystemAndCode(@Param("vs_pid") Long theValueSetPid, @Param("system") String theSystem, @Param("code") String theCode);
+
+	@Query("SELECT c FROM TermValueSetCode c WHERE c.myValueSetPid = :vs_pid AND c.myCode = :code")
+	List<TermValueSetCode> findByValueSetPidAndCode(@Param("vs_pid") Long theValueSetPid, @Param("code") String theCode);
+
+	@Query("DELETE FROM TermValueSetCode c WHERE c.myValueSetPid = :vs_pid")
+	@Modifying
+	void deleteByValueSetPid(@Param("vs_pid") Long theValueSetPid);
+
+}
@@ -0,0 +1,50 @@
+package ca.uhn.fhir.jpa.dao.data;
+
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import ca.uhn.fhir.jpa.entity.TermValueSet;
+import ca.uhn.fhir.jpa.entity.TermValueSetExpansionStatusEnum;
+
+public interface ITermValueSetDao extends JpaRepository<TermValueSet, Long> {
+
+	@Query("SELECT vs FROM TermValueSet vs WHERE vs.myUrl = :url")
+	List<TermValueSet> findByUrl(@Param("url") String theUrl);
+
+	@Query("SELECT vs FROM TermValueSet vs WHERE vs.myResourcePid = :resource_pid")
+	TermValueSet findByResourcePid(@Param("resource_pid") Long theResourcePid);
+
+	@Query("SELECT vs FROM TermValueSet vs WHERE vs.myExpansionStatus = :status ORDER BY vs.myId ASC")
+	List<TermValueSet> findByExpansionStatus(@Param("status") TermValueSetExpansionStatusEnum theStatus, Pageable thePage);
+
+	@Query("UPDATE TermValueSet vs SET vs.myExpansionStatus = :status")
+	@Modifying
+	int updateAllExpansionStatus(@Param("status") TermValueSetExpansionStatusEnum theStatus);
+
+}
@@ -20,12 +20,14 @@ package ca.uhn.fhir.jpa.dao.dstu3;
  * #L%
  */
 
+import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.nio.file.FileVisitOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -47,6 +49,7 @@ import org.hl7.fhir.dstu3.model.ValueSet.FilterOperator;
 import org.hl7.fhir.dstu3.model.ValueSet.ValueSetExpansionComponent;
 import org.hl7.fhir.dstu3.model.ValueSet.ValueSetExpansionContainsComponent;
 import org.hl7.fhir.dstu3.terminologies.ValueSetExpander.ValueSetExpansionOutcome;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -55,7 +58,12 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import ca.uhn.fhir.jpa.dao.IFhirResourceDaoCodeSystem;
 import ca.uhn.fhir.jpa.dao.IFhirResourceDaoCodeSystem.LookupCodeResult;
 import ca.uhn.fhir.jpa.dao.IFhirResourceDaoValueSet;
+import ca.uhn.fhir.jpa.entity.BaseHasResource;
+import ca.uhn.fhir.jpa.entity.ResourceTable;
+import ca.uhn.fhir.jpa.entity.TermValueSet;
+import ca.uhn.fhir.jpa.entity.TermValueSetCode;
 import ca.uhn.fhir.jpa.util.LogicUtil;
+import ca.uhn.fhir.rest.method.RequestDetails;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.util.ElementUtil;
@@ -75,6 +83,78 @@ public class FhirResourceDaoValueSetDstu3 extends FhirResourceDaoDstu3<ValueSet>
 		return expand(source, theFilter);
 	}
 
+	@Override
+	public ValueSet expand(IIdType theId, String theFilter, int theOffset, int theCount) {
+		if (isBlank(theFilter)) {
+			TermValueSet preExpanded = findPreExpandedValueSet(theId);
+			if (preExpanded != null) {
+				return expandFromPreExpansion(preExpanded, theOffset, theCount);
+			}
+		}
+		return applyPaging(expand(theId, theFilter), theOffset, theCount);
+	}
+
+	@Override
+	public ValueSet expandByIdentifier(String theUri, String theFilter, int theOffset, int theCount) {
+		if (isBlank(theFilter)) {
+			TermValueSet preExpanded = myTerminologySvc.findPreExpandedValueSet(theUri);
+			if (preExpanded != null) {
+				return expandFromPreExpansion(preExpanded, theOffset, theCount);
+			}
+		}
+		return applyPaging(expandByIdentifier(theUri, theFilter), theOffset, theCount);
+	}
+
+	private ValueSet applyPaging(ValueSet theExpanded, int theOffset, int theCount) {
+		ValueSetExpansionComponent expansion = theExpanded.getExpansion();
+		List<ValueSetExpansionContainsComponent> contains = expansion.getContains();
+		int total = contains.size();
+		int from = Math.min(Math.max(0, theOffset), total);
+		int to = (int) Math.min((long) from + Math.max(0, theCount), total);
+		if (from == 0 && to == total) {
+			return theExpanded;
+		}
+
+		List<ValueSetExpansionContainsComponent> page = new ArrayList<ValueSetExpansionContainsComponent>(contains.subList(from, to));
+		expansion.setContains(page);
+		expansion.setTotal(total);
+		expansion.setOffset(from);
+		return theExpanded;
+	}
+
+	private ValueSet expandFromPreExpansion(TermValueSet thePreExpanded, int theOffset, int theCount) {
+		ValueSet retVal = new ValueSet();
+		ValueSetExpansionComponent expansion = retVal.getExpansion();
+		expansion.setTimestamp(thePreExpanded.getExpanded());
+		expansion.setTotal(thePreExpanded.getTotalConcepts());
+		expansion.setOffset(Math.max(0, theOffset));
+
+		for (TermValueSetCode next : myTerminologySvc.findPreExpandedCodes(thePreExpanded, theOffset, theCount)) {
+			ValueSetExpansionContainsComponent contains = expansion.addContains();
+			contains.setSystem(next.getSystem());
+			contains.setCode(next.getCode());
+			contains.setDisplay(next.getDisplay());
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Returns the pre-expansion for the ValueSet with the given ID, but only if it was
+	 * built from the current version of that ValueSet
+	 */
+	private TermValueSet findPreExpandedValueSet(IIdType theId) {
+		if (!theId.hasIdPart() || theId.hasVersionIdPart() || theId.hasBaseUrl()) {
+			return null;
+		}
+		BaseHasResource entity = readEntity(theId);
+		TermValueSet retVal = myTerminologySvc.findPreExpandedValueSetByResourcePid(entity.getId());
+		if (retVal != null && retVal.getResourceVersionId() != null && retVal.getResourceVersionId().longValue() == entity.getVersion()) {
+			return retVal;
+		}
+		return null;
+	}
+
 	private ValueSet doExpand(ValueSet theSource) {
 
 		validateIncludes("include", theSource.getCompose().getInclude());
@@ -205,9 +285,15 @@ public class FhirResourceDaoValueSetDstu3 extends FhirResourceDaoDstu3<ValueSet>
 		}
 
 		for (IIdType nextId : valueSetIds) {
-			ValueSet expansion = expand(nextId, null);
-			List<ValueSetExpansionContainsComponent> contains = expansion.getExpansion().getContains();
-			ValidateCodeResult result = validateCodeIsInContains(contains, toStringOrNull(theSystem), toStringOrNull(theCode), theCoding, theCodeableConcept);
+			ValidateCodeResult result;
+			TermValueSet preExpanded = findPreExpandedValueSet(nextId);
+			if (preExpanded != null) {
+				result = validateCodeIsInPreExpansion(preExpanded, toStringOrNull(theSystem), toStringOrNull(theCode), theCoding, theCodeableConcept);
+			} else {
+				ValueSet expansion = expand(nextId, null);
+				List<ValueSetExpansionContainsComponent> contains = expansion.getExpansion().getContains();
+				result = validateCodeIsInContains(contains, toStringOrNull(theSystem), toStringOrNull(theCode), theCoding, theCodeableConcept);
+			}
 			if (result != null) {
 				if (theDisplay != null && isNotBlank(theDisplay.getValue()) && isNotBlank(result.getDisplay())) {
 					if (!theDisplay.getValue().equals(result.getDisplay())) {
@@ -271,6 +357,47 @@ public class FhirResourceDaoValueSetDstu3 extends FhirResourceDaoDstu3<ValueSet>
 		return null;
 	}
 
+	private ValidateCodeResult validateCodeIsInPreExpansion(TermValueSet thePreExpanded, String theSystem, String theCode, Coding theCoding, CodeableConcept theCodeableConcept) {
+		List<TermValueSetCode> candidates = new ArrayList<TermValueSetCode>();
+		if (isNotBlank(theCode)) {
+			candidates.add(myTerminologySvc.findPreExpandedCode(thePreExpanded, theSystem, theCode));
+		} else if (theCoding != null) {
+			if (isNotBlank(theCoding.getSystem()) && isNotBlank(theCoding.getCode())) {
+				candidates.add(myTerminologySvc.findPreExpandedCode(thePreExpanded, theCoding.getSystem(), theCoding.getCode()));
+			}
+		} else {
+			for (Coding next : theCodeableConcept.getCoding()) {
+				if (isNotBlank(next.getSystem()) && isNotBlank(next.getCode())) {
+					candidates.add(myTerminologySvc.findPreExpandedCode(thePreExpanded, next.getSystem(), next.getCode()));
+				}
+			}
+		}
+
+		for (TermValueSetCode next : candidates) {
+			if (next != null) {
+				return new ValidateCodeResult(true, "Validation succeeded", next.getDisplay());
+			}
+		}
+		return null;
+	}
+
+	@Override
+	protected ResourceTable updateEntity(IBaseResource theResource, ResourceTable theEntity, boolean theUpdateHistory, Date theDeletedTimestampOrNull, boolean thePerformIndexing,
+			boolean theUpdateVersion, Date theUpdateTime, RequestDetails theRequestDetails) {
+		ResourceTable retVal = super.updateEntity(theResource, theEntity, theUpdateHistory, theDeletedTimestampOrNull, thePerformIndexing, theUpdateVersion, theUpdateTime, theRequestDetails);
+
+		if (theDeletedTimestampOrNull != null) {
+			myTerminologySvc.deleteValueSetPreExpansion(retVal.getId());
+		} else {
+			ValueSet valueSet = (ValueSet) theResource;
+			if (valueSet != null && isNotBlank(valueSet.getUrl())) {
+				myTerminologySvc.storeValueSetForPreExpansion(valueSet.getUrl(), defaultIfBlank(valueSet.getVersion(), null), retVal.getId(), retVal.getVersion());
+			}
+		}
+
+		return retVal;
+	}
+
 	@Override
 	public void purgeCaches() {
 		// nothing
@@ -25,13 +25,34 @@ import ca.uhn.fhir.parser.IParser;
 
 public enum ResourceEncodingEnum {
 
+	/*
+	 * NB: Constants in this enum must be 5 characters or less, since they are
+	 * stored in a column of that length
+	 */
+
 	/** Json */
 	JSON,
 	
 	/** Json Compressed */
-	JSONC;
+	JSONC,
+
+	/**
+	 * Binary
+	 * 
+	 * @see FhirContext#newBinaryCodec()
+	 */
+	BIN;
 
+	/**
+	 * Returns a parser for this encoding
+	 * 
+	 * @throws IllegalStateException If this is {@link #BIN}, which is encoded and parsed
+	 *            using {@link FhirContext#newBinaryCodec()} instead
+	 */
 	public IParser newParser(FhirContext theContext) {
+		if (this == BIN) {
+			throw new IllegalStateException("Resources encoded as " + name() + " must be encoded and parsed using FhirContext#newBinaryCodec()");
+		}
 		return theContext.newJsonParser();
 	}
 	
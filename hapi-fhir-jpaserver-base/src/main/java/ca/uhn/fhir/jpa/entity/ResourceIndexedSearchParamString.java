@@ -117,12 +117,12 @@ public class ResourceIndexedSearchParamString extends BaseResourceIndexedSearchP
 	@ContainedIn
 	private ResourceTable myResourceTable;
 
+	@Column(name = "SP_AUTOCOMPLETE", nullable = true)
+	private Boolean myAutocompleteIndexed;
+
 	@Column(name = "SP_VALUE_EXACT", length = MAX_LENGTH, nullable = true)
 	@Fields({
-		@Field(name = "myValueText", index = org.hibernate.search.annotations.Index.YES, store = Store.YES, analyze = Analyze.YES, analyzer = @Analyzer(definition = "standardAnalyzer")),
-		@Field(name = "myValueTextEdgeNGram", index = org.hibernate.search.annotations.Index.YES, store = Store.NO, analyze = Analyze.YES, analyzer = @Analyzer(definition = "autocompleteEdgeAnalyzer")),
-		@Field(name = "myValueTextNGram", index = org.hibernate.search.annotations.Index.YES, store = Store.NO, analyze = Analyze.YES, analyzer = @Analyzer(definition = "autocompleteNGramAnalyzer")),
-		@Field(name = "myValueTextPhonetic", index = org.hibernate.search.annotations.Index.YES, store = Store.NO, analyze = Analyze.YES, analyzer = @Analyzer(definition = "autocompletePhoneticAnalyzer"))
+		@Field(name = "myValueText", index = org.hibernate.search.annotations.Index.YES, store = Store.YES, analyze = Analyze.YES, analyzer = @Analyzer(definition = "standardAnalyzer"))
 	})
 	private String myValueExact;
 
@@ -167,6 +167,23 @@ public class ResourceIndexedSearchParamString extends BaseResourceIndexedSearchP
 		return myValueExact;
 	}
 
+	/**
+	 * Source for the autocomplete (n-gram and phonetic) fulltext fields. This returns <code>null</code>
+	 * unless {@link #isAutocompleteIndexed() autocomplete indexing} is enabled for this parameter, in which
+	 * case these fields (and the cost of running their analyzers) are skipped entirely.
+	 */
+	@Fields({
+		@Field(name = "myValueTextEdgeNGram", index = org.hibernate.search.annotations.Index.YES, store = Store.NO, analyze = Analyze.YES, analyzer = @Analyzer(definition = "autocompleteEdgeAnalyzer")),
+		@Field(name = "myValueTextNGram", index = org.hibernate.search.annotations.Index.YES, store = Store.NO, analyze = Analyze.YES, analyzer = @Analyzer(definition = "autocompleteNGramAnalyzer")),
+		@Field(name = "myValueTextPhonetic", index = org.hibernate.search.annotations.Index.YES, store = Store.NO, analyze = Analyze.YES, analyzer = @Analyzer(definition = "autocompletePhoneticAnalyzer"))
+	})
+	public String getValueExactForAutocomplete() {
+		if (isAutocompleteIndexed()) {
+			return myValueExact;
+		}
+		return null;
+	}
+
 	public String getValueNormalized() {
 		return myValueNormalized;
 	}
@@ -180,6 +197,14 @@ public class ResourceIndexedSearchParamString extends BaseResourceIndexedSearchP
 		return b.toHashCode();
 	}
 
+	public boolean isAutocompleteIndexed() {
+		return Boolean.TRUE.equals(myAutocompleteIndexed);
+	}
+
+	public void setAutocompleteIndexed(boolean theAutocompleteIndexed) {
+		myAutocompleteIndexed = theAutocompleteIndexed ? Boolean.TRUE : null;
+	}
+
 	public void setValueExact(String theValueExact) {
 		if (StringUtils.defaultString(theValueExact).length() > MAX_LENGTH) {
 			throw new IllegalArgumentException("Value is too long: " + theValueExact.length());
@@ -0,0 +1,185 @@
+package ca.uhn.fhir.jpa.entity;
+
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * A materialized ("pre-expanded") ValueSet expansion. The codes themselves are
+ * stored in {@link TermValueSetCode}.
+ */
+//@formatter:off
+@Table(name="TRM_VALUESET", uniqueConstraints= {
+	@UniqueConstraint(name="IDX_VALUESET_RESID", columnNames= {"RES_ID"})
+}, indexes= {
+	@Index(name="IDX_VALUESET_URL", columnList="URL"),
+	@Index(name="IDX_VALUESET_EXPSTATUS", columnList="EXPANSION_STATUS")
+})
+@Entity()
+//@formatter:on
+public class TermValueSet implements Serializable {
+	public static final int MAX_CS_VERSIONS_LENGTH = 500;
+	public static final int MAX_URL_LENGTH = 200;
+	public static final int MAX_VERSION_LENGTH = 200;
+	private static final long serialVersionUID = 1L;
+
+	@Column(name = "CS_VERSIONS", length = MAX_CS_VERSIONS_LENGTH, nullable = true)
+	private String myCodeSystemVersions;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "EXPANDED_DATE", nullable = true)
+	private Date myExpanded;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "EXPANSION_STATUS", length = 20, nullable = false)
+	private TermValueSetExpansionStatusEnum myExpansionStatus;
+
+	@Id()
+	@SequenceGenerator(name = "SEQ_VALUESET_PID", sequenceName = "SEQ_VALUESET_PID")
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_VALUESET_PID")
+	@Column(name = "PID")
+	private Long myId;
+
+	@Column(name = "RES_ID", nullable = true)
+	private Long myResourcePid;
+
+	@Column(name = "RES_VERSION_ID", nullable = true)
+	private Long myResourceVersionId;
+
+	@Column(name = "TOTAL_CONCEPTS", nullable = true)
+	private Integer myTotalConcepts;
+
+	@Column(name = "URL", length = MAX_URL_LENGTH, nullable = false)
+	private String myUrl;
+
+	@Column(name = "VS_VERSION", length = MAX_VERSION_LENGTH, nullable = true)
+	private String myVersion;
+
+	/**
+	 * Returns a key describing the code system versions that were current when this expansion
+	 * was built, in the form <code>[system]|[version pid] [system]|[version pid]</code>
+	 */
+	public String getCodeSystemVersions() {
+		return myCodeSystemVersions;
+	}
+
+	public Date getExpanded() {
+		return myExpanded;
+	}
+
+	public TermValueSetExpansionStatusEnum getExpansionStatus() {
+		return myExpansionStatus;
+	}
+
+	public Long getId() {
+		return myId;
+	}
+
+	public Long getResourcePid() {
+		return myResourcePid;
+	}
+
+	public Long getResourceVersionId() {
+		return myResourceVersionId;
+	}
+
+	public Integer getTotalConcepts() {
+		return myTotalConcepts;
+	}
+
+	public String getUrl() {
+		return myUrl;
+	}
+
+	/**
+	 * Returns the business version (<code>ValueSet.version</code>) of the ValueSet this
+	 * expansion was built from, if it has one
+	 */
+	public String getVersion() {
+		return myVersion;
+	}
+
+	public void setCodeSystemVersions(String theCodeSystemVersions) {
+		myCodeSystemVersions = theCodeSystemVersions;
+		if (myCodeSystemVersions != null && myCodeSystemVersions.length() > MAX_CS_VERSIONS_LENGTH) {
+			myCodeSystemVersions = myCodeSystemVersions.substring(0, MAX_CS_VERSIONS_LENGTH);
+		}
+	}
+
+	public void setExpanded(Date theExpanded) {
+		myExpanded = theExpanded;
+	}
+
+	public void setExpansionStatus(TermValueSetExpansionStatusEnum theExpansionStatus) {
+		myExpansionStatus = theExpansionStatus;
+	}
+
+	public void setResourcePid(Long theResourcePid) {
+		myResourcePid = theResourcePid;
+	}
+
+	public void setResourceVersionId(Long theResourceVersionId) {
+		myResourceVersionId = theResourceVersionId;
+	}
+
+	public void setTotalConcepts(Integer theTotalConcepts) {
+		myTotalConcepts = theTotalConcepts;
+	}
+
+	public void setUrl(String theUrl) {
+		myUrl = theUrl;
+	}
+
+	public void setVersion(String theVersion) {
+		myVersion = theVersion;
+	}
+
+	@Override
+	public String toString() {
+		ToStringBuilder b = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
+		b.append("url", myUrl);
+		b.append("version", myVersion);
+		b.append("resourceVersion", myResourceVersionId);
+		b.append("status", myExpansionStatus);
+		b.append("total", myTotalConcepts);
+		return b.build();
+	}
+
+}
@@ -0,0 +1,137 @@
+package ca.uhn.fhir.jpa.entity;
+
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.ForeignKey;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+//@formatter:off
+@Table(name="TRM_VALUESET_CODE", uniqueConstraints= {
+	@UniqueConstraint(name="IDX_VSCODE_ORDER", columnNames= {"VALUESET_PID", "CODE_ORDER"})
+}, indexes= {
+	@Index(name="IDX_VSCODE_VS_SYS_CODE", columnList="VALUESET_PID,SYSTEM,CODE")
+})
+@Entity()
+//@formatter:on
+public class TermValueSetCode implements Serializable {
+	private static final int MAX_DESC_LENGTH = 400;
+	private static final long serialVersionUID = 1L;
+
+	@Column(name = "CODE", length = ResourceIndexedSearchParamToken.MAX_LENGTH, nullable = false)
+	private String myCode;
+
+	@Column(name = "DISPLAY", length = MAX_DESC_LENGTH, nullable = true)
+	private String myDisplay;
+
+	@Id()
+	@SequenceGenerator(name = "SEQ_VALUESET_CODE_PID", sequenceName = "SEQ_VALUESET_CODE_PID")
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_VALUESET_CODE_PID")
+	@Column(name = "PID")
+	private Long myId;
+
+	@Column(name = "CODE_ORDER", nullable = false)
+	private int myOrder;
+
+	@Column(name = "SYSTEM", length = ResourceIndexedSearchParamToken.MAX_LENGTH, nullable = true)
+	private String mySystem;
+
+	@ManyToOne()
+	@JoinColumn(name = "VALUESET_PID", referencedColumnName = "PID", nullable = false, updatable = false, insertable = false, foreignKey = @ForeignKey(name = "FK_VSCODE_VALUESET"))
+	private TermValueSet myValueSet;
+
+	@Column(name = "VALUESET_PID", nullable = false, updatable = false)
+	private Long myValueSetPid;
+
+	public TermValueSetCode() {
+		super();
+	}
+
+	public TermValueSetCode(String theSystem, String theCode, String theDisplay) {
+		setSystem(theSystem);
+		setCode(theCode);
+		setDisplay(theDisplay);
+	}
+
+	public String getCode() {
+		return myCode;
+	}
+
+	public String getDisplay() {
+		return myDisplay;
+	}
+
+	public int getOrder() {
+		return myOrder;
+	}
+
+	public String getSystem() {
+		return mySystem;
+	}
+
+	public Long getValueSetPid() {
+		return myValueSetPid;
+	}
+
+	public void setCode(String theCode) {
+		myCode = theCode;
+	}
+
+	public void setDisplay(String theDisplay) {
+		myDisplay = theDisplay;
+		if (myDisplay != null && myDisplay.length() > MAX_DESC_LENGTH) {
+			myDisplay = myDisplay.substring(0, MAX_DESC_LENGTH);
+		}
+	}
+
+	public void setOrder(int theOrder) {
+		myOrder = theOrder;
+	}
+
+	public void setSystem(String theSystem) {
+		mySystem = theSystem;
+	}
+
+	public void setValueSetPid(Long theValueSetPid) {
+		myValueSetPid = theValueSetPid;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).append("system", mySystem).append("code", myCode).append("display", myDisplay).build();
+	}
+
+}
@@ -0,0 +1,42 @@
+package ca.uhn.fhir.jpa.entity;
+
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+public enum TermValueSetExpansionStatusEnum {
+
+	/**
+	 * The ValueSet has been stored (or one of the code systems it draws from has
+	 * changed) and the expansion has not yet been built
+	 */
+	NOT_EXPANDED,
+
+	/**
+	 * The expansion is complete and may be used for paging and searching
+	 */
+	EXPANDED,
+
+	/**
+	 * The last attempt to build the expansion failed (e.g. because it was too large)
+	 */
+	FAILED
+
+}
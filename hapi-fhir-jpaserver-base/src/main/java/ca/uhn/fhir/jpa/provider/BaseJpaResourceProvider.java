@@ -20,16 +20,24 @@ package ca.uhn.fhir.jpa.provider;
  * #L%
  */
 
+import static org.apache.commons.lang3.StringUtils.defaultString;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.springframework.beans.factory.annotation.Required;
 
 import ca.uhn.fhir.jpa.dao.IFhirResourceDao;
 import ca.uhn.fhir.model.api.TagList;
+import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.annotation.At;
 import ca.uhn.fhir.rest.annotation.GetTags;
 import ca.uhn.fhir.rest.annotation.History;
@@ -40,9 +48,12 @@ import ca.uhn.fhir.rest.method.RequestDetails;
 import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.server.IBundleProvider;
 import ca.uhn.fhir.rest.server.IResourceProvider;
+import ca.uhn.fhir.rest.server.IResourceVersionProvider;
+import ca.uhn.fhir.rest.server.ResourceVersion;
+import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.util.CoverageIgnore;
 
-public abstract class BaseJpaResourceProvider<T extends IBaseResource> extends BaseJpaProvider implements IResourceProvider {
+public abstract class BaseJpaResourceProvider<T extends IBaseResource> extends BaseJpaProvider implements IResourceProvider, IResourceVersionProvider {
 
 	private IFhirResourceDao<T> myDao;
 
@@ -98,6 +109,14 @@ public abstract class BaseJpaResourceProvider<T extends IBaseResource> extends B
 		return myDao.getResourceType();
 	}
 
+	/**
+	 * Allows conditional reads to be answered from the resource's version columns, without loading the resource body
+	 */
+	@Override
+	public ResourceVersion getResourceVersion(IIdType theId, RequestDetails theRequestDetails) {
+		return myDao.readVersion(theId, theRequestDetails);
+	}
+
 	@GetTags
 	public TagList getTagsForResourceInstance(HttpServletRequest theRequest, @IdParam IIdType theResourceId, RequestDetails theRequestDetails) {
 		startRequest(theRequest);
@@ -128,6 +147,31 @@ public abstract class BaseJpaResourceProvider<T extends IBaseResource> extends B
 		}
 	}
 
+	/**
+	 * Implementation of the <code>$read-many</code> operation. Each of the given values may contain a single ID or
+	 * a comma separated list of IDs.
+	 */
+	protected IBundleProvider doReadMany(HttpServletRequest theRequest, List<? extends IPrimitiveType<String>> theIds, RequestDetails theRequestDetails) {
+		List<IIdType> ids = new ArrayList<IIdType>();
+		if (theIds != null) {
+			for (IPrimitiveType<String> next : theIds) {
+				for (String nextId : StringUtils.split(defaultString(next.getValue()), ',')) {
+					if (isNotBlank(nextId)) {
+						ids.add(new IdDt(nextId.trim()));
+					}
+				}
+			}
+		}
+
+		startRequest(theRequest);
+		try {
+			List<IBaseResource> resources = new ArrayList<IBaseResource>(myDao.readMany(ids, theRequestDetails));
+			return new SimpleBundleProvider(resources);
+		} finally {
+			endRequest(theRequest);
+		}
+	}
+
 	@Required
 	public void setDao(IFhirResourceDao<T> theDao) {
 		myDao = theDao;
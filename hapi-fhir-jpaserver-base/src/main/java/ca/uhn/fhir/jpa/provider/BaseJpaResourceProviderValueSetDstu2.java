@@ -35,6 +35,7 @@ import ca.uhn.fhir.model.dstu2.resource.ValueSet;
 import ca.uhn.fhir.model.primitive.BooleanDt;
 import ca.uhn.fhir.model.primitive.CodeDt;
 import ca.uhn.fhir.model.primitive.IdDt;
+import ca.uhn.fhir.model.primitive.IntegerDt;
 import ca.uhn.fhir.model.primitive.StringDt;
 import ca.uhn.fhir.model.primitive.UriDt;
 import ca.uhn.fhir.rest.annotation.IdParam;
@@ -53,7 +54,9 @@ public class BaseJpaResourceProviderValueSetDstu2 extends JpaResourceProviderDst
 			@IdParam(optional=true) IdDt theId,
 			@OperationParam(name="valueSet", min=0, max=1) ValueSet theValueSet,
 			@OperationParam(name="identifier", min=0, max=1) UriDt theIdentifier,
-			@OperationParam(name = "filter", min=0, max=1) StringDt theFilter) {
+			@OperationParam(name = "filter", min=0, max=1) StringDt theFilter,
+			@OperationParam(name = "offset", min=0, max=1) IntegerDt theOffset,
+			@OperationParam(name = "count", min=0, max=1) IntegerDt theCount) {
 		//@formatter:on
 		
 		boolean haveId = theId != null && theId.hasIdPart();
@@ -71,10 +74,12 @@ public class BaseJpaResourceProviderValueSetDstu2 extends JpaResourceProviderDst
 		startRequest(theServletRequest);
 		try {
 			IFhirResourceDaoValueSet<ValueSet, CodingDt, CodeableConceptDt> dao = (IFhirResourceDaoValueSet<ValueSet, CodingDt, CodeableConceptDt>) getDao();
+			int offset = toIntOrDefault(theOffset, 0);
+			int count = toIntOrDefault(theCount, Integer.MAX_VALUE);
 			if (haveId) {
-				return dao.expand(theId, toFilterString(theFilter));
+				return dao.expand(theId, toFilterString(theFilter), offset, count);
 			} else if (haveIdentifier) {
-				return dao.expandByIdentifier(theIdentifier.getValue(), toFilterString(theFilter));
+				return dao.expandByIdentifier(theIdentifier.getValue(), toFilterString(theFilter), offset, count);
 			} else {
 				return dao.expand(theValueSet, toFilterString(theFilter));
 			}
@@ -104,6 +109,16 @@ public class BaseJpaResourceProviderValueSetDstu2 extends JpaResourceProviderDst
 		return theFilter != null ? theFilter.getValue() : null;
 	}
 
+	private static int toIntOrDefault(IntegerDt theValue, int theDefault) {
+		if (theValue == null || theValue.getValue() == null) {
+			return theDefault;
+		}
+		if (theValue.getValue() < 0) {
+			throw new InvalidRequestException("$expand offset and count must not be negative");
+		}
+		return theValue.getValue();
+	}
+
 	//@formatter:off
 	@Operation(name = "$lookup", idempotent = true, returnParameters= {
 		@OperationParam(name="name", type=StringDt.class, min=1),
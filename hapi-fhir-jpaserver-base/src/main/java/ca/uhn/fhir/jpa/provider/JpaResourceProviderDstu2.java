@@ -20,13 +20,18 @@ package ca.uhn.fhir.jpa.provider;
  * #L%
  */
 
+import java.util.List;
+
 import javax.servlet.http.HttpServletRequest;
 
 import ca.uhn.fhir.jpa.dao.IFhirResourceDao;
 import ca.uhn.fhir.model.api.IResource;
+import ca.uhn.fhir.model.api.annotation.Description;
 import ca.uhn.fhir.model.dstu2.composite.MetaDt;
 import ca.uhn.fhir.model.dstu2.resource.Parameters;
 import ca.uhn.fhir.model.primitive.IdDt;
+import ca.uhn.fhir.model.primitive.StringDt;
+import ca.uhn.fhir.model.valueset.BundleTypeEnum;
 import ca.uhn.fhir.rest.annotation.ConditionalUrlParam;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.Delete;
@@ -39,7 +44,9 @@ import ca.uhn.fhir.rest.annotation.Validate;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.api.ValidationModeEnum;
 import ca.uhn.fhir.rest.method.RequestDetails;
+import ca.uhn.fhir.rest.server.Constants;
 import ca.uhn.fhir.rest.server.EncodingEnum;
+import ca.uhn.fhir.rest.server.IBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 
@@ -138,6 +145,23 @@ public class JpaResourceProviderDstu2<T extends IResource> extends BaseJpaResour
 		return parameters;
 	}
 
+	/**
+	 * /Patient/$read-many?id=1,2,3
+	 */
+	//@formatter:off
+	@Operation(name=Constants.EXTOP_READ_MANY, idempotent=true, bundleType=BundleTypeEnum.SEARCHSET)
+	public IBundleProvider readMany(
+			HttpServletRequest theRequest,
+
+			@Description(shortDefinition="The IDs of the resources to read. Each value may contain a comma separated list of IDs.")
+			@OperationParam(name=Constants.EXTOP_READ_MANY_ID, min=1, max=OperationParam.MAX_UNLIMITED)
+			List<StringDt> theIds,
+
+			RequestDetails theRequestDetails) {
+	//@formatter:on
+		return doReadMany(theRequest, theIds, theRequestDetails);
+	}
+
 	@Update
 	public MethodOutcome update(HttpServletRequest theRequest, @ResourceParam T theResource, @IdParam IdDt theId, @ConditionalUrlParam String theConditional, RequestDetails theRequestDetails) {
 		startRequest(theRequest);
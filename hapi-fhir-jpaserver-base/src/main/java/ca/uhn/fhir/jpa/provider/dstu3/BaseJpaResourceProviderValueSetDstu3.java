@@ -29,6 +29,7 @@ import org.hl7.fhir.dstu3.model.CodeType;
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.Coding;
 import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.IntegerType;
 import org.hl7.fhir.dstu3.model.Parameters;
 import org.hl7.fhir.dstu3.model.StringType;
 import org.hl7.fhir.dstu3.model.UriType;
@@ -50,7 +51,9 @@ public class BaseJpaResourceProviderValueSetDstu3 extends JpaResourceProviderDst
 			@IdParam(optional=true) IdType theId,
 			@OperationParam(name="valueSet", min=0, max=1) ValueSet theValueSet,
 			@OperationParam(name="identifier", min=0, max=1) UriType theIdentifier,
-			@OperationParam(name = "filter", min=0, max=1) StringType theFilter) {
+			@OperationParam(name = "filter", min=0, max=1) StringType theFilter,
+			@OperationParam(name = "offset", min=0, max=1) IntegerType theOffset,
+			@OperationParam(name = "count", min=0, max=1) IntegerType theCount) {
 		//@formatter:on
 		
 		boolean haveId = theId != null && theId.hasIdPart();
@@ -68,10 +71,12 @@ public class BaseJpaResourceProviderValueSetDstu3 extends JpaResourceProviderDst
 		startRequest(theServletRequest);
 		try {
 			IFhirResourceDaoValueSet<ValueSet, Coding, CodeableConcept> dao = (IFhirResourceDaoValueSet<ValueSet, Coding, CodeableConcept>) getDao();
+			int offset = toIntOrDefault(theOffset, 0);
+			int count = toIntOrDefault(theCount, Integer.MAX_VALUE);
 			if (haveId) {
-				return dao.expand(theId, toFilterString(theFilter));
+				return dao.expand(theId, toFilterString(theFilter), offset, count);
 			} else if (haveIdentifier) {
-				return dao.expandByIdentifier(theIdentifier.getValue(), toFilterString(theFilter));
+				return dao.expandByIdentifier(theIdentifier.getValue(), toFilterString(theFilter), offset, count);
 			} else {
 				return dao.expand(theValueSet, toFilterString(theFilter));
 			}
@@ -101,6 +106,16 @@ public class BaseJpaResourceProviderValueSetDstu3 extends JpaResourceProviderDst
 		return theFilter != null ? theFilter.getValue() : null;
 	}
 
+	private static int toIntOrDefault(IntegerType theValue, int theDefault) {
+		if (theValue == null || theValue.getValue() == null) {
+			return theDefault;
+		}
+		if (theValue.getValue() < 0) {
+			throw new InvalidRequestException("$expand offset and count must not be negative");
+		}
+		return theValue.getValue();
+	}
+
 	
 	
 	//@formatter:off
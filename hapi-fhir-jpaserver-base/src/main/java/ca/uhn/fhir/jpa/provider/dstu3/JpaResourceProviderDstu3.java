@@ -20,15 +20,20 @@ package ca.uhn.fhir.jpa.provider.dstu3;
  * #L%
  */
 
+import java.util.List;
+
 import javax.servlet.http.HttpServletRequest;
 
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Meta;
 import org.hl7.fhir.dstu3.model.Parameters;
+import org.hl7.fhir.dstu3.model.StringType;
 import org.hl7.fhir.instance.model.api.IAnyResource;
 
 import ca.uhn.fhir.jpa.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.provider.BaseJpaResourceProvider;
+import ca.uhn.fhir.model.api.annotation.Description;
+import ca.uhn.fhir.model.valueset.BundleTypeEnum;
 import ca.uhn.fhir.rest.annotation.ConditionalUrlParam;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.Delete;
@@ -41,7 +46,9 @@ import ca.uhn.fhir.rest.annotation.Validate;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.api.ValidationModeEnum;
 import ca.uhn.fhir.rest.method.RequestDetails;
+import ca.uhn.fhir.rest.server.Constants;
 import ca.uhn.fhir.rest.server.EncodingEnum;
+import ca.uhn.fhir.rest.server.IBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 
 public class JpaResourceProviderDstu3<T extends IAnyResource> extends BaseJpaResourceProvider<T> {
@@ -139,6 +146,23 @@ public class JpaResourceProviderDstu3<T extends IAnyResource> extends BaseJpaRes
 		return parameters;
 	}
 
+	/**
+	 * /Patient/$read-many?id=1,2,3
+	 */
+	//@formatter:off
+	@Operation(name=Constants.EXTOP_READ_MANY, idempotent=true, bundleType=BundleTypeEnum.SEARCHSET)
+	public IBundleProvider readMany(
+			HttpServletRequest theRequest,
+
+			@Description(shortDefinition="The IDs of the resources to read. Each value may contain a comma separated list of IDs.")
+			@OperationParam(name=Constants.EXTOP_READ_MANY_ID, min=1, max=OperationParam.MAX_UNLIMITED)
+			List<StringType> theIds,
+
+			RequestDetails theRequestDetails) {
+	//@formatter:on
+		return doReadMany(theRequest, theIds, theRequestDetails);
+	}
+
 	@Update
 	public MethodOutcome update(HttpServletRequest theRequest, @ResourceParam T theResource, @IdParam IdType theId, @ConditionalUrlParam String theConditional, RequestDetails theRequestDetails) {
 		startRequest(theRequest);
@@ -30,10 +30,10 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.jpa.dao.IDao;
 import ca.uhn.fhir.jpa.dao.IFhirSystemDao;
 import ca.uhn.fhir.jpa.dao.data.ISearchResultDao;
-import ca.uhn.fhir.rest.server.FifoMemoryPagingProvider;
+import ca.uhn.fhir.rest.server.ConcurrentMemoryPagingProvider;
 import ca.uhn.fhir.rest.server.IBundleProvider;
 
-public class DatabaseBackedPagingProvider extends FifoMemoryPagingProvider {
+public class DatabaseBackedPagingProvider extends ConcurrentMemoryPagingProvider {
 
 	@Autowired
 	private PlatformTransactionManager thePlatformTransactionManager;
@@ -51,7 +51,7 @@ public class DatabaseBackedPagingProvider extends FifoMemoryPagingProvider {
 	}
 
 	@Override
-	public synchronized IBundleProvider retrieveResultList(String theId) {
+	public IBundleProvider retrieveResultList(String theId) {
 		IBundleProvider retVal = super.retrieveResultList(theId);
 		if (retVal == null) {
 			PersistedJpaBundleProvider provider = new PersistedJpaBundleProvider(theId, theDao);
@@ -64,7 +64,7 @@ public class DatabaseBackedPagingProvider extends FifoMemoryPagingProvider {
 	}
 
 	@Override
-	public synchronized String storeResultList(IBundleProvider theList) {
+	public String storeResultList(IBundleProvider theList) {
 		if (theList instanceof PersistedJpaBundleProvider) {
 			return ((PersistedJpaBundleProvider)theList).getSearchUuid();
 		}
@@ -20,24 +20,44 @@ package ca.uhn.fhir.jpa.term;
  * #L%
  */
 
+import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
 
+import org.apache.commons.lang3.time.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.jpa.dao.BaseHapiFhirDao;
@@ -46,10 +66,15 @@ import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemDao;
 import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemVersionDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptParentChildLinkDao;
+import ca.uhn.fhir.jpa.dao.data.ITermValueSetCodeDao;
+import ca.uhn.fhir.jpa.dao.data.ITermValueSetDao;
 import ca.uhn.fhir.jpa.entity.TermCodeSystem;
 import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
 import ca.uhn.fhir.jpa.entity.TermConcept;
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
+import ca.uhn.fhir.jpa.entity.TermValueSet;
+import ca.uhn.fhir.jpa.entity.TermValueSetCode;
+import ca.uhn.fhir.jpa.entity.TermValueSetExpansionStatusEnum;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import ca.uhn.fhir.util.ObjectUtil;
@@ -57,6 +82,7 @@ import ca.uhn.fhir.util.ValidateUtil;
 
 public abstract class BaseHapiTerminologySvc implements IHapiTerminologySvc {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(BaseHapiTerminologySvc.class);
+	private static final int MAX_CACHED_CODE_SYSTEMS = 1000;
 	private static final Object PLACEHOLDER_OBJECT = new Object();
 
 	@Autowired
@@ -73,6 +99,17 @@ public abstract class BaseHapiTerminologySvc implements IHapiTerminologySvc {
 	@Autowired
 	private ITermConceptParentChildLinkDao myConceptParentChildLinkDao;
 
+	/**
+	 * Keyed on "[code system version PID]|[code]", so entries for an old version of a
+	 * code system simply stop being reachable once a new version becomes current
+	 */
+	private Cache<String, Optional<TermConceptLookupResult>> myCodeLookupCache;
+
+	/**
+	 * Maps a code system URI to the PID of its current version
+	 */
+	private Cache<String, Optional<Long>> myCurrentCodeSystemVersionCache;
+
 	private List<TermConcept> myConceptsToSaveLater = new ArrayList<TermConcept>();
 
 	@Autowired
@@ -86,6 +123,21 @@ public abstract class BaseHapiTerminologySvc implements IHapiTerminologySvc {
 	
 	private boolean myProcessDeferred = true;
 
+	@Autowired
+	private PlatformTransactionManager myTxManager;
+
+	@Autowired
+	private ITermValueSetCodeDao myValueSetCodeDao;
+
+	@Autowired
+	private ITermValueSetDao myValueSetDao;
+
+	@PostConstruct
+	public void postConstruct() {
+		myCodeLookupCache = CacheBuilder.newBuilder().maximumSize(myDaoConfig.getTermCodeLookupCacheSize()).recordStats().build();
+		myCurrentCodeSystemVersionCache = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_CODE_SYSTEMS).build();
+	}
+
 	private boolean addToSet(Set<TermConcept> theSetToPopulate, TermConcept theConcept) {
 		boolean retVal = theSetToPopulate.add(theConcept);
 		if (retVal) {
@@ -97,6 +149,52 @@ public abstract class BaseHapiTerminologySvc implements IHapiTerminologySvc {
 		return retVal;
 	}
 
+	private String createCodeSystemVersionsKey(List<TermValueSetCode> theCodes) {
+		Set<String> systems = new TreeSet<String>();
+		for (TermValueSetCode next : theCodes) {
+			if (next.getSystem() != null) {
+				systems.add(next.getSystem());
+			}
+		}
+
+		StringBuilder b = new StringBuilder();
+		for (String nextSystem : systems) {
+			TermCodeSystemVersion csv = findCurrentCodeSystemVersionForSystem(nextSystem);
+			if (csv != null) {
+				String nextKey = nextSystem + '|' + csv.getPid();
+				if (b.length() + 1 + nextKey.length() > TermValueSet.MAX_CS_VERSIONS_LENGTH) {
+					// Only store complete entries, a truncated one would never match again
+					break;
+				}
+				if (b.length() > 0) {
+					b.append(' ');
+				}
+				b.append(nextKey);
+			}
+		}
+		return b.toString();
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.REQUIRED)
+	public void deleteValueSetPreExpansion(Long theResourcePid) {
+		TermValueSet valueSet = myValueSetDao.findByResourcePid(theResourcePid);
+		if (valueSet != null) {
+			ourLog.info("Deleting pre-expansion of ValueSet {}", valueSet.getUrl());
+			myValueSetCodeDao.deleteByValueSetPid(valueSet.getId());
+			myValueSetDao.delete(valueSet);
+		}
+	}
+
+	/**
+	 * Subclasses should override this method to produce a complete expansion of the ValueSet resource with
+	 * the given PID for storage in the pre-expansion tables. The default implementation returns <code>null</code>,
+	 * which indicates that pre-expansion is not supported.
+	 */
+	protected List<TermValueSetCode> doExpandValueSetForPreExpansion(Long theResourcePid) {
+		return null;
+	}
+
 	private void fetchChildren(TermConcept theConcept, Set<TermConcept> theSetToPopulate) {
 		for (TermConceptParentChildLink nextChildLink : theConcept.getChildren()) {
 			TermConcept nextChild = nextChildLink.getChild();
@@ -127,6 +225,16 @@ public abstract class BaseHapiTerminologySvc implements IHapiTerminologySvc {
 		return myConceptDao.findByCodeSystemAndCode(csv, theCode);
 	}
 
+	private Long findCurrentCodeSystemVersionPid(String theSystem) {
+		Optional<Long> retVal = myCurrentCodeSystemVersionCache.getIfPresent(theSystem);
+		if (retVal == null) {
+			TermCodeSystemVersion csv = findCurrentCodeSystemVersionForSystem(theSystem);
+			retVal = Optional.fromNullable(csv != null ? csv.getPid() : null);
+			myCurrentCodeSystemVersionCache.put(theSystem, retVal);
+		}
+		return retVal.orNull();
+	}
+
 	@Override
 	public List<TermConcept> findCodes(String theSystem) {
 		return myConceptDao.findByCodeSystemVersion(findCurrentCodeSystemVersionForSystem(theSystem));
@@ -196,6 +304,69 @@ public abstract class BaseHapiTerminologySvc implements IHapiTerminologySvc {
 		return retVal;
 	}
 
+	@Override
+	public TermValueSetCode findPreExpandedCode(TermValueSet theValueSet, String theSystem, String theCode) {
+		List<TermValueSetCode> codes;
+		if (isBlank(theSystem)) {
+			codes = myValueSetCodeDao.findByValueSetPidAndCode(theValueSet.getId(), theCode);
+		} else {
+			codes = myValueSetCodeDao.findByValueSetPidAndSystemAndCode(theValueSet.getId(), theSystem, theCode);
+		}
+		if (codes.isEmpty()) {
+			return null;
+		}
+		return codes.get(0);
+	}
+
+	@Override
+	public List<TermValueSetCode> findPreExpandedCodes(TermValueSet theValueSet, int theOffset, int theCount) {
+		int from = Math.max(0, theOffset);
+		int to = (int) Math.min((long) from + Math.max(0, theCount), Integer.MAX_VALUE);
+		if (to <= from) {
+			return Collections.emptyList();
+		}
+		return myValueSetCodeDao.findByValueSetPidAndOrderRange(theValueSet.getId(), from, to);
+	}
+
+	@Override
+	public TermValueSet findPreExpandedValueSet(String theUrl) {
+		if (isBlank(theUrl) || !myDaoConfig.isPreExpandValueSets()) {
+			return null;
+		}
+
+		String url = theUrl;
+		String version = null;
+		int pipeIdx = theUrl.indexOf('|');
+		if (pipeIdx != -1) {
+			url = theUrl.substring(0, pipeIdx);
+			version = defaultIfBlank(theUrl.substring(pipeIdx + 1), null);
+		}
+
+		TermValueSet retVal = null;
+		for (TermValueSet next : myValueSetDao.findByUrl(url)) {
+			if (version != null && !version.equals(next.getVersion())) {
+				continue;
+			}
+			if (retVal != null) {
+				/*
+				 * More than one ValueSet resource has this URL (and no version was requested to
+				 * pick one), so let the regular expansion decide which one applies
+				 */
+				return null;
+			}
+			retVal = next;
+		}
+		return returnIfExpanded(retVal);
+	}
+
+	@Override
+	public TermValueSet findPreExpandedValueSetByResourcePid(Long theResourcePid) {
+		if (theResourcePid == null || !myDaoConfig.isPreExpandValueSets()) {
+			return null;
+		}
+		return returnIfExpanded(myValueSetDao.findByResourcePid(theResourcePid));
+	}
+
 	private TermCodeSystemVersion findCurrentCodeSystemVersionForSystem(String theCodeSystem) {
 		TermCodeSystem cs = getCodeSystem(theCodeSystem);
 		if (cs == null || cs.getCurrentVersion() == null) {
@@ -204,11 +375,64 @@ public abstract class BaseHapiTerminologySvc implements IHapiTerminologySvc {
 		TermCodeSystemVersion csv = cs.getCurrentVersion();
 		return csv;
 	}
+	@Override
+	public CacheStats getCodeLookupCacheStats() {
+		return myCodeLookupCache.stats();
+	}
+
 	private TermCodeSystem getCodeSystem(String theSystem) {
 		TermCodeSystem cs = myCodeSystemDao.findByCodeSystemUri(theSystem);
 		return cs;
 	}
 	
+	@Override
+	public void invalidateCodeLookupCache() {
+		myCurrentCodeSystemVersionCache.invalidateAll();
+		myCodeLookupCache.invalidateAll();
+	}
+
+	/**
+	 * Invalidates the code lookup cache now, and again once the current transaction (if any)
+	 * completes so that lookups made by other threads before the commit is visible are
+	 * discarded too
+	 */
+	private void invalidateCodeLookupCacheOnCompletion() {
+		invalidateCodeLookupCache();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int theStatus) {
+					invalidateCodeLookupCache();
+				}
+			});
+		}
+	}
+
+	@Override
+	public TermConceptLookupResult lookupCode(String theSystem, String theCode) {
+		if (isBlank(theSystem) || isBlank(theCode)) {
+			return null;
+		}
+
+		Long csvPid = findCurrentCodeSystemVersionPid(theSystem);
+		if (csvPid == null) {
+			return null;
+		}
+
+		String key = csvPid + "|" + theCode;
+		Optional<TermConceptLookupResult> retVal = myCodeLookupCache.getIfPresent(key);
+		if (retVal == null) {
+			TermConcept concept = myConceptDao.findByCodeSystemVersionPidAndCode(csvPid, theCode);
+			if (concept != null) {
+				retVal = Optional.of(new TermConceptLookupResult(theSystem, csvPid, concept.getId(), concept.getCode(), concept.getDisplay()));
+			} else {
+				retVal = Optional.absent();
+			}
+			myCodeLookupCache.put(key, retVal);
+		}
+		return retVal.orNull();
+	}
+
 	private void parentPids(TermConcept theNextConcept, Set<Long> theParentPids) {
 		for (TermConceptParentChildLink nextParentLink : theNextConcept.getParents()){
 			TermConcept parent = nextParentLink.getParent();
@@ -265,6 +489,110 @@ public abstract class BaseHapiTerminologySvc implements IHapiTerminologySvc {
 		}
 	}
 
+	@Scheduled(fixedDelay = 5 * DateUtils.MILLIS_PER_SECOND)
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Override
+	public synchronized void preExpandValueSets() {
+		if (!myDaoConfig.isPreExpandValueSets()) {
+			return;
+		}
+
+		TransactionTemplate txTemplate = new TransactionTemplate(myTxManager);
+		txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		List<TermValueSet> pending = txTemplate.execute(new TransactionCallback<List<TermValueSet>>() {
+			@Override
+			public List<TermValueSet> doInTransaction(TransactionStatus theStatus) {
+				return myValueSetDao.findByExpansionStatus(TermValueSetExpansionStatusEnum.NOT_EXPANDED, new PageRequest(0, 10));
+			}
+		});
+
+		for (final TermValueSet next : pending) {
+			final Long valueSetPid = next.getId();
+			try {
+				txTemplate.execute(new TransactionCallback<Void>() {
+					@Override
+					public Void doInTransaction(TransactionStatus theStatus) {
+						preExpandValueSet(valueSetPid);
+						return null;
+					}
+				});
+			} catch (Exception e) {
+				ourLog.error("Failed to pre-expand ValueSet " + next.getUrl(), e);
+				txTemplate.execute(new TransactionCallback<Void>() {
+					@Override
+					public Void doInTransaction(TransactionStatus theStatus) {
+						TermValueSet valueSet = myValueSetDao.findOne(valueSetPid);
+						if (valueSet != null) {
+							valueSet.setExpansionStatus(TermValueSetExpansionStatusEnum.FAILED);
+							myValueSetDao.save(valueSet);
+						}
+						return null;
+					}
+				});
+			}
+		}
+	}
+
+	private void preExpandValueSet(Long theValueSetPid) {
+		TermValueSet valueSet = myValueSetDao.findOne(theValueSetPid);
+		if (valueSet == null || valueSet.getExpansionStatus() != TermValueSetExpansionStatusEnum.NOT_EXPANDED) {
+			return;
+		}
+
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		ourLog.info("Pre-expanding ValueSet {}", valueSet.getUrl());
+
+		List<TermValueSetCode> codes = doExpandValueSetForPreExpansion(valueSet.getResourcePid());
+		if (codes == null) {
+			ourLog.info("Pre-expansion of ValueSet {} is not supported, discarding", valueSet.getUrl());
+			myValueSetDao.delete(valueSet);
+			return;
+		}
+
+		myValueSetCodeDao.deleteByValueSetPid(valueSet.getId());
+
+		int order = 0;
+		for (TermValueSetCode nextCode : codes) {
+			nextCode.setValueSetPid(valueSet.getId());
+			nextCode.setOrder(order++);
+			myValueSetCodeDao.save(nextCode);
+		}
+		myValueSetCodeDao.flush();
+
+		valueSet.setCodeSystemVersions(createCodeSystemVersionsKey(codes));
+		valueSet.setTotalConcepts(codes.size());
+		valueSet.setExpanded(new Date());
+		valueSet.setExpansionStatus(TermValueSetExpansionStatusEnum.EXPANDED);
+		myValueSetDao.save(valueSet);
+
+		ourLog.info("Pre-expanded ValueSet {} with {} codes in {}ms", new Object[] { valueSet.getUrl(), codes.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS) });
+	}
+
+	/**
+	 * Returns the given expansion, but only if it is complete and was built against the code system
+	 * versions which are current now. Uploading a code system marks all expansions for rebuilding,
+	 * but an expansion which was already in progress at the time could still finish against the
+	 * old version afterward.
+	 */
+	private TermValueSet returnIfExpanded(TermValueSet theValueSet) {
+		if (theValueSet == null || theValueSet.getExpansionStatus() != TermValueSetExpansionStatusEnum.EXPANDED) {
+			return null;
+		}
+		String codeSystemVersions = theValueSet.getCodeSystemVersions();
+		if (isNotBlank(codeSystemVersions)) {
+			for (String next : codeSystemVersions.split(" ")) {
+				int pipeIdx = next.lastIndexOf('|');
+				TermCodeSystemVersion csv = findCurrentCodeSystemVersionForSystem(next.substring(0, pipeIdx));
+				if (csv == null || !next.substring(pipeIdx + 1).equals(csv.getPid().toString())) {
+					ourLog.debug("Pre-expansion of ValueSet {} is stale, code system version {} is no longer current", theValueSet.getUrl(), next);
+					return null;
+				}
+			}
+		}
+		return theValueSet;
+	}
+
 	@Scheduled(fixedRate=5000)
 	@Transactional(propagation=Propagation.REQUIRED)
 	@Override
@@ -293,6 +621,11 @@ public abstract class BaseHapiTerminologySvc implements IHapiTerminologySvc {
 			}
 		}
 		
+		if (codeCount > 0) {
+			// Codes which were missing from the cache may exist now
+			invalidateCodeLookupCacheOnCompletion();
+		}
+
 		ourLog.info("Saved {} deferred concepts ({} remain) and {} deferred relationships ({} remain)", new Object[] {codeCount, myConceptsToSaveLater.size(), relCount, myConceptLinksToSaveLater.size()});
 	}
 
@@ -382,12 +715,61 @@ public abstract class BaseHapiTerminologySvc implements IHapiTerminologySvc {
 		}
 
 		ourLog.info("Done deleting old code system versions");
+
+		/*
+		 * Any pre-expanded ValueSet may draw from this code system, so they all need
+		 * to be rebuilt against the new version
+		 */
+		invalidateCodeLookupCacheOnCompletion();
+
+		int invalidated = myValueSetDao.updateAllExpansionStatus(TermValueSetExpansionStatusEnum.NOT_EXPANDED);
+		if (invalidated > 0) {
+			ourLog.info("Marked {} pre-expanded ValueSets for re-expansion", invalidated);
+		}
 		
 		if (myConceptsToSaveLater.size() > 0 || myConceptLinksToSaveLater.size() > 0) {
 			ourLog.info("Note that some concept saving was deferred - still have {} concepts and {} relationships", myConceptsToSaveLater.size(), myConceptLinksToSaveLater.size());
 		}
 	}
 	
+	@Override
+	@Transactional(propagation = Propagation.REQUIRED)
+	public void storeValueSetForPreExpansion(String theUrl, String theVersion, Long theResourcePid, Long theResourceVersionId) {
+		if (isBlank(theUrl) || !myDaoConfig.isPreExpandValueSets()) {
+			return;
+		}
+		ValidateUtil.isTrueOrThrowInvalidRequest(theUrl.length() <= TermValueSet.MAX_URL_LENGTH, "ValueSet URL is too long to be pre-expanded");
+		ValidateUtil.isTrueOrThrowInvalidRequest(theVersion == null || theVersion.length() <= TermValueSet.MAX_VERSION_LENGTH, "ValueSet version is too long to be pre-expanded");
+
+		/*
+		 * There is one row per ValueSet resource, so look it up by resource and not by URL
+		 * since the URL can change when the resource is updated
+		 */
+		TermValueSet valueSet = myValueSetDao.findByResourcePid(theResourcePid);
+		if (valueSet == null) {
+			valueSet = new TermValueSet();
+			valueSet.setResourcePid(theResourcePid);
+		} else {
+			boolean unchanged = ObjectUtil.equals(valueSet.getResourceVersionId(), theResourceVersionId) && theUrl.equals(valueSet.getUrl()) && ObjectUtil.equals(valueSet.getVersion(), theVersion);
+			if (unchanged && valueSet.getExpansionStatus() == TermValueSetExpansionStatusEnum.EXPANDED) {
+				// e.g. a reindex pass - the existing expansion is still good
+				return;
+			}
+			myValueSetCodeDao.deleteByValueSetPid(valueSet.getId());
+		}
+
+		valueSet.setUrl(theUrl);
+		valueSet.setVersion(theVersion);
+		valueSet.setResourceVersionId(theResourceVersionId);
+		valueSet.setExpansionStatus(TermValueSetExpansionStatusEnum.NOT_EXPANDED);
+		valueSet.setTotalConcepts(null);
+		valueSet.setExpanded(null);
+		valueSet.setCodeSystemVersions(null);
+		myValueSetDao.save(valueSet);
+
+		ourLog.info("ValueSet {} will be pre-expanded", theUrl);
+	}
+
 	@Override
 	public boolean supportsSystem(String theSystem) {
 		TermCodeSystem cs = getCodeSystem(theSystem);
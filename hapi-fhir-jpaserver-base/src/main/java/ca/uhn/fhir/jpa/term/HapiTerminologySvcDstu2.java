@@ -20,12 +20,23 @@ package ca.uhn.fhir.jpa.term;
  * #L%
  */
 
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import java.util.ArrayList;
 import java.util.List;
 
 import org.hl7.fhir.instance.hapi.validation.IValidationSupport;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 
+import ca.uhn.fhir.jpa.dao.IFhirResourceDaoValueSet;
 import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
+import ca.uhn.fhir.jpa.entity.TermValueSetCode;
+import ca.uhn.fhir.model.dstu2.composite.CodeableConceptDt;
+import ca.uhn.fhir.model.dstu2.composite.CodingDt;
+import ca.uhn.fhir.model.dstu2.resource.ValueSet;
+import ca.uhn.fhir.model.dstu2.resource.ValueSet.ExpansionContains;
+import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.method.RequestDetails;
 
 public class HapiTerminologySvcDstu2 extends BaseHapiTerminologySvc {
@@ -33,6 +44,31 @@ public class HapiTerminologySvcDstu2 extends BaseHapiTerminologySvc {
 	@Autowired
 	private IValidationSupport myValidationSupport;
 
+	@Autowired
+	@Qualifier("myValueSetDaoDstu2")
+	private IFhirResourceDaoValueSet<ValueSet, CodingDt, CodeableConceptDt> myValueSetResourceDao;
+
+	private void addPreExpansionCodes(List<ExpansionContains> theContains, List<TermValueSetCode> theCodesToPopulate) {
+		for (ExpansionContains next : theContains) {
+			if (isNotBlank(next.getCode())) {
+				theCodesToPopulate.add(new TermValueSetCode(next.getSystem(), next.getCode(), next.getDisplay()));
+			}
+			addPreExpansionCodes(next.getContains(), theCodesToPopulate);
+		}
+	}
+
+	/**
+	 * Note that this uses the unpaged {@link IFhirResourceDaoValueSet#expand(org.hl7.fhir.instance.model.api.IIdType, String)}, which
+	 * always walks the ValueSet definition and never reads from the pre-expansion tables
+	 */
+	@Override
+	protected List<TermValueSetCode> doExpandValueSetForPreExpansion(Long theResourcePid) {
+		ValueSet expansion = myValueSetResourceDao.expand(new IdDt("ValueSet", theResourcePid), null);
+		List<TermValueSetCode> retVal = new ArrayList<TermValueSetCode>();
+		addPreExpansionCodes(expansion.getExpansion().getContains(), retVal);
+		return retVal;
+	}
+
 
 	@Override
 	public List<VersionIndependentConcept> expandValueSet(String theValueSet) {
@@ -39,6 +39,7 @@ import org.hl7.fhir.dstu3.model.CodeSystem.CodeSystemContentMode;
 import org.hl7.fhir.dstu3.model.CodeSystem.ConceptDefinitionComponent;
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.Coding;
+import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.OperationOutcome.IssueSeverity;
 import org.hl7.fhir.dstu3.model.StructureDefinition;
 import org.hl7.fhir.dstu3.model.ValueSet;
@@ -53,16 +54,21 @@ import org.hl7.fhir.dstu3.terminologies.ValueSetExpander.ValueSetExpansionOutcom
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.jpa.dao.DaoMethodOutcome;
 import ca.uhn.fhir.jpa.dao.IFhirResourceDaoCodeSystem;
+import ca.uhn.fhir.jpa.dao.IFhirResourceDaoValueSet;
+import ca.uhn.fhir.jpa.entity.BaseHasResource;
 import ca.uhn.fhir.jpa.entity.ResourceTable;
 import ca.uhn.fhir.jpa.entity.TermCodeSystem;
 import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
 import ca.uhn.fhir.jpa.entity.TermConcept;
+import ca.uhn.fhir.jpa.entity.TermValueSet;
+import ca.uhn.fhir.jpa.entity.TermValueSetCode;
 import ca.uhn.fhir.rest.method.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
@@ -78,8 +84,51 @@ public class HapiTerminologySvcDstu3 extends BaseHapiTerminologySvc implements I
 	@Autowired
 	private ValueSetExpander myValueSetExpander;
 
+	@Autowired
+	@Qualifier("myValueSetDaoDstu3")
+	private IFhirResourceDaoValueSet<ValueSet, Coding, CodeableConcept> myValueSetResourceDao;
+
+	private void addPreExpansionCodes(List<ValueSetExpansionContainsComponent> theContains, List<TermValueSetCode> theCodesToPopulate) {
+		for (ValueSetExpansionContainsComponent next : theContains) {
+			if (isNotBlank(next.getCode())) {
+				theCodesToPopulate.add(new TermValueSetCode(next.getSystem(), next.getCode(), next.getDisplay()));
+			}
+			addPreExpansionCodes(next.getContains(), theCodesToPopulate);
+		}
+	}
+
+	@Override
+	protected List<TermValueSetCode> doExpandValueSetForPreExpansion(Long theResourcePid) {
+		BaseHasResource entity = myValueSetResourceDao.readEntity(new IdType("ValueSet", theResourcePid));
+		ValueSet source = myValueSetResourceDao.toResource(ValueSet.class, entity, false);
+
+		ValueSetExpansionOutcome outcome;
+		try {
+			outcome = myValueSetExpander.expand(source);
+		} catch (Exception e) {
+			throw new InternalErrorException(e);
+		}
+		if (outcome.getValueset() == null) {
+			throw new InternalErrorException("Failed to expand ValueSet " + source.getUrl() + ": " + outcome.getError());
+		}
+
+		List<TermValueSetCode> retVal = new ArrayList<TermValueSetCode>();
+		addPreExpansionCodes(outcome.getValueset().getExpansion().getContains(), retVal);
+		return retVal;
+	}
+
 	@Override
 	public List<VersionIndependentConcept> expandValueSet(String theValueSet) {
+		TermValueSet preExpanded = findPreExpandedValueSet(theValueSet);
+		if (preExpanded != null) {
+			List<TermValueSetCode> codes = findPreExpandedCodes(preExpanded, 0, preExpanded.getTotalConcepts());
+			ArrayList<VersionIndependentConcept> retVal = new ArrayList<VersionIndependentConcept>(codes.size());
+			for (TermValueSetCode next : codes) {
+				retVal.add(new VersionIndependentConcept(next.getSystem(), next.getCode()));
+			}
+			return retVal;
+		}
+
 		ValueSet source = new ValueSet();
 		source.getCompose().addImport(theValueSet);
 		try {
@@ -142,7 +191,7 @@ public class HapiTerminologySvcDstu3 extends BaseHapiTerminologySvc implements I
 			String nextCode = next.getCode();
 			if (isNotBlank(nextCode) && !addedCodes.contains(nextCode)) {
 				haveIncludeCriteria = true;
-				TermConcept code = super.findCode(system, nextCode);
+				TermConceptLookupResult code = lookupCode(system, nextCode);
 				if (code != null) {
 					addedCodes.add(nextCode);
 					ValueSetExpansionContainsComponent contains = retVal.addContains();
@@ -173,8 +222,11 @@ public class HapiTerminologySvcDstu3 extends BaseHapiTerminologySvc implements I
 					}
 				} else if (nextFilter.getOp() == FilterOperator.ISA) {
 					if (isNotBlank(nextFilter.getValue())) {
-						TermConcept code = super.findCode(system, nextFilter.getValue());
-						bool.must(qb.keyword().onField("myParentPids").matching("" + code.getId()).createQuery());
+						TermConceptLookupResult code = lookupCode(system, nextFilter.getValue());
+						if (code == null) {
+							throw new InvalidRequestException("Invalid filter criteria - code does not exist: {" + system + "}" + nextFilter.getValue());
+						}
+						bool.must(qb.keyword().onField("myParentPids").matching("" + code.getConceptPid()).createQuery());
 					}
 				} else {
 					throw new InvalidRequestException("Unknown filter property[" + nextFilter + "] + op[" + nextFilter.getOpElement().getValueAsString() + "]");
@@ -241,7 +293,7 @@ public class HapiTerminologySvcDstu3 extends BaseHapiTerminologySvc implements I
 	@CoverageIgnore
 	@Override
 	public CodeValidationResult validateCode(FhirContext theContext, String theCodeSystem, String theCode, String theDisplay) {
-		TermConcept code = super.findCode(theCodeSystem, theCode);
+		TermConceptLookupResult code = lookupCode(theCodeSystem, theCode);
 		if (code != null) {
 			ConceptDefinitionComponent def = new ConceptDefinitionComponent();
 			def.setCode(code.getCode());
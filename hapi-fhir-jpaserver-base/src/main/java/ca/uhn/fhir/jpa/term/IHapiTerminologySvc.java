@@ -24,8 +24,12 @@ import java.util.List;
 
 import java.util.Set;
 
+import com.google.common.cache.CacheStats;
+
 import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
 import ca.uhn.fhir.jpa.entity.TermConcept;
+import ca.uhn.fhir.jpa.entity.TermValueSet;
+import ca.uhn.fhir.jpa.entity.TermValueSetCode;
 import ca.uhn.fhir.rest.method.RequestDetails;
 
 public interface IHapiTerminologySvc {
@@ -48,6 +52,23 @@ public interface IHapiTerminologySvc {
 
 	List<TermConcept> findCodes(String theSystem);
 
+	/**
+	 * Looks up a single code in the current version of the given code system, returning
+	 * <code>null</code> if the code system or code is not known. Results (including misses)
+	 * are cached in memory until a new version of the code system is stored.
+	 */
+	TermConceptLookupResult lookupCode(String theSystem, String theCode);
+
+	/**
+	 * Returns hit/miss statistics for the cache used by {@link #lookupCode(String, String)}
+	 */
+	CacheStats getCodeLookupCacheStats();
+
+	/**
+	 * Discards all entries from the cache used by {@link #lookupCode(String, String)}
+	 */
+	void invalidateCodeLookupCache();
+
 	void saveDeferred();
 
 	/**
@@ -56,4 +77,46 @@ public interface IHapiTerminologySvc {
 	 */
 	void setProcessDeferred(boolean theProcessDeferred);
 
+	/**
+	 * Records that the ValueSet resource with the given PID has been created or updated, and now has
+	 * the given URL and (business) version. Any existing materialized expansion for that resource is
+	 * discarded, and a new one will be built in the background by {@link #preExpandValueSets()}
+	 */
+	void storeValueSetForPreExpansion(String theUrl, String theVersion, Long theResourcePid, Long theResourceVersionId);
+
+	/**
+	 * Discards the materialized expansion (if any) for the ValueSet resource with the given PID
+	 */
+	void deleteValueSetPreExpansion(Long theResourcePid);
+
+	/**
+	 * Returns the materialized expansion for the ValueSet with the given URL, or <code>null</code>
+	 * if no completed expansion is currently available. The URL may have a <code>|[version]</code>
+	 * suffix to select a specific version of the ValueSet.
+	 */
+	TermValueSet findPreExpandedValueSet(String theUrl);
+
+	/**
+	 * Returns the materialized expansion for the ValueSet resource with the given PID, or <code>null</code>
+	 * if no completed expansion is currently available
+	 */
+	TermValueSet findPreExpandedValueSetByResourcePid(Long theResourcePid);
+
+	/**
+	 * Returns a page of codes from a materialized expansion, in expansion order
+	 */
+	List<TermValueSetCode> findPreExpandedCodes(TermValueSet theValueSet, int theOffset, int theCount);
+
+	/**
+	 * Returns the first code in the given materialized expansion with the given system and code, or
+	 * <code>null</code> if none is found. If <code>theSystem</code> is blank, any system will match.
+	 */
+	TermValueSetCode findPreExpandedCode(TermValueSet theValueSet, String theSystem, String theCode);
+
+	/**
+	 * Builds the materialized expansion for any ValueSets that are waiting for one. This is called
+	 * automatically by the scheduler, but may also be invoked directly (e.g. from unit tests)
+	 */
+	void preExpandValueSets();
+
 }
@@ -0,0 +1,64 @@
+package ca.uhn.fhir.jpa.term;
+
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Lightweight, immutable snapshot of a {@link ca.uhn.fhir.jpa.entity.TermConcept} which is
+ * safe to hold in a cache outside of any persistence context
+ */
+public class TermConceptLookupResult {
+
+	private final String myCode;
+	private final Long myCodeSystemVersionPid;
+	private final Long myConceptPid;
+	private final String myDisplay;
+	private final String mySystem;
+
+	public TermConceptLookupResult(String theSystem, Long theCodeSystemVersionPid, Long theConceptPid, String theCode, String theDisplay) {
+		mySystem = theSystem;
+		myCodeSystemVersionPid = theCodeSystemVersionPid;
+		myConceptPid = theConceptPid;
+		myCode = theCode;
+		myDisplay = theDisplay;
+	}
+
+	public String getCode() {
+		return myCode;
+	}
+
+	public Long getCodeSystemVersionPid() {
+		return myCodeSystemVersionPid;
+	}
+
+	public Long getConceptPid() {
+		return myConceptPid;
+	}
+
+	public String getDisplay() {
+		return myDisplay;
+	}
+
+	public String getSystem() {
+		return mySystem;
+	}
+
+}
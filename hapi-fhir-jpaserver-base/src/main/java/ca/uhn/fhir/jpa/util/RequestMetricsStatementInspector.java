@@ -0,0 +1,48 @@
+package ca.uhn.fhir.jpa.util;
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2016 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import ca.uhn.fhir.rest.server.RequestMetrics;
+
+/**
+ * Hibernate statement inspector which counts the SQL statements issued while processing each request in the
+ * {@link RequestMetrics#COUNTER_SQL_STATEMENTS} counter of the {@link RequestMetrics#getCurrent() current request
+ * metrics}. Statements are not modified.
+ * <p>
+ * To use this class, register it in the JPA properties:
+ * </p>
+ * <pre>
+ * extraProperties.put("hibernate.session_factory.statement_inspector", RequestMetricsStatementInspector.class.getName());
+ * </pre>
+ */
+public class RequestMetricsStatementInspector implements StatementInspector {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String inspect(String theSql) {
+		RequestMetrics.getCurrent().incrementCounter(RequestMetrics.COUNTER_SQL_STATEMENTS, 1);
+		return theSql;
+	}
+
+}
@@ -15,6 +15,7 @@ import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import ca.uhn.fhir.jpa.dao.DaoConfig;
+import ca.uhn.fhir.jpa.util.RequestMetricsStatementInspector;
 import ca.uhn.fhir.rest.server.interceptor.RequestValidatingInterceptor;
 import ca.uhn.fhir.validation.ResultSeverityEnum;
 
@@ -61,6 +62,7 @@ public class TestDstu3Config extends BaseJavaConfigDstu3 {
 		extraProperties.put("hibernate.show_sql", "false");
 		extraProperties.put("hibernate.hbm2ddl.auto", "update");
 		extraProperties.put("hibernate.dialect", "org.hibernate.dialect.DerbyTenSevenDialect");
+		extraProperties.put("hibernate.session_factory.statement_inspector", RequestMetricsStatementInspector.class.getName());
 		extraProperties.put("hibernate.search.default.directory_provider" ,"filesystem");
 		extraProperties.put("hibernate.search.default.indexBase", "target/lucene_index_dstu3");
 		extraProperties.put("hibernate.search.lucene_version","LUCENE_CURRENT");
@@ -177,6 +177,7 @@ public abstract class BaseJpaDstu2Test extends BaseJpaTest {
 		ftem.purgeAll(ResourceTable.class);
 		ftem.purgeAll(ResourceIndexedSearchParamString.class);
 		ftem.flushToIndexes();
+		mySearchDao.invalidateSuggestKeywordsCache();
 
 		myDaoConfig.setSchedulingDisabled(true);
 	}
@@ -232,6 +232,7 @@ public abstract class BaseJpaDstu3Test extends BaseJpaTest {
 		ftem.purgeAll(ResourceTable.class);
 		ftem.purgeAll(ResourceIndexedSearchParamString.class);
 		ftem.flushToIndexes();
+		mySearchDao.invalidateSuggestKeywordsCache();
 
 		myDaoConfig.setSchedulingDisabled(true);
 	}
@@ -241,6 +242,7 @@ public abstract class BaseJpaDstu3Test extends BaseJpaTest {
 	public void beforePurgeDatabase() {
 		final EntityManager entityManager = this.myEntityManager;
 		purgeDatabase(entityManager, myTxManager);
+		myTermSvc.invalidateCodeLookupCache();
 	}
 
 	@Before
@@ -248,6 +250,7 @@ public abstract class BaseJpaDstu3Test extends BaseJpaTest {
 		myDaoConfig.setHardSearchLimit(1000);
 		myDaoConfig.setHardTagListLimit(1000);
 		myDaoConfig.setIncludeLimit(2000);
+		myDaoConfig.setResourceEncoding(new DaoConfig().getResourceEncoding());
 	}
 
 	@Override
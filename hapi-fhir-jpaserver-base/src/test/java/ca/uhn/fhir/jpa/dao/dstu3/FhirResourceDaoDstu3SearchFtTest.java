@@ -3,16 +3,23 @@ package ca.uhn.fhir.jpa.dao.dstu3;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.hibernate.search.jpa.FullTextEntityManager;
+import org.hibernate.search.jpa.Search;
+import org.hibernate.search.query.dsl.QueryBuilder;
 import org.hl7.fhir.dstu3.model.Base64BinaryType;
 import org.hl7.fhir.dstu3.model.Device;
 import org.hl7.fhir.dstu3.model.Media;
@@ -22,12 +29,17 @@ import org.hl7.fhir.dstu3.model.Patient;
 import org.hl7.fhir.dstu3.model.Quantity;
 import org.hl7.fhir.dstu3.model.StringType;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 
+import ca.uhn.fhir.jpa.dao.DaoConfig;
 import ca.uhn.fhir.jpa.dao.FulltextSearchSvcImpl.Suggestion;
 import ca.uhn.fhir.jpa.dao.SearchParameterMap;
+import ca.uhn.fhir.jpa.entity.ResourceIndexedSearchParamString;
 import ca.uhn.fhir.rest.param.StringAndListParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.StringParam;
@@ -41,11 +53,197 @@ public class FhirResourceDaoDstu3SearchFtTest extends BaseJpaDstu3Test {
 	
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(FhirResourceDaoDstu3SearchFtTest.class);
 
+	@After
+	public void after() {
+		myDaoConfig.setFulltextAutocompleteSearchParams(new HashSet<String>());
+		myDaoConfig.setFulltextFirstMaxHits(new DaoConfig().getFulltextFirstMaxHits());
+		myDaoConfig.setSuggestKeywordsCacheMillis(new DaoConfig().getSuggestKeywordsCacheMillis());
+	}
+
 	@AfterClass
 	public static void afterClassClearContext() {
 		TestUtil.clearAllStaticFieldsForUnitTest();
 	}
 
+	@Test
+	public void testSuggestIsCached() {
+		Patient patient = new Patient();
+		patient.addName().addFamily("testSuggestIsCached");
+		IIdType ptId = myPatientDao.create(patient, mockSrd()).getId().toUnqualifiedVersionless();
+
+		Observation obs = new Observation();
+		obs.getSubject().setReferenceElement(ptId);
+		obs.getCode().setText("ZXCVBNM ASDFGHJKL");
+		myObservationDao.create(obs, mockSrd());
+
+		String context = "Patient/" + ptId.getIdPart() + "/$everything";
+		List<String> first = toTerms(mySearchDao.suggestKeywords(context, "_content", "ZXCVBNM"));
+		assertThat(first, not(empty()));
+
+		obs = new Observation();
+		obs.getSubject().setReferenceElement(ptId);
+		obs.getCode().setText("ZXCVBNM QWERTY");
+		myObservationDao.create(obs, mockSrd());
+
+		// Cached, so the new observation isn't reflected yet
+		assertEquals(first, toTerms(mySearchDao.suggestKeywords(context, "_content", "zxcvbnm")));
+
+		mySearchDao.invalidateSuggestKeywordsCache();
+		assertThat(toTerms(mySearchDao.suggestKeywords(context, "_content", "ZXCVBNM")), hasItem("ZXCVBNM QWERTY"));
+	}
+
+	@Test
+	public void testSuggestCacheMillisChangeTakesEffect() {
+		Patient patient = new Patient();
+		patient.addName().addFamily("testSuggestCacheMillisChangeTakesEffect");
+		IIdType ptId = myPatientDao.create(patient, mockSrd()).getId().toUnqualifiedVersionless();
+
+		Observation obs = new Observation();
+		obs.getSubject().setReferenceElement(ptId);
+		obs.getCode().setText("POIUYT LKJHGF");
+		myObservationDao.create(obs, mockSrd());
+
+		String context = "Patient/" + ptId.getIdPart() + "/$everything";
+		assertThat(toTerms(mySearchDao.suggestKeywords(context, "_content", "POIUYT")), not(empty()));
+
+		myDaoConfig.setSuggestKeywordsCacheMillis(0);
+
+		obs = new Observation();
+		obs.getSubject().setReferenceElement(ptId);
+		obs.getCode().setText("POIUYT MNBVCX");
+		myObservationDao.create(obs, mockSrd());
+
+		// Caching is now disabled, so the new observation is reflected without invalidating
+		assertThat(toTerms(mySearchDao.suggestKeywords(context, "_content", "POIUYT")), hasItem("POIUYT MNBVCX"));
+	}
+
+	@Test
+	public void testSuggestRanksTopSuggestionsOverManyResources() {
+		Patient patient = new Patient();
+		patient.addName().addFamily("testSuggestRanksTopSuggestionsOverManyResources");
+		IIdType ptId = myPatientDao.create(patient, mockSrd()).getId().toUnqualifiedVersionless();
+
+		String[] words = { "systolic", "diastolic", "pressure", "glucose", "hemoglobin", "potassium", "sodium", "cholesterol", "creatinine", "albumin" };
+		for (int i = 0; i < 100; i++) {
+			Observation obs = new Observation();
+			obs.getSubject().setReferenceElement(ptId);
+			obs.getCode().setText(words[i % words.length] + " " + words[(i * 7) % words.length] + " panel " + i);
+			myObservationDao.create(obs, mockSrd());
+		}
+
+		String context = "Patient/" + ptId.getIdPart() + "/$everything";
+		String[] prefixes = { "sys", "dias", "press", "gluc", "hemo", "pota", "sod", "chol", "creat", "alb" };
+		for (String nextPrefix : prefixes) {
+			List<Suggestion> output = mySearchDao.suggestKeywords(context, "_content", nextPrefix);
+			assertThat(nextPrefix, output, not(empty()));
+			assertTrue(nextPrefix, output.size() <= 20);
+
+			HashSet<String> terms = new HashSet<String>();
+			for (int i = 0; i < output.size(); i++) {
+				assertTrue("Duplicate term " + output.get(i), terms.add(output.get(i).getTerm().toLowerCase()));
+				if (i > 0) {
+					assertTrue("Not ranked: " + output, output.get(i - 1).getScore() >= output.get(i).getScore());
+				}
+			}
+		}
+	}
+
+	private List<String> toTerms(List<Suggestion> theSuggestions) {
+		List<String> retVal = new ArrayList<String>();
+		for (Suggestion next : theSuggestions) {
+			retVal.add(next.getTerm());
+		}
+		return retVal;
+	}
+
+	@Test
+	public void testContentSearchWithOtherCriteriaInBothOrders() {
+		Observation obs1 = new Observation();
+		obs1.setStatus(ObservationStatus.FINAL);
+		obs1.setComment("systolic pressure");
+		IIdType id1 = myObservationDao.create(obs1, mySrd).getId().toUnqualifiedVersionless();
+
+		Observation obs2 = new Observation();
+		obs2.setStatus(ObservationStatus.PRELIMINARY);
+		obs2.setComment("systolic pressure");
+		myObservationDao.create(obs2, mySrd);
+
+		Observation obs3 = new Observation();
+		obs3.setStatus(ObservationStatus.FINAL);
+		obs3.setComment("diastolic pressure");
+		myObservationDao.create(obs3, mySrd);
+
+		// Fulltext first
+		SearchParameterMap map = new SearchParameterMap();
+		map.add(Constants.PARAM_CONTENT, new StringParam("systolic"));
+		map.add(Observation.SP_STATUS, new TokenParam(null, "final"));
+		assertThat(toUnqualifiedVersionlessIdValues(myObservationDao.search(map)), containsInAnyOrder(toValues(id1)));
+
+		// Other criteria first, with the matches used as a fulltext filter
+		myDaoConfig.setFulltextFirstMaxHits(0);
+		map = new SearchParameterMap();
+		map.add(Constants.PARAM_CONTENT, new StringParam("systolic"));
+		map.add(Observation.SP_STATUS, new TokenParam(null, "final"));
+		assertThat(toUnqualifiedVersionlessIdValues(myObservationDao.search(map)), containsInAnyOrder(toValues(id1)));
+
+		map = new SearchParameterMap();
+		map.add(Constants.PARAM_CONTENT, new StringParam("systolic"));
+		map.add(Observation.SP_STATUS, new TokenParam(null, "cancelled"));
+		assertThat(toUnqualifiedVersionlessIdValues(myObservationDao.search(map)), empty());
+	}
+
+	@Test
+	public void testContentSearchWithOtherCriteriaFirstAndManyCandidates() {
+		// More candidates than Lucene's default maximum clause count (1024)
+		for (int i = 0; i < 1100; i++) {
+			Observation obs = new Observation();
+			obs.setStatus(ObservationStatus.FINAL);
+			obs.setComment(i % 2 == 0 ? "systolic pressure" : "diastolic pressure");
+			myObservationDao.create(obs, mySrd);
+		}
+		Observation obs = new Observation();
+		obs.setStatus(ObservationStatus.PRELIMINARY);
+		obs.setComment("systolic pressure");
+		myObservationDao.create(obs, mySrd);
+
+		myDaoConfig.setFulltextFirstMaxHits(10);
+		SearchParameterMap map = new SearchParameterMap();
+		map.add(Constants.PARAM_CONTENT, new StringParam("systolic"));
+		map.add(Observation.SP_STATUS, new TokenParam(null, "final"));
+		assertEquals(550, toUnqualifiedVersionlessIdValues(myObservationDao.search(map)).size());
+	}
+
+	@Test
+	public void testAutocompleteFieldsOnlyIndexedForConfiguredParams() {
+		HashSet<String> params = new HashSet<String>();
+		params.add("Patient:family");
+		myDaoConfig.setFulltextAutocompleteSearchParams(params);
+
+		Patient patient = new Patient();
+		patient.addName().addFamily("Everywoman").addGiven("Janette");
+		myPatientDao.create(patient, mySrd);
+
+		// The fulltext queries need an open session
+		newTxTemplate().execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus theStatus) {
+				FullTextEntityManager em = Search.getFullTextEntityManager(myEntityManager);
+				QueryBuilder qb = em.getSearchFactory().buildQueryBuilder().forEntity(ResourceIndexedSearchParamString.class).get();
+
+				List<?> results = em.createFullTextQuery(qb.keyword().onField("myValueTextEdgeNGram").matching("eve").createQuery(), ResourceIndexedSearchParamString.class).getResultList();
+				assertEquals(1, results.size());
+				assertEquals("family", ((ResourceIndexedSearchParamString) results.get(0)).getParamName());
+
+				results = em.createFullTextQuery(qb.keyword().onField("myValueTextEdgeNGram").matching("jan").createQuery(), ResourceIndexedSearchParamString.class).getResultList();
+				assertThat(results, empty());
+
+				// The standard analyzed field is always populated
+				results = em.createFullTextQuery(qb.keyword().onField("myValueText").matching("janette").createQuery(), ResourceIndexedSearchParamString.class).getResultList();
+				assertThat(results, not(empty()));
+			}
+		});
+	}
+
 
 	@Test
 	@Ignore
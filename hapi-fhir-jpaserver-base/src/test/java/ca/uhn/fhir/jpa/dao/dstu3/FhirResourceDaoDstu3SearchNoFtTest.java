@@ -19,6 +19,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -1771,6 +1773,56 @@ public class FhirResourceDaoDstu3SearchNoFtTest extends BaseJpaDstu3Test {
 		}
 	}
 
+	@Test
+	public void testSearchWithIncludesLoadedInParallel() {
+		String methodName = "testSearchWithIncludesLoadedInParallel";
+		IIdType parentOrgId;
+		{
+			Organization org = new Organization();
+			org.getNameElement().setValue(methodName + "_O1Parent");
+			parentOrgId = myOrganizationDao.create(org, mySrd).getId().toUnqualifiedVersionless();
+		}
+		IIdType orgId;
+		{
+			Organization org = new Organization();
+			org.getNameElement().setValue(methodName + "_O1");
+			org.setPartOf(new Reference(parentOrgId));
+			orgId = myOrganizationDao.create(org, mySrd).getId().toUnqualifiedVersionless();
+		}
+		IIdType patientId;
+		{
+			Patient patient = new Patient();
+			patient.addName().addFamily("Tester_" + methodName + "_P1");
+			patient.getManagingOrganization().setReferenceElement(orgId);
+			patientId = myPatientDao.create(patient, mySrd).getId().toUnqualifiedVersionless();
+		}
+		IIdType encounterId;
+		{
+			Encounter encounter = new Encounter();
+			encounter.getPatient().setReferenceElement(patientId);
+			encounterId = myEncounterDao.create(encounter, mySrd).getId().toUnqualifiedVersionless();
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		myDaoConfig.setIncludeLoadingExecutor(executor);
+		try {
+			SearchParameterMap params = new SearchParameterMap();
+			params.add(Patient.SP_FAMILY, new StringParam("Tester_" + methodName + "_P1"));
+			params.addInclude(Patient.INCLUDE_ORGANIZATION);
+			params.addInclude(Patient.INCLUDE_CAREPROVIDER);
+			params.addInclude(Organization.INCLUDE_PARTOF.asRecursive());
+			params.addRevInclude(Encounter.INCLUDE_PATIENT);
+			IBundleProvider search = myPatientDao.search(params);
+			assertThat(toUnqualifiedVersionlessIds(search), containsInAnyOrder(patientId, orgId, parentOrgId, encounterId));
+
+			// Requesting the same page again resolves the includes again
+			assertThat(toUnqualifiedVersionlessIds(search), containsInAnyOrder(patientId, orgId, parentOrgId, encounterId));
+		} finally {
+			myDaoConfig.setIncludeLoadingExecutor(null);
+			executor.shutdown();
+		}
+	}
+
 	@SuppressWarnings("unused")
 	@Test
 	public void testSearchWithIncludesParameterNoRecurse() {
@@ -3,7 +3,11 @@ package ca.uhn.fhir.jpa.dao.dstu3;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
@@ -14,8 +18,10 @@ import org.hl7.fhir.dstu3.model.AuditEvent;
 import org.hl7.fhir.dstu3.model.CodeSystem;
 import org.hl7.fhir.dstu3.model.CodeSystem.CodeSystemContentMode;
 import org.hl7.fhir.dstu3.model.CodeSystem.ConceptDefinitionComponent;
+import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Observation;
 import org.hl7.fhir.dstu3.model.Observation.ObservationStatus;
+import org.hl7.fhir.dstu3.model.StringType;
 import org.hl7.fhir.dstu3.model.ValueSet;
 import org.hl7.fhir.dstu3.model.ValueSet.ConceptSetComponent;
 import org.hl7.fhir.dstu3.model.ValueSet.FilterOperator;
@@ -33,6 +39,7 @@ import ca.uhn.fhir.jpa.entity.ResourceTable;
 import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
 import ca.uhn.fhir.jpa.entity.TermConcept;
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink.RelationshipTypeEnum;
+import ca.uhn.fhir.jpa.entity.TermValueSet;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.param.TokenParamModifier;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
@@ -223,6 +230,98 @@ public class FhirResourceDaoDstu3TerminologyTest extends BaseJpaDstu3Test {
 		
 	}
 	
+	@Test
+	public void testPreExpandedValueSet() {
+		myDaoConfig.setPreExpandValueSets(true);
+		createLocalCsAndVs();
+		assertNull(myTermSvc.findPreExpandedValueSet(URL_MY_VALUE_SET));
+
+		myTermSvc.preExpandValueSets();
+
+		TermValueSet preExpanded = myTermSvc.findPreExpandedValueSet(URL_MY_VALUE_SET);
+		assertNotNull(preExpanded);
+		assertEquals(7, preExpanded.getTotalConcepts().intValue());
+
+		ValueSet page = myValueSetDao.expandByIdentifier(URL_MY_VALUE_SET, null, 2, 3);
+		assertEquals(7, page.getExpansion().getTotal());
+		assertEquals(2, page.getExpansion().getOffset());
+		assertEquals(3, page.getExpansion().getContains().size());
+
+		page = myValueSetDao.expandByIdentifier(URL_MY_VALUE_SET, null, 6, 10);
+		assertEquals(1, page.getExpansion().getContains().size());
+
+		assertTrue(myValueSetDao.validateCode(new StringType(URL_MY_VALUE_SET), null, new StringType("AAA"), new StringType(URL_MY_CODE_SYSTEM), null, null, null).isResult());
+		assertFalse(myValueSetDao.validateCode(new StringType(URL_MY_VALUE_SET), null, new StringType("ZZZ"), new StringType(URL_MY_CODE_SYSTEM), null, null, null).isResult());
+
+		Observation obsAA = new Observation();
+		obsAA.getCode().addCoding().setSystem(URL_MY_CODE_SYSTEM).setCode("AA");
+		IIdType idAA = myObservationDao.create(obsAA, mySrd).getId().toUnqualifiedVersionless();
+
+		Observation obsBA = new Observation();
+		obsBA.getCode().addCoding().setSystem(URL_MY_CODE_SYSTEM).setCode("BA");
+		IIdType idBA = myObservationDao.create(obsBA, mySrd).getId().toUnqualifiedVersionless();
+
+		Observation obsCA = new Observation();
+		obsCA.getCode().addCoding().setSystem(URL_MY_CODE_SYSTEM).setCode("CA");
+		IIdType idCA = myObservationDao.create(obsCA, mySrd).getId().toUnqualifiedVersionless();
+
+		SearchParameterMap params = new SearchParameterMap();
+		params.add(Observation.SP_CODE, new TokenParam(null, URL_MY_VALUE_SET).setModifier(TokenParamModifier.IN));
+		assertThat(toUnqualifiedVersionlessIdValues(myObservationDao.search(params)), containsInAnyOrder(idAA.getValue(), idBA.getValue()));
+
+		params = new SearchParameterMap();
+		params.add(Observation.SP_CODE, new TokenParam(null, URL_MY_VALUE_SET).setModifier(TokenParamModifier.NOT_IN));
+		assertThat(toUnqualifiedVersionlessIdValues(myObservationDao.search(params)), containsInAnyOrder(idCA.getValue()));
+	}
+
+	@Test
+	public void testPreExpandedValueSetDisabledByDefault() {
+		createLocalCsAndVs();
+		myTermSvc.preExpandValueSets();
+		assertNull(myTermSvc.findPreExpandedValueSet(URL_MY_VALUE_SET));
+	}
+
+	@Test
+	public void testPreExpandedValueSetUrlChanged() {
+		myDaoConfig.setPreExpandValueSets(true);
+		createLocalCsAndVs();
+		myTermSvc.preExpandValueSets();
+		TermValueSet preExpanded = myTermSvc.findPreExpandedValueSet(URL_MY_VALUE_SET);
+		assertNotNull(preExpanded);
+		Long resourcePid = preExpanded.getResourcePid();
+
+		ValueSet valueSet = myValueSetDao.read(new IdType("ValueSet/" + resourcePid), mySrd);
+		valueSet.setUrl(URL_MY_VALUE_SET + "2");
+		myValueSetDao.update(valueSet, mySrd);
+		myTermSvc.preExpandValueSets();
+
+		assertNull(myTermSvc.findPreExpandedValueSet(URL_MY_VALUE_SET));
+		preExpanded = myTermSvc.findPreExpandedValueSet(URL_MY_VALUE_SET + "2");
+		assertNotNull(preExpanded);
+		assertEquals(resourcePid, preExpanded.getResourcePid());
+		assertEquals(7, preExpanded.getTotalConcepts().intValue());
+		assertEquals(preExpanded.getId(), myTermSvc.findPreExpandedValueSetByResourcePid(resourcePid).getId());
+	}
+
+	@Test
+	public void testPreExpandedValueSetVersions() {
+		myDaoConfig.setPreExpandValueSets(true);
+		createLocalCsAndVs();
+
+		ValueSet valueSet = new ValueSet();
+		valueSet.setUrl(URL_MY_VALUE_SET);
+		valueSet.setVersion("2");
+		valueSet.getCompose().addInclude().setSystem(URL_MY_CODE_SYSTEM).addConcept().setCode("A");
+		myValueSetDao.create(valueSet, mySrd);
+		myTermSvc.preExpandValueSets();
+
+		assertEquals(1, myTermSvc.findPreExpandedValueSet(URL_MY_VALUE_SET + "|2").getTotalConcepts().intValue());
+		assertNull(myTermSvc.findPreExpandedValueSet(URL_MY_VALUE_SET + "|3"));
+
+		// Ambiguous without a version, so these fall back to a regular expansion
+		assertNull(myTermSvc.findPreExpandedValueSet(URL_MY_VALUE_SET));
+	}
+
 	@Test
 	public void testSearchCodeInFhirCodesystem() {
 		createLocalCsAndVs();
@@ -527,6 +626,7 @@ public class FhirResourceDaoDstu3TerminologyTest extends BaseJpaDstu3Test {
 	@After
 	public void after() {
 		myDaoConfig.setDeferIndexingForCodesystemsOfSize(new DaoConfig().getDeferIndexingForCodesystemsOfSize());
+		myDaoConfig.setPreExpandValueSets(new DaoConfig().isPreExpandValueSets());
 	}
 	
 	@Test
@@ -89,9 +89,12 @@ import com.google.common.collect.Lists;
 
 import ca.uhn.fhir.jpa.dao.BaseHapiFhirDao;
 import ca.uhn.fhir.jpa.dao.BaseHapiFhirResourceDao;
+import ca.uhn.fhir.jpa.dao.DaoConfig;
 import ca.uhn.fhir.jpa.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.dao.SearchParameterMap;
+import ca.uhn.fhir.jpa.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.entity.ResourceIndexedSearchParamString;
+import ca.uhn.fhir.jpa.entity.ResourceTable;
 import ca.uhn.fhir.jpa.entity.TagTypeEnum;
 import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.model.api.Include;
@@ -114,6 +117,8 @@ import ca.uhn.fhir.rest.param.TokenOrListParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.Constants;
 import ca.uhn.fhir.rest.server.IBundleProvider;
+import ca.uhn.fhir.rest.server.RequestMetrics;
+import ca.uhn.fhir.rest.server.ResourceVersion;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.PreconditionFailedException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
@@ -178,6 +183,30 @@ public class FhirResourceDaoDstu3Test extends BaseJpaDstu3Test {
 		IIdType id4 = myConditionDao.create(c4, mySrd).getId().toUnqualifiedVersionless();
 }
 	
+	@Test
+	public void testCreateAndReadWithBinaryEncoding() {
+		Patient p = new Patient();
+		p.addIdentifier().setSystem("urn:system").setValue("testCreateAndReadWithBinaryEncoding");
+		p.addName().addFamily("FAMILY");
+		IIdType jsoncId = myPatientDao.create(p, mySrd).getId().toUnqualifiedVersionless();
+
+		myDaoConfig.setResourceEncoding(ResourceEncodingEnum.BIN);
+		p = new Patient();
+		p.addIdentifier().setSystem("urn:system").setValue("testCreateAndReadWithBinaryEncoding");
+		p.addName().addFamily("FAMILY").addGiven("GIVEN");
+		IIdType binId = myPatientDao.create(p, mySrd).getId().toUnqualifiedVersionless();
+
+		ResourceTable table = myResourceTableDao.findOne(binId.getIdPartAsLong());
+		assertEquals(ResourceEncodingEnum.BIN, table.getEncoding());
+
+		// Resources stored using either encoding can be read back
+		assertEquals("FAMILY", myPatientDao.read(jsoncId, mySrd).getName().get(0).getFamily().get(0).getValue());
+		Patient read = myPatientDao.read(binId, mySrd);
+		assertEquals("GIVEN", read.getName().get(0).getGiven().get(0).getValue());
+		assertEquals("1", read.getIdElement().getVersionIdPart());
+		assertThat(toUnqualifiedVersionlessIdValues(myPatientDao.search(Patient.SP_IDENTIFIER, new TokenParam("urn:system", "testCreateAndReadWithBinaryEncoding"))), containsInAnyOrder(jsoncId.getValue(), binId.getValue()));
+	}
+
 	@Test
 	@Ignore
 	public void testCreateBuiltInProfiles() throws Exception {
@@ -2296,6 +2325,98 @@ public class FhirResourceDaoDstu3Test extends BaseJpaDstu3Test {
 
 	}
 
+	@Test
+	public void testReadMany() {
+		Patient p1 = new Patient();
+		p1.addName().addFamily("testReadMany");
+		IIdType id1 = myPatientDao.create(p1, mySrd).getId().toUnqualifiedVersionless();
+
+		Patient p2 = new Patient();
+		p2.setId("testReadManyForced");
+		p2.addName().addFamily("testReadMany");
+		IIdType id2 = myPatientDao.update(p2, mySrd).getId().toUnqualifiedVersionless();
+
+		Patient p3 = new Patient();
+		p3.addName().addFamily("testReadMany");
+		IIdType id3 = myPatientDao.create(p3, mySrd).getId().toUnqualifiedVersionless();
+		myPatientDao.delete(id3, mySrd);
+
+		Observation o1 = new Observation();
+		o1.getCode().setText("testReadMany");
+		IIdType obsId = myObservationDao.create(o1, mySrd).getId().toUnqualifiedVersionless();
+
+		List<IIdType> ids = new ArrayList<IIdType>();
+		ids.add(id2);
+		ids.add(new IdType("Patient/" + myPatientDao.readEntity(id2).getId()));
+		ids.add(id1);
+		ids.add(id3);
+		ids.add(new IdType("Patient/" + obsId.getIdPart()));
+		ids.add(new IdType("Patient/testReadManyUnknown"));
+		ids.add(id1);
+
+		List<Patient> found = myPatientDao.readMany(ids, mySrd);
+		assertThat(toUnqualifiedVersionlessIds(new ArrayList<IBaseResource>(found)), contains(id2, id1));
+
+		myDaoConfig.setReadManyLimit(2);
+		try {
+			myPatientDao.readMany(ids, mySrd);
+			fail();
+		} catch (InvalidRequestException e) {
+			assertEquals("Can not read more than 2 resources at once, 7 IDs were requested", e.getMessage());
+		} finally {
+			myDaoConfig.setReadManyLimit(new DaoConfig().getReadManyLimit());
+		}
+	}
+
+	@Test
+	public void testReadRecordsRequestMetrics() {
+		Patient p1 = new Patient();
+		p1.addName().addFamily("testReadRecordsRequestMetrics");
+		IIdType id = myPatientDao.create(p1, mySrd).getId().toUnqualifiedVersionless();
+
+		RequestMetrics metrics = new RequestMetrics();
+		RequestMetrics.setCurrent(metrics);
+		try {
+			myPatientDao.read(id, mySrd);
+		} finally {
+			RequestMetrics.setCurrent(null);
+		}
+
+		assertEquals(1, metrics.getCounter(RequestMetrics.COUNTER_RESOURCES_LOADED));
+		assertThat(metrics.getCounter(RequestMetrics.COUNTER_SQL_STATEMENTS), greaterThan(0L));
+		assertThat(metrics.getPhaseNanos(RequestMetrics.PHASE_DAO), greaterThan(0L));
+
+		// Nothing is recorded once the metrics are no longer bound to the thread
+		myPatientDao.read(id, mySrd);
+		assertEquals(1, metrics.getCounter(RequestMetrics.COUNTER_RESOURCES_LOADED));
+	}
+
+	@Test
+	public void testReadVersion() {
+		Patient p1 = new Patient();
+		p1.addName().addFamily("testReadVersion");
+		IIdType id = myPatientDao.create(p1, mySrd).getId();
+		Patient read = myPatientDao.read(id.toUnqualifiedVersionless(), mySrd);
+
+		ResourceVersion version = myPatientDao.readVersion(id.toUnqualifiedVersionless(), mySrd);
+		assertEquals("1", version.getVersionId());
+		assertEquals(read.getMeta().getLastUpdated(), version.getLastUpdated());
+		assertEquals("1", myPatientDao.readVersion(id, mySrd).getVersionId());
+
+		p1.setId(id.toUnqualifiedVersionless());
+		p1.addName().addFamily("testReadVersion2");
+		IIdType id2 = myPatientDao.update(p1, mySrd).getId();
+		assertEquals("2", myPatientDao.readVersion(id.toUnqualifiedVersionless(), mySrd).getVersionId());
+
+		// Only the current version is reported
+		assertNull(myPatientDao.readVersion(id, mySrd));
+
+		myPatientDao.delete(id2.toUnqualifiedVersionless(), mySrd);
+		assertNull(myPatientDao.readVersion(id.toUnqualifiedVersionless(), mySrd));
+		assertNull(myPatientDao.readVersion(new IdType("Patient/9999999"), mySrd));
+		assertNull(myPatientDao.readVersion(new IdType("Patient/testReadVersionNonExistant"), mySrd));
+	}
+
 	@Test
 	public void testReadForcedIdVersionHistory() throws InterruptedException {
 		Patient p1 = new Patient();
@@ -1583,6 +1583,36 @@ public class ResourceProviderDstu3Test extends BaseResourceProviderDstu3Test {
 		}
 	}
 
+	@Test
+	public void testReadMany() throws Exception {
+		Patient p1 = new Patient();
+		p1.addIdentifier().setSystem("urn:system").setValue("testReadMany_01");
+		IIdType id1 = ourClient.create().resource(p1).execute().getId().toUnqualifiedVersionless();
+
+		Patient p2 = new Patient();
+		p2.setId("testReadMany02");
+		p2.addIdentifier().setSystem("urn:system").setValue("testReadMany_02");
+		IIdType id2 = ourClient.update().resource(p2).execute().getId().toUnqualifiedVersionless();
+
+		List<Patient> patients = ourClient.read().resource(Patient.class).withIds(id2.getIdPart(), "testReadManyUnknown", id1.getValue()).execute();
+		assertEquals(2, patients.size());
+		assertEquals(id2.getValue(), patients.get(0).getIdElement().toUnqualifiedVersionless().getValue());
+		assertEquals(id1.getValue(), patients.get(1).getIdElement().toUnqualifiedVersionless().getValue());
+
+		HttpGet get = new HttpGet(ourServerBase + "/Patient/$read-many?id=" + id1.getIdPart() + "&id=" + id2.getIdPart());
+		CloseableHttpResponse response = ourHttpClient.execute(get);
+		try {
+			String resp = IOUtils.toString(response.getEntity().getContent());
+			assertEquals(200, response.getStatusLine().getStatusCode());
+			Bundle bundle = myFhirCtx.newXmlParser().parseResource(Bundle.class, resp);
+			assertEquals(BundleType.SEARCHSET, bundle.getType());
+			assertEquals(2, bundle.getEntry().size());
+		} finally {
+			IOUtils.closeQuietly(response.getEntity().getContent());
+			response.close();
+		}
+	}
+
 	@Test
 	public void testSaveAndRetrieveExistingNarrativeJson() {
 		Patient p1 = new Patient();
@@ -5,6 +5,8 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
@@ -26,6 +28,8 @@ import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.util.TestUtil;
 
+import com.google.common.cache.CacheStats;
+
 public class TerminologySvcImplTest extends BaseJpaDstu3Test {
 
 	private static final String CS_URL = "http://example.com/my_code_system";
@@ -146,6 +150,43 @@ public class TerminologySvcImplTest extends BaseJpaDstu3Test {
 		return id;
 	}
 	
+	@Test
+	public void testLookupCodeIsCachedUntilNewVersionStored() {
+		IIdType id = createCodeSystem();
+
+		CacheStats before = myTermSvc.getCodeLookupCacheStats();
+
+		TermConceptLookupResult result = myTermSvc.lookupCode("http://foo", "childAA");
+		assertNotNull(result);
+		assertEquals("childAA", result.getCode());
+		assertEquals("http://foo", result.getSystem());
+
+		result = myTermSvc.lookupCode("http://foo", "childAA");
+		assertNotNull(result);
+
+		assertNull(myTermSvc.lookupCode("http://foo", "FOO_BAD_CODE"));
+		assertNull(myTermSvc.lookupCode("http://foo", "FOO_BAD_CODE"));
+		assertNull(myTermSvc.lookupCode("http://unknown_system", "childAA"));
+
+		CacheStats stats = myTermSvc.getCodeLookupCacheStats().minus(before);
+		assertEquals(2, stats.hitCount());
+		assertEquals(2, stats.missCount());
+
+		// Storing a new version should discard the cached entries
+		CodeSystem codeSystem = myCodeSystemDao.read(id.toVersionless(), mySrd);
+		codeSystem.setName("Updated");
+		id = myCodeSystemDao.update(codeSystem, mySrd).getId().toUnqualified();
+		ResourceTable table = myResourceTableDao.findOne(id.getIdPartAsLong());
+		TermCodeSystemVersion cs = new TermCodeSystemVersion();
+		cs.setResource(table);
+		cs.setResourceVersionId(table.getVersion());
+		cs.getConcepts().add(new TermConcept(cs, "FOO_BAD_CODE"));
+		myTermSvc.storeNewCodeSystemVersion(table.getId(), "http://foo", cs);
+
+		assertNotNull(myTermSvc.lookupCode("http://foo", "FOO_BAD_CODE"));
+		assertNull(myTermSvc.lookupCode("http://foo", "childAA"));
+	}
+
 	@Test
 	public void testFindCodesAbove() {
 		IIdType id = createCodeSystem();
@@ -3,6 +3,13 @@ package ca.uhn.fhir.model.primitive;
 import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.AfterClass;
@@ -142,6 +149,57 @@ public class IdDtTest {
 	}
 
 	
+	@Test
+	public void testComponentPartsAfterSetValue() {
+		IdDt id = new IdDt("http://example.com/base/Patient/123/_history/2");
+		assertEquals("http://example.com/base/Patient/123/_history/2", id.getValue());
+		assertEquals("http://example.com/base", id.getBaseUrl());
+		assertEquals("Patient", id.getResourceType());
+		assertEquals("123", id.getIdPart());
+		assertEquals("2", id.getVersionIdPart());
+
+		id.setValue("Observation/456");
+		assertEquals("Observation", id.getResourceType());
+		assertEquals("456", id.getIdPart());
+		assertEquals(null, id.getVersionIdPart());
+		assertFalse(id.hasBaseUrl());
+
+		id.setValue("");
+		assertEquals(null, id.getIdPart());
+		assertFalse(id.hasResourceType());
+	}
+
+	/**
+	 * Component parts are split out lazily, so threads sharing an instance must never see them half populated
+	 */
+	@Test
+	public void testComponentPartsFromConcurrentThreads() throws Exception {
+		int threadCount = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			for (int pass = 0; pass < 500; pass++) {
+				final IdDt id = new IdDt("http://example.com/base/Patient/123/_history/2");
+				final CountDownLatch start = new CountDownLatch(1);
+				List<Future<String>> futures = new ArrayList<Future<String>>();
+				for (int i = 0; i < threadCount; i++) {
+					futures.add(executor.submit(new Callable<String>() {
+						@Override
+						public String call() throws Exception {
+							start.await();
+							return id.getBaseUrl() + "|" + id.getResourceType() + "|" + id.getIdPart() + "|" + id.getVersionIdPart();
+						}
+					}));
+				}
+				start.countDown();
+				for (Future<String> next : futures) {
+					assertEquals("http://example.com/base|Patient|123|2", next.get());
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	@Test
 	public void testViewMethods() {
 		IdDt i = new IdDt("http://foo/fhir/Organization/123/_history/999");
@@ -331,6 +331,27 @@ public class BaseDateTimeDtDstu2Test {
 		}
 	}
 
+	/**
+	 * A value without an offset is in the default zone at the time it was parsed, even
+	 * though the Date is only built when it is first requested
+	 */
+	@Test
+	public void testDateTimeWithoutOffsetUsesDefaultZoneAtParseTime() {
+		TimeZone defaultZone = TimeZone.getDefault();
+		try {
+			TimeZone.setDefault(TimeZone.getTimeZone("GMT+05:00"));
+			DateTimeDt dt = new DateTimeDt("2011-01-02T11:22:33");
+			TimeZone.setDefault(TimeZone.getTimeZone("GMT-08:00"));
+
+			Calendar expected = new GregorianCalendar(TimeZone.getTimeZone("GMT+05:00"));
+			expected.clear();
+			expected.set(2011, Calendar.JANUARY, 2, 11, 22, 33);
+			assertEquals(expected.getTime(), dt.getValue());
+		} finally {
+			TimeZone.setDefault(defaultZone);
+		}
+	}
+
 	@Test
 	public void testEncodeOffset() throws Exception {
 		String offset = InstantDt.withCurrentTime().setTimeZone(TimeZone.getTimeZone("America/Toronto")).getValueAsString();
@@ -461,6 +482,60 @@ public class BaseDateTimeDtDstu2Test {
 		validateMillisPartial("2015-06-22T00:00:00.00123Z", 1);
 	}
 
+	@Test
+	public void testParseGivesSameInstantAsCalendar() {
+		validateParsedInstant("2015-06-22T15:44:32.831-04:00", 2015, 6, 22, 15, 44, 32, 831, "GMT-04:00");
+		validateParsedInstant("2015-06-22T15:44:32+05:30", 2015, 6, 22, 15, 44, 32, 0, "GMT+05:30");
+		validateParsedInstant("2000-02-29T23:59:59.999Z", 2000, 2, 29, 23, 59, 59, 999, "GMT");
+		validateParsedInstant("1969-12-31T23:59:59Z", 1969, 12, 31, 23, 59, 59, 0, "GMT");
+		validateParsedInstant("1600-03-01T00:00:00Z", 1600, 3, 1, 0, 0, 0, 0, "GMT");
+		validateParsedInstant("1500-03-01T00:00:00Z", 1500, 3, 1, 0, 0, 0, 0, "GMT");
+		validateParsedInstant("0001-01-01T00:00:00-01:00", 1, 1, 1, 0, 0, 0, 0, "GMT-01:00");
+		validateParsedInstant("9999-12-31T23:59:59.999+14:00", 9999, 12, 31, 23, 59, 59, 999, "GMT+14:00");
+		validateParsedInstant("2015-06-22T15:44:32", 2015, 6, 22, 15, 44, 32, 0, null);
+		validateParsedInstant("2015-06", 2015, 6, 1, 0, 0, 0, 0, null);
+	}
+
+	@Test
+	public void testParseLeapDay() {
+		assertEquals("2016-02-29", new DateDt("2016-02-29").getValueAsString());
+		assertEquals("2000-02-29", new DateDt("2000-02-29").getValueAsString());
+		assertEquals("1500-02-29", new DateDt("1500-02-29").getValueAsString());
+		verifyFails("2015-02-29");
+		verifyFails("1900-02-29");
+		verifyFails("2016-04-31");
+	}
+
+	@Test
+	public void testParseLocalTimeAfterTimeZoneSet() {
+		DateTimeDt dt = new DateTimeDt("2015-06-22T15:44:32Z");
+		dt.setValueAsString("2015-06-22T15:44:32");
+
+		Calendar cal = new GregorianCalendar(2015, 5, 22, 15, 44, 32);
+		assertEquals(cal.getTimeInMillis(), dt.getValue().getTime());
+	}
+
+	@Test
+	public void testParseThenChangeTimeZone() {
+		DateTimeDt dt = new DateTimeDt("2015-06-22T15:44:32.831-04:00");
+		dt.setTimeZoneZulu(true);
+		assertEquals("2015-06-22T19:44:32.831Z", dt.getValueAsString());
+
+		dt = new DateTimeDt("2015-06-22T15:44:32-04:00");
+		dt.setTimeZone(TimeZone.getTimeZone("GMT+02:00"));
+		assertEquals("2015-06-22T21:44:32+02:00", dt.getValueAsString());
+	}
+
+	@Test
+	public void testParseValueAsStringIsUnchanged() {
+		DateTimeDt dt = new DateTimeDt("2015-06-22T15:44:32.8310-04:00");
+		assertFalse(dt.isEmpty());
+		assertEquals("2015-06-22T15:44:32.8310-04:00", dt.getValueAsString());
+		assertEquals(TemporalPrecisionEnum.MILLI, dt.getPrecision());
+		assertEquals("GMT-04:00", dt.getTimeZone().getID());
+		assertEquals(1435002272831L, dt.getValue().getTime());
+	}
+
 	/*
 	 * Just to be lenient
 	 */
@@ -745,6 +820,17 @@ public class BaseDateTimeDtDstu2Test {
 		assertThat(human, containsString("12"));
 	}
 
+	private void validateParsedInstant(String theInput, int theYear, int theMonth, int theDay, int theHour, int theMinute, int theSecond, int theMillis, String theTimeZone) {
+		GregorianCalendar cal = new GregorianCalendar(theTimeZone != null ? TimeZone.getTimeZone(theTimeZone) : TimeZone.getDefault());
+		cal.clear();
+		cal.set(theYear, theMonth - 1, theDay, theHour, theMinute, theSecond);
+		cal.set(Calendar.MILLISECOND, theMillis);
+
+		DateTimeDt dt = new DateTimeDt(theInput);
+		assertEquals(theInput, cal.getTimeInMillis(), dt.getValue().getTime());
+		assertEquals(theInput, dt.getValueAsString());
+	}
+
 	private void validateMillisPartial(String input, int expected) {
 		InstantDt dt = new InstantDt();
 		dt.setValueAsString(input);
@@ -2,6 +2,7 @@ package ca.uhn.fhir.model.primitive;
 
 import static org.junit.Assert.*;
 
+import java.math.BigDecimal;
 import java.math.RoundingMode;
 
 import org.junit.Test;
@@ -23,6 +24,33 @@ public class DecimalDtTest {
 		assertEquals("1.66666666", dt.getValueAsString());
 	}
 
+	@Test
+	public void testParsePlainAndExponent() {
+		DecimalDt dt = new DecimalDt();
+		dt.setValueAsString("-0012.500");
+		assertEquals("-0012.500", dt.getValueAsString());
+		assertEquals(new BigDecimal("-12.500"), dt.getValue());
+
+		dt.setValueAsString("+.5");
+		assertEquals(new BigDecimal("0.5"), dt.getValue());
+
+		dt.setValueAsString("1.5E3");
+		assertEquals("1.5E3", dt.getValueAsString());
+		assertEquals(0, new BigDecimal("1500").compareTo(dt.getValue()));
+	}
+
+	@Test
+	public void testParseInvalid() {
+		for (String next : new String[] { "1.2.3", "-", ".", "1,5", "abc" }) {
+			try {
+				new DecimalDt().setValueAsString(next);
+				fail(next);
+			} catch (NumberFormatException e) {
+				// good
+			}
+		}
+	}
+
 	@Test
 	public void testSetValue() {
 		DecimalDt dt = new DecimalDt();
@@ -0,0 +1,83 @@
+package ca.uhn.fhir.model.primitive;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.model.api.BasePrimitive;
+import ca.uhn.fhir.util.TestUtil;
+
+/**
+ * Date, decimal and ID values are split into their parts lazily, so an instance which is parsed into over and over
+ * must always end up in the same state as a freshly created one, whether or not the typed value was asked for in
+ * between
+ */
+public class PrimitiveReparsingDstu2Test {
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private void assertReparsingMatchesFreshInstance(BasePrimitive<?> theReused, BasePrimitive<?> theFresh, String[] theValues) {
+		for (int pass = 0; pass < 2; pass++) {
+			for (String next : theValues) {
+				theReused.setValueAsString(next);
+				if (pass == 1) {
+					theReused.getValue();
+				}
+				theFresh.setValueAsString(next);
+
+				assertEquals(next, theReused.getValueAsString());
+				assertEquals(next, theFresh.getValue(), theReused.getValue());
+				assertEquals(next, theFresh.getValueAsString(), theReused.getValueAsString());
+			}
+		}
+	}
+
+	@Test
+	public void testReparseDate() {
+		String[] values = { "2012-03-31", "1974-12-25", "2016-02-29" };
+		assertReparsingMatchesFreshInstance(new DateDt(), new DateDt(), values);
+	}
+
+	@Test
+	public void testReparseDateTime() {
+		String[] values = { "2015-06-22T15:44:32-04:00", "2015-06-22T15:44:32Z", "2015-06-22", "2015-06-22T15:44:32" };
+		assertReparsingMatchesFreshInstance(new DateTimeDt(), new DateTimeDt(), values);
+	}
+
+	@Test
+	public void testReparseDecimal() {
+		String[] values = { "123.45", "-0.001", "100", "1.5E3" };
+		assertReparsingMatchesFreshInstance(new DecimalDt(), new DecimalDt(), values);
+	}
+
+	@Test
+	public void testReparseId() {
+		String[] values = { "Patient/123", "http://example.com/base/Observation/456/_history/2", "789", "#contained" };
+		IdDt reused = new IdDt();
+		for (String next : values) {
+			reused.setValue(next);
+			IdDt fresh = new IdDt(next);
+			assertEquals(next, fresh.getBaseUrl(), reused.getBaseUrl());
+			assertEquals(next, fresh.getResourceType(), reused.getResourceType());
+			assertEquals(next, fresh.getIdPart(), reused.getIdPart());
+			assertEquals(next, fresh.getVersionIdPart(), reused.getVersionIdPart());
+		}
+	}
+
+	@Test
+	public void testReparseInstant() {
+		String[] values = { "2015-06-22T15:44:32.831-04:00", "2015-06-22T15:44:32.831Z", "2015-06-22T15:44:32.8310+05:30" };
+		assertReparsingMatchesFreshInstance(new InstantDt(), new InstantDt(), values);
+	}
+
+	@Test
+	public void testReparseInteger() {
+		String[] values = { "0", "-12", "123456" };
+		assertReparsingMatchesFreshInstance(new IntegerDt(), new IntegerDt(), values);
+	}
+
+}
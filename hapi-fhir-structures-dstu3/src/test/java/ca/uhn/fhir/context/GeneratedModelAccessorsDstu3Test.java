@@ -0,0 +1,161 @@
+package ca.uhn.fhir.context;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hl7.fhir.dstu3.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.dstu3.model.HumanName;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.Substance;
+import org.hl7.fhir.dstu3.model.StringType;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.util.TestUtil;
+
+public class GeneratedModelAccessorsDstu3Test {
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private static FhirContext newGeneratedContext() {
+		FhirContext retVal = FhirContext.forDstu3();
+		retVal.setPerformanceOptions(PerformanceOptionsEnum.GENERATED_MODEL_ACCESSORS);
+		return retVal;
+	}
+
+	private static Patient newPatient() {
+		Patient patient = new Patient();
+		patient.setId("Patient/123");
+		patient.addIdentifier().setSystem("http://system").setValue("value");
+		patient.addName().addFamily("FAMILY").addGiven("GIVEN1").addGiven("GIVEN2");
+		patient.setGender(AdministrativeGender.MALE);
+		patient.setActive(true);
+		patient.addExtension().setUrl("http://ext").setValue(new StringType("extvalue"));
+		patient.getBirthDateElement().setValueAsString("2011-01-02");
+		patient.getManagingOrganization().setReference("Organization/1");
+		return patient;
+	}
+
+	@Test
+	public void testAccessorsAreGeneratedForProtectedFields() {
+		FhirContext ctx = newGeneratedContext();
+		RuntimeResourceDefinition def = ctx.getResourceDefinition(Patient.class);
+
+		BaseRuntimeDeclaredChildDefinition name = (BaseRuntimeDeclaredChildDefinition) def.getChildByName("name");
+		assertThat(name.getFieldAccessor().getClass().getName(), containsString("$$HapiFieldAccessor$$"));
+
+		// Inherited from DomainResource
+		BaseRuntimeDeclaredChildDefinition text = (BaseRuntimeDeclaredChildDefinition) def.getChildByName("text");
+		assertThat(text.getFieldAccessor().getClass().getName(), containsString("$$HapiFieldAccessor$$"));
+
+		Patient patient = newPatient();
+		assertEquals(1, name.getAccessor().getValues(patient).size());
+		name.getMutator().addValue(patient, new HumanName().addFamily("FAMILY2"));
+		assertEquals("FAMILY2", patient.getName().get(1).getFamily().get(0).getValue());
+	}
+
+	@Test
+	public void testAccessorsAreNotGeneratedByDefault() {
+		FhirContext ctx = FhirContext.forDstu3();
+		RuntimeResourceDefinition def = ctx.getResourceDefinition(Patient.class);
+
+		BaseRuntimeDeclaredChildDefinition name = (BaseRuntimeDeclaredChildDefinition) def.getChildByName("name");
+		assertThat(name.getFieldAccessor().getClass().getName(), not(containsString("$$HapiFieldAccessor$$")));
+	}
+
+	@Test
+	public void testGeneratedInstanceFactory() {
+		FhirContext ctx = newGeneratedContext();
+		RuntimeResourceDefinition def = ctx.getResourceDefinition(Observation.class);
+		assertTrue(def.newInstance() instanceof Observation);
+	}
+
+	@Test
+	public void testParseAndEncodeAreUnchanged() {
+		FhirContext reflectionCtx = FhirContext.forDstu3();
+		FhirContext generatedCtx = newGeneratedContext();
+
+		String xml = reflectionCtx.newXmlParser().encodeResourceToString(newPatient());
+		assertEquals(xml, generatedCtx.newXmlParser().encodeResourceToString(newPatient()));
+
+		String json = reflectionCtx.newJsonParser().encodeResourceToString(newPatient());
+		assertEquals(json, generatedCtx.newJsonParser().encodeResourceToString(newPatient()));
+
+		Patient parsed = generatedCtx.newJsonParser().parseResource(Patient.class, json);
+		assertEquals(json, reflectionCtx.newJsonParser().encodeResourceToString(parsed));
+		parsed = generatedCtx.newXmlParser().parseResource(Patient.class, xml);
+		assertEquals(xml, reflectionCtx.newXmlParser().encodeResourceToString(parsed));
+	}
+
+	@Test
+	public void testParseAndEncodeUseGeneratedAccessorsForEveryChild() {
+		FhirContext ctx = newGeneratedContext();
+		IParser parser = ctx.newJsonParser();
+		parser.encodeResourceToString(parser.parseResource(Patient.class, parser.encodeResourceToString(newPatient())));
+
+		RuntimeResourceDefinition def = ctx.getResourceDefinition(Patient.class);
+		for (BaseRuntimeChildDefinition next : def.getChildrenAndExtension()) {
+			if (next instanceof BaseRuntimeDeclaredChildDefinition) {
+				String accessorName = ((BaseRuntimeDeclaredChildDefinition) next).getFieldAccessor().getClass().getName();
+				assertThat(next.getElementName(), accessorName, containsString("$$HapiFieldAccessor$$"));
+			}
+		}
+	}
+
+	/**
+	 * Contexts which scan the same type at the same time must all end up using the
+	 * generated classes, rather than one of them failing on a duplicate class definition
+	 */
+	@Test
+	public void testConcurrentContextsShareGeneratedAccessors() throws Exception {
+		int threads = 8;
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(new Callable<List<String>>() {
+					@Override
+					public List<String> call() throws Exception {
+						FhirContext ctx = newGeneratedContext();
+						start.await();
+						List<String> retVal = new ArrayList<String>();
+						RuntimeResourceDefinition def = ctx.getResourceDefinition(Substance.class);
+						for (BaseRuntimeChildDefinition next : def.getChildren()) {
+							retVal.add(((BaseRuntimeDeclaredChildDefinition) next).getFieldAccessor().getClass().getName());
+						}
+						return retVal;
+					}
+				}));
+			}
+			start.countDown();
+
+			for (Future<List<String>> next : futures) {
+				List<String> accessorNames = next.get();
+				assertTrue(accessorNames.size() > 0);
+				for (String nextName : accessorNames) {
+					assertThat(nextName, containsString("$$HapiFieldAccessor$$"));
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
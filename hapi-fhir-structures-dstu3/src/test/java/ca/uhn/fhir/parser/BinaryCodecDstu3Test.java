@@ -0,0 +1,183 @@
+package ca.uhn.fhir.parser;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Bundle.BundleType;
+import org.hl7.fhir.dstu3.model.DateTimeType;
+import org.hl7.fhir.dstu3.model.DecimalType;
+import org.hl7.fhir.dstu3.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.dstu3.model.Extension;
+import org.hl7.fhir.dstu3.model.IntegerType;
+import org.hl7.fhir.dstu3.model.Narrative.NarrativeStatus;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Observation.ObservationStatus;
+import org.hl7.fhir.dstu3.model.Organization;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.Quantity;
+import org.hl7.fhir.dstu3.model.Reference;
+import org.hl7.fhir.dstu3.model.StringType;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.server.Constants;
+import ca.uhn.fhir.util.TestUtil;
+
+public class BinaryCodecDstu3Test {
+
+	private static final int ENTRY_COUNT = 500;
+	private static FhirContext ourCtx = FhirContext.forDstu3();
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(BinaryCodecDstu3Test.class);
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private static Patient createPatient() {
+		Patient patient = new Patient();
+		patient.setId("Patient/123");
+		patient.getMeta().setVersionId("2").addProfile("http://profile");
+		patient.getText().setStatus(NarrativeStatus.GENERATED).setDivAsString("<div>Hello <b>World</b> \u00e9</div>");
+		patient.addIdentifier().setSystem("http://system").setValue("value1");
+		patient.addIdentifier().setSystem("http://system").setValue("value2");
+		patient.addName().addFamily("FAMILY").addGiven("GIVEN");
+		patient.setGender(AdministrativeGender.FEMALE);
+		patient.getBirthDateElement().setValueAsString("2001-02-03");
+		patient.getBirthDateElement().addExtension(new Extension("http://ext", new StringType("bd")));
+		patient.addExtension(new Extension("http://ext2", new DateTimeType("2011-01-02T11:22:33-05:00")));
+		patient.addModifierExtension(new Extension("http://modext", new StringType("mod")));
+
+		Organization org = new Organization();
+		org.setId("#org1");
+		org.setName("ORG");
+		patient.getContained().add(org);
+		patient.setManagingOrganization(new Reference("#org1"));
+		return patient;
+	}
+
+	private static Bundle createSearchBundle() {
+		Bundle bundle = new Bundle();
+		bundle.setType(BundleType.SEARCHSET);
+		bundle.setTotal(ENTRY_COUNT);
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			Observation obs = new Observation();
+			obs.setId("Observation/" + i);
+			obs.setStatus(ObservationStatus.FINAL);
+			obs.getCode().addCoding().setSystem("http://loinc.org").setCode("8867-4").setDisplay("Heart rate");
+			obs.setValue(new Quantity().setValue(60 + (i % 40)).setUnit("beats/minute").setSystem("http://unitsofmeasure.org").setCode("/min"));
+			obs.setSubject(new Reference("Patient/" + (i % 20)));
+			obs.setEffective(new DateTimeType("2016-06-15T20:23:28-04:00"));
+			bundle.addEntry().setFullUrl("http://example.com/Observation/" + i).setResource(obs);
+		}
+		return bundle;
+	}
+
+	@Test
+	public void testEncodedSizeComparedToJson() throws Exception {
+		Bundle bundle = createSearchBundle();
+		IParser jsonParser = ourCtx.newJsonParser();
+		BinaryCodec codec = ourCtx.newBinaryCodec();
+
+		String json = jsonParser.encodeResourceToString(bundle);
+		byte[] binary = codec.encodeResourceToBytes(bundle);
+		ourLog.info("Encoded sizes - JSON: {} bytes, binary: {} bytes", json.getBytes(Constants.CHARSET_UTF8).length, binary.length);
+		assertThat(binary.length, lessThan(json.length()));
+
+		assertEquals(json, jsonParser.encodeResourceToString(codec.parseResource(Bundle.class, binary)));
+	}
+
+	@Test
+	public void testInvalidContent() {
+		BinaryCodec codec = ourCtx.newBinaryCodec();
+		try {
+			codec.parseResource(Patient.class, "{\"resourceType\":\"Patient\"}".getBytes(Constants.CHARSET_UTF8));
+			fail();
+		} catch (DataFormatException e) {
+			assertThat(e.getMessage(), containsString("not in the binary resource format"));
+		}
+
+		byte[] encoded = codec.encodeResourceToBytes(createPatient());
+		try {
+			codec.parseResource(Patient.class, Arrays.copyOf(encoded, encoded.length - 10));
+			fail();
+		} catch (DataFormatException e) {
+			assertThat(e.getMessage(), containsString("unexpected end of content"));
+		}
+	}
+
+	@Test
+	public void testLongStringValue() {
+		Patient patient = new Patient();
+		String longValue = StringUtils.repeat("0123456789\u00e9", 2000);
+		patient.addName().addFamily(longValue);
+		patient.addName().addFamily(longValue);
+
+		BinaryCodec codec = ourCtx.newBinaryCodec();
+		Patient parsed = codec.parseResource(Patient.class, new ByteArrayInputStream(codec.encodeResourceToBytes(patient)));
+		assertEquals(longValue, parsed.getName().get(0).getFamily().get(0).getValue());
+		assertEquals(longValue, parsed.getName().get(1).getFamily().get(0).getValue());
+	}
+
+	@Test
+	public void testRoundTripBundle() {
+		Bundle bundle = createSearchBundle();
+		BinaryCodec codec = ourCtx.newBinaryCodec();
+
+		Bundle parsed = (Bundle) codec.parseResource(codec.encodeResourceToBytes(bundle));
+		assertEquals(ENTRY_COUNT, parsed.getEntry().size());
+		assertEquals("http://example.com/Observation/3", parsed.getEntry().get(3).getResource().getIdElement().getValue());
+
+		IParser jsonParser = ourCtx.newJsonParser();
+		assertEquals(jsonParser.encodeResourceToString(bundle), jsonParser.encodeResourceToString(parsed));
+	}
+
+	@Test
+	public void testRoundTripMatchesJson() {
+		Patient patient = createPatient();
+		BinaryCodec codec = ourCtx.newBinaryCodec();
+
+		byte[] encoded = codec.encodeResourceToBytes(patient);
+		Patient parsed = codec.parseResource(Patient.class, encoded);
+
+		IParser jsonParser = ourCtx.newJsonParser();
+		String expected = jsonParser.encodeResourceToString(patient);
+		ourLog.info(expected);
+		assertEquals(expected, jsonParser.encodeResourceToString(parsed));
+		assertEquals("ORG", ((Organization) parsed.getManagingOrganization().getResource()).getName());
+	}
+
+	@Test
+	public void testRoundTripNumbers() {
+		Observation obs = new Observation();
+		obs.setValue(new Quantity().setValueElement(new DecimalType("1.50")));
+		obs.addExtension(new Extension("http://int", new IntegerType(-12345678)));
+		obs.addReferenceRange().getLow().setValueElement(new DecimalType("-0.000000000000000000001"));
+
+		BinaryCodec codec = ourCtx.newBinaryCodec();
+		Observation parsed = codec.parseResource(Observation.class, codec.encodeResourceToBytes(obs));
+		assertEquals("1.50", ((Quantity) parsed.getValue()).getValueElement().getValueAsString());
+		assertEquals(-12345678, ((IntegerType) parsed.getExtension().get(0).getValue()).getValue().intValue());
+
+		IParser jsonParser = ourCtx.newJsonParser();
+		assertEquals(jsonParser.encodeResourceToString(obs), jsonParser.encodeResourceToString(parsed));
+	}
+
+	@Test
+	public void testRepeatedStringsAreWrittenOnce() {
+		BinaryCodec codec = ourCtx.newBinaryCodec();
+		String encoded = new String(codec.encodeResourceToBytes(createSearchBundle()), Constants.CHARSET_UTF8);
+		assertEquals(1, StringUtils.countMatches(encoded, "http://loinc.org"));
+		assertEquals(1, StringUtils.countMatches(encoded, "valueQuantity"));
+	}
+
+}
@@ -0,0 +1,89 @@
+package ca.uhn.fhir.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Bundle.BundleType;
+import org.hl7.fhir.dstu3.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.dstu3.model.Extension;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.StringType;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.TestUtil;
+
+public class EncodeToOutputStreamDstu3Test {
+
+	private static final int ENTRY_COUNT = 500;
+	private static FhirContext ourCtx = FhirContext.forDstu3();
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private static Bundle createSearchBundle() {
+		Bundle bundle = new Bundle();
+		bundle.setType(BundleType.SEARCHSET);
+		bundle.setTotal(ENTRY_COUNT);
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			Patient patient = new Patient();
+			patient.setId("Patient/" + i);
+			patient.addIdentifier().setSystem("http://system").setValue("value" + i);
+			patient.addName().addFamily("FAMILY" + i).addGiven("GIVEN").addGiven("GIVEN2");
+			patient.setGender(AdministrativeGender.FEMALE);
+			patient.setActive(true);
+			if (i % 10 == 0) {
+				patient.getGenderElement().addExtension(new Extension("http://ext", new StringType("value")));
+			}
+			bundle.addEntry().setFullUrl("http://example.com/Patient/" + i).setResource(patient);
+		}
+		return bundle;
+	}
+
+	/**
+	 * The encoders only create the lists holding extensions for values which have some
+	 */
+	@Test
+	public void testEncodeExtensionsOnlyWherePresent() throws Exception {
+		Bundle bundle = createSearchBundle();
+
+		String json = ourCtx.newJsonParser().encodeResourceToString(bundle);
+		assertEquals(ENTRY_COUNT / 10, StringUtils.countMatches(json, "\"_gender\""));
+		assertEquals(ENTRY_COUNT / 10, StringUtils.countMatches(json, "\"url\":\"http://ext\""));
+		assertEquals(ENTRY_COUNT, StringUtils.countMatches(json, "\"gender\":\"female\""));
+
+		String xml = ourCtx.newXmlParser().encodeResourceToString(bundle);
+		assertEquals(ENTRY_COUNT / 10, StringUtils.countMatches(xml, "<extension url=\"http://ext\">"));
+		assertEquals(ENTRY_COUNT, StringUtils.countMatches(xml, "<gender"));
+	}
+
+	@Test
+	public void testEncodeToOutputStreamMatchesEncodeToWriterJson() throws Exception {
+		Bundle bundle = createSearchBundle();
+		IParser parser = ourCtx.newJsonParser();
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		parser.encodeResourceToOutputStream(bundle, bos);
+
+		assertEquals(parser.encodeResourceToString(bundle), new String(bos.toByteArray(), "UTF-8"));
+	}
+
+	@Test
+	public void testEncodeToOutputStreamMatchesEncodeToWriterXml() throws Exception {
+		Bundle bundle = createSearchBundle();
+		((Patient) bundle.getEntry().get(0).getResource()).addName().addFamily("\u00e9 <&> \"");
+		IParser parser = ourCtx.newXmlParser();
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		parser.encodeResourceToOutputStream(bundle, bos);
+
+		assertEquals(parser.encodeResourceToString(bundle), new String(bos.toByteArray(), "UTF-8"));
+	}
+
+}
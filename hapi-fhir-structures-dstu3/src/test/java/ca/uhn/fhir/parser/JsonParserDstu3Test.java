@@ -51,6 +51,7 @@ import org.hl7.fhir.dstu3.model.Medication;
 import org.hl7.fhir.dstu3.model.MedicationOrder;
 import org.hl7.fhir.dstu3.model.Observation;
 import org.hl7.fhir.dstu3.model.Observation.ObservationStatus;
+import org.hl7.fhir.dstu3.model.Organization;
 import org.hl7.fhir.dstu3.model.Parameters;
 import org.hl7.fhir.dstu3.model.Patient;
 import org.hl7.fhir.dstu3.model.PrimitiveType;
@@ -1410,6 +1411,48 @@ public class JsonParserDstu3Test {
 
 	}
 
+	/**
+	 * The streaming parser reads members in document order, so make sure that content which doesn't put
+	 * resourceType, url and primitive values ahead of their siblings still parses the same way
+	 */
+	@Test
+	public void testParseMembersInNonCanonicalOrder() {
+		//@formatter:off
+		String input = "{" +
+			"\"contained\":[{\"id\":\"1\",\"name\":\"ORG\",\"resourceType\":\"Organization\"}]," +
+			"\"_birthDate\":{\"id\":\"bd\",\"extension\":[{\"valueString\":\"ext1\",\"url\":\"http://foo\"}]}," +
+			"\"name\":[{\"fhir_comments\":[\"comment1\"],\"family\":[\"fam1\",\"fam2\"],\"_family\":[null,{\"id\":\"f2\"}]}]," +
+			"\"birthDate\":\"2011-01-02\"," +
+			"\"_active\":{\"id\":\"act\"}," +
+			"\"managingOrganization\":{\"reference\":\"#1\"}," +
+			"\"resourceType\":\"Patient\"" +
+			"}";
+		//@formatter:on
+
+		Patient p = ourCtx.newJsonParser().parseResource(Patient.class, input);
+
+		assertEquals("2011-01-02", p.getBirthDateElement().getValueAsString());
+		assertEquals("bd", p.getBirthDateElement().getId());
+		assertEquals(1, p.getBirthDateElement().getExtension().size());
+		assertEquals("http://foo", p.getBirthDateElement().getExtension().get(0).getUrl());
+		assertEquals("ext1", ((StringType) p.getBirthDateElement().getExtension().get(0).getValue()).getValue());
+
+		assertEquals("fam1", p.getName().get(0).getFamily().get(0).getValue());
+		assertEquals("fam2", p.getName().get(0).getFamily().get(1).getValue());
+		assertEquals("f2", p.getName().get(0).getFamily().get(1).getId());
+		assertEquals("comment1", p.getName().get(0).getFormatCommentsPre().get(0));
+
+		assertEquals("act", p.getActiveElement().getId());
+		assertNull(p.getActiveElement().getValue());
+
+		Organization org = (Organization) p.getManagingOrganization().getResource();
+		assertEquals("ORG", org.getName());
+
+		String canonical = ourCtx.newJsonParser().encodeResourceToString(p);
+		String reencoded = ourCtx.newJsonParser().encodeResourceToString(ourCtx.newJsonParser().parseResource(Patient.class, canonical));
+		assertEquals(canonical, reencoded);
+	}
+
 	/**
 	 * See #163
 	 */
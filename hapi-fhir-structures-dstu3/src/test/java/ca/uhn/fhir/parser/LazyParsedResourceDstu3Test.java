@@ -0,0 +1,163 @@
+package ca.uhn.fhir.parser;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.stringContainsInOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.hl7.fhir.dstu3.model.BooleanType;
+import org.hl7.fhir.dstu3.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.dstu3.model.Extension;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.StringType;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.TestUtil;
+
+public class LazyParsedResourceDstu3Test {
+
+	private static FhirContext ourCtx = FhirContext.forDstu3();
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(LazyParsedResourceDstu3Test.class);
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private static Patient createPatient() {
+		Patient patient = new Patient();
+		patient.setId("Patient/123");
+		patient.getMeta().setVersionId("2");
+		patient.addIdentifier().setSystem("http://system").setValue("value1");
+		patient.addIdentifier().setSystem("http://system").setValue("value2");
+		patient.setActive(true);
+		patient.addName().addFamily("FAMILY").addGiven("GIVEN");
+		patient.setGender(AdministrativeGender.FEMALE);
+		patient.getBirthDateElement().setValueAsString("2001-02-03");
+		patient.getBirthDateElement().addExtension(new Extension("http://ext", new StringType("bd")));
+		patient.setDeceased(new BooleanType(false));
+		return patient;
+	}
+
+	@Test
+	public void testChildNamesJson() {
+		String input = ourCtx.newJsonParser().encodeResourceToString(createPatient());
+		LazyParsedResource<Patient> lazy = ourCtx.newJsonParser().parseResourceLazily(Patient.class, input);
+
+		assertEquals("Patient", lazy.getResourceName());
+		assertThat(lazy.getChildNames(), contains("id", "meta", "identifier", "active", "name", "gender", "birthDate", "deceased"));
+		assertEquals("\"deceasedBoolean\":false", lazy.getChildText("deceased[x]"));
+		assertNull(lazy.getChildText("address"));
+	}
+
+	@Test
+	public void testChildNamesXml() {
+		String input = ourCtx.newXmlParser().encodeResourceToString(createPatient());
+		LazyParsedResource<Patient> lazy = ourCtx.newXmlParser().parseResourceLazily(null, input);
+
+		assertEquals("Patient", lazy.getResourceName());
+		assertThat(lazy.getChildNames(), contains("id", "meta", "identifier", "active", "name", "gender", "birthDate", "deceased"));
+		assertEquals("<deceasedBoolean value=\"false\"/>", lazy.getChildText("deceased"));
+		assertThat(lazy.getChildText("identifier"), stringContainsInOrder(Arrays.asList("value1", "value2")));
+	}
+
+	@Test
+	public void testEncodeUntouchedReturnsOriginal() {
+		String input = ourCtx.newJsonParser().setPrettyPrint(true).encodeResourceToString(createPatient());
+		LazyParsedResource<Patient> lazy = ourCtx.newJsonParser().parseResourceLazily(Patient.class, input);
+		assertSame(input, lazy.encode());
+
+		input = ourCtx.newXmlParser().setPrettyPrint(true).encodeResourceToString(createPatient());
+		lazy = ourCtx.newXmlParser().parseResourceLazily(Patient.class, input);
+		assertSame(input, lazy.encode());
+	}
+
+	@Test
+	public void testFullParse() {
+		String input = ourCtx.newJsonParser().encodeResourceToString(createPatient());
+		LazyParsedResource<Patient> lazy = ourCtx.newJsonParser().parseResourceLazily(Patient.class, input);
+
+		Patient patient = lazy.getResource();
+		assertEquals(2, patient.getIdentifier().size());
+		assertEquals("2001-02-03", patient.getBirthDateElement().getValueAsString());
+		assertSame(patient, lazy.getResource("name"));
+
+		patient.setActive(false);
+		assertThat(lazy.encode(), containsString("\"active\":false"));
+	}
+
+	@Test
+	public void testMaterializeAndModifyJson() {
+		Patient expected = createPatient();
+		String input = ourCtx.newJsonParser().encodeResourceToString(expected);
+		LazyParsedResource<Patient> lazy = ourCtx.newJsonParser().parseResourceLazily(Patient.class, input);
+
+		Patient partial = lazy.getResource("gender", "_birthDate");
+		assertEquals("123", partial.getIdElement().getIdPart());
+		assertEquals("2", partial.getMeta().getVersionId());
+		assertEquals(AdministrativeGender.FEMALE, partial.getGender());
+		assertEquals("2001-02-03", partial.getBirthDateElement().getValueAsString());
+		assertEquals("bd", ((StringType) partial.getBirthDateElement().getExtension().get(0).getValue()).getValue());
+		assertFalse(partial.hasIdentifier());
+		assertFalse(partial.hasName());
+		assertFalse(partial.hasDeceased());
+
+		partial.setGender(AdministrativeGender.MALE);
+		String output = lazy.encode();
+		ourLog.info(output);
+
+		expected.setGender(AdministrativeGender.MALE);
+		assertEquals(ourCtx.newJsonParser().encodeResourceToString(expected), output);
+	}
+
+	@Test
+	public void testMaterializeAndModifyXml() {
+		Patient expected = createPatient();
+		String input = ourCtx.newXmlParser().encodeResourceToString(expected);
+		LazyParsedResource<Patient> lazy = ourCtx.newXmlParser().parseResourceLazily(Patient.class, input);
+
+		Patient partial = lazy.getResource("deceased[x]");
+		assertEquals("false", ((BooleanType) partial.getDeceased()).getValueAsString());
+		assertFalse(partial.hasGender());
+
+		partial = lazy.getResource("identifier");
+		assertTrue(partial.hasDeceased());
+		assertEquals(2, partial.getIdentifier().size());
+
+		partial.getIdentifier().remove(1);
+		partial.setDeceased(new BooleanType(true));
+		String output = lazy.encode();
+		ourLog.info(output);
+
+		expected.getIdentifier().remove(1);
+		expected.setDeceased(new BooleanType(true));
+		assertEquals(ourCtx.newXmlParser().encodeResourceToString(expected), output);
+	}
+
+	@Test
+	public void testPrefixedRootXml() {
+		String input = "<f:Patient xmlns:f=\"http://hl7.org/fhir\"><f:id value=\"123\"/><f:active value=\"true\"/><f:gender value=\"female\"/></f:Patient>";
+		LazyParsedResource<Patient> lazy = ourCtx.newXmlParser().parseResourceLazily(Patient.class, input);
+		assertThat(lazy.getChildNames(), contains("id", "active", "gender"));
+
+		Patient partial = lazy.getResource("gender");
+		assertEquals(AdministrativeGender.FEMALE, partial.getGender());
+		assertFalse(partial.hasActive());
+		partial.setGender(AdministrativeGender.MALE);
+
+		Patient reparsed = ourCtx.newXmlParser().parseResource(Patient.class, lazy.encode());
+		assertEquals("123", reparsed.getIdElement().getIdPart());
+		assertTrue(reparsed.getActive());
+		assertEquals(AdministrativeGender.MALE, reparsed.getGender());
+	}
+
+}
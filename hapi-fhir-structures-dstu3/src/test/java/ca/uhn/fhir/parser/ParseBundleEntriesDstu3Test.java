@@ -0,0 +1,184 @@
+package ca.uhn.fhir.parser;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.dstu3.model.Bundle.BundleType;
+import org.hl7.fhir.dstu3.model.Bundle.HTTPVerb;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Organization;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.Reference;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.TestUtil;
+
+public class ParseBundleEntriesDstu3Test {
+
+	private static final int ENTRY_COUNT = 1000;
+	private static FhirContext ourCtx = FhirContext.forDstu3();
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private static Bundle createTransaction() {
+		Bundle bundle = new Bundle();
+		bundle.setType(BundleType.TRANSACTION);
+		bundle.addLink().setRelation("self").setUrl("http://example.com/self");
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			Patient patient = new Patient();
+			patient.addName().addFamily("FAMILY" + i);
+			Organization org = new Organization();
+			org.setId("#org");
+			org.setName("ORG" + i);
+			patient.getContained().add(org);
+			patient.setManagingOrganization(new Reference("#org"));
+			bundle.addEntry().setFullUrl("urn:uuid:" + i).setResource(patient).getRequest().setMethod(HTTPVerb.POST).setUrl("Patient");
+		}
+		bundle.addEntry().getRequest().setMethod(HTTPVerb.DELETE).setUrl("Patient/123");
+		return bundle;
+	}
+
+	private void checkParseBundleEntries(IParser theParser) {
+		String input = theParser.encodeResourceToString(createTransaction());
+
+		final CountingReader reader = new CountingReader(new StringReader(input));
+		final List<BundleEntryComponent> entries = new ArrayList<BundleEntryComponent>();
+		final List<IBaseResource> resources = new ArrayList<IBaseResource>();
+		final long[] readWhenFirstEntryHandled = new long[1];
+		Bundle bundle = theParser.parseBundleEntries(Bundle.class, reader, new IBundleEntryHandler() {
+			@Override
+			public void handleEntry(IBase theEntry, IBaseResource theResource) {
+				if (entries.isEmpty()) {
+					readWhenFirstEntryHandled[0] = reader.getCount();
+				}
+				entries.add((BundleEntryComponent) theEntry);
+				resources.add(theResource);
+			}
+		});
+
+		assertEquals(BundleType.TRANSACTION, bundle.getType());
+		assertEquals("http://example.com/self", bundle.getLink("self").getUrl());
+		assertTrue(bundle.getEntry().isEmpty());
+
+		assertEquals(ENTRY_COUNT + 1, entries.size());
+		Patient patient = (Patient) resources.get(5);
+		assertEquals("urn:uuid:5", patient.getIdElement().getValue());
+		assertEquals("FAMILY5", patient.getNameFirstRep().getFamily().get(0).getValue());
+		assertEquals("ORG5", ((Organization) patient.getManagingOrganization().getResource()).getName());
+		assertEquals(HTTPVerb.POST, entries.get(5).getRequest().getMethod());
+
+		assertNull(resources.get(ENTRY_COUNT));
+		assertEquals("Patient/123", entries.get(ENTRY_COUNT).getRequest().getUrl());
+
+		// The first entry must have been handed over long before the end of the input was read
+		assertThat(readWhenFirstEntryHandled[0], lessThan(input.length() / 10L));
+	}
+
+	@Test
+	public void testNestedBundleKeepsEntries() {
+		Bundle inner = new Bundle();
+		inner.setType(BundleType.COLLECTION);
+		inner.addEntry().setResource(new Observation().setComment("OBS"));
+
+		Bundle outer = new Bundle();
+		outer.setType(BundleType.COLLECTION);
+		outer.addEntry().setResource(inner);
+
+		for (IParser parser : Arrays.asList(ourCtx.newJsonParser(), ourCtx.newXmlParser())) {
+			final List<IBaseResource> resources = new ArrayList<IBaseResource>();
+			Bundle parsed = parser.parseBundleEntries(Bundle.class, new StringReader(parser.encodeResourceToString(outer)), new IBundleEntryHandler() {
+				@Override
+				public void handleEntry(IBase theEntry, IBaseResource theResource) {
+					resources.add(theResource);
+				}
+			});
+			assertFalse(parsed.hasEntry());
+			assertEquals(1, resources.size());
+			Bundle parsedInner = (Bundle) resources.get(0);
+			assertEquals("OBS", ((Observation) parsedInner.getEntryFirstRep().getResource()).getComment());
+		}
+	}
+
+	@Test
+	public void testParseBundleEntriesJson() {
+		checkParseBundleEntries(ourCtx.newJsonParser());
+	}
+
+	@Test
+	public void testParseBundleEntriesXml() {
+		checkParseBundleEntries(ourCtx.newXmlParser());
+	}
+
+	@Test
+	public void testParseBundleEntriesWrongType() {
+		try {
+			ourCtx.newJsonParser().parseBundleEntries(Patient.class, new StringReader("{\"resourceType\":\"Patient\"}"), new IBundleEntryHandler() {
+				@Override
+				public void handleEntry(IBase theEntry, IBaseResource theResource) {
+					fail();
+				}
+			});
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Type org.hl7.fhir.dstu3.model.Patient is not a Bundle resource", e.getMessage());
+		}
+	}
+
+	/**
+	 * Keeps track of how many characters have been read
+	 */
+	private static class CountingReader extends FilterReader {
+
+		private long myCount;
+
+		public CountingReader(Reader theReader) {
+			super(theReader);
+		}
+
+		public long getCount() {
+			return myCount;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int retVal = super.read();
+			if (retVal != -1) {
+				myCount++;
+			}
+			return retVal;
+		}
+
+		@Override
+		public int read(char[] theBuffer, int theOffset, int theLength) throws IOException {
+			int retVal = super.read(theBuffer, theOffset, theLength);
+			if (retVal > 0) {
+				myCount += retVal;
+			}
+			return retVal;
+		}
+
+	}
+
+}
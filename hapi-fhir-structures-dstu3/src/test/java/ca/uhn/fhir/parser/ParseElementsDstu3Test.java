@@ -0,0 +1,157 @@
+package ca.uhn.fhir.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Bundle.BundleType;
+import org.hl7.fhir.dstu3.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.dstu3.model.Extension;
+import org.hl7.fhir.dstu3.model.Narrative.NarrativeStatus;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Observation.ObservationStatus;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.Quantity;
+import org.hl7.fhir.dstu3.model.Reference;
+import org.hl7.fhir.dstu3.model.StringType;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.TestUtil;
+
+public class ParseElementsDstu3Test {
+
+	private static FhirContext ourCtx = FhirContext.forDstu3();
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private static Bundle createBundle() {
+		Bundle bundle = new Bundle();
+		bundle.setType(BundleType.SEARCHSET);
+		bundle.setTotal(2);
+
+		Patient patient = new Patient();
+		patient.setId("Patient/1");
+		patient.getText().setStatus(NarrativeStatus.GENERATED).setDivAsString("<div>PATIENT</div>");
+		patient.addName().addFamily("FAMILY").addGiven("GIVEN");
+		patient.setGender(AdministrativeGender.MALE);
+		bundle.addEntry().setFullUrl("http://example.com/Patient/1").setResource(patient);
+
+		Observation obs = new Observation();
+		obs.setId("Observation/2");
+		obs.getMeta().setVersionId("3");
+		obs.getText().setStatus(NarrativeStatus.GENERATED).setDivAsString("<div>OBS</div>");
+		obs.addExtension(new Extension("http://ext", new StringType("EXT")));
+		obs.setStatus(ObservationStatus.FINAL);
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode("1234-5");
+		obs.setValue(new Quantity(123).setUnit("kg"));
+		obs.setSubject(new Reference("Patient/1"));
+		obs.addReferenceRange().getLow().setValue(100);
+		bundle.addEntry().setFullUrl("http://example.com/Observation/2").setResource(obs);
+
+		return bundle;
+	}
+
+	private void assertObservationFiltered(Observation theObs) {
+		assertEquals("2", theObs.getIdElement().getIdPart());
+		assertEquals("3", theObs.getMeta().getVersionId());
+		assertEquals("1234-5", theObs.getCode().getCodingFirstRep().getCode());
+		assertEquals("kg", ((Quantity) theObs.getValue()).getUnit());
+		assertFalse(theObs.hasStatus());
+		assertFalse(theObs.hasSubject());
+		assertFalse(theObs.hasText());
+		assertFalse(theObs.hasReferenceRange());
+		assertTrue(theObs.getExtension().isEmpty());
+	}
+
+	private void assertPatientComplete(Patient thePatient) {
+		assertEquals("1", thePatient.getIdElement().getIdPart());
+		assertEquals("FAMILY", thePatient.getNameFirstRep().getFamily().get(0).getValue());
+		assertEquals(AdministrativeGender.MALE, thePatient.getGender());
+		assertTrue(thePatient.hasText());
+	}
+
+	@Test
+	public void testParseElementsInBundleJson() {
+		String input = ourCtx.newJsonParser().encodeResourceToString(createBundle());
+
+		IParser parser = ourCtx.newJsonParser();
+		parser.setParserErrorHandler(new StrictErrorHandler());
+		parser.setParseElements(new HashSet<String>(Arrays.asList("Observation.code", "Observation.value[x]")));
+		Bundle bundle = parser.parseResource(Bundle.class, input);
+
+		assertEquals(2, bundle.getTotal());
+		assertEquals(2, bundle.getEntry().size());
+		assertEquals("http://example.com/Observation/2", bundle.getEntry().get(1).getFullUrl());
+		assertPatientComplete((Patient) bundle.getEntry().get(0).getResource());
+		assertObservationFiltered((Observation) bundle.getEntry().get(1).getResource());
+	}
+
+	@Test
+	public void testParseElementsInBundleXml() {
+		String input = ourCtx.newXmlParser().encodeResourceToString(createBundle());
+
+		IParser parser = ourCtx.newXmlParser();
+		parser.setParserErrorHandler(new StrictErrorHandler());
+		parser.setParseElements(new HashSet<String>(Arrays.asList("Observation.code", "Observation.value")));
+		Bundle bundle = parser.parseResource(Bundle.class, input);
+
+		assertEquals(2, bundle.getTotal());
+		assertPatientComplete((Patient) bundle.getEntry().get(0).getResource());
+		assertObservationFiltered((Observation) bundle.getEntry().get(1).getResource());
+	}
+
+	@Test
+	public void testParseElementsNested() {
+		Patient patient = new Patient();
+		patient.addName().addFamily("FAMILY").addGiven("GIVEN");
+		patient.addIdentifier().setSystem("http://system").setValue("VALUE");
+		patient.getGenderElement().setValue(AdministrativeGender.FEMALE);
+		patient.addExtension(new Extension("http://ext", new StringType("EXT")));
+
+		for (IParser parser : Arrays.asList(ourCtx.newJsonParser(), ourCtx.newXmlParser())) {
+			String input = parser.encodeResourceToString(patient);
+
+			parser.setParseElements(new HashSet<String>(Arrays.asList("Patient.name.family", "Patient.extension")));
+			Patient parsed = parser.parseResource(Patient.class, input);
+			assertEquals("FAMILY", parsed.getNameFirstRep().getFamily().get(0).getValue());
+			assertFalse(parsed.getNameFirstRep().hasGiven());
+			assertFalse(parsed.hasIdentifier());
+			assertFalse(parsed.hasGender());
+			assertEquals("EXT", ((StringType) parsed.getExtension().get(0).getValue()).getValue());
+
+			parser.setParseElements(null);
+			parsed = parser.parseResource(Patient.class, input);
+			assertTrue(parsed.getNameFirstRep().hasGiven());
+			assertTrue(parsed.hasIdentifier());
+		}
+	}
+
+	@Test
+	public void testParseElementsWithStar() {
+		String input = ourCtx.newJsonParser().encodeResourceToString(createBundle());
+
+		IParser parser = ourCtx.newJsonParser();
+		parser.setParseElements(new HashSet<String>(Arrays.asList("*.entry", "*.text", "Bundle.total")));
+		Bundle bundle = parser.parseResource(Bundle.class, input);
+
+		assertEquals(2, bundle.getTotal());
+		assertFalse(bundle.hasType());
+		Patient patient = (Patient) bundle.getEntry().get(0).getResource();
+		assertEquals("1", patient.getIdElement().getIdPart());
+		assertTrue(patient.getText().getDivAsString().contains("PATIENT"));
+		assertFalse(patient.hasName());
+		Observation obs = (Observation) bundle.getEntry().get(1).getResource();
+		assertTrue(obs.getText().getDivAsString().contains("OBS"));
+		assertFalse(obs.hasCode());
+	}
+
+}
@@ -0,0 +1,105 @@
+package ca.uhn.fhir.parser;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hl7.fhir.dstu3.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.dstu3.model.Narrative.NarrativeStatus;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.server.EncodingEnum;
+import ca.uhn.fhir.util.TestUtil;
+
+public class ParserConfigurationDstu3Test {
+
+	private static FhirContext ourCtx = FhirContext.forDstu3();
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private static Patient createPatient(int theIndex) {
+		Patient patient = new Patient();
+		patient.setId("Patient/" + theIndex);
+		patient.getText().setStatus(NarrativeStatus.GENERATED).setDivAsString("<div>PATIENT " + theIndex + "</div>");
+		patient.addName().addFamily("FAMILY" + theIndex).addGiven("GIVEN");
+		patient.setGender(AdministrativeGender.MALE);
+		return patient;
+	}
+
+	@Test
+	public void testChangesToParserAfterCreationAreIgnored() {
+		Set<String> elements = new HashSet<String>(Arrays.asList("Patient.name"));
+		IParser parser = ourCtx.newJsonParser().setPrettyPrint(true);
+		parser.setEncodeElements(elements);
+		ParserConfiguration config = new ParserConfiguration(parser);
+
+		parser.setPrettyPrint(false);
+		elements.add("Patient.gender");
+
+		String encoded = config.encodeResourceToString(createPatient(1));
+		assertThat(encoded, containsString("\n"));
+		assertThat(encoded, containsString("FAMILY1"));
+		assertThat(encoded, not(containsString("male")));
+		assertEquals(EncodingEnum.JSON, config.getEncoding());
+	}
+
+	@Test
+	public void testConcurrentEncodeAndParse() throws Exception {
+		final ParserConfiguration config = new ParserConfiguration(ourCtx.newXmlParser().setSuppressNarratives(true).setParserErrorHandler(new StrictErrorHandler()));
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 200; i++) {
+				final int index = i;
+				futures.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws Exception {
+						String encoded = config.encodeResourceToString(createPatient(index));
+						Patient parsed = config.parseResource(Patient.class, encoded);
+						return encoded.contains("PATIENT") == false && ("FAMILY" + index).equals(parsed.getNameFirstRep().getFamily().get(0).getValue());
+					}
+				}));
+			}
+			for (Future<Boolean> next : futures) {
+				assertTrue(next.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testNewParserIsIndependent() {
+		ParserConfiguration config = new ParserConfiguration(ourCtx.newJsonParser().setSummaryMode(true));
+
+		IParser parser = config.newParser();
+		assertNotSame(parser, config.newParser());
+		assertTrue(parser.isSummaryMode());
+
+		parser.setSummaryMode(false);
+		assertTrue(config.newParser().isSummaryMode());
+		assertFalse(parser.isSummaryMode());
+	}
+
+}
@@ -602,6 +602,33 @@ public class GenericClientDstu3Test {
 		}
 	}
 
+	@Test
+	public void testReadMany() throws Exception {
+		Bundle bundle = new Bundle();
+		bundle.setType(BundleType.SEARCHSET);
+		bundle.addEntry().setResource(new Patient().setActive(true).setId("123"));
+		bundle.addEntry().setResource(new Patient().setActive(false).setId("abc"));
+		final String respString = ourCtx.newJsonParser().encodeResourceToString(bundle);
+
+		ArgumentCaptor<HttpUriRequest> capt = ArgumentCaptor.forClass(HttpUriRequest.class);
+		when(myHttpClient.execute(capt.capture())).thenReturn(myHttpResponse);
+		when(myHttpResponse.getStatusLine()).thenReturn(new BasicStatusLine(new ProtocolVersion("HTTP", 1, 1), 200, "OK"));
+		when(myHttpResponse.getEntity().getContentType()).thenReturn(new BasicHeader("content-type", Constants.CT_FHIR_JSON + "; charset=UTF-8"));
+		when(myHttpResponse.getEntity().getContent()).thenReturn(new ReaderInputStream(new StringReader(respString), Charset.forName("UTF-8")));
+
+		IGenericClient client = ourCtx.newRestfulGenericClient("http://example.com/fhir");
+
+		List<Patient> patients = client.read().resource(Patient.class).withIds("123", "Patient/abc").execute();
+		assertEquals("http://example.com/fhir/Patient/$read-many", capt.getAllValues().get(0).getURI().toASCIIString());
+		assertEquals("POST", capt.getAllValues().get(0).getMethod());
+		String body = extractBodyAsString(capt);
+		assertThat(body, containsString("<parameter><name value=\"id\"/><valueString value=\"123\"/></parameter>"));
+		assertThat(body, containsString("<parameter><name value=\"id\"/><valueString value=\"abc\"/></parameter>"));
+		assertEquals(2, patients.size());
+		assertEquals("123", patients.get(0).getIdElement().getIdPart());
+		assertEquals(false, patients.get(1).getActive());
+	}
+
 	@Test
 	public void testReadWithUnparseableResponse() throws Exception {
 		String msg = "{\"resourceTypeeeee\":\"Patient\"}";
@@ -0,0 +1,223 @@
+package ca.uhn.fhir.rest.server;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Read;
+import ca.uhn.fhir.rest.method.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+import ca.uhn.fhir.util.PortUtil;
+import ca.uhn.fhir.util.TestUtil;
+
+public class AsyncServerDstu3Test {
+
+	private static final int CONCURRENT_REQUESTS = 50;
+	private static final long SLOW_REQUEST_MILLIS = 2000;
+
+	private static ExecutorService ourAsyncExecutor;
+	private static CloseableHttpClient ourClient;
+	private static FhirContext ourCtx = FhirContext.forDstu3();
+	private static final AtomicInteger ourInterceptorCount = new AtomicInteger();
+	private static volatile CountDownLatch ourLatch;
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(AsyncServerDstu3Test.class);
+	private static int ourPort;
+	private static Server ourServer;
+	private static RestfulServer ourServlet;
+
+	@Before
+	public void before() {
+		ourInterceptorCount.set(0);
+		ourLatch = null;
+		ourServlet.setAsyncTimeout(RestfulServer.DEFAULT_ASYNC_TIMEOUT);
+	}
+
+	@Test
+	public void testExceptionIsReturnedAsOperationOutcome() throws Exception {
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient/999");
+		CloseableHttpResponse status = ourClient.execute(httpGet);
+		try {
+			String responseContent = IOUtils.toString(status.getEntity().getContent());
+			ourLog.info(responseContent);
+			assertEquals(404, status.getStatusLine().getStatusCode());
+			assertThat(responseContent, containsString("OperationOutcome"));
+			assertEquals(1, ourInterceptorCount.get());
+		} finally {
+			IOUtils.closeQuietly(status.getEntity().getContent());
+		}
+	}
+
+	@Test
+	public void testGzippedResponse() throws Exception {
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient/1?_format=json");
+		httpGet.addHeader(Constants.HEADER_ACCEPT_ENCODING, "gzip");
+		CloseableHttpResponse status = ourClient.execute(httpGet);
+		try {
+			String responseContent = IOUtils.toString(status.getEntity().getContent());
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			assertThat(responseContent, containsString("FAMILY1"));
+		} finally {
+			IOUtils.closeQuietly(status.getEntity().getContent());
+		}
+	}
+
+	/**
+	 * The container only has a handful of worker threads, but because requests are handed off to the async executor,
+	 * all of the requests can be in flight at the same time. Each request waits in the provider until every one of
+	 * them has arrived, which could never happen if they were processed on the container threads.
+	 */
+	@Test
+	public void testManyRequestsInFlightConcurrently() throws Exception {
+		ourLatch = new CountDownLatch(CONCURRENT_REQUESTS);
+		ExecutorService clientExecutor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+		try {
+			List<Future<String>> futures = new ArrayList<Future<String>>();
+			for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+				final int index = i;
+				futures.add(clientExecutor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						CloseableHttpResponse status = ourClient.execute(new HttpGet("http://localhost:" + ourPort + "/Patient/" + index));
+						try {
+							assertEquals(200, status.getStatusLine().getStatusCode());
+							return IOUtils.toString(status.getEntity().getContent());
+						} finally {
+							IOUtils.closeQuietly(status.getEntity().getContent());
+						}
+					}
+				}));
+			}
+			for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+				assertThat(futures.get(i).get(), containsString("FAMILY" + i));
+			}
+			assertEquals(CONCURRENT_REQUESTS, ourInterceptorCount.get());
+		} finally {
+			clientExecutor.shutdown();
+		}
+	}
+
+	@Test
+	public void testTimedOutRequestReturns503() throws Exception {
+		ourServlet.setAsyncTimeout(SLOW_REQUEST_MILLIS / 4);
+
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient/998");
+		CloseableHttpResponse status = ourClient.execute(httpGet);
+		try {
+			assertEquals(503, status.getStatusLine().getStatusCode());
+		} finally {
+			IOUtils.closeQuietly(status.getEntity().getContent());
+		}
+	}
+
+	@AfterClass
+	public static void afterClassClearContext() throws Exception {
+		ourServer.stop();
+		ourAsyncExecutor.shutdown();
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ourPort = PortUtil.findFreePort();
+
+		QueuedThreadPool threadPool = new QueuedThreadPool(10, 10);
+		ourServer = new Server(threadPool);
+		ServerConnector connector = new ServerConnector(ourServer, 1, 1);
+		connector.setPort(ourPort);
+		ourServer.addConnector(connector);
+
+		ServletHandler proxyHandler = new ServletHandler();
+		RestfulServer servlet = new RestfulServer(ourCtx);
+		ourServlet = servlet;
+		ourAsyncExecutor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+		servlet.setAsyncExecutor(ourAsyncExecutor);
+		servlet.setResourceProviders(new DummyPatientResourceProvider());
+		servlet.registerInterceptor(new InterceptorAdapter() {
+			@Override
+			public boolean incomingRequestPostProcessed(RequestDetails theRequestDetails, HttpServletRequest theRequest, HttpServletResponse theResponse) {
+				ourInterceptorCount.incrementAndGet();
+				return true;
+			}
+		});
+
+		ServletHolder servletHolder = new ServletHolder(servlet);
+		servletHolder.setAsyncSupported(true);
+		proxyHandler.addServletWithMapping(servletHolder, "/*");
+		ourServer.setHandler(proxyHandler);
+		ourServer.start();
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(5000, TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(CONCURRENT_REQUESTS);
+		connectionManager.setDefaultMaxPerRoute(CONCURRENT_REQUESTS);
+		HttpClientBuilder builder = HttpClientBuilder.create();
+		builder.setConnectionManager(connectionManager);
+		ourClient = builder.build();
+	}
+
+	public static class DummyPatientResourceProvider implements IResourceProvider {
+
+		@Override
+		public Class<? extends IBaseResource> getResourceType() {
+			return Patient.class;
+		}
+
+		@Read
+		public Patient read(@IdParam IdType theId) throws InterruptedException {
+			if (theId.getIdPartAsLong() == 999) {
+				throw new ResourceNotFoundException(theId);
+			}
+			if (theId.getIdPartAsLong() == 998) {
+				Thread.sleep(SLOW_REQUEST_MILLIS);
+			}
+			CountDownLatch latch = ourLatch;
+			if (latch != null) {
+				latch.countDown();
+				if (!latch.await(30, TimeUnit.SECONDS)) {
+					throw new InternalErrorException("Only " + (CONCURRENT_REQUESTS - latch.getCount()) + " of " + CONCURRENT_REQUESTS + " requests were in flight at the same time");
+				}
+			}
+			Patient retVal = new Patient();
+			retVal.setId(theId);
+			retVal.addName().addFamily("FAMILY" + theId.getIdPart());
+			return retVal;
+		}
+
+	}
+
+}
@@ -0,0 +1,206 @@
+package ca.uhn.fhir.rest.server;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.util.TestUtil;
+
+public class ConcurrentMemoryPagingProviderDstu3Test {
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private static IBundleProvider newList(int theSize) {
+		List<IBaseResource> resources = new ArrayList<IBaseResource>();
+		for (int i = 0; i < theSize; i++) {
+			resources.add(new Patient());
+		}
+		return new SimpleBundleProvider(resources);
+	}
+
+	@Test
+	public void testConcurrentStoreAndRetrieve() throws Exception {
+		final ConcurrentMemoryPagingProvider provider = new ConcurrentMemoryPagingProvider(50);
+		ExecutorService executor = Executors.newFixedThreadPool(10);
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < 10; i++) {
+				futures.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						int found = 0;
+						for (int j = 0; j < 1000; j++) {
+							IBundleProvider list = newList(1);
+							String id = provider.storeResultList(list);
+							if (provider.retrieveResultList(id) == list) {
+								found++;
+							}
+						}
+						return found;
+					}
+				}));
+			}
+			int found = 0;
+			for (Future<Integer> next : futures) {
+				found += next.get();
+			}
+
+			assertEquals(found, provider.getHitCount());
+			assertEquals(10000 - found, provider.getMissCount());
+		} finally {
+			executor.shutdown();
+		}
+
+		// Any pending eviction is performed on the next store
+		provider.storeResultList(newList(1));
+		assertThat(provider.getStoredCount(), lessThanOrEqualTo(50));
+		assertEquals(provider.getStoredCount(), provider.getWeight());
+		assertEquals(10001 - provider.getStoredCount(), provider.getEvictionCount());
+	}
+
+	@Test
+	public void testEvictOldestWhenSizeExceeded() {
+		ConcurrentMemoryPagingProvider provider = new ConcurrentMemoryPagingProvider(2);
+		String id1 = provider.storeResultList(newList(1));
+		String id2 = provider.storeResultList(newList(1));
+		IBundleProvider list3 = newList(1);
+		String id3 = provider.storeResultList(list3);
+
+		assertNull(provider.retrieveResultList(id1));
+		assertEquals(1, provider.getEvictionCount());
+		assertEquals(2, provider.getStoredCount());
+		provider.retrieveResultList(id2);
+		assertSame(list3, provider.retrieveResultList(id3));
+		assertEquals(2, provider.getHitCount());
+		assertEquals(1, provider.getMissCount());
+	}
+
+	@Test
+	public void testEvictWhenWeightExceeded() {
+		ConcurrentMemoryPagingProvider provider = new ConcurrentMemoryPagingProvider(100).setMaximumWeight(10);
+		String id1 = provider.storeResultList(newList(4));
+		String id2 = provider.storeResultList(newList(4));
+		assertEquals(8, provider.getWeight());
+
+		String id3 = provider.storeResultList(newList(4));
+		assertNull(provider.retrieveResultList(id1));
+		assertEquals(2, provider.getStoredCount());
+		assertEquals(8, provider.getWeight());
+
+		// A list heavier than the maximum is still kept until the next one is stored
+		String id4 = provider.storeResultList(newList(20));
+		assertNull(provider.retrieveResultList(id2));
+		assertNull(provider.retrieveResultList(id3));
+		assertEquals(20, provider.retrieveResultList(id4).size());
+		assertEquals(3, provider.getEvictionCount());
+	}
+
+	@Test
+	public void testExpireUnusedLists() {
+		ManualClockPagingProvider provider = new ManualClockPagingProvider(10);
+		provider.setTimeToLiveMillis(50);
+		String id1 = provider.storeResultList(newList(1));
+		String id2 = provider.storeResultList(newList(1));
+		provider.advance(100);
+
+		assertNull(provider.retrieveResultList(id1));
+		assertEquals(1, provider.getExpiryCount());
+
+		// Lists which are not retrieved again are swept when a new list is stored
+		provider.storeResultList(newList(1));
+		assertNull(provider.retrieveResultList(id2));
+		assertEquals(2, provider.getExpiryCount());
+		assertEquals(1, provider.getStoredCount());
+		assertEquals(1, provider.getWeight());
+	}
+
+	/**
+	 * Lists which expire must not leave their keys behind in the eviction queue, even if they were not the oldest
+	 */
+	@Test
+	public void testExpiredListsAreRemovedFromInsertionOrder() {
+		ManualClockPagingProvider provider = new ManualClockPagingProvider(10);
+		provider.setTimeToLiveMillis(200);
+		String oldest = provider.storeResultList(newList(1));
+		List<String> ids = new ArrayList<String>();
+		for (int i = 0; i < 5; i++) {
+			ids.add(provider.storeResultList(newList(1)));
+		}
+
+		// Keep the oldest list alive while the others expire
+		for (int i = 0; i < 6; i++) {
+			provider.advance(50);
+			provider.retrieveResultList(oldest);
+		}
+		assertNull(provider.retrieveResultList(ids.get(0)));
+		provider.storeResultList(newList(1));
+
+		assertEquals(5, provider.getExpiryCount());
+		assertEquals(2, provider.getStoredCount());
+		assertEquals(2, provider.getInsertionOrderSize());
+	}
+
+	/**
+	 * The key of a list which expired is left in the eviction queue until the next sweep, and must be skipped
+	 * (rather than evicting a live list in its place) if capacity is exceeded before then
+	 */
+	@Test
+	public void testEvictionSkipsKeysOfExpiredLists() {
+		ManualClockPagingProvider provider = new ManualClockPagingProvider(2);
+		provider.setTimeToLiveMillis(1000);
+		String expired = provider.storeResultList(newList(1));
+		// This sweeps, but the first list is not expired yet
+		provider.advance(1000);
+		String live1 = provider.storeResultList(newList(1));
+		// Before the next sweep is due
+		provider.advance(50);
+		assertNull(provider.retrieveResultList(expired));
+		assertEquals(2, provider.getInsertionOrderSize());
+
+		String live2 = provider.storeResultList(newList(1));
+		String live3 = provider.storeResultList(newList(1));
+
+		assertNull(provider.retrieveResultList(live1));
+		assertEquals(1, provider.retrieveResultList(live2).size());
+		assertEquals(1, provider.retrieveResultList(live3).size());
+		assertEquals(1, provider.getExpiryCount());
+		assertEquals(1, provider.getEvictionCount());
+	}
+
+	private static class ManualClockPagingProvider extends ConcurrentMemoryPagingProvider {
+
+		private long myNow = 1000;
+
+		public ManualClockPagingProvider(int theSize) {
+			super(theSize);
+		}
+
+		public void advance(long theMillis) {
+			myNow += theMillis;
+		}
+
+		@Override
+		long now() {
+			return myNow;
+		}
+
+	}
+
+}
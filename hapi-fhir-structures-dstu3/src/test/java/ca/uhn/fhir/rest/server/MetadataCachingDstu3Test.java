@@ -0,0 +1,223 @@
+package ca.uhn.fhir.rest.server;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.hl7.fhir.dstu3.model.Conformance;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Metadata;
+import ca.uhn.fhir.rest.annotation.Read;
+import ca.uhn.fhir.rest.method.RequestDetails;
+import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+import ca.uhn.fhir.util.PortUtil;
+import ca.uhn.fhir.util.TestUtil;
+
+public class MetadataCachingDstu3Test {
+
+	private static CloseableHttpClient ourClient;
+	private static final FhirContext ourCtx = FhirContext.forDstu3();
+	private static int ourInvocationCount;
+	private static int ourPort;
+	private static Server ourServer;
+	private static RestfulServer servlet;
+
+	@Before
+	public void before() {
+		servlet.setConformanceCacheMillis(60 * 1000L);
+		ourInvocationCount = 0;
+	}
+
+	private HttpResponse executeAndClose(HttpGet theGet) throws Exception {
+		HttpResponse status = ourClient.execute(theGet);
+		if (status.getEntity() != null) {
+			IOUtils.closeQuietly(status.getEntity().getContent());
+		}
+		return status;
+	}
+
+	@Test
+	public void testCacheDisabledByDefault() throws Exception {
+		servlet.setConformanceCacheMillis(RestfulServer.DEFAULT_CONFORMANCE_CACHE_MILLIS);
+
+		executeAndClose(new HttpGet("http://localhost:" + ourPort + "/metadata"));
+		HttpResponse status = executeAndClose(new HttpGet("http://localhost:" + ourPort + "/metadata"));
+		assertEquals(200, status.getStatusLine().getStatusCode());
+		assertEquals(2, ourInvocationCount);
+	}
+
+	@Test
+	public void testEncodingsAreCachedSeparately() throws Exception {
+		HttpResponse status = ourClient.execute(new HttpGet("http://localhost:" + ourPort + "/metadata?_format=xml"));
+		String xml = IOUtils.toString(status.getEntity().getContent());
+		IOUtils.closeQuietly(status.getEntity().getContent());
+		String xmlETag = status.getFirstHeader(Constants.HEADER_ETAG).getValue();
+		assertThat(xml, containsString("<Conformance"));
+
+		status = ourClient.execute(new HttpGet("http://localhost:" + ourPort + "/metadata?_format=json"));
+		String json = IOUtils.toString(status.getEntity().getContent());
+		IOUtils.closeQuietly(status.getEntity().getContent());
+		String jsonETag = status.getFirstHeader(Constants.HEADER_ETAG).getValue();
+		assertThat(json, containsString("\"resourceType\":\"Conformance\""));
+		assertThat(status.getFirstHeader(Constants.HEADER_CONTENT_TYPE).getValue(), containsString(Constants.CT_FHIR_JSON));
+
+		assertFalse(xmlETag.equals(jsonETag));
+		assertEquals(2, ourInvocationCount);
+	}
+
+	@Test
+	public void testIfNoneMatchReturnsNotModified() throws Exception {
+		HttpResponse status = executeAndClose(new HttpGet("http://localhost:" + ourPort + "/metadata"));
+		String eTag = status.getFirstHeader(Constants.HEADER_ETAG).getValue();
+
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/metadata");
+		httpGet.addHeader(Constants.HEADER_IF_NONE_MATCH, eTag);
+		status = executeAndClose(httpGet);
+		assertEquals(304, status.getStatusLine().getStatusCode());
+		assertEquals(eTag, status.getFirstHeader(Constants.HEADER_ETAG).getValue());
+
+		httpGet = new HttpGet("http://localhost:" + ourPort + "/metadata");
+		httpGet.addHeader(Constants.HEADER_IF_NONE_MATCH, "\"foo\"");
+		status = executeAndClose(httpGet);
+		assertEquals(200, status.getStatusLine().getStatusCode());
+
+		assertEquals(1, ourInvocationCount);
+	}
+
+	/**
+	 * The response is cached before interceptors see it, so changes an interceptor makes to the resource while
+	 * handling one request must not end up in the response served to later requests
+	 */
+	@Test
+	public void testInterceptorChangesAreNotCached() throws Exception {
+		IServerInterceptor interceptor = new InterceptorAdapter() {
+			@Override
+			public boolean outgoingResponse(RequestDetails theRequestDetails, IBaseResource theResponseObject) {
+				((Conformance) theResponseObject).setPublisher("CHANGED BY INTERCEPTOR");
+				return true;
+			}
+		};
+		servlet.registerInterceptor(interceptor);
+		try {
+			executeAndClose(new HttpGet("http://localhost:" + ourPort + "/metadata"));
+		} finally {
+			servlet.unregisterInterceptor(interceptor);
+		}
+
+		HttpResponse status = ourClient.execute(new HttpGet("http://localhost:" + ourPort + "/metadata"));
+		String output = IOUtils.toString(status.getEntity().getContent());
+		IOUtils.closeQuietly(status.getEntity().getContent());
+		assertThat(output, containsString("Invocation 1"));
+		assertThat(output, not(containsString("CHANGED BY INTERCEPTOR")));
+		assertEquals(1, ourInvocationCount);
+	}
+
+	@Test
+	public void testRegisteringProviderClearsCache() throws Exception {
+		executeAndClose(new HttpGet("http://localhost:" + ourPort + "/metadata"));
+		executeAndClose(new HttpGet("http://localhost:" + ourPort + "/metadata"));
+		assertEquals(1, ourInvocationCount);
+
+		DummyPatientResourceProvider provider = new DummyPatientResourceProvider();
+		servlet.registerProvider(provider);
+		executeAndClose(new HttpGet("http://localhost:" + ourPort + "/metadata"));
+		assertEquals(2, ourInvocationCount);
+
+		servlet.unregisterProvider(provider);
+		executeAndClose(new HttpGet("http://localhost:" + ourPort + "/metadata"));
+		assertEquals(3, ourInvocationCount);
+	}
+
+	@Test
+	public void testRepeatedRequestsAreServedFromCache() throws Exception {
+		String first = null;
+		for (int i = 0; i < 5; i++) {
+			HttpResponse status = ourClient.execute(new HttpGet("http://localhost:" + ourPort + "/metadata"));
+			String output = IOUtils.toString(status.getEntity().getContent());
+			IOUtils.closeQuietly(status.getEntity().getContent());
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			assertNotNull(status.getFirstHeader(Constants.HEADER_ETAG));
+			if (first == null) {
+				first = output;
+			}
+			assertEquals(first, output);
+		}
+		assertEquals(1, ourInvocationCount);
+	}
+
+	@AfterClass
+	public static void afterClassClearContext() throws Exception {
+		ourServer.stop();
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ourPort = PortUtil.findFreePort();
+		ourServer = new Server(ourPort);
+
+		ServletHandler proxyHandler = new ServletHandler();
+		servlet = new RestfulServer(ourCtx);
+		servlet.setServerConformanceProvider(new DummyConformanceProvider());
+		ServletHolder servletHolder = new ServletHolder(servlet);
+		proxyHandler.addServletWithMapping(servletHolder, "/*");
+		ourServer.setHandler(proxyHandler);
+		ourServer.start();
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(5000, TimeUnit.MILLISECONDS);
+		HttpClientBuilder builder = HttpClientBuilder.create();
+		builder.setConnectionManager(connectionManager);
+		ourClient = builder.build();
+	}
+
+	public static class DummyConformanceProvider {
+
+		@Metadata
+		public Conformance getServerConformance() {
+			ourInvocationCount++;
+			Conformance retVal = new Conformance();
+			retVal.setPublisher("Invocation " + ourInvocationCount);
+			return retVal;
+		}
+
+	}
+
+	public static class DummyPatientResourceProvider implements IResourceProvider {
+
+		@Override
+		public Class<? extends IBaseResource> getResourceType() {
+			return Patient.class;
+		}
+
+		@Read
+		public Patient read(@IdParam IdType theId) {
+			return new Patient();
+		}
+
+	}
+
+}
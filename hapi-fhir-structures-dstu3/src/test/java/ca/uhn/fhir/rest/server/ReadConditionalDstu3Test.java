@@ -0,0 +1,196 @@
+package ca.uhn.fhir.rest.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Read;
+import ca.uhn.fhir.rest.method.RequestDetails;
+import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
+import ca.uhn.fhir.rest.server.interceptor.auth.AuthorizationInterceptor;
+import ca.uhn.fhir.rest.server.interceptor.auth.IAuthRule;
+import ca.uhn.fhir.rest.server.interceptor.auth.PolicyEnum;
+import ca.uhn.fhir.rest.server.interceptor.auth.RuleBuilder;
+import ca.uhn.fhir.util.DateUtils;
+import ca.uhn.fhir.util.PortUtil;
+import ca.uhn.fhir.util.TestUtil;
+
+public class ReadConditionalDstu3Test {
+
+	private static final Date LAST_UPDATED = new Date(1460000000000L);
+
+	private static CloseableHttpClient ourClient;
+	private static final FhirContext ourCtx = FhirContext.forDstu3();
+	private static int ourPort;
+	private static int ourReadCount;
+	private static Server ourServer;
+	private static RestfulServer ourServlet;
+	private static int ourVersionCount;
+
+	@Before
+	public void before() {
+		ourReadCount = 0;
+		ourVersionCount = 0;
+	}
+
+	private int executeAndReturnStatus(String theIfNoneMatch, String theIfModifiedSince) throws Exception {
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient/123");
+		if (theIfNoneMatch != null) {
+			httpGet.addHeader(Constants.HEADER_IF_NONE_MATCH, theIfNoneMatch);
+		}
+		if (theIfModifiedSince != null) {
+			httpGet.addHeader(Constants.HEADER_IF_MODIFIED_SINCE, theIfModifiedSince);
+		}
+		HttpResponse status = ourClient.execute(httpGet);
+		if (status.getEntity() != null) {
+			IOUtils.closeQuietly(status.getEntity().getContent());
+		}
+		return status.getStatusLine().getStatusCode();
+	}
+
+	/**
+	 * The client's copy being current must not let it skip authorization, so with an interceptor registered the
+	 * resource is read and the interceptor gets to refuse it
+	 */
+	@Test
+	public void testAuthorizationInterceptorDeniesConditionalRead() throws Exception {
+		IServerInterceptor interceptor = new AuthorizationInterceptor(PolicyEnum.DENY) {
+			@Override
+			public List<IAuthRule> buildRuleList(RequestDetails theRequestDetails) {
+				return new RuleBuilder().deny("Rule 1").read().resourcesOfType(Patient.class).withAnyId().build();
+			}
+		};
+		ourServlet.registerInterceptor(interceptor);
+		try {
+			assertEquals(403, executeAndReturnStatus("W/\"2\"", null));
+			assertEquals(403, executeAndReturnStatus(null, DateUtils.formatDate(LAST_UPDATED)));
+			assertEquals(0, ourVersionCount);
+			assertEquals(2, ourReadCount);
+		} finally {
+			ourServlet.unregisterInterceptor(interceptor);
+		}
+	}
+
+	@Test
+	public void testAuthorizationInterceptorAllowsConditionalRead() throws Exception {
+		IServerInterceptor interceptor = new AuthorizationInterceptor(PolicyEnum.DENY) {
+			@Override
+			public List<IAuthRule> buildRuleList(RequestDetails theRequestDetails) {
+				return new RuleBuilder().allowAll("Rule 1").build();
+			}
+		};
+		ourServlet.registerInterceptor(interceptor);
+		try {
+			assertEquals(304, executeAndReturnStatus("W/\"2\"", null));
+			assertEquals(0, ourVersionCount);
+			assertEquals(1, ourReadCount);
+		} finally {
+			ourServlet.unregisterInterceptor(interceptor);
+		}
+	}
+
+	@Test
+	public void testIfModifiedSince() throws Exception {
+		assertEquals(304, executeAndReturnStatus(null, DateUtils.formatDate(LAST_UPDATED)));
+		assertEquals(304, executeAndReturnStatus(null, DateUtils.formatDate(new Date(LAST_UPDATED.getTime() + 60000))));
+		assertEquals(0, ourReadCount);
+
+		assertEquals(200, executeAndReturnStatus(null, DateUtils.formatDate(new Date(LAST_UPDATED.getTime() - 60000))));
+		assertEquals(1, ourReadCount);
+	}
+
+	@Test
+	public void testIfNoneMatch() throws Exception {
+		assertEquals(304, executeAndReturnStatus("W/\"2\"", null));
+		assertEquals(1, ourVersionCount);
+		assertEquals(0, ourReadCount);
+
+		assertEquals(200, executeAndReturnStatus("W/\"1\"", null));
+		assertEquals(1, ourReadCount);
+	}
+
+	@Test
+	public void testIfNoneMatchTakesPrecedence() throws Exception {
+		assertEquals(200, executeAndReturnStatus("W/\"1\"", DateUtils.formatDate(LAST_UPDATED)));
+		assertEquals(1, ourReadCount);
+	}
+
+	@Test
+	public void testUnconditionalReadDoesNotLookUpVersion() throws Exception {
+		assertEquals(200, executeAndReturnStatus(null, null));
+		assertEquals(0, ourVersionCount);
+		assertEquals(1, ourReadCount);
+	}
+
+	@AfterClass
+	public static void afterClassClearContext() throws Exception {
+		ourServer.stop();
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ourPort = PortUtil.findFreePort();
+		ourServer = new Server(ourPort);
+
+		ServletHandler proxyHandler = new ServletHandler();
+		ourServlet = new RestfulServer(ourCtx);
+		ourServlet.setResourceProviders(new PatientProvider());
+		ServletHolder servletHolder = new ServletHolder(ourServlet);
+		proxyHandler.addServletWithMapping(servletHolder, "/*");
+		ourServer.setHandler(proxyHandler);
+		ourServer.start();
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(5000, TimeUnit.MILLISECONDS);
+		HttpClientBuilder builder = HttpClientBuilder.create();
+		builder.setConnectionManager(connectionManager);
+		ourClient = builder.build();
+	}
+
+	public static class PatientProvider implements IResourceProvider, IResourceVersionProvider {
+
+		@Override
+		public Class<? extends IBaseResource> getResourceType() {
+			return Patient.class;
+		}
+
+		@Override
+		public ResourceVersion getResourceVersion(IIdType theId, RequestDetails theRequestDetails) {
+			ourVersionCount++;
+			return new ResourceVersion("2", LAST_UPDATED);
+		}
+
+		@Read
+		public Patient read(@IdParam IdType theId) {
+			ourReadCount++;
+			Patient retVal = new Patient();
+			retVal.setId(theId.withVersion("2"));
+			retVal.getMeta().setLastUpdated(LAST_UPDATED);
+			return retVal;
+		}
+
+	}
+
+}
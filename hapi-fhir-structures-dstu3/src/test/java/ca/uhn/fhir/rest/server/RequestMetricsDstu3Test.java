@@ -0,0 +1,181 @@
+package ca.uhn.fhir.rest.server;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Read;
+import ca.uhn.fhir.rest.method.RequestDetails;
+import ca.uhn.fhir.util.PortUtil;
+import ca.uhn.fhir.util.TestUtil;
+
+public class RequestMetricsDstu3Test {
+
+	private static CloseableHttpClient ourClient;
+	private static final FhirContext ourCtx = FhirContext.forDstu3();
+	private static volatile RequestMetrics ourLastMetrics;
+	private static volatile RequestDetails ourLastRequestDetails;
+	private static int ourPort;
+	private static Server ourServer;
+	private static RestfulServer servlet;
+
+	@Before
+	public void before() {
+		servlet.setRequestMetricsSink(null);
+		servlet.setServerTimingHeaderEnabled(false);
+		ourLastMetrics = null;
+		ourLastRequestDetails = null;
+	}
+
+	@Test
+	public void testDisabledMetricsRecordNothing() {
+		RequestMetrics metrics = RequestMetrics.DISABLED;
+		metrics.startTimer(RequestMetrics.PHASE_METHOD).stop();
+		metrics.incrementCounter(RequestMetrics.COUNTER_RESOURCES_LOADED, 1);
+
+		assertFalse(metrics.isEnabled());
+		assertEquals(0, metrics.getPhaseNanos(RequestMetrics.PHASE_METHOD));
+		assertEquals(0, metrics.getCounter(RequestMetrics.COUNTER_RESOURCES_LOADED));
+		assertSame(RequestMetrics.DISABLED, RequestMetrics.getCurrent());
+	}
+
+	@Test
+	public void testNoHeaderByDefault() throws Exception {
+		CloseableHttpResponse status = ourClient.execute(new HttpGet("http://localhost:" + ourPort + "/Patient/1"));
+		try {
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			assertNull(status.getFirstHeader(Constants.HEADER_SERVER_TIMING));
+		} finally {
+			IOUtils.closeQuietly(status.getEntity().getContent());
+		}
+	}
+
+	@Test
+	public void testServerTimingHeader() throws Exception {
+		servlet.setServerTimingHeaderEnabled(true);
+
+		CloseableHttpResponse status = ourClient.execute(new HttpGet("http://localhost:" + ourPort + "/Patient/1"));
+		try {
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			String header = status.getFirstHeader(Constants.HEADER_SERVER_TIMING).getValue();
+			assertThat(header, startsWith(RequestMetrics.PHASE_INTERCEPTORS + ";dur="));
+			assertThat(header, containsString(RequestMetrics.PHASE_PARSE + ";dur="));
+			assertThat(header, containsString(RequestMetrics.PHASE_METHOD + ";dur="));
+			assertThat(header, containsString("total;dur="));
+		} finally {
+			IOUtils.closeQuietly(status.getEntity().getContent());
+		}
+	}
+
+	@Test
+	public void testServerTimingHeaderFormat() {
+		RequestMetrics metrics = new RequestMetrics();
+		metrics.addPhaseNanos(RequestMetrics.PHASE_METHOD, 1500000);
+		metrics.addPhaseNanos(RequestMetrics.PHASE_ENCODE, 250000);
+		metrics.addPhaseNanos(RequestMetrics.PHASE_METHOD, 1500000);
+
+		assertEquals(3000000, metrics.getPhaseNanos(RequestMetrics.PHASE_METHOD));
+		assertThat(metrics.toServerTimingHeader(), startsWith("method;dur=3.000, encode;dur=0.250, total;dur="));
+	}
+
+	@Test
+	public void testSinkReceivesMetrics() throws Exception {
+		servlet.setRequestMetricsSink(new IRequestMetricsSink() {
+			@Override
+			public void requestCompleted(RequestDetails theRequestDetails, RequestMetrics theMetrics) {
+				ourLastRequestDetails = theRequestDetails;
+				ourLastMetrics = theMetrics;
+			}
+		});
+
+		CloseableHttpResponse status = ourClient.execute(new HttpGet("http://localhost:" + ourPort + "/Patient/1?_format=json"));
+		byte[] responseContent;
+		try {
+			responseContent = IOUtils.toByteArray(status.getEntity().getContent());
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			assertNull(status.getFirstHeader(Constants.HEADER_SERVER_TIMING));
+		} finally {
+			IOUtils.closeQuietly(status.getEntity().getContent());
+		}
+
+		// The sink is invoked after the response has been written, so it may not have been called yet
+		for (int i = 0; i < 100 && ourLastMetrics == null; i++) {
+			Thread.sleep(10);
+		}
+		assertNotNull(ourLastMetrics);
+		assertSame(ourLastMetrics, ourLastRequestDetails.getMetrics());
+		assertThat(ourLastMetrics.getPhaseNanos(RequestMetrics.PHASE_METHOD), greaterThan(0L));
+		assertThat(ourLastMetrics.getPhaseNanos(RequestMetrics.PHASE_ENCODE), greaterThan(0L));
+		assertEquals(responseContent.length, ourLastMetrics.getCounter(RequestMetrics.COUNTER_BYTES_WRITTEN));
+	}
+
+	@AfterClass
+	public static void afterClassClearContext() throws Exception {
+		ourServer.stop();
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ourPort = PortUtil.findFreePort();
+		ourServer = new Server(ourPort);
+
+		ServletHandler proxyHandler = new ServletHandler();
+		servlet = new RestfulServer(ourCtx);
+		servlet.setResourceProviders(new DummyPatientResourceProvider());
+		ServletHolder servletHolder = new ServletHolder(servlet);
+		proxyHandler.addServletWithMapping(servletHolder, "/*");
+		ourServer.setHandler(proxyHandler);
+		ourServer.start();
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(5000, TimeUnit.MILLISECONDS);
+		HttpClientBuilder builder = HttpClientBuilder.create();
+		builder.setConnectionManager(connectionManager);
+		ourClient = builder.build();
+	}
+
+	public static class DummyPatientResourceProvider implements IResourceProvider {
+
+		@Override
+		public Class<? extends IBaseResource> getResourceType() {
+			return Patient.class;
+		}
+
+		@Read
+		public Patient read(@IdParam IdType theId) {
+			Patient retVal = new Patient();
+			retVal.setId(theId);
+			retVal.addName().addFamily("FAMILY \u00e9\u00e8");
+			return retVal;
+		}
+
+	}
+
+}
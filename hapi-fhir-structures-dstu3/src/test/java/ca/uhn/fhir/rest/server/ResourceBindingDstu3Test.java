@@ -0,0 +1,162 @@
+package ca.uhn.fhir.rest.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Read;
+import ca.uhn.fhir.rest.annotation.RequiredParam;
+import ca.uhn.fhir.rest.annotation.Search;
+import ca.uhn.fhir.rest.api.RequestTypeEnum;
+import ca.uhn.fhir.rest.method.BaseMethodBinding;
+import ca.uhn.fhir.rest.method.RequestDetails;
+import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import ca.uhn.fhir.util.TestUtil;
+
+public class ResourceBindingDstu3Test {
+
+	private static FhirContext ourCtx = FhirContext.forDstu3();
+	private ResourceBinding myBinding;
+	private PatientProvider myProvider;
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private BaseMethodBinding<?> bind(String theMethodName) {
+		for (Method next : PatientProvider.class.getMethods()) {
+			if (next.getName().equals(theMethodName)) {
+				return BaseMethodBinding.bindMethod(next, ourCtx, myProvider);
+			}
+		}
+		throw new IllegalArgumentException(theMethodName);
+	}
+
+	@Before
+	public void before() {
+		myProvider = new PatientProvider();
+		myBinding = new ResourceBinding();
+		myBinding.setResourceName("Patient");
+		List<BaseMethodBinding<?>> methods = new ArrayList<BaseMethodBinding<?>>();
+		methods.add(bind("read"));
+		methods.add(bind("searchByName"));
+		methods.add(bind("searchByIdentifier"));
+		myBinding.setMethods(methods);
+	}
+
+	private static RequestDetails newRequest(RequestTypeEnum theRequestType, String theId, String... theParamNames) {
+		ServletRequestDetails retVal = new ServletRequestDetails();
+		retVal.setResourceName("Patient");
+		retVal.setRequestType(theRequestType);
+		if (theId != null) {
+			retVal.setId(new IdType("Patient", theId));
+		}
+		Map<String, String[]> params = new HashMap<String, String[]>();
+		for (String next : theParamNames) {
+			params.put(next, new String[] { "value" });
+		}
+		retVal.setParameters(params);
+		return retVal;
+	}
+
+	@Test
+	public void testAddMethodClearsCache() {
+		assertNull(myBinding.getMethod(newRequest(RequestTypeEnum.GET, null)));
+		assertEquals(1, myBinding.getDispatchCacheSize());
+
+		assertSame(myBinding.getMethodBindings().get(1), myBinding.getMethod(newRequest(RequestTypeEnum.GET, null, "name")));
+		assertEquals(1, myBinding.getDispatchCacheSize());
+
+		myBinding.addMethod(bind("searchAll"));
+		assertEquals(0, myBinding.getDispatchCacheSize());
+		assertSame(myBinding.getMethodBindings().get(3), myBinding.getMethod(newRequest(RequestTypeEnum.GET, null)));
+	}
+
+	@Test
+	public void testCacheIsBounded() {
+		for (int i = 0; i < ResourceBinding.MAX_DISPATCH_CACHE_SIZE + 10; i++) {
+			RequestDetails request = newRequest(RequestTypeEnum.GET, null);
+			request.setOperation("$op" + i);
+			assertNull(myBinding.getMethod(request));
+		}
+		assertEquals(ResourceBinding.MAX_DISPATCH_CACHE_SIZE, myBinding.getDispatchCacheSize());
+
+		// Shapes which are not remembered are still matched
+		assertSame(myBinding.getMethodBindings().get(1), myBinding.getMethod(newRequest(RequestTypeEnum.GET, null, "name")));
+		assertEquals(ResourceBinding.MAX_DISPATCH_CACHE_SIZE, myBinding.getDispatchCacheSize());
+	}
+
+	@Test
+	public void testParameterNamesDoNotAddCacheEntries() {
+		for (int i = 0; i < ResourceBinding.MAX_DISPATCH_CACHE_SIZE + 10; i++) {
+			myBinding.getMethod(newRequest(RequestTypeEnum.GET, null, "name", "name:exact" + i));
+		}
+		assertEquals(1, myBinding.getDispatchCacheSize());
+	}
+
+	@Test
+	public void testRepeatedRequestsUseSameBinding() {
+		BaseMethodBinding<?> read = myBinding.getMethodBindings().get(0);
+		BaseMethodBinding<?> byName = myBinding.getMethodBindings().get(1);
+		BaseMethodBinding<?> byIdentifier = myBinding.getMethodBindings().get(2);
+
+		for (int i = 0; i < 3; i++) {
+			assertSame(read, myBinding.getMethod(newRequest(RequestTypeEnum.GET, "123")));
+			assertSame(byName, myBinding.getMethod(newRequest(RequestTypeEnum.GET, null, "name")));
+			assertSame(byName, myBinding.getMethod(newRequest(RequestTypeEnum.GET, null, "name", "_count")));
+			assertSame(byIdentifier, myBinding.getMethod(newRequest(RequestTypeEnum.GET, null, "identifier")));
+			assertNull(myBinding.getMethod(newRequest(RequestTypeEnum.GET, null, "name", "identifier")));
+			assertNull(myBinding.getMethod(newRequest(RequestTypeEnum.GET, null, "foo")));
+		}
+
+		// One entry for reads and one for searches, whatever their parameters
+		assertEquals(2, myBinding.getDispatchCacheSize());
+	}
+
+	public static class PatientProvider implements IResourceProvider {
+
+		@Override
+		public Class<Patient> getResourceType() {
+			return Patient.class;
+		}
+
+		@Read
+		public Patient read(@IdParam IdType theId) {
+			return null;
+		}
+
+		@Search
+		public List<Patient> searchAll() {
+			return null;
+		}
+
+		@Search
+		public List<Patient> searchByIdentifier(@RequiredParam(name = Patient.SP_IDENTIFIER) TokenParam theIdentifier) {
+			return null;
+		}
+
+		@Search
+		public List<Patient> searchByName(@RequiredParam(name = Patient.SP_NAME) StringParam theName) {
+			return null;
+		}
+
+	}
+
+}
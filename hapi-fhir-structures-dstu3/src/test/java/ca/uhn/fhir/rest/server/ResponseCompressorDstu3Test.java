@@ -0,0 +1,189 @@
+package ca.uhn.fhir.rest.server;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import ca.uhn.fhir.util.TestUtil;
+
+public class ResponseCompressorDstu3Test {
+
+	private static final byte[] CONTENTS = StringUtils.repeat("<Patient xmlns=\"http://hl7.org/fhir\"/>", 1000).getBytes(Constants.CHARSET_UTF8);
+
+	private ResponseCompressor myCompressor;
+	private ByteArrayOutputStream myOutput;
+	private HttpServletResponse myResponse;
+
+	@Before
+	public void before() throws IOException {
+		myCompressor = new ResponseCompressor();
+		myOutput = new ByteArrayOutputStream();
+		myResponse = mock(HttpServletResponse.class);
+		when(myResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+			public boolean isReady() {
+				return true;
+			}
+
+			public void setWriteListener(WriteListener theWriteListener) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void write(int theByte) throws IOException {
+				myOutput.write(theByte);
+			}
+		});
+	}
+
+	private void write(ServletRequestDetails theRequest, String theEncoding, byte[] theContents) throws IOException {
+		OutputStream os = myCompressor.newOutputStream(theRequest, myResponse, theEncoding);
+		os.write(theContents);
+		os.close();
+	}
+
+	@Test
+	public void testCacheCompressedResponses() throws Exception {
+		myCompressor.setCacheSize(10);
+		ServletRequestDetails request = new ServletRequestDetails();
+		request.setRestOperationType(RestOperationTypeEnum.VREAD);
+		request.setResourceName("Patient");
+		request.setId(new IdType("Patient/123/_history/2"));
+
+		write(request, Constants.ENCODING_GZIP, CONTENTS);
+		byte[] first = myOutput.toByteArray();
+		myOutput.reset();
+		write(request, Constants.ENCODING_GZIP, CONTENTS);
+
+		assertArrayEquals(first, myOutput.toByteArray());
+		assertArrayEquals(CONTENTS, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(first))));
+		assertEquals(1, myCompressor.getCacheHitCount());
+		assertEquals(2, myCompressor.getCompressedResponseCount());
+	}
+
+	@Test
+	public void testCacheOnlyUsedForCacheableRequests() throws Exception {
+		myCompressor.setCacheSize(10);
+		ServletRequestDetails request = new ServletRequestDetails();
+		request.setRestOperationType(RestOperationTypeEnum.READ);
+		request.setResourceName("Patient");
+		request.setId(new IdType("Patient/123"));
+
+		write(request, Constants.ENCODING_GZIP, CONTENTS);
+		write(request, Constants.ENCODING_GZIP, CONTENTS);
+		assertEquals(0, myCompressor.getCacheHitCount());
+
+		request.setId(new IdType("Patient/123/_history/2"));
+		write(request, Constants.ENCODING_GZIP, CONTENTS);
+		write(request, Constants.ENCODING_GZIP, CONTENTS);
+		assertEquals(1, myCompressor.getCacheHitCount());
+
+		request = new ServletRequestDetails();
+		request.setRestOperationType(RestOperationTypeEnum.READ);
+		request.setResourceName("StructureDefinition");
+		request.setId(new IdType("StructureDefinition/123"));
+		write(request, Constants.ENCODING_GZIP, CONTENTS);
+		assertEquals(2, myCompressor.getCacheHitCount());
+
+		// Searches are never cached, even for StructureDefinition
+		request = new ServletRequestDetails();
+		request.setRestOperationType(RestOperationTypeEnum.SEARCH_TYPE);
+		request.setResourceName("StructureDefinition");
+		write(request, Constants.ENCODING_GZIP, CONTENTS);
+		write(request, Constants.ENCODING_GZIP, CONTENTS);
+		assertEquals(2, myCompressor.getCacheHitCount());
+
+		request = new ServletRequestDetails();
+		request.setRestOperationType(RestOperationTypeEnum.METADATA);
+		write(request, Constants.ENCODING_GZIP, CONTENTS);
+		assertEquals(2, myCompressor.getCacheHitCount());
+	}
+
+	@Test
+	public void testCompressDeflate() throws Exception {
+		myCompressor.setCompressionLevel(9);
+		write(new ServletRequestDetails(), ResponseCompressor.ENCODING_DEFLATE, CONTENTS);
+
+		verify(myResponse).addHeader(Constants.HEADER_CONTENT_ENCODING, ResponseCompressor.ENCODING_DEFLATE);
+		verify(myResponse).addHeader(Constants.HEADER_VARY, Constants.HEADER_ACCEPT_ENCODING);
+		InputStream is = new InflaterInputStream(new ByteArrayInputStream(myOutput.toByteArray()));
+		assertArrayEquals(CONTENTS, IOUtils.toByteArray(is));
+
+		assertEquals(CONTENTS.length, myCompressor.getBytesIn());
+		assertEquals(myOutput.size(), myCompressor.getBytesOut());
+		assertThat(myCompressor.getBytesOut(), lessThan(myCompressor.getBytesIn() / 10));
+	}
+
+	@Test
+	public void testCompressGzip() throws Exception {
+		write(new ServletRequestDetails(), Constants.ENCODING_GZIP, CONTENTS);
+
+		verify(myResponse).addHeader(Constants.HEADER_CONTENT_ENCODING, Constants.ENCODING_GZIP);
+		InputStream is = new GZIPInputStream(new ByteArrayInputStream(myOutput.toByteArray()));
+		assertArrayEquals(CONTENTS, IOUtils.toByteArray(is));
+		assertEquals(1, myCompressor.getCompressedResponseCount());
+	}
+
+	@Test
+	public void testMinimumSize() throws Exception {
+		myCompressor.setMinimumSize(1024);
+		byte[] contents = "<Patient xmlns=\"http://hl7.org/fhir\"/>".getBytes(Constants.CHARSET_UTF8);
+		write(new ServletRequestDetails(), Constants.ENCODING_GZIP, contents);
+
+		verify(myResponse, never()).addHeader(Constants.HEADER_CONTENT_ENCODING, Constants.ENCODING_GZIP);
+		verify(myResponse).addHeader(Constants.HEADER_VARY, Constants.HEADER_ACCEPT_ENCODING);
+		verify(myResponse).setContentLength(contents.length);
+		assertArrayEquals(contents, myOutput.toByteArray());
+		assertEquals(0, myCompressor.getCompressedResponseCount());
+	}
+
+	@Test
+	public void testNegotiateContentEncoding() {
+		assertNull(myCompressor.negotiateContentEncoding(null));
+		assertNull(myCompressor.negotiateContentEncoding(""));
+		assertNull(myCompressor.negotiateContentEncoding("identity"));
+		assertNull(myCompressor.negotiateContentEncoding("gzip;q=0"));
+		assertEquals("gzip", myCompressor.negotiateContentEncoding("gzip"));
+		assertEquals("gzip", myCompressor.negotiateContentEncoding("gzip, deflate"));
+		assertEquals("gzip", myCompressor.negotiateContentEncoding("*"));
+		assertEquals("deflate", myCompressor.negotiateContentEncoding("deflate"));
+		assertEquals("deflate", myCompressor.negotiateContentEncoding("gzip;q=0.5, deflate"));
+		assertEquals("gzip", myCompressor.negotiateContentEncoding("gzip;q=1.0, deflate;q=0.5"));
+
+		myCompressor.setDeflateEnabled(false);
+		assertNull(myCompressor.negotiateContentEncoding("deflate"));
+		assertEquals("gzip", myCompressor.negotiateContentEncoding("gzip;q=0.5, deflate"));
+	}
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+}
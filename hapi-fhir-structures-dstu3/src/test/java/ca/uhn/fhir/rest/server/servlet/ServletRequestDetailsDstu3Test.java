@@ -0,0 +1,170 @@
+package ca.uhn.fhir.rest.server.servlet;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.server.Constants;
+import ca.uhn.fhir.rest.server.RestfulServer;
+import ca.uhn.fhir.util.TestUtil;
+
+public class ServletRequestDetailsDstu3Test {
+
+	private static FhirContext ourCtx = FhirContext.forDstu3();
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+	private static byte[] gzip(byte[] theBytes) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		GZIPOutputStream gos = new GZIPOutputStream(bos);
+		gos.write(theBytes);
+		gos.close();
+		return bos.toByteArray();
+	}
+
+	private static ServletRequestDetails newRequestDetails(CountingServletInputStream theInputStream, String theContentEncoding, boolean theStreamRequestContents) throws IOException {
+		HttpServletRequest servletRequest = mock(HttpServletRequest.class);
+		when(servletRequest.getInputStream()).thenReturn(theInputStream);
+		when(servletRequest.getHeader(Constants.HEADER_CONTENT_ENCODING)).thenReturn(theContentEncoding);
+
+		RestfulServer server = new RestfulServer(ourCtx);
+		server.setStreamRequestContents(theStreamRequestContents);
+		ServletRequestDetails retVal = new ServletRequestDetails();
+		retVal.setServer(server);
+		retVal.setServletRequest(servletRequest);
+		return retVal;
+	}
+
+	@Test
+	public void testEmptyGzippedBody() throws Exception {
+		ServletRequestDetails details = newRequestDetails(new CountingServletInputStream(new byte[0]), "gzip", true);
+		assertEquals(0, details.loadRequestContents().length);
+	}
+
+	/**
+	 * Unless streaming is enabled on the server, the body remains available to interceptors
+	 * after it has been parsed
+	 */
+	@Test
+	public void testContentsAreLoadedByDefault() throws Exception {
+		byte[] contents = "{\"resourceType\":\"Patient\"}".getBytes(Constants.CHARSET_UTF8);
+		ServletRequestDetails details = newRequestDetails(new CountingServletInputStream(contents), null, false);
+
+		assertArrayEquals(contents, IOUtils.toByteArray(details.getRequestContentsStream()));
+		assertArrayEquals(contents, details.loadRequestContents());
+		assertArrayEquals(contents, IOUtils.toByteArray(details.getRequestContentsStream()));
+	}
+
+	@Test
+	public void testLoadedContentsCanBeStreamedRepeatedly() throws Exception {
+		byte[] contents = "{\"resourceType\":\"Patient\"}".getBytes(Constants.CHARSET_UTF8);
+		ServletRequestDetails details = newRequestDetails(new CountingServletInputStream(contents), null, true);
+
+		assertArrayEquals(contents, details.loadRequestContents());
+		assertArrayEquals(contents, IOUtils.toByteArray(details.getRequestContentsStream()));
+		assertArrayEquals(contents, IOUtils.toByteArray(details.getRequestContentsStream()));
+	}
+
+	@Test
+	public void testStreamedContentsCanNotBeLoaded() throws Exception {
+		byte[] contents = "{\"resourceType\":\"Patient\"}".getBytes(Constants.CHARSET_UTF8);
+		ServletRequestDetails details = newRequestDetails(new CountingServletInputStream(contents), null, true);
+
+		assertArrayEquals(contents, IOUtils.toByteArray(details.getRequestContentsStream()));
+		try {
+			details.loadRequestContents();
+			fail();
+		} catch (IllegalStateException e) {
+			// good
+		}
+	}
+
+	@Test
+	public void testStreamGzippedBody() throws Exception {
+		byte[] contents = StringUtils.repeat("{\"resourceType\":\"Patient\",\"id\":\"123\"}", 100000).getBytes(Constants.CHARSET_UTF8);
+		byte[] compressed = gzip(contents);
+		CountingServletInputStream inputStream = new CountingServletInputStream(compressed);
+		ServletRequestDetails details = newRequestDetails(inputStream, "gzip", true);
+
+		InputStream stream = details.getRequestContentsStream();
+		byte[] start = new byte[100];
+		IOUtils.readFully(stream, start);
+
+		// Only as much as needed should have been read from the request so far
+		assertThat(inputStream.getCount(), lessThan(compressed.length));
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		bos.write(start);
+		IOUtils.copy(stream, bos);
+		assertArrayEquals(contents, bos.toByteArray());
+	}
+
+	private static class CountingServletInputStream extends ServletInputStream {
+
+		private int myCount;
+		private final ByteArrayInputStream myStream;
+
+		public CountingServletInputStream(byte[] theBytes) {
+			myStream = new ByteArrayInputStream(theBytes);
+		}
+
+		public int getCount() {
+			return myCount;
+		}
+
+		public boolean isFinished() {
+			return myStream.available() == 0;
+		}
+
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int retVal = myStream.read();
+			if (retVal != -1) {
+				myCount++;
+			}
+			return retVal;
+		}
+
+		@Override
+		public int read(byte[] theBuffer, int theOffset, int theLength) throws IOException {
+			int retVal = myStream.read(theBuffer, theOffset, theLength);
+			if (retVal > 0) {
+				myCount += retVal;
+			}
+			return retVal;
+		}
+
+		public void setReadListener(ReadListener theReadListener) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
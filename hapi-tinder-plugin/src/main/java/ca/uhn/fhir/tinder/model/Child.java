@@ -9,6 +9,7 @@ import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
 
+import ca.uhn.fhir.model.api.BaseDeferredPrimitive;
 import ca.uhn.fhir.model.api.BasePrimitive;
 import ca.uhn.fhir.model.api.IDatatype;
 import ca.uhn.fhir.model.dstu.composite.ResourceReferenceDt;
@@ -170,7 +171,7 @@ public abstract class Child extends BaseElement {
 			return String.class.getSimpleName();
 		}
 			
-		while (!clazz.getSuperclass().equals(BasePrimitive.class)) {
+		while (!clazz.getSuperclass().equals(BasePrimitive.class) && !clazz.getSuperclass().equals(BaseDeferredPrimitive.class)) {
 			clazz = clazz.getSuperclass();
 			if (clazz.equals(Object.class)) {
 				throw new Error("Parent of " + name + " is not BasePrimitive");